@@ -34,6 +34,7 @@ public class AllTests
 		suite.addTestSuite( org.eclipse.birt.core.archive.ArchiveFileSaveTest.class );
 		suite.addTestSuite( org.eclipse.birt.core.archive.ArchiveFlushTest.class );
 		suite.addTestSuite( org.eclipse.birt.core.archive.ArchiveUtilTest.class );
+		suite.addTestSuite( org.eclipse.birt.core.archive.BlockCompressedStreamTest.class );
 		suite.addTestSuite( org.eclipse.birt.core.archive.DocArchiveLockManagerTest.class );
 		suite.addTestSuite( org.eclipse.birt.core.archive.DocumentArchiveTest.class );
 		suite.addTestSuite( org.eclipse.birt.core.archive.FileArchiveTest.class );
@@ -82,6 +83,7 @@ public class AllTests
 		suite.addTestSuite( org.eclipse.birt.core.script.bre.BirtStrTest.class );
 		
 		/* in package: org.eclipse.birt.core.script */
+		suite.addTestSuite( org.eclipse.birt.core.script.CompiledScriptCacheTest.class );
 		suite.addTestSuite( org.eclipse.birt.core.script.NativeDateTimeSpanTest.class );
 		suite.addTestSuite( org.eclipse.birt.core.script.NativeFinanceTest.class );
 		suite.addTestSuite( org.eclipse.birt.core.script.NativeJavaMapTest.class );
@@ -0,0 +1,435 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.core.archive;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.eclipse.birt.core.archive.compound.ArchiveFile;
+import org.eclipse.birt.core.archive.compound.ArchiveReader;
+import org.eclipse.birt.core.archive.compound.ArchiveWriter;
+
+/**
+ * Test the streams compressed by BlockCompressedArchiveWriter are read
+ * transparently by the archive readers.
+ */
+public class BlockCompressedStreamTest extends TestCase
+{
+
+	static final String ARCHIVE_FILE = "./utest/compressed.dat";
+	static final String ARCHIVE_FOLDER = "./utest/compressed.folder/";
+	static final String CONTENT_STREAM = "/content/content.dat";
+	static final int RECORD_COUNT = 20000;
+	static final int BLOCK_SIZE = 4096;
+
+	public void setUp( )
+	{
+		ArchiveUtil.deleteAllFiles( new File( ARCHIVE_FILE ) );
+		ArchiveUtil.deleteAllFiles( new File( ARCHIVE_FOLDER ) );
+		new File( ARCHIVE_FILE ).getParentFile( ).mkdirs( );
+	}
+
+	public void tearDown( )
+	{
+		ArchiveUtil.deleteAllFiles( new File( ARCHIVE_FILE ) );
+		ArchiveUtil.deleteAllFiles( new File( ARCHIVE_FOLDER ) );
+	}
+
+	public void testArchiveFile( ) throws IOException
+	{
+		ArchiveFile af = new ArchiveFile( ARCHIVE_FILE, "rw+" );
+		try
+		{
+			ArchiveWriter writer = new ArchiveWriter( af );
+			byte[] expected = writeRecords( writer );
+			writer.finish( );
+
+			ArchiveReader reader = new ArchiveReader( af );
+			checkRecords( reader, expected );
+			reader.close( );
+		}
+		finally
+		{
+			af.close( );
+		}
+	}
+
+	public void testFolderArchive( ) throws IOException
+	{
+		FolderArchiveWriter writer = new FolderArchiveWriter( ARCHIVE_FOLDER );
+		writer.initialize( );
+		byte[] expected = writeRecords( writer );
+		writer.finish( );
+
+		FolderArchiveReader reader = new FolderArchiveReader( ARCHIVE_FOLDER );
+		reader.open( );
+		checkRecords( reader, expected );
+		reader.close( );
+	}
+
+	public void testReadWhileWriting( ) throws IOException
+	{
+		ArchiveFile af = new ArchiveFile( ARCHIVE_FILE, "rw+" );
+		try
+		{
+			BlockCompressedArchiveWriter writer = new BlockCompressedArchiveWriter( new ArchiveWriter( af ),
+					new String[]{"/content"},
+					BLOCK_SIZE );
+			RAOutputStream out = writer.createRandomAccessStream( CONTENT_STREAM );
+			for ( int i = 0; i < 1000; i++ )
+			{
+				out.writeInt( i );
+			}
+			writer.flush( );
+
+			ArchiveReader reader = new ArchiveReader( af );
+			RAInputStream in = reader.getStream( CONTENT_STREAM );
+			assertEquals( 4000, in.length( ) );
+			in.seek( 3996 );
+			assertEquals( 999, in.readInt( ) );
+
+			// update the first block and append some values
+			out.seek( 0 );
+			out.writeInt( -1 );
+			out.seek( 4000 );
+			out.writeInt( 1000 );
+			writer.flush( );
+			in.refresh( );
+			assertEquals( 4004, in.length( ) );
+			in.seek( 0 );
+			assertEquals( -1, in.readInt( ) );
+			in.seek( 4000 );
+			assertEquals( 1000, in.readInt( ) );
+
+			in.close( );
+			out.close( );
+			reader.close( );
+			writer.finish( );
+		}
+		finally
+		{
+			af.close( );
+		}
+	}
+
+	/**
+	 * the blocks written after a flush don't overwrite the blocks and the
+	 * index the readers see until the next flush.
+	 */
+	public void testFlushedDataKept( ) throws IOException
+	{
+		ArchiveFile af = new ArchiveFile( ARCHIVE_FILE, "rw+" );
+		try
+		{
+			BlockCompressedArchiveWriter writer = new BlockCompressedArchiveWriter( new ArchiveWriter( af ),
+					new String[]{"/content"},
+					BLOCK_SIZE );
+			RAOutputStream out = writer.createRandomAccessStream( CONTENT_STREAM );
+			for ( int i = 0; i < 1000; i++ )
+			{
+				out.writeInt( i );
+			}
+			writer.flush( );
+
+			// update the last block and write enough blocks to evict it
+			int count = BLOCK_SIZE / 4
+					* ( RABlockCompressedOutputStream.MAX_CACHED_BLOCKS + 4 );
+			for ( int i = 1000; i < count; i++ )
+			{
+				out.writeInt( i );
+			}
+
+			ArchiveReader reader = new ArchiveReader( af );
+			RAInputStream in = reader.getStream( CONTENT_STREAM );
+			assertEquals( 4000, in.length( ) );
+			for ( int i = 0; i < 1000; i++ )
+			{
+				assertEquals( i, in.readInt( ) );
+			}
+
+			writer.flush( );
+			in.refresh( );
+			assertEquals( count * 4, in.length( ) );
+			in.seek( 0 );
+			for ( int i = 0; i < count; i++ )
+			{
+				assertEquals( i, in.readInt( ) );
+			}
+
+			in.close( );
+			out.close( );
+			reader.close( );
+			writer.finish( );
+		}
+		finally
+		{
+			af.close( );
+		}
+	}
+
+	public void testReopen( ) throws IOException
+	{
+		FolderArchiveWriter folder = new FolderArchiveWriter( ARCHIVE_FOLDER );
+		folder.initialize( );
+		BlockCompressedArchiveWriter writer = new BlockCompressedArchiveWriter( folder,
+				null,
+				BLOCK_SIZE );
+		RAOutputStream out = writer.createRandomAccessStream( CONTENT_STREAM );
+		for ( int i = 0; i < 5000; i++ )
+		{
+			out.writeInt( i );
+		}
+		out.close( );
+
+		out = writer.getOutputStream( CONTENT_STREAM );
+		assertEquals( 20000, out.length( ) );
+		out.seek( 8 );
+		out.writeInt( -2 );
+		out.seek( 20000 );
+		out.writeInt( 5000 );
+		out.close( );
+		writer.finish( );
+
+		FolderArchiveReader reader = new FolderArchiveReader( ARCHIVE_FOLDER );
+		reader.open( );
+		RAInputStream in = reader.getStream( CONTENT_STREAM );
+		assertEquals( 20004, in.length( ) );
+		for ( int i = 0; i <= 5000; i++ )
+		{
+			assertEquals( i == 2 ? -2 : i, in.readInt( ) );
+		}
+		assertEquals( -1, in.read( ) );
+		in.close( );
+		reader.close( );
+	}
+
+	public void testUncompressedStream( ) throws IOException
+	{
+		FolderArchiveWriter folder = new FolderArchiveWriter( ARCHIVE_FOLDER );
+		folder.initialize( );
+		BlockCompressedArchiveWriter writer = new BlockCompressedArchiveWriter( folder,
+				new String[]{"/content"} );
+		RAOutputStream out = writer.createRandomAccessStream( "/core" );
+		out.writeLong( RABlockCompressedInputStream.MAGIC - 1 );
+		out.writeLong( 1 );
+		out.writeLong( 2 );
+		out.close( );
+		writer.finish( );
+
+		FolderArchiveReader reader = new FolderArchiveReader( ARCHIVE_FOLDER );
+		reader.open( );
+		RAInputStream in = reader.getStream( "/core" );
+		assertFalse( in instanceof RABlockCompressedInputStream );
+		assertEquals( 24, in.length( ) );
+		assertEquals( RABlockCompressedInputStream.MAGIC - 1, in.readLong( ) );
+		in.close( );
+		reader.close( );
+	}
+
+	/**
+	 * the stream opened before its header is flushed is read as a compressed
+	 * stream once it is flushed
+	 */
+	public void testReadBeforeHeaderFlushed( ) throws IOException
+	{
+		ArchiveFile af = new ArchiveFile( ARCHIVE_FILE, "rw+" );
+		try
+		{
+			BlockCompressedArchiveWriter writer = new BlockCompressedArchiveWriter( new ArchiveWriter( af ),
+					new String[]{"/content"},
+					BLOCK_SIZE );
+			writer.initialize( );
+			RAOutputStream out = writer.createRandomAccessStream( CONTENT_STREAM );
+
+			ArchiveReader reader = new ArchiveReader( af );
+			RAInputStream in = reader.getStream( CONTENT_STREAM );
+			assertTrue( in instanceof RABlockCompressedInputStream );
+			assertEquals( 0, in.length( ) );
+
+			for ( int i = 0; i < 1000; i++ )
+			{
+				out.writeInt( i );
+			}
+			writer.flush( );
+			in.refresh( );
+			assertEquals( 4000, in.length( ) );
+			for ( int i = 0; i < 1000; i++ )
+			{
+				assertEquals( i, in.readInt( ) );
+			}
+
+			in.close( );
+			out.close( );
+			reader.close( );
+			writer.finish( );
+		}
+		finally
+		{
+			af.close( );
+		}
+	}
+
+	/**
+	 * Compare the size of a compressed and an uncompressed stream, and read
+	 * both at random positions.
+	 */
+	public void testSizeAndSeek( ) throws IOException
+	{
+		FolderArchiveWriter writer = new FolderArchiveWriter( ARCHIVE_FOLDER );
+		writer.initialize( );
+		byte[] expected = writeRecords( writer );
+		RAOutputStream plain = writer.createRandomAccessStream( "/plain.dat" );
+		plain.write( expected );
+		plain.close( );
+		writer.finish( );
+
+		File compressedFile = new File( ARCHIVE_FOLDER, CONTENT_STREAM );
+		File plainFile = new File( ARCHIVE_FOLDER, "plain.dat" );
+		assertTrue( compressedFile.length( ) < plainFile.length( ) / 2 );
+
+		FolderArchiveReader reader = new FolderArchiveReader( ARCHIVE_FOLDER );
+		reader.open( );
+		seekRandomly( reader.getStream( CONTENT_STREAM ), expected );
+		seekRandomly( reader.getStream( "/plain.dat" ), expected );
+		reader.close( );
+	}
+
+	private void seekRandomly( RAInputStream in, byte[] expected )
+			throws IOException
+	{
+		Random random = new Random( 1 );
+		byte[] buffer = new byte[64];
+		for ( int i = 0; i < 10000; i++ )
+		{
+			int offset = random.nextInt( expected.length - buffer.length );
+			in.seek( offset );
+			in.readFully( buffer, 0, buffer.length );
+			for ( int j = 0; j < buffer.length; j++ )
+			{
+				assertEquals( expected[offset + j], buffer[j] );
+			}
+		}
+		in.close( );
+	}
+
+	/**
+	 * Write the records as the content writer does: each one is linked to a
+	 * previous one, which is updated when the record is written.
+	 *
+	 * @return the expected data of the stream
+	 */
+	private byte[] writeRecords( IDocArchiveWriter archive )
+			throws IOException
+	{
+		BlockCompressedArchiveWriter writer = new BlockCompressedArchiveWriter( archive,
+				new String[]{"/content"},
+				BLOCK_SIZE );
+		RAOutputStream out = writer.createRandomAccessStream( CONTENT_STREAM );
+		ExpectedData expected = new ExpectedData( );
+		Random random = new Random( 0 );
+		List<Long> offsets = new ArrayList<Long>( );
+		long offset = 0;
+		for ( int i = 0; i < RECORD_COUNT; i++ )
+		{
+			byte[] record = ( "row " + i % 50 + " value " + i % 7 ).getBytes( );
+			out.seek( offset );
+			out.writeLong( -1 );
+			out.writeInt( record.length );
+			out.write( record );
+			expected.writeLong( offset, -1 );
+			expected.writeInt( offset + 8, record.length );
+			expected.write( offset + 12, record );
+			if ( !offsets.isEmpty( ) )
+			{
+				// mostly a close record, sometimes any previous one
+				int index = i % 500 == 0
+						? random.nextInt( offsets.size( ) )
+						: Math.max( 0, offsets.size( ) - 1
+								- random.nextInt( 50 ) );
+				long previous = offsets.get( index );
+				out.seek( previous );
+				out.writeLong( offset );
+				expected.writeLong( previous, offset );
+			}
+			offsets.add( offset );
+			offset += 12 + record.length;
+			if ( i % 3000 == 0 )
+			{
+				writer.flush( );
+			}
+		}
+		out.close( );
+		return expected.toByteArray( );
+	}
+
+	/**
+	 * The data expected in a stream, updated as the stream.
+	 */
+	private static class ExpectedData
+	{
+
+		private byte[] data = new byte[1024];
+		private int length;
+
+		void write( long offset, byte[] b )
+		{
+			int end = (int) offset + b.length;
+			if ( end > data.length )
+			{
+				byte[] newData = new byte[Math.max( end, data.length * 2 )];
+				System.arraycopy( data, 0, newData, 0, length );
+				data = newData;
+			}
+			System.arraycopy( b, 0, data, (int) offset, b.length );
+			length = Math.max( length, end );
+		}
+
+		void writeInt( long offset, int value )
+		{
+			write( offset, new byte[]{(byte) ( value >>> 24 ),
+					(byte) ( value >>> 16 ), (byte) ( value >>> 8 ),
+					(byte) value} );
+		}
+
+		void writeLong( long offset, long value )
+		{
+			writeInt( offset, (int) ( value >>> 32 ) );
+			writeInt( offset + 4, (int) value );
+		}
+
+		byte[] toByteArray( )
+		{
+			byte[] b = new byte[length];
+			System.arraycopy( data, 0, b, 0, length );
+			return b;
+		}
+	}
+
+	private void checkRecords( IDocArchiveReader reader, byte[] expected )
+			throws IOException
+	{
+		RAInputStream in = reader.getStream( CONTENT_STREAM );
+		assertTrue( in instanceof RABlockCompressedInputStream );
+		assertEquals( expected.length, in.length( ) );
+		byte[] data = new byte[expected.length];
+		in.readFully( data, 0, data.length );
+		assertTrue( Arrays.equals( expected, data ) );
+		assertEquals( -1, in.read( ) );
+		seekRandomly( in, expected );
+	}
+}
@@ -3,6 +3,7 @@ package org.eclipse.birt.core.archive.compound;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 
 import junit.framework.TestCase;
 
@@ -131,6 +132,131 @@ public class ArchiveFileTest extends TestCase
 		archive.close( );
 	}
 
+	public void testConcurrentRead( ) throws Exception
+	{
+		final int entryCount = 16;
+		final int entrySize = 64 * 1024 + 17;
+		ArchiveFile archive = new ArchiveFile( ARCHIVE_FILE, "rw" );
+		for ( int i = 0; i < entryCount; i++ )
+		{
+			byte[] b = new byte[entrySize];
+			for ( int j = 0; j < entrySize; j++ )
+			{
+				b[j] = (byte) ( i + j );
+			}
+			ArchiveEntry entry = archive.createEntry( "/entry/" + i );
+			entry.write( 0, b, 0, entrySize );
+			entry.close( );
+		}
+		archive.close( );
+
+		final ArchiveFile reader = new ArchiveFile( ARCHIVE_FILE, "r" );
+		final ArrayList<Throwable> errors = new ArrayList<Throwable>( );
+		Thread[] threads = new Thread[8];
+		for ( int t = 0; t < threads.length; t++ )
+		{
+			threads[t] = new Thread( ) {
+
+				public void run( )
+				{
+					try
+					{
+						byte[] b = new byte[1000];
+						for ( int i = 0; i < entryCount; i++ )
+						{
+							ArchiveEntry entry = reader.openEntry( "/entry/"
+									+ i );
+							try
+							{
+								assertEquals( entrySize, entry.getLength( ) );
+								for ( int pos = 0; pos < entrySize; pos += b.length )
+								{
+									int size = entry.read( pos, b, 0, b.length );
+									for ( int j = 0; j < size; j++ )
+									{
+										assertEquals( (byte) ( i + pos + j ),
+												b[j] );
+									}
+								}
+							}
+							finally
+							{
+								entry.close( );
+							}
+						}
+					}
+					catch ( Throwable ex )
+					{
+						synchronized ( errors )
+						{
+							errors.add( ex );
+						}
+					}
+				}
+			};
+			threads[t].start( );
+		}
+		for ( int t = 0; t < threads.length; t++ )
+		{
+			threads[t].join( );
+		}
+		reader.close( );
+		assertTrue( errors.toString( ), errors.isEmpty( ) );
+	}
+
+	public void testInterruptedRead( ) throws Exception
+	{
+		final int entrySize = 64 * 1024;
+		ArchiveFile archive = new ArchiveFile( ARCHIVE_FILE, "rw" );
+		for ( int i = 0; i < 2; i++ )
+		{
+			byte[] b = new byte[entrySize];
+			for ( int j = 0; j < entrySize; j++ )
+			{
+				b[j] = (byte) ( i + j );
+			}
+			ArchiveEntry entry = archive.createEntry( "/entry/" + i );
+			entry.write( 0, b, 0, entrySize );
+			entry.close( );
+		}
+		archive.close( );
+
+		final ArchiveFile reader = new ArchiveFile( ARCHIVE_FILE, "r" );
+		final ArrayList<Throwable> errors = new ArrayList<Throwable>( );
+		Thread thread = new Thread( ) {
+
+			public void run( )
+			{
+				// the read of the interrupted thread closes the channel
+				Thread.currentThread( ).interrupt( );
+				try
+				{
+					ArchiveEntry entry = reader.openEntry( "/entry/0" );
+					entry.read( 0, new byte[entrySize], 0, entrySize );
+					entry.close( );
+				}
+				catch ( Throwable ex )
+				{
+					errors.add( ex );
+				}
+			}
+		};
+		thread.start( );
+		thread.join( );
+		assertEquals( 1, errors.size( ) );
+
+		// the other readers are not affected
+		ArchiveEntry entry = reader.openEntry( "/entry/1" );
+		byte[] b = new byte[entrySize];
+		assertEquals( entrySize, entry.read( 0, b, 0, entrySize ) );
+		for ( int j = 0; j < entrySize; j++ )
+		{
+			assertEquals( (byte) ( 1 + j ), b[j] );
+		}
+		entry.close( );
+		reader.close( );
+	}
+
 	void createArchive( ArchiveFile archive ) throws IOException
 	{
 		int entryCount = 1024;
@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.core.script;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import junit.framework.TestCase;
+
+import org.eclipse.birt.core.exception.BirtException;
+
+/**
+ * Test the shared cache of the compiled scripts.
+ */
+public class CompiledScriptCacheTest extends TestCase
+{
+
+	private static class DummyScript implements ICompiledScript
+	{
+
+		public String getLanguage( )
+		{
+			return "javascript";
+		}
+
+		public Object getCompiledScript( )
+		{
+			return null;
+		}
+	}
+
+	public void testGetAndPut( )
+	{
+		CompiledScriptCache cache = new CompiledScriptCache( 10 );
+		ICompiledScript script = new DummyScript( );
+		assertNull( cache.get( "javascript", 0, "<inline>", 1, "1 + 1" ) );
+		cache.put( "javascript", 0, "<inline>", 1, "1 + 1", script );
+		assertSame( script, cache.get( "javascript", 0, "<inline>", 1, "1 + 1" ) );
+		// any part of the key differs
+		assertNull( cache.get( "javascript", -1, "<inline>", 1, "1 + 1" ) );
+		assertNull( cache.get( "javascript", 0, "<inline>", 2, "1 + 1" ) );
+		assertNull( cache.get( "javascript", 0, "other", 1, "1 + 1" ) );
+		assertNull( cache.get( "javascript", 0, "<inline>", 1, "1 + 2" ) );
+		assertEquals( 1, cache.getHitCount( ) );
+		assertEquals( 5, cache.getMissCount( ) );
+		assertEquals( 1.0 / 6, cache.getHitRate( ), 1e-9 );
+	}
+
+	public void testEviction( )
+	{
+		CompiledScriptCache cache = new CompiledScriptCache( 2 );
+		cache.put( "javascript", 0, null, 1, "a", new DummyScript( ) );
+		cache.put( "javascript", 0, null, 1, "b", new DummyScript( ) );
+		// a is the most recently used now
+		assertNotNull( cache.get( "javascript", 0, null, 1, "a" ) );
+		cache.put( "javascript", 0, null, 1, "c", new DummyScript( ) );
+		assertEquals( 2, cache.size( ) );
+		assertNull( cache.get( "javascript", 0, null, 1, "b" ) );
+		assertNotNull( cache.get( "javascript", 0, null, 1, "a" ) );
+		assertEquals( 1, cache.getEvictionCount( ) );
+
+		cache.setMaxSize( 0 );
+		assertEquals( 0, cache.size( ) );
+		cache.put( "javascript", 0, null, 1, "a", new DummyScript( ) );
+		assertNull( cache.get( "javascript", 0, null, 1, "a" ) );
+	}
+
+	/**
+	 * the scripts compiled by different contexts are shared
+	 */
+	public void testSharedByContexts( ) throws BirtException
+	{
+		String script = "var sharedByContexts = 1; sharedByContexts + 1";
+		ScriptContext context1 = new ScriptContext( );
+		ScriptContext context2 = new ScriptContext( );
+		try
+		{
+			ICompiledScript compiled1 = context1.compile( "javascript",
+					"<inline>", 1, script );
+			ICompiledScript compiled2 = context2.compile( "javascript",
+					"<inline>", 1, script );
+			assertSame( compiled1, compiled2 );
+			assertEquals( 2.0, ( (Number) context1.evaluate( compiled1 ) )
+					.doubleValue( ), 0.0 );
+			assertEquals( 2.0, ( (Number) context2.evaluate( compiled2 ) )
+					.doubleValue( ), 0.0 );
+		}
+		finally
+		{
+			context1.close( );
+			context2.close( );
+		}
+	}
+
+	/**
+	 * the shared scripts don't keep the application class loader
+	 */
+	public void testApplicationClassLoaderNotKept( ) throws BirtException
+	{
+		ClassLoader appLoader = new URLClassLoader( new URL[0], getClass( )
+				.getClassLoader( ) );
+		ScriptContext context = new ScriptContext( );
+		try
+		{
+			context.setApplicationClassLoader( appLoader );
+			ICompiledScript compiled = context.compile( "javascript",
+					"<inline>", 1, "var appLoader = 1; appLoader + 1" );
+			ClassLoader loader = compiled.getCompiledScript( ).getClass( )
+					.getClassLoader( );
+			for ( ; loader != null; loader = loader.getParent( ) )
+			{
+				assertNotSame( appLoader, loader );
+			}
+			assertEquals( 2.0, ( (Number) context.evaluate( compiled ) )
+					.doubleValue( ), 0.0 );
+		}
+		finally
+		{
+			context.close( );
+		}
+	}
+}
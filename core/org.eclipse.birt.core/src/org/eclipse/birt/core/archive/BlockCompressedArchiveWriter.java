@@ -0,0 +1,284 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.core.archive;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * An archive writer which compresses some streams of another writer with
+ * RABlockCompressedOutputStream. The prefixes of the compressed streams are
+ * written to the archive, so that the archive readers read the compressed
+ * streams transparently and the archive is read as any other one.
+ */
+public class BlockCompressedArchiveWriter implements IDocArchiveWriter
+{
+
+	private IDocArchiveWriter writer;
+	private String[] compressedPaths;
+	private int blockSize;
+	private boolean pathsWritten;
+	private List<RABlockCompressedOutputStream> openStreams = new ArrayList<RABlockCompressedOutputStream>( );
+
+	/**
+	 * @param writer
+	 *            the writer of the archive
+	 * @param compressedPaths
+	 *            the prefixes of the paths of the compressed streams, all the
+	 *            streams are compressed if it is null
+	 */
+	public BlockCompressedArchiveWriter( IDocArchiveWriter writer,
+			String[] compressedPaths )
+	{
+		this( writer, compressedPaths,
+				RABlockCompressedOutputStream.DEFAULT_BLOCK_SIZE );
+	}
+
+	/**
+	 * @param writer
+	 *            the writer of the archive
+	 * @param compressedPaths
+	 *            the prefixes of the paths of the compressed streams, all the
+	 *            streams are compressed if it is null
+	 * @param blockSize
+	 *            the uncompressed size of the blocks
+	 */
+	public BlockCompressedArchiveWriter( IDocArchiveWriter writer,
+			String[] compressedPaths, int blockSize )
+	{
+		this.writer = writer;
+		this.compressedPaths = compressedPaths;
+		this.blockSize = blockSize;
+	}
+
+	/**
+	 * @return the writer of the archive
+	 */
+	public IDocArchiveWriter getWriter( )
+	{
+		return writer;
+	}
+
+	private boolean isCompressed( String relativePath )
+	{
+		if ( compressedPaths == null )
+		{
+			return true;
+		}
+		return RABlockCompressedInputStream.isCompressed( compressedPaths,
+				relativePath );
+	}
+
+	/**
+	 * Writes the prefixes of the compressed streams before the first stream
+	 * is created, or uses the ones of the archive if it is reopened.
+	 */
+	private synchronized void writeCompressedPaths( ) throws IOException
+	{
+		if ( pathsWritten )
+		{
+			return;
+		}
+		String stream = RABlockCompressedInputStream.COMPRESSED_PATHS_STREAM;
+		if ( writer.exists( stream ) )
+		{
+			compressedPaths = RABlockCompressedInputStream
+					.readCompressedPaths( writer.getInputStream( stream ) );
+		}
+		else
+		{
+			String[] paths = compressedPaths == null
+					? new String[]{ArchiveUtil.UNIX_SEPERATOR}
+					: compressedPaths;
+			DataOutputStream output = new DataOutputStream( writer
+					.createOutputStream( stream ) );
+			try
+			{
+				output.writeInt( paths.length );
+				for ( int i = 0; i < paths.length; i++ )
+				{
+					output.writeUTF( paths[i] );
+				}
+			}
+			finally
+			{
+				output.close( );
+			}
+		}
+		pathsWritten = true;
+	}
+
+	private RAOutputStream register( RABlockCompressedOutputStream stream )
+	{
+		synchronized ( openStreams )
+		{
+			Iterator<RABlockCompressedOutputStream> iter = openStreams
+					.iterator( );
+			while ( iter.hasNext( ) )
+			{
+				if ( iter.next( ).isClosed( ) )
+				{
+					iter.remove( );
+				}
+			}
+			openStreams.add( stream );
+		}
+		return stream;
+	}
+
+	public void initialize( ) throws IOException
+	{
+		writer.initialize( );
+		writeCompressedPaths( );
+	}
+
+	public String getName( )
+	{
+		return writer.getName( );
+	}
+
+	public RAOutputStream createRandomAccessStream( String relativePath )
+			throws IOException
+	{
+		writeCompressedPaths( );
+		RAOutputStream output = writer.createRandomAccessStream( relativePath );
+		if ( !isCompressed( relativePath ) )
+		{
+			return output;
+		}
+		return register( new RABlockCompressedOutputStream( output,
+				writer,
+				relativePath,
+				blockSize ) );
+	}
+
+	public RAOutputStream openRandomAccessStream( String relativePath )
+			throws IOException
+	{
+		writeCompressedPaths( );
+		if ( !writer.exists( relativePath ) )
+		{
+			return createRandomAccessStream( relativePath );
+		}
+		if ( !isCompressed( relativePath ) )
+		{
+			return writer.openRandomAccessStream( relativePath );
+		}
+		RAInputStream input = writer.getInputStream( relativePath );
+		if ( input.length( ) < RABlockCompressedInputStream.HEADER_SIZE )
+		{
+			// the header has never been flushed, nothing is kept
+			input.close( );
+			return createRandomAccessStream( relativePath );
+		}
+		return register( new RABlockCompressedOutputStream( writer
+				.openRandomAccessStream( relativePath ),
+				input,
+				writer,
+				relativePath ) );
+	}
+
+	public RAOutputStream createOutputStream( String relativePath )
+			throws IOException
+	{
+		return createRandomAccessStream( relativePath );
+	}
+
+	public RAOutputStream getOutputStream( String relativePath )
+			throws IOException
+	{
+		return openRandomAccessStream( relativePath );
+	}
+
+	public RAInputStream getInputStream( String relativePath )
+			throws IOException
+	{
+		// the data written to an open stream is read only after it is flushed
+		synchronized ( openStreams )
+		{
+			for ( RABlockCompressedOutputStream stream : openStreams )
+			{
+				if ( !stream.isClosed( )
+						&& stream.getName( ).equals( relativePath ) )
+				{
+					stream.flush( );
+				}
+			}
+		}
+		RAInputStream input = writer.getInputStream( relativePath );
+		if ( pathsWritten && isCompressed( relativePath ) )
+		{
+			return RABlockCompressedInputStream.wrap( input );
+		}
+		return input;
+	}
+
+	public boolean dropStream( String relativePath )
+	{
+		return writer.dropStream( relativePath );
+	}
+
+	public boolean exists( String relativePath )
+	{
+		return writer.exists( relativePath );
+	}
+
+	public List listStreams( String relativeStoragePath ) throws IOException
+	{
+		return writer.listStreams( relativeStoragePath );
+	}
+
+	public List listAllStreams( ) throws IOException
+	{
+		return writer.listAllStreams( );
+	}
+
+	public void setStreamSorter( IStreamSorter streamSorter )
+	{
+		writer.setStreamSorter( streamSorter );
+	}
+
+	public void finish( ) throws IOException
+	{
+		flush( );
+		writer.finish( );
+	}
+
+	/**
+	 * Flushes the compressed streams, so that the readers see all the data
+	 * written so far, then the archive.
+	 */
+	public void flush( ) throws IOException
+	{
+		synchronized ( openStreams )
+		{
+			for ( RABlockCompressedOutputStream stream : openStreams )
+			{
+				stream.flush( );
+			}
+		}
+		writer.flush( );
+	}
+
+	public Object lock( String stream ) throws IOException
+	{
+		return writer.lock( stream );
+	}
+
+	public void unlock( Object locker )
+	{
+		writer.unlock( locker );
+	}
+}
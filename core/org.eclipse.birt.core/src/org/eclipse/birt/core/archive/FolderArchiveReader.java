@@ -30,6 +30,7 @@ public class FolderArchiveReader implements IDocArchiveReader
 			.getName( ) );
 	private String folderName;
 	private HashSet<RAFolderInputStream> inputStreams = new HashSet<RAFolderInputStream>( );;
+	private String[] compressedPaths;
 
 	/**
 	 * @param folderName -
@@ -121,10 +122,32 @@ public class FolderArchiveReader implements IDocArchiveReader
 		File file = new File( path );
 		if ( file.exists( ) )
 		{
-			return new RAFolderInputStream( inputStreams, file );
+			RAInputStream input = new RAFolderInputStream( inputStreams, file );
+			if ( RABlockCompressedInputStream.isCompressed(
+					getCompressedPaths( ), relativePath ) )
+			{
+				return RABlockCompressedInputStream.wrap( input );
+			}
+			return input;
 		}
 		throw new FileNotFoundException( relativePath );
 	}
+
+	private synchronized String[] getCompressedPaths( ) throws IOException
+	{
+		if ( compressedPaths == null )
+		{
+			File file = new File( ArchiveUtil.generateFullPath( folderName,
+					RABlockCompressedInputStream.COMPRESSED_PATHS_STREAM ) );
+			if ( file.exists( ) )
+			{
+				compressedPaths = RABlockCompressedInputStream
+						.readCompressedPaths( new RAFolderInputStream(
+								inputStreams, file ) );
+			}
+		}
+		return compressedPaths;
+	}
 	
 	public RAInputStream getInputStream( String relativePath )
 			throws IOException
@@ -0,0 +1,351 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.core.archive;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.eclipse.birt.core.i18n.CoreMessages;
+import org.eclipse.birt.core.i18n.ResourceConstants;
+
+/**
+ * RAInputStream implementation for the streams written by
+ * RABlockCompressedOutputStream. Only the block containing the current
+ * position is inflated, so that a seek costs at most the inflation of one
+ * block.
+ *
+ * An archive containing compressed streams lists the path prefixes of them in
+ * the COMPRESSED_PATHS_STREAM stream. The archive readers open the streams
+ * under these prefixes through wrap, so that the compressed streams are read
+ * transparently.
+ */
+public class RABlockCompressedInputStream extends RAInputStream
+{
+
+	/**
+	 * the first bytes of a compressed stream
+	 */
+	static final long MAGIC = 0x4249525442435A31L; // "BIRTBCZ1"
+
+	/**
+	 * magic, block size, offset of the index
+	 */
+	static final int HEADER_SIZE = 20;
+
+	static final int INDEX_OFFSET_POSITION = 12;
+
+	/**
+	 * the stream listing the path prefixes of the compressed streams, the
+	 * streams of an archive without it are not compressed
+	 */
+	public static final String COMPRESSED_PATHS_STREAM = "/.blockcompressed"; //$NON-NLS-1$
+
+	private RAInputStream input;
+	private boolean indexLoaded;
+	private int blockSize;
+	private long length;
+	private int blockCount;
+	private long[] blockOffsets;
+	private int[] blockLengths;
+
+	private long position;
+	private int currentBlock = -1;
+	private byte[] blockData;
+	private int blockDataSize;
+	private byte[] compressed;
+	private Inflater inflater = new Inflater( );
+
+	private RABlockCompressedInputStream( RAInputStream input )
+	{
+		this.input = input;
+	}
+
+	/**
+	 * Returns a stream reading the uncompressed data of a compressed stream.
+	 * The header of the stream may not be written yet, the stream is empty
+	 * until the writer flushes it.
+	 *
+	 * @param input
+	 *            a compressed stream of the archive
+	 * @return the stream to read
+	 * @throws IOException
+	 */
+	public static RAInputStream wrap( RAInputStream input ) throws IOException
+	{
+		return new RABlockCompressedInputStream( input );
+	}
+
+	/**
+	 * Reads the path prefixes of the compressed streams of an archive.
+	 *
+	 * @param input
+	 *            the COMPRESSED_PATHS_STREAM stream of the archive, it is
+	 *            closed
+	 * @return the path prefixes
+	 * @throws IOException
+	 */
+	public static String[] readCompressedPaths( RAInputStream input )
+			throws IOException
+	{
+		DataInputStream data = new DataInputStream( input );
+		try
+		{
+			String[] paths = new String[data.readInt( )];
+			for ( int i = 0; i < paths.length; i++ )
+			{
+				paths[i] = data.readUTF( );
+			}
+			return paths;
+		}
+		finally
+		{
+			data.close( );
+		}
+	}
+
+	/**
+	 * @param compressedPaths
+	 *            the path prefixes of the compressed streams, null if the
+	 *            archive has no compressed stream
+	 * @param relativePath
+	 *            the path of a stream
+	 * @return whether the stream is compressed
+	 */
+	public static boolean isCompressed( String[] compressedPaths,
+			String relativePath )
+	{
+		if ( compressedPaths == null )
+		{
+			return false;
+		}
+		if ( !relativePath.startsWith( ArchiveUtil.UNIX_SEPERATOR ) )
+		{
+			relativePath = ArchiveUtil.UNIX_SEPERATOR + relativePath;
+		}
+		for ( int i = 0; i < compressedPaths.length; i++ )
+		{
+			if ( relativePath.startsWith( compressedPaths[i] ) )
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void loadIndex( ) throws IOException
+	{
+		if ( indexLoaded )
+		{
+			return;
+		}
+		long indexOffset = 0;
+		if ( input.length( ) >= HEADER_SIZE )
+		{
+			input.seek( 0 );
+			input.readLong( );
+			blockSize = input.readInt( );
+			indexOffset = input.readLong( );
+		}
+		if ( indexOffset < HEADER_SIZE )
+		{
+			// the writer has not flushed the stream yet
+			length = 0;
+			blockCount = 0;
+		}
+		else
+		{
+			input.seek( indexOffset );
+			length = input.readLong( );
+			blockCount = input.readInt( );
+			blockOffsets = new long[blockCount];
+			blockLengths = new int[blockCount];
+			for ( int i = 0; i < blockCount; i++ )
+			{
+				blockOffsets[i] = input.readLong( );
+				blockLengths[i] = input.readInt( );
+			}
+		}
+		currentBlock = -1;
+		indexLoaded = true;
+	}
+
+	private void loadBlock( int index ) throws IOException
+	{
+		if ( index == currentBlock )
+		{
+			return;
+		}
+		if ( blockData == null )
+		{
+			blockData = new byte[blockSize];
+		}
+		int compressedLength = blockLengths[index];
+		if ( compressed == null || compressed.length < compressedLength )
+		{
+			compressed = new byte[compressedLength];
+		}
+		input.seek( blockOffsets[index] );
+		input.readFully( compressed, 0, compressedLength );
+		inflater.reset( );
+		inflater.setInput( compressed, 0, compressedLength );
+		try
+		{
+			blockDataSize = 0;
+			while ( blockDataSize < blockSize && !inflater.finished( ) )
+			{
+				int size = inflater.inflate( blockData, blockDataSize,
+						blockSize - blockDataSize );
+				if ( size == 0 && inflater.needsInput( ) )
+				{
+					break;
+				}
+				blockDataSize += size;
+			}
+		}
+		catch ( DataFormatException ex )
+		{
+			IOException ioex = new IOException( ex.getLocalizedMessage( ) );
+			ioex.initCause( ex );
+			throw ioex;
+		}
+		currentBlock = index;
+	}
+
+	public int read( ) throws IOException
+	{
+		loadIndex( );
+		if ( position >= length )
+		{
+			return -1;
+		}
+		loadBlock( (int) ( position / blockSize ) );
+		int value = blockData[(int) ( position % blockSize )] & 0xff;
+		position++;
+		return value;
+	}
+
+	public int read( byte b[], int off, int len ) throws IOException
+	{
+		loadIndex( );
+		if ( len == 0 )
+		{
+			return 0;
+		}
+		if ( position >= length )
+		{
+			return -1;
+		}
+		int total = 0;
+		while ( total < len && position < length )
+		{
+			loadBlock( (int) ( position / blockSize ) );
+			int offset = (int) ( position % blockSize );
+			int size = (int) Math.min( len - total, Math.min( blockDataSize
+					- offset, length - position ) );
+			if ( size <= 0 )
+			{
+				break;
+			}
+			System.arraycopy( blockData, offset, b, off + total, size );
+			total += size;
+			position += size;
+		}
+		return total;
+	}
+
+	public void readFully( byte b[], int off, int len ) throws IOException
+	{
+		int n = 0;
+		while ( n < len )
+		{
+			int count = read( b, off + n, len - n );
+			if ( count < 0 )
+			{
+				throw new EOFException( );
+			}
+			n += count;
+		}
+	}
+
+	public int readInt( ) throws IOException
+	{
+		byte[] b = new byte[4];
+		readFully( b, 0, 4 );
+		return ( ( b[0] & 0xff ) << 24 ) + ( ( b[1] & 0xff ) << 16 )
+				+ ( ( b[2] & 0xff ) << 8 ) + ( b[3] & 0xff );
+	}
+
+	public long readLong( ) throws IOException
+	{
+		long high = readInt( );
+		long low = readInt( );
+		return ( high << 32 ) + ( low & 0xffffffffL );
+	}
+
+	public void seek( long localPos ) throws IOException
+	{
+		if ( localPos < 0 )
+		{
+			throw new IOException( CoreMessages.getFormattedString(
+					ResourceConstants.INVALID_SEEK_OFFSET,
+					new Object[]{localPos} ) );
+		}
+		loadIndex( );
+		if ( localPos > length )
+		{
+			throw new EOFException(
+					CoreMessages.getString( ResourceConstants.EXCEED_FILE_LENGTH ) );
+		}
+		position = localPos;
+	}
+
+	public long skip( long n ) throws IOException
+	{
+		loadIndex( );
+		long skipped = Math.max( 0, Math.min( n, length - position ) );
+		position += skipped;
+		return skipped;
+	}
+
+	public long getOffset( ) throws IOException
+	{
+		return position;
+	}
+
+	public long length( ) throws IOException
+	{
+		loadIndex( );
+		return length;
+	}
+
+	public int available( ) throws IOException
+	{
+		loadIndex( );
+		return (int) Math.min( Integer.MAX_VALUE, length - position );
+	}
+
+	public void refresh( ) throws IOException
+	{
+		input.refresh( );
+		indexLoaded = false;
+		loadIndex( );
+	}
+
+	public void close( ) throws IOException
+	{
+		inflater.end( );
+		input.close( );
+	}
+}
@@ -0,0 +1,450 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.core.archive;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.eclipse.birt.core.i18n.CoreMessages;
+import org.eclipse.birt.core.i18n.ResourceConstants;
+
+/**
+ * RAOutputStream implementation which compresses the data in blocks of a fixed
+ * uncompressed size. The stream of the archive holds a header, the deflated
+ * blocks and an index of the blocks:
+ *
+ * <pre>
+ *  header: magic(long), block size(int), index offset(long)
+ *  index:  uncompressed length(long), block count(int),
+ *          (block offset(long), compressed length(int)) * block count
+ * </pre>
+ *
+ * The last blocks written are cached uncompressed, so that the writers which
+ * seek back to update the links of the previous records mostly update cached
+ * blocks. The stream is only appended: a block updated after it is written,
+ * such as the last block which may not be full, is written again at the end
+ * of the stream, and each flush writes a new index there. The index offset of
+ * the header is updated last, so the readers always see a complete index and
+ * the blocks it refers to. The space of the replaced blocks and indexes is not
+ * reclaimed.
+ */
+public class RABlockCompressedOutputStream extends RAOutputStream
+{
+
+	public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+
+	/**
+	 * the number of the uncompressed blocks kept in memory
+	 */
+	static final int MAX_CACHED_BLOCKS = 8;
+
+	private RAOutputStream output;
+	private IDocArchiveWriter archive;
+	private String name;
+	private RAInputStream input;
+
+	private int blockSize;
+	private long length;
+	private long position;
+
+	private int blockCount;
+	private long[] blockOffsets = new long[16];
+	private int[] blockLengths = new int[16];
+
+	// the end of the data written, nothing before it is overwritten
+	private long dataEnd = RABlockCompressedInputStream.HEADER_SIZE;
+	// whether a block is written since the index was written
+	private boolean indexChanged;
+
+	private LinkedHashMap<Integer, Block> blocks = new LinkedHashMap<Integer, Block>(
+			16, 0.75f, true );
+	private Deflater deflater = new Deflater( Deflater.BEST_SPEED );
+	private byte[] compressed;
+	private byte[] singleByte = new byte[1];
+	private byte[] number = new byte[8];
+	private boolean closed;
+
+	private static class Block
+	{
+
+		byte[] data;
+		boolean dirty;
+
+		Block( byte[] data )
+		{
+			this.data = data;
+		}
+	}
+
+	/**
+	 * Creates a compressed stream.
+	 *
+	 * @param output
+	 *            the new stream of the archive
+	 * @param archive
+	 *            the archive used to read the blocks which are no longer
+	 *            cached
+	 * @param name
+	 *            the name of the stream in the archive
+	 * @param blockSize
+	 * @throws IOException
+	 */
+	public RABlockCompressedOutputStream( RAOutputStream output,
+			IDocArchiveWriter archive, String name, int blockSize )
+			throws IOException
+	{
+		this.output = output;
+		this.archive = archive;
+		this.name = name;
+		this.blockSize = blockSize;
+		this.compressed = new byte[blockSize + blockSize / 8 + 64];
+		output.seek( 0 );
+		output.writeLong( RABlockCompressedInputStream.MAGIC );
+		output.writeInt( blockSize );
+		output.writeLong( 0 );
+	}
+
+	/**
+	 * Opens a compressed stream to update it.
+	 *
+	 * @param output
+	 *            the existing stream of the archive
+	 * @param input
+	 *            the stream of the archive, at its beginning
+	 * @param archive
+	 * @param name
+	 * @throws IOException
+	 */
+	RABlockCompressedOutputStream( RAOutputStream output, RAInputStream input,
+			IDocArchiveWriter archive, String name ) throws IOException
+	{
+		this.output = output;
+		this.input = input;
+		this.archive = archive;
+		this.name = name;
+		input.seek( 0 );
+		input.readLong( );
+		this.blockSize = input.readInt( );
+		this.compressed = new byte[blockSize + blockSize / 8 + 64];
+		long indexOffset = input.readLong( );
+		if ( indexOffset >= RABlockCompressedInputStream.HEADER_SIZE )
+		{
+			input.seek( indexOffset );
+			length = input.readLong( );
+			int count = input.readInt( );
+			ensureBlockCount( count );
+			for ( int i = 0; i < count; i++ )
+			{
+				blockOffsets[i] = input.readLong( );
+				blockLengths[i] = input.readInt( );
+				dataEnd = Math.max( dataEnd, blockOffsets[i]
+						+ blockLengths[i] );
+			}
+			dataEnd = Math.max( dataEnd, input.getOffset( ) );
+		}
+	}
+
+	public void write( int b ) throws IOException
+	{
+		singleByte[0] = (byte) b;
+		write( singleByte, 0, 1 );
+	}
+
+	public void write( byte b[], int off, int len ) throws IOException
+	{
+		while ( len > 0 )
+		{
+			int index = (int) ( position / blockSize );
+			int offset = (int) ( position % blockSize );
+			int size = Math.min( len, blockSize - offset );
+			Block block = getBlock( index );
+			System.arraycopy( b, off, block.data, offset, size );
+			block.dirty = true;
+			off += size;
+			len -= size;
+			position += size;
+			if ( position > length )
+			{
+				length = position;
+			}
+		}
+	}
+
+	public void writeInt( int value ) throws IOException
+	{
+		number[0] = (byte) ( value >>> 24 );
+		number[1] = (byte) ( value >>> 16 );
+		number[2] = (byte) ( value >>> 8 );
+		number[3] = (byte) value;
+		write( number, 0, 4 );
+	}
+
+	public void writeLong( long value ) throws IOException
+	{
+		writeInt( (int) ( value >>> 32 ) );
+		writeInt( (int) value );
+	}
+
+	public void seek( long localPos ) throws IOException
+	{
+		if ( localPos < 0 )
+		{
+			throw new IOException( CoreMessages.getFormattedString(
+					ResourceConstants.INVALID_SEEK_OFFSET,
+					new Object[]{localPos} ) );
+		}
+		position = localPos;
+	}
+
+	public long getOffset( ) throws IOException
+	{
+		return position;
+	}
+
+	public long length( ) throws IOException
+	{
+		return length;
+	}
+
+	private void ensureBlockCount( int count )
+	{
+		if ( count > blockOffsets.length )
+		{
+			int size = Math.max( count, blockOffsets.length * 2 );
+			long[] offsets = new long[size];
+			System.arraycopy( blockOffsets, 0, offsets, 0, blockCount );
+			blockOffsets = offsets;
+			int[] lengths = new int[size];
+			System.arraycopy( blockLengths, 0, lengths, 0, blockCount );
+			blockLengths = lengths;
+		}
+		for ( int i = blockCount; i < count; i++ )
+		{
+			// not written yet
+			blockOffsets[i] = -1;
+		}
+		blockCount = Math.max( blockCount, count );
+	}
+
+	private Block getBlock( int index ) throws IOException
+	{
+		Block block = blocks.get( index );
+		if ( block != null )
+		{
+			return block;
+		}
+		if ( index >= blockCount )
+		{
+			ensureBlockCount( index + 1 );
+		}
+		if ( blocks.size( ) >= MAX_CACHED_BLOCKS )
+		{
+			Iterator<Map.Entry<Integer, Block>> iter = blocks.entrySet( )
+					.iterator( );
+			Map.Entry<Integer, Block> eldest = iter.next( );
+			iter.remove( );
+			if ( needsWrite( eldest.getKey( ), eldest.getValue( ) ) )
+			{
+				writeBlock( eldest.getKey( ), eldest.getValue( ) );
+			}
+		}
+		block = new Block( new byte[blockSize] );
+		if ( blockOffsets[index] >= 0 )
+		{
+			readBlock( index, block.data );
+		}
+		blocks.put( index, block );
+		return block;
+	}
+
+	/**
+	 * @return whether the block must be written before it is dropped from the
+	 *         cache, for it is updated or never written
+	 */
+	private boolean needsWrite( int index, Block block )
+	{
+		return block.dirty || blockOffsets[index] < 0;
+	}
+
+	private int getBlockLength( int index )
+	{
+		return (int) Math.min( blockSize, length - (long) index * blockSize );
+	}
+
+	/**
+	 * Deflates the block and writes it at the end of the data.
+	 */
+	private void writeBlock( int index, Block block ) throws IOException
+	{
+		deflater.reset( );
+		deflater.setInput( block.data, 0, getBlockLength( index ) );
+		deflater.finish( );
+		int size = 0;
+		while ( !deflater.finished( ) )
+		{
+			if ( size == compressed.length )
+			{
+				byte[] buffer = new byte[compressed.length * 2];
+				System.arraycopy( compressed, 0, buffer, 0, size );
+				compressed = buffer;
+			}
+			size += deflater.deflate( compressed, size, compressed.length
+					- size );
+		}
+		output.seek( dataEnd );
+		output.write( compressed, 0, size );
+		blockOffsets[index] = dataEnd;
+		blockLengths[index] = size;
+		dataEnd += size;
+		block.dirty = false;
+		indexChanged = true;
+	}
+
+	private void readBlock( int index, byte[] data ) throws IOException
+	{
+		output.flush( );
+		if ( input == null )
+		{
+			input = archive.getInputStream( name );
+		}
+		else
+		{
+			input.refresh( );
+		}
+		int size = blockLengths[index];
+		byte[] buffer = new byte[size];
+		input.seek( blockOffsets[index] );
+		input.readFully( buffer, 0, size );
+		Inflater inflater = new Inflater( );
+		try
+		{
+			inflater.setInput( buffer );
+			int offset = 0;
+			while ( offset < data.length && !inflater.finished( ) )
+			{
+				int count = inflater.inflate( data, offset, data.length
+						- offset );
+				if ( count == 0 && inflater.needsInput( ) )
+				{
+					break;
+				}
+				offset += count;
+			}
+		}
+		catch ( DataFormatException ex )
+		{
+			IOException ioex = new IOException( ex.getLocalizedMessage( ) );
+			ioex.initCause( ex );
+			throw ioex;
+		}
+		finally
+		{
+			inflater.end( );
+		}
+	}
+
+	/**
+	 * Writes the updated blocks and a new index after the data, then points
+	 * the header to the new index, so that the readers see all the data
+	 * written so far.
+	 */
+	public void flush( ) throws IOException
+	{
+		if ( closed )
+		{
+			return;
+		}
+		// the blocks skipped by a seek are written as zeros
+		for ( int i = 0; i < blockCount; i++ )
+		{
+			if ( blockOffsets[i] < 0 && !blocks.containsKey( i ) )
+			{
+				writeBlock( i, new Block( new byte[blockSize] ) );
+			}
+		}
+		List<Integer> indexes = new ArrayList<Integer>( blocks.keySet( ) );
+		Collections.sort( indexes );
+		for ( Integer index : indexes )
+		{
+			Block block = blocks.get( index );
+			if ( needsWrite( index, block ) )
+			{
+				writeBlock( index, block );
+			}
+		}
+		if ( !indexChanged )
+		{
+			output.flush( );
+			return;
+		}
+
+		long indexOffset = dataEnd;
+		output.seek( indexOffset );
+		output.writeLong( length );
+		output.writeInt( blockCount );
+		for ( int i = 0; i < blockCount; i++ )
+		{
+			output.writeLong( blockOffsets[i] );
+			output.writeInt( blockLengths[i] );
+		}
+		dataEnd = output.getOffset( );
+		// the blocks and the index must be written before the header refers
+		// to them
+		output.flush( );
+		output.seek( RABlockCompressedInputStream.INDEX_OFFSET_POSITION );
+		output.writeLong( indexOffset );
+		output.flush( );
+		indexChanged = false;
+	}
+
+	/**
+	 * @return the name of the stream in the archive
+	 */
+	String getName( )
+	{
+		return name;
+	}
+
+	/**
+	 * @return whether the stream is closed
+	 */
+	boolean isClosed( )
+	{
+		return closed;
+	}
+
+	public void close( ) throws IOException
+	{
+		if ( closed )
+		{
+			return;
+		}
+		flush( );
+		closed = true;
+		blocks.clear( );
+		deflater.end( );
+		if ( input != null )
+		{
+			input.close( );
+			input = null;
+		}
+		output.close( );
+	}
+}
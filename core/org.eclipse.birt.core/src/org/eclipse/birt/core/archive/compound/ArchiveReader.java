@@ -20,6 +20,7 @@ import java.util.List;
 
 import org.eclipse.birt.core.archive.ArchiveUtil;
 import org.eclipse.birt.core.archive.IDocArchiveReader;
+import org.eclipse.birt.core.archive.RABlockCompressedInputStream;
 import org.eclipse.birt.core.archive.RAInputStream;
 import org.eclipse.birt.core.i18n.CoreMessages;
 import org.eclipse.birt.core.i18n.ResourceConstants;
@@ -29,6 +30,7 @@ public class ArchiveReader implements IDocArchiveReader
 
 	protected IArchiveFile archive;
 	protected boolean shareArchive;
+	private String[] compressedPaths;
 
 	public ArchiveReader( IArchiveFile archive ) throws IOException
 	{
@@ -89,7 +91,25 @@ public class ArchiveReader implements IDocArchiveReader
 		if ( !relativePath.startsWith( ArchiveUtil.UNIX_SEPERATOR ) )
 			relativePath = ArchiveUtil.UNIX_SEPERATOR + relativePath;
 		ArchiveEntry entry = archive.openEntry( relativePath );
-		return new ArchiveEntryInputStream( entry );
+		RAInputStream input = new ArchiveEntryInputStream( entry );
+		if ( RABlockCompressedInputStream.isCompressed( getCompressedPaths( ),
+				relativePath ) )
+		{
+			return RABlockCompressedInputStream.wrap( input );
+		}
+		return input;
+	}
+
+	private synchronized String[] getCompressedPaths( ) throws IOException
+	{
+		String stream = RABlockCompressedInputStream.COMPRESSED_PATHS_STREAM;
+		if ( compressedPaths == null && archive.exists( stream ) )
+		{
+			compressedPaths = RABlockCompressedInputStream
+					.readCompressedPaths( new ArchiveEntryInputStream( archive
+							.openEntry( stream ) ) );
+		}
+		return compressedPaths;
 	}
 
 	public RAInputStream getInputStream( String relativePath )
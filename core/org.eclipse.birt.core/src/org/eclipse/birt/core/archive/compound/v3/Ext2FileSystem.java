@@ -15,10 +15,14 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -56,6 +60,16 @@ public class Ext2FileSystem
 	private boolean propertyDirty = true;
 
 	protected FileCacheManager cacheManager = new FileCacheManager( );
+
+	/**
+	 * in read only mode, the blocks are read by the positional read of the
+	 * channel and cached in a lock free cache, so the concurrent readers
+	 * needn't to be serialized by the file system. The channel is closed if
+	 * a thread reading it is interrupted, it is reopened then so the other
+	 * readers of the file system are not affected.
+	 */
+	private volatile FileChannel channel;
+	private ReadOnlyBlockCache readOnlyCache;
 	/**
 	 * nodes define the logical stream
 	 */
@@ -153,6 +167,12 @@ public class Ext2FileSystem
 		}
 		length = rf.length( );
 		maxBlockId = (int) ( ( length + BLOCK_SIZE - 1 ) / BLOCK_SIZE ) + 1;
+		if ( readOnly )
+		{
+			channel = rf.getChannel( );
+			readOnlyCache = new ReadOnlyBlockCache(
+					ReadOnlyBlockCache.MIN_SLOT_COUNT );
+		}
 
 		readHeader( );
 		nodeTable.read( );
@@ -212,6 +232,10 @@ public class Ext2FileSystem
 				writeHeader( );
 			}
 			cacheManager.clear( );
+			if ( readOnlyCache != null )
+			{
+				readOnlyCache.clear( );
+			}
 		}
 		finally
 		{
@@ -219,6 +243,7 @@ public class Ext2FileSystem
 			{
 				rf.close( );
 				rf = null;
+				channel = null;
 			}
 			if ( removeOnExit )
 			{
@@ -292,6 +317,10 @@ public class Ext2FileSystem
 	public void setCacheSize( int cacheSize )
 	{
 		cacheManager.setMaxCacheSize( cacheSize );
+		if ( readOnlyCache != null )
+		{
+			readOnlyCache.setCacheSize( cacheSize );
+		}
 	}
 
 	public void setCacheManager( SystemCacheManager manager )
@@ -301,6 +330,10 @@ public class Ext2FileSystem
 
 	public int getUsedCacheSize( )
 	{
+		if ( readOnlyCache != null )
+		{
+			return cacheManager.getUsedCacheSize( ) + readOnlyCache.size( );
+		}
 		return cacheManager.getUsedCacheSize( );
 	}
 
@@ -545,12 +578,37 @@ public class Ext2FileSystem
 		return block;
 	}
 
-	synchronized protected void unloadBlock( Block block ) throws IOException
+	protected void unloadBlock( Block block ) throws IOException
+	{
+		if ( readOnlyCache != null )
+		{
+			// the read only blocks are never locked
+			return;
+		}
+		synchronized ( this )
+		{
+			cacheManager.releaseCache( block );
+		}
+	}
+
+	protected FatBlock loadFatBlock( int blockId ) throws IOException
 	{
-		cacheManager.releaseCache( block );
+		if ( readOnlyCache != null )
+		{
+			Block block = readOnlyCache.get( blockId );
+			if ( block instanceof FatBlock )
+			{
+				return (FatBlock) block;
+			}
+			FatBlock fatBlock = new FatBlock( this, blockId );
+			fatBlock.refresh( );
+			readOnlyCache.put( fatBlock );
+			return fatBlock;
+		}
+		return loadCachedFatBlock( blockId );
 	}
 
-	synchronized protected FatBlock loadFatBlock( int blockId )
+	synchronized private FatBlock loadCachedFatBlock( int blockId )
 			throws IOException
 	{
 		FatBlock block = (FatBlock) cacheManager.getCache( blockId );
@@ -563,7 +621,25 @@ public class Ext2FileSystem
 		return block;
 	}
 
-	synchronized DataBlock loadDataBlock( int blockId ) throws IOException
+	DataBlock loadDataBlock( int blockId ) throws IOException
+	{
+		if ( readOnlyCache != null )
+		{
+			Block block = readOnlyCache.get( blockId );
+			if ( block instanceof DataBlock )
+			{
+				return (DataBlock) block;
+			}
+			DataBlock dataBlock = new DataBlock( this, blockId );
+			dataBlock.refresh( );
+			readOnlyCache.put( dataBlock );
+			return dataBlock;
+		}
+		return loadCachedDataBlock( blockId );
+	}
+
+	synchronized private DataBlock loadCachedDataBlock( int blockId )
+			throws IOException
 	{
 		Object cacheKey = Integer.valueOf( blockId );
 		DataBlock block = (DataBlock) cacheManager.getCache( cacheKey );
@@ -582,8 +658,8 @@ public class Ext2FileSystem
 		readBlock( blockId, offset, buffer, offset, size );
 	}
 
-	synchronized void readBlock( int blockId, int blockOff, byte[] buffer,
-			int offset, int size ) throws IOException
+	void readBlock( int blockId, int blockOff, byte[] buffer, int offset,
+			int size ) throws IOException
 	{
 		assert buffer != null;
 		assert blockId >= 0;
@@ -592,6 +668,88 @@ public class Ext2FileSystem
 		assert offset + size <= buffer.length;
 		assert blockOff + size <= BLOCK_SIZE;
 
+		FileChannel channel = this.channel;
+		while ( channel != null )
+		{
+			try
+			{
+				readBlock( channel, blockId, blockOff, buffer, offset, size );
+				return;
+			}
+			catch ( ClosedChannelException ex )
+			{
+				// the channel is closed by an interrupted reader
+				channel = reopenChannel( channel );
+				if ( channel == null || Thread.currentThread( ).isInterrupted( ) )
+				{
+					throw ex;
+				}
+			}
+		}
+		synchronized ( this )
+		{
+			readBlockFromFile( blockId, blockOff, buffer, offset, size );
+		}
+	}
+
+	/**
+	 * positional read, it doesn't change the file pointer so it can be called
+	 * by several threads at the same time.
+	 */
+	private void readBlock( FileChannel channel, int blockId, int blockOff,
+			byte[] buffer, int offset, int size ) throws IOException
+	{
+		long position = ( ( (long) blockId ) << BLOCK_SIZE_BITS ) + blockOff;
+		if ( position < length )
+		{
+			long remainSize = length - position;
+			if ( remainSize < size )
+			{
+				size = (int) remainSize;
+			}
+			ByteBuffer bytes = ByteBuffer.wrap( buffer, offset, size );
+			while ( bytes.hasRemaining( ) )
+			{
+				int readSize = channel.read( bytes, position );
+				if ( readSize < 0 )
+				{
+					throw new EOFException( );
+				}
+				position += readSize;
+			}
+		}
+	}
+
+	/**
+	 * reopen the channel closed by an interrupted reader.
+	 * 
+	 * @param closedChannel
+	 *            the channel which is closed
+	 * @return the reopened channel, null if the file system is closed
+	 */
+	synchronized private FileChannel reopenChannel( FileChannel closedChannel )
+			throws IOException
+	{
+		if ( channel != closedChannel || rf == null )
+		{
+			// it is reopened by another reader or the file system is closed
+			return channel;
+		}
+		try
+		{
+			rf.close( );
+		}
+		catch ( IOException ex )
+		{
+		}
+		rf = new RandomAccessFile( fileName, "r" );
+		channel = rf.getChannel( );
+		return channel;
+	}
+
+	private void readBlockFromFile( int blockId, int blockOff, byte[] buffer,
+			int offset, int size ) throws IOException
+	{
 		long position = ( ( (long) blockId ) << BLOCK_SIZE_BITS ) + blockOff;
 		if ( position < length )
 		{
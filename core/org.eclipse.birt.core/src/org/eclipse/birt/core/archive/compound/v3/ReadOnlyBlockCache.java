@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.core.archive.compound.v3;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A lock free, direct mapped block cache used by the file system opened in
+ * read only mode.
+ *
+ * The block is stored in the slot selected by its block id, a block loaded
+ * later simply replaces the block in the same slot. As the blocks are never
+ * changed in read only mode, there is no need to lock or release the cached
+ * blocks, so the concurrent readers never block each other.
+ */
+class ReadOnlyBlockCache
+{
+
+	static final int MIN_SLOT_COUNT = 64;
+	static final int MAX_SLOT_COUNT = 4096;
+
+	private volatile AtomicReferenceArray<Block> slots;
+	private final AtomicInteger usedSlots = new AtomicInteger( );
+
+	ReadOnlyBlockCache( int cacheSize )
+	{
+		this.slots = new AtomicReferenceArray<Block>( getSlotCount( cacheSize ) );
+	}
+
+	/**
+	 * round the cache size to the power of 2 between MIN_SLOT_COUNT and
+	 * MAX_SLOT_COUNT.
+	 */
+	private static int getSlotCount( int cacheSize )
+	{
+		int slotCount = MIN_SLOT_COUNT;
+		while ( slotCount < cacheSize && slotCount < MAX_SLOT_COUNT )
+		{
+			slotCount <<= 1;
+		}
+		return slotCount;
+	}
+
+	/**
+	 * change the cache size, all the cached blocks are dropped if the slot
+	 * count is changed.
+	 */
+	void setCacheSize( int cacheSize )
+	{
+		int slotCount = getSlotCount( cacheSize );
+		if ( slotCount != slots.length( ) )
+		{
+			slots = new AtomicReferenceArray<Block>( slotCount );
+			usedSlots.set( 0 );
+		}
+	}
+
+	Block get( int blockId )
+	{
+		AtomicReferenceArray<Block> slots = this.slots;
+		Block block = slots.get( blockId & ( slots.length( ) - 1 ) );
+		if ( block != null && block.getBlockId( ) == blockId )
+		{
+			return block;
+		}
+		return null;
+	}
+
+	/**
+	 * add a loaded block into the cache. The block must has been refreshed
+	 * before it is put into the cache.
+	 */
+	void put( Block block )
+	{
+		AtomicReferenceArray<Block> slots = this.slots;
+		Block old = slots.getAndSet( block.getBlockId( )
+				& ( slots.length( ) - 1 ), block );
+		if ( old == null )
+		{
+			usedSlots.incrementAndGet( );
+		}
+	}
+
+	int size( )
+	{
+		return usedSlots.get( );
+	}
+
+	void clear( )
+	{
+		slots = new AtomicReferenceArray<Block>( slots.length( ) );
+		usedSlots.set( 0 );
+	}
+}
@@ -0,0 +1,275 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.core.script;
+
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded cache of the compiled scripts shared by the script contexts. The
+ * scripts are evicted in LRU order. The cache is owned by a script engine
+ * factory and released with it, so it never outlives the plugins.
+ *
+ * Only the script engines whose compiled scripts are immutable and can be
+ * evaluated by any thread in any scope should use the cache. The compiled
+ * scripts are keyed by the language, the optimization level, the file name,
+ * the line number and the script text, so the errors are still reported at
+ * the right place.
+ *
+ * The compiled scripts must not keep the application class loaders of the
+ * tasks, which are created for every task.
+ *
+ * The default size of the cache is defined by the system property
+ * PROPERTY_CACHE_SIZE, 0 disables the cache.
+ */
+public class CompiledScriptCache
+{
+
+	/** the system property defining the size of the shared cache */
+	public static final String PROPERTY_CACHE_SIZE = "org.eclipse.birt.core.script.COMPILED_SCRIPT_CACHE_SIZE";
+
+	/** the default size of the shared cache */
+	public static final int DEFAULT_CACHE_SIZE = 1000;
+
+	private int maxSize;
+
+	/**
+	 * the cached scripts in access order, guarded by the cache itself.
+	 */
+	private LinkedHashMap<Key, ICompiledScript> scripts = new LinkedHashMap<Key, ICompiledScript>(
+			16, 0.75f, true ) {
+
+		private static final long serialVersionUID = 1L;
+
+		protected boolean removeEldestEntry(
+				Map.Entry<Key, ICompiledScript> eldest )
+		{
+			if ( size( ) > maxSize )
+			{
+				evictionCount.incrementAndGet( );
+				return true;
+			}
+			return false;
+		}
+	};
+
+	private AtomicLong hitCount = new AtomicLong( );
+	private AtomicLong missCount = new AtomicLong( );
+	private AtomicLong evictionCount = new AtomicLong( );
+
+	/**
+	 * @param maxSize
+	 *            the max number of the cached scripts.
+	 */
+	public CompiledScriptCache( int maxSize )
+	{
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * get the compiled script.
+	 *
+	 * @return the cached script, null if it isn't cached
+	 */
+	public ICompiledScript get( String language, int optimizationLevel,
+			String fileName, int lineNo, String script )
+	{
+		if ( maxSize <= 0 || script == null )
+		{
+			return null;
+		}
+		ICompiledScript compiledScript;
+		Key key = new Key( language, optimizationLevel, fileName, lineNo,
+				script );
+		synchronized ( scripts )
+		{
+			compiledScript = scripts.get( key );
+		}
+		if ( compiledScript != null )
+		{
+			hitCount.incrementAndGet( );
+		}
+		else
+		{
+			missCount.incrementAndGet( );
+		}
+		return compiledScript;
+	}
+
+	/**
+	 * cache the compiled script. If the same script is compiled by several
+	 * threads at the same time, the last one is kept.
+	 */
+	public void put( String language, int optimizationLevel, String fileName,
+			int lineNo, String script, ICompiledScript compiledScript )
+	{
+		if ( maxSize <= 0 || script == null || compiledScript == null )
+		{
+			return;
+		}
+		Key key = new Key( language, optimizationLevel, fileName, lineNo,
+				script );
+		synchronized ( scripts )
+		{
+			scripts.put( key, compiledScript );
+		}
+	}
+
+	/**
+	 * change the max number of the cached scripts, the exceeded scripts are
+	 * removed. 0 disables the cache.
+	 */
+	public void setMaxSize( int maxSize )
+	{
+		synchronized ( scripts )
+		{
+			this.maxSize = maxSize;
+			while ( scripts.size( ) > Math.max( maxSize, 0 ) )
+			{
+				scripts.remove( scripts.keySet( ).iterator( ).next( ) );
+				evictionCount.incrementAndGet( );
+			}
+		}
+	}
+
+	public int getMaxSize( )
+	{
+		return maxSize;
+	}
+
+	public int size( )
+	{
+		synchronized ( scripts )
+		{
+			return scripts.size( );
+		}
+	}
+
+	public void clear( )
+	{
+		synchronized ( scripts )
+		{
+			scripts.clear( );
+		}
+	}
+
+	public long getHitCount( )
+	{
+		return hitCount.get( );
+	}
+
+	public long getMissCount( )
+	{
+		return missCount.get( );
+	}
+
+	public long getEvictionCount( )
+	{
+		return evictionCount.get( );
+	}
+
+	/**
+	 * @return the ratio of the hits to the lookups, 0 if there is no lookup.
+	 */
+	public double getHitRate( )
+	{
+		long hits = hitCount.get( );
+		long lookups = hits + missCount.get( );
+		return lookups == 0 ? 0 : (double) hits / lookups;
+	}
+
+	/**
+	 * @return the size defined by the system property PROPERTY_CACHE_SIZE,
+	 *         DEFAULT_CACHE_SIZE if it isn't defined.
+	 */
+	public static int getDefaultCacheSize( )
+	{
+		String value = AccessController
+				.doPrivileged( new PrivilegedAction<String>( ) {
+
+					public String run( )
+					{
+						return System.getProperty( PROPERTY_CACHE_SIZE );
+					}
+				} );
+		if ( value != null )
+		{
+			try
+			{
+				return Integer.parseInt( value.trim( ) );
+			}
+			catch ( NumberFormatException ex )
+			{
+				// just skip the exception
+			}
+		}
+		return DEFAULT_CACHE_SIZE;
+	}
+
+	private static class Key
+	{
+
+		private String language;
+		private int optimizationLevel;
+		private String fileName;
+		private int lineNo;
+		private String script;
+		private int hashCode;
+
+		Key( String language, int optimizationLevel, String fileName,
+				int lineNo, String script )
+		{
+			this.language = language;
+			this.optimizationLevel = optimizationLevel;
+			this.fileName = fileName;
+			this.lineNo = lineNo;
+			this.script = script;
+			int hash = script.hashCode( );
+			hash = hash * 31 + optimizationLevel;
+			hash = hash * 31 + lineNo;
+			hash = hash * 31 + ( language == null ? 0 : language.hashCode( ) );
+			hash = hash * 31 + ( fileName == null ? 0 : fileName.hashCode( ) );
+			this.hashCode = hash;
+		}
+
+		public int hashCode( )
+		{
+			return hashCode;
+		}
+
+		public boolean equals( Object obj )
+		{
+			if ( this == obj )
+			{
+				return true;
+			}
+			if ( !( obj instanceof Key ) )
+			{
+				return false;
+			}
+			Key key = (Key) obj;
+			return hashCode == key.hashCode
+					&& optimizationLevel == key.optimizationLevel
+					&& lineNo == key.lineNo && script.equals( key.script )
+					&& equals( language, key.language )
+					&& equals( fileName, key.fileName );
+		}
+
+		private static boolean equals( String s1, String s2 )
+		{
+			return s1 == null ? s2 == null : s1.equals( s2 );
+		}
+	}
+}
@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.aggregation.impl;
+
+import org.eclipse.birt.core.data.DataTypeUtil;
+import org.eclipse.birt.core.exception.BirtException;
+import org.eclipse.birt.data.aggregation.i18n.ResourceConstants;
+import org.eclipse.birt.data.engine.core.DataException;
+
+/**
+ * The accumulator of an approximate aggregation, whose memory is bounded by an
+ * optional accuracy argument.
+ */
+abstract class ApproxAccumulator extends SummaryAccumulator
+{
+
+	private String functionName;
+
+	/**
+	 * @param functionName
+	 *            the name of the aggregation
+	 */
+	ApproxAccumulator( String functionName )
+	{
+		this.functionName = functionName;
+	}
+
+	/**
+	 * Return the accuracy argument, or the default value if it is not given.
+	 *
+	 * @param args
+	 * @param index
+	 *            the index of the accuracy argument
+	 * @param min
+	 * @param max
+	 * @param defaultValue
+	 * @return
+	 * @throws DataException
+	 *             if the argument is not a number between min and max
+	 */
+	protected double getAccuracy( Object[] args, int index, double min,
+			double max, double defaultValue ) throws DataException
+	{
+		if ( args.length <= index || args[index] == null )
+			return defaultValue;
+		double value;
+		try
+		{
+			if ( args[index] instanceof String
+					&& ( (String) args[index] ).trim( ).length( ) == 0 )
+				return defaultValue;
+			value = DataTypeUtil.toDouble( args[index] ).doubleValue( );
+		}
+		catch ( BirtException e )
+		{
+			value = Double.NaN;
+		}
+		if ( !( value >= min && value <= max ) )
+		{
+			throw DataException.wrap( new AggrException( ResourceConstants.INVALID_ACCURACY_ARGUMENT,
+					new Object[]{
+							functionName,
+							Double.valueOf( min ),
+							Double.valueOf( max )
+					} ) );
+		}
+		return value;
+	}
+}
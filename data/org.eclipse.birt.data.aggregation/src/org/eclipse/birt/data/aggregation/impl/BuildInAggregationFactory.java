@@ -140,6 +140,18 @@ public class BuildInAggregationFactory implements IAggregationFactory
 		final TotalConcatenate totalConcatenate = new TotalConcatenate( );
 		aggrMap.put( IBuildInAggregation.TOTAL_CONCATENATE_FUNC, totalConcatenate );
 		aggregations.add( totalConcatenate );
+		final TotalApproxCountDistinct totalApproxCountDistinct = new TotalApproxCountDistinct( );
+		aggrMap.put( IBuildInAggregation.TOTAL_APPROX_COUNTDISTINCT_FUNC,
+				totalApproxCountDistinct );
+		aggregations.add( totalApproxCountDistinct );
+		final TotalApproxMedian totalApproxMedian = new TotalApproxMedian( );
+		aggrMap.put( IBuildInAggregation.TOTAL_APPROX_MEDIAN_FUNC,
+				totalApproxMedian );
+		aggregations.add( totalApproxMedian );
+		final TotalApproxPercentile totalApproxPercentile = new TotalApproxPercentile( );
+		aggrMap.put( IBuildInAggregation.TOTAL_APPROX_PERCENTILE_FUNC,
+				totalApproxPercentile );
+		aggregations.add( totalApproxPercentile );
 	}
 
 	/**
@@ -0,0 +1,291 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.aggregation.impl;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * The HyperLogLog sketch which estimates the number of the distinct values
+ * with a bounded memory. The values are hashed into 64 bits, the first
+ * <code>precision</code> bits of a hash select one of the 2^precision
+ * registers, and a register keeps the maximum position of the first 1 bit in
+ * the remaining bits of its hashes. The relative standard error of the
+ * estimate is about 1.04 / sqrt( 2^precision ).
+ *
+ * The distinct hashes are kept exactly as long as they take no more memory
+ * than the registers, so the small groups are counted exactly and use little
+ * memory.
+ */
+public class HyperLogLog
+{
+
+	public static final int MIN_PRECISION = 4;
+	public static final int MAX_PRECISION = 18;
+	public static final int DEFAULT_PRECISION = 14;
+
+	private int precision;
+	private int registerCount;
+
+	// the registers, null while the hashes are kept exactly
+	private byte[] registers;
+
+	// the open addressing set of the distinct hashes, 0 is the empty slot
+	private long[] hashes;
+	private int hashCount;
+	private boolean hasZeroHash;
+
+	/**
+	 * @param precision
+	 *            the number of the bits selecting the register, between
+	 *            MIN_PRECISION and MAX_PRECISION
+	 */
+	public HyperLogLog( int precision )
+	{
+		if ( precision < MIN_PRECISION || precision > MAX_PRECISION )
+			throw new IllegalArgumentException( String.valueOf( precision ) );
+		this.precision = precision;
+		this.registerCount = 1 << precision;
+		this.hashes = new long[16];
+	}
+
+	/**
+	 * Add a value.
+	 *
+	 * @param value
+	 */
+	public void add( Object value )
+	{
+		addHash( hash( value ) );
+	}
+
+	/**
+	 * Add the hash of a value.
+	 *
+	 * @param hash
+	 */
+	public void addHash( long hash )
+	{
+		if ( registers != null )
+		{
+			updateRegister( hash );
+			return;
+		}
+		if ( hash == 0 )
+		{
+			hasZeroHash = true;
+			return;
+		}
+		int mask = hashes.length - 1;
+		int i = (int) hash & mask;
+		while ( hashes[i] != 0 )
+		{
+			if ( hashes[i] == hash )
+				return;
+			i = ( i + 1 ) & mask;
+		}
+		hashes[i] = hash;
+		hashCount++;
+		if ( hashCount * 2 > hashes.length )
+		{
+			if ( hashes.length * 16 > registerCount )
+				toRegisters( );
+			else
+				rehash( hashes.length * 2 );
+		}
+	}
+
+	/**
+	 * @return the estimated number of the distinct values
+	 */
+	public long cardinality( )
+	{
+		if ( registers == null )
+			return hashCount + ( hasZeroHash ? 1 : 0 );
+
+		double sum = 0;
+		int zeros = 0;
+		for ( int i = 0; i < registerCount; i++ )
+		{
+			sum += 1.0 / ( 1L << registers[i] );
+			if ( registers[i] == 0 )
+				zeros++;
+		}
+		double m = registerCount;
+		double estimate = alpha( ) * m * m / sum;
+		if ( estimate <= 2.5 * m && zeros > 0 )
+		{
+			// linear counting is more accurate for the small cardinalities
+			estimate = m * Math.log( m / zeros );
+		}
+		return Math.round( estimate );
+	}
+
+	/**
+	 * Add the values of another sketch of the same precision.
+	 *
+	 * @param other
+	 */
+	public void merge( HyperLogLog other )
+	{
+		if ( other.precision != precision )
+			throw new IllegalArgumentException( String.valueOf( other.precision ) );
+		if ( other.registers == null )
+		{
+			for ( int i = 0; i < other.hashes.length; i++ )
+			{
+				if ( other.hashes[i] != 0 )
+					addHash( other.hashes[i] );
+			}
+			if ( other.hasZeroHash )
+				addHash( 0 );
+			return;
+		}
+		if ( registers == null )
+			toRegisters( );
+		for ( int i = 0; i < registerCount; i++ )
+		{
+			if ( other.registers[i] > registers[i] )
+				registers[i] = other.registers[i];
+		}
+	}
+
+	/**
+	 * @return the number of the bytes used by the sketch
+	 */
+	public int getMemorySize( )
+	{
+		return registers != null ? registers.length : hashes.length * 8;
+	}
+
+	private void toRegisters( )
+	{
+		registers = new byte[registerCount];
+		for ( int i = 0; i < hashes.length; i++ )
+		{
+			if ( hashes[i] != 0 )
+				updateRegister( hashes[i] );
+		}
+		if ( hasZeroHash )
+			updateRegister( 0 );
+		hashes = null;
+	}
+
+	private void rehash( int capacity )
+	{
+		long[] old = hashes;
+		hashes = new long[capacity];
+		int mask = capacity - 1;
+		for ( int i = 0; i < old.length; i++ )
+		{
+			if ( old[i] == 0 )
+				continue;
+			int j = (int) old[i] & mask;
+			while ( hashes[j] != 0 )
+				j = ( j + 1 ) & mask;
+			hashes[j] = old[i];
+		}
+	}
+
+	private void updateRegister( long hash )
+	{
+		int index = (int) ( hash >>> ( 64 - precision ) );
+		// the rank of the first 1 bit after the index bits, a guard bit
+		// bounds it when the remaining bits are all 0
+		long rest = ( hash << precision ) | ( 1L << ( precision - 1 ) );
+		byte rank = (byte) ( Long.numberOfLeadingZeros( rest ) + 1 );
+		if ( rank > registers[index] )
+			registers[index] = rank;
+	}
+
+	private double alpha( )
+	{
+		switch ( registerCount )
+		{
+			case 16 :
+				return 0.673;
+			case 32 :
+				return 0.697;
+			case 64 :
+				return 0.709;
+			default :
+				return 0.7213 / ( 1 + 1.079 / registerCount );
+		}
+	}
+
+	/**
+	 * Return the 64 bits hash of a value. The equal numbers of the same class,
+	 * strings and dates have the same hash.
+	 *
+	 * @param value
+	 * @return
+	 */
+	public static long hash( Object value )
+	{
+		long h;
+		if ( value == null )
+		{
+			h = 0x9E3779B97F4A7C15L;
+		}
+		else if ( value instanceof String )
+		{
+			String s = (String) value;
+			h = 0xCBF29CE484222325L;
+			for ( int i = 0; i < s.length( ); i++ )
+			{
+				h = ( h ^ s.charAt( i ) ) * 0x100000001B3L;
+			}
+		}
+		else if ( value instanceof Double || value instanceof Float )
+		{
+			// the offsets keep the values of the different classes apart
+			h = Double.doubleToLongBits( ( (Number) value ).doubleValue( ) )
+					+ 0x5851F42D4C957F2DL;
+		}
+		else if ( value instanceof Long
+				|| value instanceof Integer
+				|| value instanceof Short
+				|| value instanceof Byte )
+		{
+			h = ( (Number) value ).longValue( );
+		}
+		else if ( value instanceof BigDecimal )
+		{
+			// the equal decimals of different scales are the same value, the
+			// offset keeps them apart from the equal strings
+			h = hash( ( (BigDecimal) value ).stripTrailingZeros( )
+					.toString( ) ) + 0x2545F4914F6CDD1DL;
+		}
+		else if ( value instanceof Date )
+		{
+			h = ( (Date) value ).getTime( ) + 0x14057B7EF767814FL;
+		}
+		else
+		{
+			h = value.hashCode( );
+		}
+		return mix( h );
+	}
+
+	/**
+	 * Spread the bits of a hash, the finalizer of MurmurHash3.
+	 */
+	private static long mix( long h )
+	{
+		h ^= h >>> 33;
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= h >>> 33;
+		h *= 0xC4CEB93FE1A85EC9L;
+		h ^= h >>> 33;
+		return h;
+	}
+}
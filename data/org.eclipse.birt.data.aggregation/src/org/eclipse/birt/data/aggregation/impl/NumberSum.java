@@ -0,0 +1,243 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.aggregation.impl;
+
+import java.math.BigDecimal;
+
+import org.eclipse.birt.data.aggregation.calculator.CalculatorFactory;
+import org.eclipse.birt.data.aggregation.calculator.ICalculator;
+import org.eclipse.birt.data.engine.core.DataException;
+
+/**
+ * The sum, and optionally the sum of the squares, of the not null values of
+ * an aggregation. The kind of the sum is chosen by the first value, as the
+ * calculator of the built-in aggregations is, so that no object is created
+ * per row for the numbers: the integers are added into a long, the other
+ * numbers except BigDecimal into a double, and BigDecimal values are added
+ * directly. The other values, such as strings and dates, are added by their
+ * calculator.
+ *
+ * The results are the same as adding the values with the calculator: the sum
+ * of the integers switches to a double when it overflows a long.
+ */
+final class NumberSum
+{
+
+	private static final int EMPTY = 0;
+	private static final int LONG = 1;
+	private static final int DOUBLE = 2;
+	private static final int DECIMAL = 3;
+	private static final int OBJECT = 4;
+
+	// the initial sum of the calculators
+	private static final Double ZERO = Double.valueOf( 0D );
+	private static final BigDecimal DECIMAL_ZERO = BigDecimal.valueOf( 0D );
+
+	private boolean withSquares;
+	private int kind;
+	private int count;
+
+	private long longSum;
+	private double doubleSum;
+	private double doubleSquareSum;
+	private BigDecimal decimalSum;
+	private BigDecimal decimalSquareSum;
+	private Number objectSum;
+	private Number objectSquareSum;
+	private ICalculator calculator;
+
+	/**
+	 * @param withSquares
+	 *            whether the sum of the squares is calculated
+	 */
+	NumberSum( boolean withSquares )
+	{
+		this.withSquares = withSquares;
+	}
+
+	/**
+	 * Reset the sums.
+	 */
+	void reset( )
+	{
+		kind = EMPTY;
+		count = 0;
+		longSum = 0;
+		doubleSum = 0;
+		doubleSquareSum = 0;
+		decimalSum = null;
+		decimalSquareSum = null;
+		objectSum = null;
+		objectSquareSum = null;
+		calculator = null;
+	}
+
+	/**
+	 * Add a not null value.
+	 *
+	 * @param value
+	 * @throws DataException
+	 */
+	void add( Object value ) throws DataException
+	{
+		if ( kind == EMPTY )
+		{
+			start( value );
+		}
+		if ( kind == LONG )
+		{
+			if ( isInteger( value ) )
+			{
+				long v = ( (Number) value ).longValue( );
+				long sum = longSum + v;
+				if ( ( ( longSum ^ sum ) & ( v ^ sum ) ) >= 0 )
+				{
+					longSum = sum;
+					count++;
+					return;
+				}
+			}
+			// overflow or a value of another type
+			kind = DOUBLE;
+			doubleSum = longSum;
+		}
+		if ( kind == DOUBLE )
+		{
+			double v = ( (Number) value ).doubleValue( );
+			doubleSum += v;
+			doubleSquareSum += v * v;
+		}
+		else if ( kind == DECIMAL )
+		{
+			BigDecimal v = value instanceof BigDecimal
+					? (BigDecimal) value
+					: BigDecimal.valueOf( ( (Number) value ).doubleValue( ) );
+			decimalSum = decimalSum.add( v );
+			if ( withSquares )
+				decimalSquareSum = decimalSquareSum.add( v.multiply( v ) );
+		}
+		else
+		{
+			objectSum = calculator.add( objectSum, value );
+			if ( withSquares )
+				objectSquareSum = calculator.add( objectSquareSum,
+						calculator.multiply( value, value ) );
+		}
+		count++;
+	}
+
+	private void start( Object value )
+	{
+		calculator = CalculatorFactory.getCalculator( value.getClass( ) );
+		if ( value instanceof BigDecimal )
+		{
+			kind = DECIMAL;
+			decimalSum = DECIMAL_ZERO;
+			decimalSquareSum = DECIMAL_ZERO;
+		}
+		else if ( value instanceof Number )
+		{
+			// the squares of the integers are added into a double
+			kind = isInteger( value ) && !withSquares ? LONG : DOUBLE;
+		}
+		else
+		{
+			kind = OBJECT;
+			objectSum = ZERO;
+			objectSquareSum = ZERO;
+		}
+	}
+
+	private static boolean isInteger( Object value )
+	{
+		return value instanceof Integer
+				|| value instanceof Long
+				|| value instanceof Short
+				|| value instanceof Byte;
+	}
+
+	/**
+	 * @return the number of the added values
+	 */
+	int getCount( )
+	{
+		return count;
+	}
+
+	/**
+	 * @return whether the sums are primitive numbers, whose calculator is the
+	 *         NumberCalculator
+	 */
+	boolean isPrimitive( )
+	{
+		return kind == LONG || kind == DOUBLE;
+	}
+
+	/**
+	 * @return the sum if it is primitive
+	 */
+	double getDoubleSum( )
+	{
+		return kind == LONG ? longSum : doubleSum;
+	}
+
+	/**
+	 * @return the sum of the squares if it is primitive
+	 */
+	double getDoubleSquareSum( )
+	{
+		return doubleSquareSum;
+	}
+
+	/**
+	 * @return the sum as the calculator returns it
+	 */
+	Number getSum( )
+	{
+		switch ( kind )
+		{
+			case LONG :
+			case DOUBLE :
+				return Double.valueOf( getDoubleSum( ) );
+			case DECIMAL :
+				return decimalSum;
+			case OBJECT :
+				return objectSum;
+		}
+		return ZERO;
+	}
+
+	/**
+	 * @return the sum of the squares as the calculator returns it
+	 */
+	Number getSquareSum( )
+	{
+		switch ( kind )
+		{
+			case DOUBLE :
+				return Double.valueOf( doubleSquareSum );
+			case DECIMAL :
+				return decimalSquareSum;
+			case OBJECT :
+				return objectSquareSum;
+		}
+		return ZERO;
+	}
+
+	/**
+	 * @return the calculator of the first value, null if no value is added
+	 */
+	ICalculator getCalculator( )
+	{
+		return calculator;
+	}
+}
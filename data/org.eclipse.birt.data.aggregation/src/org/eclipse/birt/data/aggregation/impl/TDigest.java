@@ -0,0 +1,229 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.aggregation.impl;
+
+import java.util.Arrays;
+
+/**
+ * The merging t-digest which estimates the quantiles of a set of numbers with
+ * a bounded memory. The numbers are buffered, and when the buffer is full they
+ * are sorted and merged into a list of centroids, each one being the mean and
+ * the count of adjacent numbers. A centroid spans at most one unit of the
+ * scale k( q ) = compression / ( 2 * PI ) * asin( 2 * q - 1 ) where q is the
+ * quantile, so the centroids near the extremes are small and the extreme
+ * quantiles stay accurate. There are at most about compression centroids.
+ *
+ * The quantiles follow the convention of the exact Total.Percentile: the
+ * quantile q of n numbers is the number of the rank q * ( n - 1 ) in the
+ * sorted numbers, interpolated between the adjacent ranks. As long as no
+ * centroid merges several numbers, the result is exact.
+ */
+public class TDigest
+{
+
+	public static final double MIN_COMPRESSION = 20;
+	public static final double MAX_COMPRESSION = 1000;
+	public static final double DEFAULT_COMPRESSION = 100;
+
+	private double compression;
+
+	// the centroids in the ascending order of their means
+	private double[] means;
+	private double[] weights;
+	private int centroidCount;
+
+	// the numbers not merged yet
+	private double[] buffer;
+	private int bufferCount;
+
+	private double totalWeight;
+	private double min = Double.POSITIVE_INFINITY;
+	private double max = Double.NEGATIVE_INFINITY;
+
+	/**
+	 * @param compression
+	 *            the accuracy of the digest, between MIN_COMPRESSION and
+	 *            MAX_COMPRESSION
+	 */
+	public TDigest( double compression )
+	{
+		if ( !( compression >= MIN_COMPRESSION && compression <= MAX_COMPRESSION ) )
+			throw new IllegalArgumentException( String.valueOf( compression ) );
+		this.compression = compression;
+		int capacity = (int) Math.ceil( compression ) + 10;
+		this.means = new double[capacity];
+		this.weights = new double[capacity];
+		this.buffer = new double[(int) Math.ceil( 5 * compression )];
+	}
+
+	/**
+	 * Add a number.
+	 *
+	 * @param value
+	 */
+	public void add( double value )
+	{
+		if ( Double.isNaN( value ) )
+			return;
+		if ( bufferCount == buffer.length )
+			merge( );
+		buffer[bufferCount++] = value;
+		totalWeight++;
+		if ( value < min )
+			min = value;
+		if ( value > max )
+			max = value;
+	}
+
+	/**
+	 * @return the number of the added numbers
+	 */
+	public long size( )
+	{
+		return (long) totalWeight;
+	}
+
+	/**
+	 * @return the number of the centroids
+	 */
+	public int getCentroidCount( )
+	{
+		merge( );
+		return centroidCount;
+	}
+
+	/**
+	 * Return the estimated quantile.
+	 *
+	 * @param q
+	 *            between 0 and 1
+	 * @return the quantile, NaN if no number is added
+	 */
+	public double quantile( double q )
+	{
+		if ( q < 0 || q > 1 )
+			throw new IllegalArgumentException( String.valueOf( q ) );
+		merge( );
+		if ( centroidCount == 0 )
+			return Double.NaN;
+
+		double rank = q * ( totalWeight - 1 );
+		// the rank of the center of a centroid is the rank of its first number
+		// plus half of the ranks it spans
+		double first = 0;
+		double previousRank = 0;
+		double previousMean = min;
+		for ( int i = 0; i < centroidCount; i++ )
+		{
+			double centerRank = first + ( weights[i] - 1 ) / 2;
+			if ( rank <= centerRank )
+			{
+				return interpolate( previousRank,
+						previousMean,
+						centerRank,
+						means[i],
+						rank );
+			}
+			previousRank = centerRank;
+			previousMean = means[i];
+			first += weights[i];
+		}
+		return interpolate( previousRank,
+				previousMean,
+				totalWeight - 1,
+				max,
+				rank );
+	}
+
+	private static double interpolate( double x0, double y0, double x1,
+			double y1, double x )
+	{
+		if ( x1 <= x0 )
+			return y1;
+		return y0 + ( y1 - y0 ) * ( x - x0 ) / ( x1 - x0 );
+	}
+
+	/**
+	 * Merge the buffered numbers into the centroids.
+	 */
+	private void merge( )
+	{
+		if ( bufferCount == 0 )
+			return;
+		Arrays.sort( buffer, 0, bufferCount );
+
+		double[] oldMeans = means;
+		double[] oldWeights = weights;
+		int oldCount = centroidCount;
+		means = new double[oldMeans.length];
+		weights = new double[oldWeights.length];
+		centroidCount = 0;
+
+		double weightSoFar = 0;
+		// the scale of the first number of the last centroid
+		double k0 = 0;
+		int i = 0, j = 0;
+		while ( i < oldCount || j < bufferCount )
+		{
+			double mean, weight;
+			if ( j == bufferCount
+					|| ( i < oldCount && oldMeans[i] <= buffer[j] ) )
+			{
+				mean = oldMeans[i];
+				weight = oldWeights[i];
+				i++;
+			}
+			else
+			{
+				mean = buffer[j];
+				weight = 1;
+				j++;
+			}
+
+			if ( centroidCount > 0 )
+			{
+				int last = centroidCount - 1;
+				double proposed = weights[last] + weight;
+				if ( scale( ( weightSoFar + weight ) / totalWeight ) - k0 <= 1 )
+				{
+					means[last] += ( mean - means[last] ) * weight / proposed;
+					weights[last] = proposed;
+					weightSoFar += weight;
+					continue;
+				}
+			}
+			if ( centroidCount == means.length )
+			{
+				means = copyOf( means, centroidCount * 2 );
+				weights = copyOf( weights, centroidCount * 2 );
+			}
+			means[centroidCount] = mean;
+			weights[centroidCount] = weight;
+			centroidCount++;
+			k0 = scale( weightSoFar / totalWeight );
+			weightSoFar += weight;
+		}
+		bufferCount = 0;
+	}
+
+	private double scale( double q )
+	{
+		return compression / ( 2 * Math.PI ) * Math.asin( 2 * q - 1 );
+	}
+
+	private static double[] copyOf( double[] array, int length )
+	{
+		double[] result = new double[length];
+		System.arraycopy( array, 0, result, 0, array.length );
+		return result;
+	}
+}
@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.aggregation.impl;
+
+import org.eclipse.birt.data.engine.core.DataException;
+
+/**
+ * Accumulator that is used by the approximate Median and Percentile. The
+ * values are added to a t-digest instead of being kept, and the result is
+ * interpolated the same way as the exact Percentile.
+ */
+abstract class TDigestAccumulator extends ApproxAccumulator
+{
+
+	private int compressionIndex;
+	private TDigest digest;
+	private double pct;
+
+	/**
+	 * @param functionName
+	 * @param compressionIndex
+	 *            the index of the compression argument
+	 */
+	TDigestAccumulator( String functionName, int compressionIndex )
+	{
+		super( functionName );
+		this.compressionIndex = compressionIndex;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.aggregation.impl.SummaryAccumulator#start()
+	 */
+	public void start( )
+	{
+		super.start( );
+		digest = null;
+		pct = -1;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.api.aggregation.Accumulator#onRow(java.lang.Object[])
+	 */
+	public void onRow( Object[] args ) throws DataException
+	{
+		assert ( args.length > 0 );
+		if ( digest == null )
+		{
+			digest = new TDigest( getAccuracy( args,
+					compressionIndex,
+					TDigest.MIN_COMPRESSION,
+					TDigest.MAX_COMPRESSION,
+					TDigest.DEFAULT_COMPRESSION ) );
+			pct = getPctValue( args );
+		}
+		if ( args[0] instanceof Number )
+		{
+			digest.add( ( (Number) args[0] ).doubleValue( ) );
+		}
+		else if ( args[0] != null )
+		{
+			digest.add( ( (Double) toDouble( args[0] ) ).doubleValue( ) );
+		}
+	}
+
+	/**
+	 * @param args
+	 * @return the percentile to calculate, between 0 and 1
+	 * @throws DataException
+	 */
+	protected abstract double getPctValue( Object[] args ) throws DataException;
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.aggregation.impl.SummaryAccumulator#getSummaryValue()
+	 */
+	public Object getSummaryValue( )
+	{
+		if ( digest == null || digest.size( ) == 0 )
+			return null;
+		return Double.valueOf( digest.quantile( pct ) );
+	}
+}
@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.aggregation.impl;
+
+import org.eclipse.birt.core.data.DataType;
+import org.eclipse.birt.data.aggregation.api.IBuildInAggregation;
+import org.eclipse.birt.data.aggregation.i18n.Messages;
+import org.eclipse.birt.data.engine.api.aggregation.Accumulator;
+import org.eclipse.birt.data.engine.api.aggregation.IParameterDefn;
+import org.eclipse.birt.data.engine.core.DataException;
+
+/**
+ * Implements the built-in Total.approxCountDistinct aggregation, which
+ * estimates the number of the distinct values with a HyperLogLog sketch
+ * instead of keeping all the values as Total.countDistinct.
+ */
+public class TotalApproxCountDistinct extends AggrFunction
+{
+
+	public String getName( )
+	{
+		return IBuildInAggregation.TOTAL_APPROX_COUNTDISTINCT_FUNC;
+	}
+
+	public int getType( )
+	{
+		return SUMMARY_AGGR;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.api.aggregation.IAggregation#getDateType()
+	 */
+	public int getDataType( )
+	{
+		return DataType.INTEGER_TYPE;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.api.aggregation.IAggrFunction#getParameterDefn()
+	 */
+	public IParameterDefn[] getParameterDefn( )
+	{
+		return new IParameterDefn[]{
+				new ParameterDefn( Constants.EXPRESSION_NAME,
+						Constants.EXPRESSION_DISPLAY_NAME,
+						false,
+						true,
+						SupportedDataTypes.ANY,
+						"" ),//$NON-NLS-1$
+				new ParameterDefn( "precision", //$NON-NLS-1$
+						Messages.getString( "TotalApproxCountDistinct.param.precision" ), //$NON-NLS-1$
+						true,
+						false,
+						SupportedDataTypes.CALCULATABLE,
+						Messages.getString( "TotalApproxCountDistinct.paramDescription.precision" ) ) //$NON-NLS-1$
+		};
+	}
+
+	public Accumulator newAccumulator( )
+	{
+		return new MyAccumulator( );
+	}
+
+	private static class MyAccumulator extends ApproxAccumulator
+	{
+
+		private HyperLogLog sketch;
+
+		MyAccumulator( )
+		{
+			super( IBuildInAggregation.TOTAL_APPROX_COUNTDISTINCT_FUNC );
+		}
+
+		public void start( )
+		{
+			super.start( );
+			sketch = null;
+		}
+
+		public void onRow( Object[] args ) throws DataException
+		{
+			assert ( args.length > 0 );
+			if ( sketch == null )
+			{
+				sketch = new HyperLogLog( (int) getAccuracy( args,
+						1,
+						HyperLogLog.MIN_PRECISION,
+						HyperLogLog.MAX_PRECISION,
+						HyperLogLog.DEFAULT_PRECISION ) );
+			}
+			// null is counted as a value as Total.countDistinct does
+			sketch.add( args[0] );
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see org.eclipse.birt.data.aggregation.impl.SummaryAccumulator#getSummaryValue()
+		 */
+		public Object getSummaryValue( )
+		{
+			if ( sketch == null )
+				return Integer.valueOf( 0 );
+			return Integer.valueOf( (int) Math.min( sketch.cardinality( ),
+					Integer.MAX_VALUE ) );
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.api.aggregation.IAggrFunction#getDescription()
+	 */
+	public String getDescription( )
+	{
+		return Messages.getString( "TotalApproxCountDistinct.description" ); //$NON-NLS-1$
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.api.aggregation.IAggrFunction#getDisplayName()
+	 */
+	public String getDisplayName( )
+	{
+		return Messages.getString( "TotalApproxCountDistinct.displayName" ); //$NON-NLS-1$
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.api.aggregation.AggrFunction#getDefaultValue()
+	 */
+	public Object getDefaultValue( )
+	{
+		return Integer.valueOf( 0 );
+	}
+}
@@ -16,7 +16,6 @@ package org.eclipse.birt.data.aggregation.impl;
 
 import org.eclipse.birt.core.data.DataType;
 import org.eclipse.birt.data.aggregation.api.IBuildInAggregation;
-import org.eclipse.birt.data.aggregation.calculator.CalculatorFactory;
 import org.eclipse.birt.data.aggregation.i18n.Messages;
 import org.eclipse.birt.data.engine.api.aggregation.Accumulator;
 import org.eclipse.birt.data.engine.api.aggregation.IParameterDefn;
@@ -72,15 +71,12 @@ public class TotalAve extends AggrFunction
 	private static class MyAccumulator extends SummaryAccumulator
 	{
 
-		private Number sum = 0.0D;
-
-		private int count = 0;
+		private NumberSum sum = new NumberSum( false );
 
 		public void start( )
 		{
 			super.start( );
-			sum = 0.0D;
-			count = 0;
+			sum.reset( );
 		}
 
 		/*
@@ -93,10 +89,7 @@ public class TotalAve extends AggrFunction
 			assert ( args.length > 0 );
 			if ( args[0] != null )
 			{
-				if ( calculator == null )
-					calculator = CalculatorFactory.getCalculator( args[0].getClass( ) );
-				sum = calculator.add( sum, args[0] );
-				count++;
+				sum.add( args[0] );
 			}
 		}
 
@@ -107,12 +100,18 @@ public class TotalAve extends AggrFunction
 		 */
 		public Object getSummaryValue( )
 		{
+			int count = sum.getCount( );
 			if ( count > 0 )
 			{
+				if ( sum.isPrimitive( ) )
+				{
+					return Double.valueOf( sum.getDoubleSum( ) / count );
+				}
+				calculator = sum.getCalculator( );
 				Number ret = null;
 				try
 				{
-					ret = calculator.divide( sum, count );
+					ret = calculator.divide( sum.getSum( ), count );
 					return calculator.getTypedObject( ret );
 				}
 				catch ( DataException e )
@@ -16,7 +16,6 @@ package org.eclipse.birt.data.aggregation.impl;
 
 import org.eclipse.birt.core.data.DataType;
 import org.eclipse.birt.data.aggregation.api.IBuildInAggregation;
-import org.eclipse.birt.data.aggregation.calculator.CalculatorFactory;
 import org.eclipse.birt.data.aggregation.i18n.Messages;
 import org.eclipse.birt.data.engine.api.aggregation.Accumulator;
 import org.eclipse.birt.data.engine.api.aggregation.IParameterDefn;
@@ -89,9 +88,7 @@ public class TotalRunningSum extends AggrFunction
 	private static class MyAccumulator extends RunningAccumulator
 	{
 
-		private boolean isRowAvailable = false;
-
-		private Number sum = 0D;
+		private NumberSum sum = new NumberSum( false );
 
 		/*
 		 * (non-Javadoc)
@@ -101,8 +98,7 @@ public class TotalRunningSum extends AggrFunction
 		public void start( ) throws DataException
 		{
 			super.start( );
-			sum = 0D;
-			isRowAvailable = false;
+			sum.reset( );
 		}
 
 		/*
@@ -115,16 +111,7 @@ public class TotalRunningSum extends AggrFunction
 			assert ( args.length > 0 );
 			if ( args[0] != null )
 			{
-				if ( calculator == null )
-				{
-					calculator = CalculatorFactory.getCalculator( args[0].getClass( ) );
-				}
-
-				sum = calculator.add( sum, args[0] );
-				if ( !isRowAvailable )
-				{
-					isRowAvailable = true;
-				}
+				sum.add( args[0] );
 			}
 		}
 
@@ -135,7 +122,7 @@ public class TotalRunningSum extends AggrFunction
 		 */
 		public Object getValue( )
 		{
-			return ( isRowAvailable ? sum : null );
+			return ( sum.getCount( ) > 0 ? sum.getSum( ) : null );
 		}
 
 	}
@@ -16,7 +16,6 @@ package org.eclipse.birt.data.aggregation.impl;
 
 import org.eclipse.birt.core.data.DataType;
 import org.eclipse.birt.data.aggregation.api.IBuildInAggregation;
-import org.eclipse.birt.data.aggregation.calculator.CalculatorFactory;
 import org.eclipse.birt.data.aggregation.i18n.Messages;
 import org.eclipse.birt.data.engine.api.aggregation.Accumulator;
 import org.eclipse.birt.data.engine.api.aggregation.IParameterDefn;
@@ -89,16 +88,12 @@ public class TotalStdDev extends AggrFunction
 	private static class MyAccumulator extends SummaryAccumulator
 	{
 
-		private Number sum = 0.0D;
-		private Number squareSum = 0.0D;
-		private int count = 0;
+		private NumberSum sum = new NumberSum( true );
 
 		public void start( )
 		{
 			super.start( );
-			sum = 0D;
-			squareSum = 0.0D;
-			count = 0;
+			sum.reset( );
 		}
 
 		/*
@@ -111,15 +106,7 @@ public class TotalStdDev extends AggrFunction
 			assert ( args.length > 0 );
 			if ( args[0] != null )
 			{
-				if ( calculator == null )
-				{
-					calculator = CalculatorFactory.getCalculator( args[0].getClass( ) );
-				}
-
-				sum = calculator.add( sum, args[0] );
-				squareSum = calculator.add( squareSum,
-						calculator.multiply( args[0], args[0] ) );
-				count++;
+				sum.add( args[0] );
 			}
 		}
 
@@ -130,14 +117,21 @@ public class TotalStdDev extends AggrFunction
 		 */
 		public Object getSummaryValue( )
 		{
+			int count = sum.getCount( );
 			if ( count <= 1 )
 				return null;
+			if ( sum.isPrimitive( ) )
+			{
+				return Double.valueOf( Math.sqrt( TotalVariance.getVariance( sum,
+						count ) ) );
+			}
+			calculator = sum.getCalculator( );
 			Number ret = null;
 			try
 			{
 				ret = calculator.divide( calculator.subtract( calculator.multiply( count,
-						squareSum ),
-						calculator.multiply( sum, sum ) ),
+						sum.getSquareSum( ) ),
+						calculator.multiply( sum.getSum( ), sum.getSum( ) ) ),
 						calculator.multiply( count, calculator.subtract( count,
 								1 ) ) );
 				return calculator.add( 0, Math.sqrt( ret.doubleValue( ) ) );
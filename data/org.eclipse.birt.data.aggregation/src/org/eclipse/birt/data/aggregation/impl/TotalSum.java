@@ -16,7 +16,6 @@ package org.eclipse.birt.data.aggregation.impl;
 
 import org.eclipse.birt.core.data.DataType;
 import org.eclipse.birt.data.aggregation.api.IBuildInAggregation;
-import org.eclipse.birt.data.aggregation.calculator.CalculatorFactory;
 import org.eclipse.birt.data.aggregation.i18n.Messages;
 import org.eclipse.birt.data.engine.api.aggregation.Accumulator;
 import org.eclipse.birt.data.engine.api.aggregation.IParameterDefn;
@@ -89,14 +88,12 @@ public class TotalSum extends AggrFunction
 	private static class MyAccumulator extends SummaryAccumulator
 	{
 
-		private Number sum = 0.0D;
-		private boolean hasNotNullValue = false;
+		private NumberSum sum = new NumberSum( false );
 
 		public void start( )
 		{
 			super.start( );
-			this.hasNotNullValue = false;
-			sum = 0D;
+			sum.reset( );
 		}
 
 		/*
@@ -109,13 +106,7 @@ public class TotalSum extends AggrFunction
 			assert ( args.length > 0 );
 			if ( args[0] != null )
 			{
-				if ( calculator == null )
-				{
-					calculator = CalculatorFactory.getCalculator( args[0].getClass( ) );
-				}
-				this.hasNotNullValue = true;
-
-				sum = calculator.add( sum, args[0] );
+				sum.add( args[0] );
 			}
 		}
 
@@ -126,7 +117,7 @@ public class TotalSum extends AggrFunction
 		 */
 		public Object getSummaryValue( )
 		{
-			return hasNotNullValue ? sum : null;
+			return sum.getCount( ) > 0 ? sum.getSum( ) : null;
 		}
 
 	}
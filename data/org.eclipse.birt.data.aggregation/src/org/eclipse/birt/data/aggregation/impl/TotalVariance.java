@@ -17,7 +17,6 @@ package org.eclipse.birt.data.aggregation.impl;
 import org.eclipse.birt.core.data.DataType;
 import org.eclipse.birt.core.exception.BirtException;
 import org.eclipse.birt.data.aggregation.api.IBuildInAggregation;
-import org.eclipse.birt.data.aggregation.calculator.CalculatorFactory;
 import org.eclipse.birt.data.aggregation.i18n.Messages;
 import org.eclipse.birt.data.engine.api.aggregation.Accumulator;
 import org.eclipse.birt.data.engine.api.aggregation.IParameterDefn;
@@ -87,21 +86,31 @@ public class TotalVariance extends AggrFunction
 		return new MyAccumulator( );
 	}
 
-	private static class MyAccumulator extends SummaryAccumulator
+	/**
+	 * Return the sample variance of primitive sums, calculated in the same
+	 * order as with the NumberCalculator.
+	 *
+	 * @param sum
+	 * @param count
+	 * @return
+	 */
+	static double getVariance( NumberSum sum, int count )
 	{
+		double n = count;
+		return ( n * sum.getDoubleSquareSum( ) - sum.getDoubleSum( )
+				* sum.getDoubleSum( ) )
+				/ ( n * ( n - 1 ) );
+	}
 
-		private Number sum = 0.0D;
-
-		private Number squareSum = 0.0D;
+	private static class MyAccumulator extends SummaryAccumulator
+	{
 
-		private int count = 0;
+		private NumberSum sum = new NumberSum( true );
 
 		public void start( )
 		{
 			super.start( );
-			sum = 0D;
-			squareSum = 0.0D;
-			count = 0;
+			sum.reset( );
 		}
 
 		/*
@@ -114,15 +123,7 @@ public class TotalVariance extends AggrFunction
 			assert ( args.length > 0 );
 			if ( args[0] != null )
 			{
-				if ( calculator == null )
-				{
-					calculator = CalculatorFactory.getCalculator( args[0].getClass( ) );
-				}
-
-				sum = calculator.add( sum, args[0] );
-				squareSum = calculator.add( squareSum,
-						calculator.multiply( args[0], args[0] ) );
-				count++;
+				sum.add( args[0] );
 			}
 		}
 
@@ -133,13 +134,19 @@ public class TotalVariance extends AggrFunction
 		 */
 		public Object getSummaryValue( )
 		{
+			int count = sum.getCount( );
 			if ( count <= 1 )
 				return null;
+			if ( sum.isPrimitive( ) )
+			{
+				return Double.valueOf( getVariance( sum, count ) );
+			}
+			calculator = sum.getCalculator( );
 			try
 			{
 				return calculator.divide( calculator.subtract( calculator.multiply( count,
-						squareSum ),
-						calculator.multiply( sum, sum ) ),
+						sum.getSquareSum( ) ),
+						calculator.multiply( sum.getSum( ), sum.getSum( ) ) ),
 						calculator.multiply( count, calculator.subtract( count,
 								1 ) ) );
 			}
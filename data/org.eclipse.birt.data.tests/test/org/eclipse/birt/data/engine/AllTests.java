@@ -70,6 +70,9 @@ public class AllTests
 		suite.addTestSuite( org.eclipse.birt.data.engine.binding.newbinding.MultiplePassTest.class );
 		suite.addTestSuite( org.eclipse.birt.data.engine.binding.newbinding.ColumnBindingTest.class );
 		
+		/* in package org.eclipse.birt.data.engine.executor */
+		suite.addTestSuite( org.eclipse.birt.data.engine.executor.CacheMapManagerTest.class );
+		
 		/* in package org.eclipse.birt.data.engine.executor.cache */
 		suite.addTestSuite( org.eclipse.birt.data.engine.executor.cache.CacheClobAndBlobTest.class );
 		suite.addTestSuite( org.eclipse.birt.data.engine.executor.cache.CacheComputedColumnTest.class );
@@ -77,8 +80,12 @@ public class AllTests
 		suite.addTestSuite( org.eclipse.birt.data.engine.executor.cache.CacheFeaturesTest.class );
 		suite.addTestSuite( org.eclipse.birt.data.engine.executor.cache.CacheNestedQueryTest.class );
 		suite.addTestSuite( org.eclipse.birt.data.engine.executor.cache.CacheSortTest.class );
+		suite.addTestSuite( org.eclipse.birt.data.engine.executor.cache.ParallelCacheSortTest.class );
+		suite.addTestSuite( org.eclipse.birt.data.engine.executor.aggregation.ParallelAggregationTest.class );
 		suite.addTestSuite( org.eclipse.birt.data.engine.executor.cache.CacheSubqueryTest.class );
 		suite.addTestSuite( org.eclipse.birt.data.engine.executor.cache.MemoryCacheTest.class );
+		suite.addTestSuite( org.eclipse.birt.data.engine.executor.cache.IncreSortedRunTest.class );
+		suite.addTestSuite( org.eclipse.birt.data.engine.executor.cache.ColumnarMemoryCacheTest.class );
 		
 		/* in package org.eclipse.birt.data.engine.executor.transform */
 		suite.addTestSuite( org.eclipse.birt.data.engine.executor.transform.CachedResultSetTest.class );
@@ -91,6 +98,7 @@ public class AllTests
 		suite.addTestSuite( org.eclipse.birt.data.engine.expression.ComplexExpressionCompilerTest.class);
 		suite.addTestSuite( org.eclipse.birt.data.engine.expression.ExpressionCompilerTest.class);
 		suite.addTestSuite( org.eclipse.birt.data.engine.expression.ExpressionCompilerUtilTest.class);
+		suite.addTestSuite( org.eclipse.birt.data.engine.expression.FastExpressionTest.class );
 		
 		/* in package org.eclipse.birt.data.engine.impl.rd */
 		suite.addTestSuite( org.eclipse.birt.data.engine.impl.rd.ViewingTest2.class);
@@ -107,6 +115,7 @@ public class AllTests
 		suite.addTestSuite( org.eclipse.birt.data.engine.impl.ScriptEvalTest.class);
 		suite.addTestSuite( org.eclipse.birt.data.engine.impl.ConfigFileParserTest.class );
 		suite.addTestSuite( org.eclipse.birt.data.engine.impl.IncreCacheDataSetTest.class);
+		suite.addTestSuite( org.eclipse.birt.data.engine.impl.OdaQueryOptimizationUtilTest.class);
 		
 		
 		/* in package org.eclipse.birt.data.engine.impl.binding  */
@@ -134,6 +143,9 @@ public class AllTests
 		suite.addTestSuite( org.eclipse.birt.data.engine.olap.data.impl.LevelMemberTest.class );
 		suite.addTestSuite( org.eclipse.birt.data.engine.olap.data.impl.TraversalorTest.class );
 		
+		/* in package org.eclipse.birt.data.engine.olap.data.impl.aggregation*/
+		suite.addTestSuite( org.eclipse.birt.data.engine.olap.data.impl.aggregation.PrimitiveAccumulatorTest.class );
+		
 		/* in package org.eclipse.birt.data.engine.olap.data.impl.aggregation.function*/
 		suite.addTestSuite( org.eclipse.birt.data.engine.olap.data.impl.aggregation.function.MonthToDateTest.class );
 		suite.addTestSuite( org.eclipse.birt.data.engine.olap.data.impl.aggregation.function.YearToDateFunctionTest.class );
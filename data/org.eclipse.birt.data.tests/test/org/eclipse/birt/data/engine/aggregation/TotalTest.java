@@ -531,6 +531,71 @@ public class TotalTest extends TestCase
 		assertEquals( new BigDecimal( "82.0" ), ac.getValue( ) );
     }
 
+	public void testTotalSumOfIntegers( ) throws Exception
+	{
+		IAggrFunction ag = buildInAggrFactory.getAggregation( "sum" );
+		Accumulator ac = ag.newAccumulator( );
+
+		ac.start( );
+		for ( int i = 0; i < doubleArray1.length; i++ )
+		{
+			ac.onRow( new Object[]{
+				new Integer( (int) doubleArray1[i] )
+			} );
+		}
+		ac.finish( );
+		assertEquals( new Double( 82.0 ), ac.getValue( ) );
+
+		// an integer column with a double value
+		ac.start( );
+		ac.onRow( new Object[]{
+			new Integer( 1 )
+		} );
+		ac.onRow( new Object[]{
+			new Double( 0.5 )
+		} );
+		ac.onRow( new Object[]{
+			new Long( 2 )
+		} );
+		ac.finish( );
+		assertEquals( new Double( 3.5 ), ac.getValue( ) );
+
+		// the long overflow is added as double
+		ac.start( );
+		ac.onRow( new Object[]{
+			new Long( Long.MAX_VALUE )
+		} );
+		ac.onRow( new Object[]{
+			new Long( Long.MAX_VALUE )
+		} );
+		ac.finish( );
+		assertEquals( new Double( 2.0 * Long.MAX_VALUE ), ac.getValue( ) );
+
+		ag = buildInAggrFactory.getAggregation( "ave" );
+		ac = ag.newAccumulator( );
+		ac.start( );
+		for ( int i = 0; i < doubleArray4.length; i++ )
+		{
+			ac.onRow( new Object[]{
+				new Integer( (int) doubleArray4[i] )
+			} );
+		}
+		ac.finish( );
+		assertEquals( new Double( 5.5 ), ac.getValue( ) );
+
+		ag = buildInAggrFactory.getAggregation( "variance" );
+		ac = ag.newAccumulator( );
+		ac.start( );
+		for ( int i = 0; i < doubleArray4.length; i++ )
+		{
+			ac.onRow( new Object[]{
+				new Integer( (int) doubleArray4[i] )
+			} );
+		}
+		ac.finish( );
+		assertEquals( 9.1666, ( (Double) ac.getValue( ) ).doubleValue( ), 0.0001 );
+	}
+
     public void testTotalRunningSum() throws Exception
     {
         IAggrFunction ag = buildInAggrFactory.getAggregation("RUNNINGSUM");
@@ -2097,5 +2162,192 @@ public class TotalTest extends TestCase
 		ac.finish( );
 		assertEquals( new Integer( 8 ), ac.getValue( ) );
 	}
+
+	public void testTotalApproxCountDistinct( ) throws Exception
+	{
+		IAggrFunction ag = buildInAggrFactory.getAggregation( "approxcountdistinct" );
+		Accumulator ac = ag.newAccumulator( );
+		assertEquals( IBuildInAggregation.TOTAL_APPROX_COUNTDISTINCT_FUNC,
+				ag.getName( ) );
+		assertEquals( IAggrFunction.SUMMARY_AGGR, ag.getType( ) );
+		assertEquals( 2, ag.getParameterDefn( ).length );
+		assertTrue( ag.getParameterDefn( )[1].isOptional( ) );
+
+		// the small groups are counted exactly
+		IAggrFunction exact = buildInAggrFactory.getAggregation( "countdistinct" );
+		Accumulator exactAc = exact.newAccumulator( );
+		ac.start( );
+		exactAc.start( );
+		for ( int i = 0; i < anyObjectArray.length; i++ )
+		{
+			ac.onRow( new Object[]{
+				anyObjectArray[i]
+			} );
+			exactAc.onRow( new Object[]{
+				anyObjectArray[i]
+			} );
+		}
+		ac.finish( );
+		exactAc.finish( );
+		assertEquals( exactAc.getValue( ), ac.getValue( ) );
+
+		ac.start( );
+		ac.finish( );
+		assertEquals( new Integer( 0 ), ac.getValue( ) );
+
+		// the equal decimals are one value, distinct from the equal string
+		ac.start( );
+		ac.onRow( new Object[]{
+			new BigDecimal( "1.50" )
+		} );
+		ac.onRow( new Object[]{
+			new BigDecimal( "1.5" )
+		} );
+		ac.onRow( new Object[]{
+			"1.5"
+		} );
+		ac.finish( );
+		assertEquals( new Integer( 2 ), ac.getValue( ) );
+
+		// 100000 distinct values, the error is within 3 standard errors
+		ac.start( );
+		for ( int i = 0; i < 300000; i++ )
+		{
+			ac.onRow( new Object[]{
+					"value" + ( i % 100000 ), new Integer( 12 )
+			} );
+		}
+		ac.finish( );
+		int count = ( (Integer) ac.getValue( ) ).intValue( );
+		assertEquals( 100000, count, 100000 * 3 * 1.04 / 64 );
+
+		try
+		{
+			ac.start( );
+			ac.onRow( new Object[]{
+					"a", new Integer( 30 )
+			} );
+			fail( "should not arrive here" );
+		}
+		catch ( DataException e )
+		{
+		}
+	}
+
+	public void testTotalApproxPercentile( ) throws Exception
+	{
+		IAggrFunction ag = buildInAggrFactory.getAggregation( "approxpercentile" );
+		Accumulator ac = ag.newAccumulator( );
+		assertEquals( IBuildInAggregation.TOTAL_APPROX_PERCENTILE_FUNC,
+				ag.getName( ) );
+		assertEquals( IAggrFunction.SUMMARY_AGGR, ag.getType( ) );
+		assertEquals( 3, ag.getParameterDefn( ).length );
+		assertFalse( ag.getParameterDefn( )[1].isOptional( ) );
+		assertTrue( ag.getParameterDefn( )[2].isOptional( ) );
+
+		// the small groups have the same percentiles as Total.Percentile
+		double[] pcts = new double[]{
+				0, 0.1, 0.35, 0.7, 1
+		};
+		double[] expected = new double[]{
+				10, 10, 17.5, 70, 300
+		};
+		for ( int i = 0; i < pcts.length; i++ )
+		{
+			ac.start( );
+			for ( int j = 0; j < doubleArray3.length; j++ )
+			{
+				ac.onRow( new Object[]{
+						doubleArray3[j], new Double( pcts[i] )
+				} );
+			}
+			ac.finish( );
+			assertEquals( new Double( expected[i] ), ac.getValue( ) );
+		}
+
+		ac.start( );
+		ac.onRow( new Object[]{
+				null, new Double( 0.5 )
+		} );
+		ac.finish( );
+		assertNull( ac.getValue( ) );
+
+		// the rank of the estimated percentile of 0..99999 is close to the
+		// requested one
+		for ( int i = 0; i < pcts.length; i++ )
+		{
+			ac.start( );
+			for ( int j = 0; j < 100000; j++ )
+			{
+				ac.onRow( new Object[]{
+						new Integer( ( j * 7919 ) % 100000 ),
+						new Double( pcts[i] ),
+						new Integer( 200 )
+				} );
+			}
+			ac.finish( );
+			double value = ( (Double) ac.getValue( ) ).doubleValue( );
+			assertEquals( pcts[i] * 99999, value, 1000 );
+		}
+
+		try
+		{
+			ac.start( );
+			ac.onRow( new Object[]{
+					new Double( 1 ), new Double( 1.5 )
+			} );
+			fail( "should not arrive here" );
+		}
+		catch ( DataException e )
+		{
+		}
+		try
+		{
+			ac.start( );
+			ac.onRow( new Object[]{
+					new Double( 1 ), new Double( 0.5 ), new Integer( 5 )
+			} );
+			fail( "should not arrive here" );
+		}
+		catch ( DataException e )
+		{
+		}
+	}
+
+	public void testTotalApproxMedian( ) throws Exception
+	{
+		IAggrFunction ag = buildInAggrFactory.getAggregation( "approxmedian" );
+		Accumulator ac = ag.newAccumulator( );
+		assertEquals( IBuildInAggregation.TOTAL_APPROX_MEDIAN_FUNC, ag.getName( ) );
+		assertEquals( IAggrFunction.SUMMARY_AGGR, ag.getType( ) );
+		assertEquals( 2, ag.getParameterDefn( ).length );
+
+		IAggrFunction exact = buildInAggrFactory.getAggregation( "median" );
+		Accumulator exactAc = exact.newAccumulator( );
+		ac.start( );
+		exactAc.start( );
+		for ( int i = 0; i < doubleArray1.length; i++ )
+		{
+			ac.onRow( new Object[]{
+				new Double( doubleArray1[i] )
+			} );
+			exactAc.onRow( new Object[]{
+				new Double( doubleArray1[i] )
+			} );
+		}
+		ac.finish( );
+		exactAc.finish( );
+		assertEquals( exactAc.getValue( ), ac.getValue( ) );
+
+		ac.start( );
+		for ( int i = 0; i < doubleArray4.length; i++ )
+		{
+			ac.onRow( new Object[]{
+				new Double( doubleArray4[i] )
+			} );
+		}
+		ac.finish( );
+		assertEquals( new Double( 5.5 ), ac.getValue( ) );
+	}
     
 }
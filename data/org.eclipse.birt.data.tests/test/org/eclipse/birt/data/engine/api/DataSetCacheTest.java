@@ -220,6 +220,31 @@ public class DataSetCacheTest extends APITestCase
 		myDataEngine.shutdown( );
 	}
 	
+	/**
+	 * Test the time to live of the cached data sets
+	 * 
+	 * @throws Exception
+	 */
+	public void testCacheTimeToLive( ) throws Exception
+	{
+		this.dataSet.setCacheRowCount( 4 );
+		appContextMap.put( DataEngine.DATA_SET_CACHE_TIME_TO_LIVE, "1" );
+		DataEngineImpl myDataEngine = newDataEngine( );
+
+		QueryDefinition qd = newReportQuery( );
+		rowBeArray = getRowExpr( );
+		totalBeArray = getAggrExpr( );
+		prepareExprNameAndQuery( rowBeArray, totalBeArray, qd );
+		IQueryResults qr = myDataEngine.prepare( qd, appContextMap ).execute( null );
+		qr.getResultIterator( ).next( );
+		qr.close( );
+
+		Thread.sleep( 20 );
+		assertFalse( getDataSetCacheManager( myDataEngine ).doesLoadFromCache( ) );
+		appContextMap.remove( DataEngine.DATA_SET_CACHE_TIME_TO_LIVE );
+		myDataEngine.shutdown( );
+	}
+	
 	/**
 	 * Test the feature of enable cache
 	 * @throws Exception
@@ -31,6 +31,7 @@ import org.eclipse.birt.data.engine.api.querydefn.ScriptDataSetDesign;
 import org.eclipse.birt.data.engine.api.querydefn.ScriptDataSourceDesign;
 import org.eclipse.birt.data.engine.api.querydefn.ScriptExpression;
 import org.eclipse.birt.data.engine.api.querydefn.ScriptExpressionUtil;
+import org.eclipse.birt.data.engine.cache.Constants;
 import org.eclipse.birt.data.engine.core.DataException;
 import org.eclipse.birt.data.engine.i18n.ResourceConstants;
 
@@ -498,6 +499,95 @@ public class FilterByRowTest extends APITestCase
 		checkQueryResult( resultIt1, resultIt2, bindingNameRow );
 	}
 	
+	/**
+	 * test that top/bottom N filters keep the earlier rows among the rows
+	 * with the same value
+	 * 
+	 * @throws Exception
+	 */
+	public void testTopNFilterWithTies( ) throws Exception
+	{
+		defineTiesDataSet( );
+
+		// the 20 rows of 9, then the first 5 rows of 8
+		checkTopNFilterWithTies( ConditionalExpression.OP_TOP_N, 9, 8, 158 );
+		// the 20 rows of 0, then the first 5 rows of 1
+		checkTopNFilterWithTies( ConditionalExpression.OP_BOTTOM_N, 0, 1, 151 );
+	}
+
+	/**
+	 * test that top/bottom N filters whose N exceeds the memory buffer keep
+	 * the same rows in the disk-backed lists
+	 * 
+	 * @throws Exception
+	 */
+	public void testTopNFilterWithTiesOnDisk( ) throws Exception
+	{
+		int bufferSize = Constants.LIST_BUFFER_SIZE;
+		Constants.LIST_BUFFER_SIZE = 10;
+		try
+		{
+			defineTiesDataSet( );
+			checkTopNFilterWithTies( ConditionalExpression.OP_TOP_N, 9, 8, 158 );
+			checkTopNFilterWithTies( ConditionalExpression.OP_BOTTOM_N,
+					0,
+					1,
+					151 );
+		}
+		finally
+		{
+			Constants.LIST_BUFFER_SIZE = bufferSize;
+		}
+	}
+
+	private void defineTiesDataSet( ) throws BirtException
+	{
+		ScriptDataSourceDesign dsource = new ScriptDataSourceDesign( "JUST as place folder" );
+		ScriptDataSetDesign dset = new ScriptDataSetDesign( "ties" );
+		dset.setDataSource( dsource.getName( ) );
+		dset.setOpenScript( "count=200;" );
+		dset.setFetchScript( "if (count==0) {return false; } else "
+				+ "{ row.ID=count; row.NUM=count%10; count--; return true; }" );
+		dset.getResultSetHints( ).add( new ColumnDefinition( "ID" ) );
+		dset.getResultSetHints( ).add( new ColumnDefinition( "NUM" ) );
+		dataEngine.defineDataSource( dsource );
+		dataEngine.defineDataSet( dset );
+	}
+
+	private void checkTopNFilterWithTies( int operator, int firstValue,
+			int secondValue, int minSecondId ) throws BirtException
+	{
+		QueryDefinition rqDefn = new QueryDefinition( );
+		rqDefn.setDataSetName( "ties" );
+		rqDefn.addResultSetExpression( "ROW_ID",
+				new ScriptExpression( "dataSetRow.ID" ) );
+		rqDefn.addResultSetExpression( "ROW_NUM",
+				new ScriptExpression( "dataSetRow.NUM" ) );
+		rqDefn.getFilters( )
+				.add( new FilterDefinition( new ConditionalExpression( "row.ROW_NUM",
+						operator,
+						"25" ) ) );
+
+		IQueryResults qr = dataEngine.prepare( rqDefn ).execute( jsScope );
+		IResultIterator ri = qr.getResultIterator( );
+		int rowCount = 0;
+		int lastId = Integer.MAX_VALUE;
+		while ( ri.next( ) )
+		{
+			rowCount++;
+			int id = ri.getInteger( "ROW_ID" ).intValue( );
+			int num = ri.getInteger( "ROW_NUM" ).intValue( );
+			// in the order of the data set
+			assertTrue( id < lastId );
+			lastId = id;
+			assertTrue( num == firstValue
+					|| ( num == secondValue && id >= minSecondId ) );
+		}
+		assertEquals( 25, rowCount );
+		ri.close( );
+		qr.close( );
+	}
+	
 	/**
 	 * test invalid filter definition and it's error code
 	 * 
@@ -758,6 +848,50 @@ public class FilterByRowTest extends APITestCase
 		qr.close( );
 	}
 	
+	/**
+	 * row["N"] in a filter refers to the binding N, not to the data set
+	 * column of the same name.
+	 * 
+	 * @throws BirtException
+	 */
+	public void testBindingNamedAsColumn( ) throws BirtException
+	{
+		ScriptDataSourceDesign dsource = new ScriptDataSourceDesign( "JUST as place folder" );
+		ScriptDataSetDesign dset = new ScriptDataSetDesign( "test" );
+		dset.setOpenScript( "count=11;" );
+		dset.setFetchScript( "count--;"
+				+ "if (count==0) {return false; } else "
+				+ "{ row.N = count; return true; }" );
+		ColumnDefinition column = new ColumnDefinition( "N" );
+		column.setDataType( DataType.INTEGER_TYPE );
+		dset.getResultSetHints( ).add( column );
+		dset.setDataSource( dsource.getName( ) );
+
+		dataEngine.defineDataSource( dsource );
+		dataEngine.defineDataSet( dset );
+
+		QueryDefinition rqDefn = new QueryDefinition( );
+		rqDefn.setDataSetName( "test" );
+		rqDefn.addResultSetExpression( "N",
+				new ScriptExpression( "dataSetRow[\"N\"] * 10",
+						DataType.INTEGER_TYPE ) );
+		rqDefn.getFilters( ).add( new FilterDefinition( new ScriptExpression( "row[\"N\"] > 50" ) ) );
+
+		IPreparedQuery pq = dataEngine.prepare( rqDefn );
+		IQueryResults qr = pq.execute( jsScope );
+		IResultIterator ri = qr.getResultIterator( );
+
+		int rowCount = 0;
+		while ( ri.next( ) )
+		{
+			assertTrue( ri.getInteger( "N" ).intValue( ) > 50 );
+			rowCount++;
+		}
+		assertEquals( 5, rowCount );
+		ri.close( );
+		qr.close( );
+	}
+
 	private ScriptDataSetDesign newDataSet( )
 	{
 		ScriptDataSetDesign dataSet = new ScriptDataSetDesign( "test" );
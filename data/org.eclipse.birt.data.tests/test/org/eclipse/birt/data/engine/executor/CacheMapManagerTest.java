@@ -0,0 +1,195 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.executor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.eclipse.birt.data.engine.api.DataEngine;
+import org.eclipse.birt.data.engine.api.querydefn.ScriptDataSetDesign;
+import org.eclipse.birt.data.engine.api.querydefn.ScriptDataSourceDesign;
+import org.eclipse.birt.data.engine.core.DataException;
+import org.eclipse.birt.data.engine.executor.DataSetCacheConfig.DataSetCacheMode;
+
+/**
+ * Test the population and the eviction of the data sets in CacheMapManager.
+ */
+public class CacheMapManagerTest extends TestCase
+{
+
+	private CacheMapManager manager;
+	private DataSetCacheConfig dscc;
+	private Map appContext;
+
+	protected void setUp( ) throws Exception
+	{
+		manager = new CacheMapManager( false );
+		dscc = DataSetCacheConfig.getInstance( DataSetCacheMode.IN_MEMORY,
+				10,
+				false,
+				null );
+		appContext = new HashMap( );
+	}
+
+	/**
+	 * a data set is populated once, the other requests wait for it
+	 */
+	public void testSingleFlightLoad( ) throws Exception
+	{
+		DataSourceAndDataSet key = newKey( "A" );
+		// a miss doesn't claim the data set
+		assertFalse( manager.doesLoadFromCache( key, dscc, appContext ) );
+		assertNull( manager.getCacheObject( key ) );
+
+		assertTrue( manager.doesSaveToCache( key, dscc, appContext ) );
+		Waiter waiter = startWaiter( key );
+		populate( key );
+		manager.loadFinished( key, 1, appContext );
+		waiter.join( 10000 );
+
+		assertNull( waiter.error );
+		assertTrue( waiter.loaded );
+		assertFalse( waiter.saved );
+		assertEquals( 1, manager.getStatistics( ).getLoadCount( ) );
+	}
+
+	/**
+	 * the requests waiting for a failed population query the data set
+	 * themselves
+	 */
+	public void testAbortReleasesWaiters( ) throws Exception
+	{
+		DataSourceAndDataSet key = newKey( "A" );
+		assertTrue( manager.doesSaveToCache( key, dscc, appContext ) );
+		Waiter waiter = startWaiter( key );
+
+		// only the loading thread can abort the population
+		Thread other = new Thread( ) {
+
+			public void run( )
+			{
+				manager.abortLoad( newKey( "A" ) );
+			}
+		};
+		other.start( );
+		other.join( 10000 );
+		assertNotNull( manager.getCacheObject( key ) );
+		assertTrue( waiter.isAlive( ) );
+
+		manager.abortLoad( key );
+		waiter.join( 10000 );
+
+		assertFalse( waiter.isAlive( ) );
+		assertNull( waiter.error );
+		assertFalse( waiter.loaded );
+		// the waiter takes over the population
+		assertTrue( waiter.saved );
+	}
+
+	/**
+	 * the least recently used data sets are evicted
+	 */
+	public void testLRUEviction( ) throws Exception
+	{
+		appContext.put( DataEngine.DATA_SET_CACHE_MAX_ENTRIES, "2" );
+		load( newKey( "A" ) );
+		load( newKey( "B" ) );
+		assertTrue( manager.doesLoadFromCache( newKey( "A" ),
+				dscc,
+				appContext ) );
+		load( newKey( "C" ) );
+
+		assertEquals( 1, manager.getStatistics( ).getEvictionCount( ) );
+		assertNull( manager.getCacheObject( newKey( "B" ) ) );
+		assertTrue( manager.doesLoadFromCache( newKey( "A" ),
+				dscc,
+				appContext ) );
+		assertTrue( manager.doesLoadFromCache( newKey( "C" ),
+				dscc,
+				appContext ) );
+		assertFalse( manager.doesLoadFromCache( newKey( "B" ),
+				dscc,
+				appContext ) );
+	}
+
+	private void load( DataSourceAndDataSet key ) throws DataException
+	{
+		assertTrue( manager.doesSaveToCache( key, dscc, appContext ) );
+		populate( key );
+		manager.loadFinished( key, 1, appContext );
+	}
+
+	private void populate( DataSourceAndDataSet key ) throws DataException
+	{
+		( (MemoryDataSetCacheObject) manager.getCacheObject( key ) ).populateResult( new ResultObject( new ResultClass( new ArrayList( ) ),
+				new Object[0] ) );
+	}
+
+	private static DataSourceAndDataSet newKey( String dataSetName )
+	{
+		return DataSourceAndDataSet.newInstance( new ScriptDataSourceDesign( "ds" ),
+				new ScriptDataSetDesign( dataSetName ),
+				null );
+	}
+
+	/**
+	 * start a thread requesting the data set, and return when it waits for
+	 * the population.
+	 */
+	private Waiter startWaiter( DataSourceAndDataSet key )
+			throws InterruptedException
+	{
+		Waiter waiter = new Waiter( key );
+		waiter.start( );
+		long deadline = System.currentTimeMillis( ) + 10000;
+		while ( waiter.getState( ) != Thread.State.TIMED_WAITING
+				&& System.currentTimeMillis( ) < deadline )
+		{
+			Thread.sleep( 10 );
+		}
+		assertEquals( Thread.State.TIMED_WAITING, waiter.getState( ) );
+		return waiter;
+	}
+
+	private class Waiter extends Thread
+	{
+
+		private DataSourceAndDataSet key;
+		private volatile boolean loaded;
+		private volatile boolean saved;
+		private volatile DataException error;
+
+		Waiter( DataSourceAndDataSet key )
+		{
+			this.key = key;
+		}
+
+		public void run( )
+		{
+			try
+			{
+				loaded = manager.doesLoadFromCache( key, dscc, appContext );
+				if ( !loaded )
+				{
+					saved = manager.doesSaveToCache( key, dscc, appContext );
+				}
+			}
+			catch ( DataException e )
+			{
+				error = e;
+			}
+		}
+	}
+}
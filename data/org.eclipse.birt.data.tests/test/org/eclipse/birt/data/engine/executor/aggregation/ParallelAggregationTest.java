@@ -0,0 +1,175 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.birt.data.engine.executor.aggregation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.birt.core.data.DataType;
+import org.eclipse.birt.data.engine.api.DataEngine;
+import org.eclipse.birt.data.engine.api.DataEngineContext;
+import org.eclipse.birt.data.engine.api.IBinding;
+import org.eclipse.birt.data.engine.api.IQueryResults;
+import org.eclipse.birt.data.engine.api.IResultIterator;
+import org.eclipse.birt.data.engine.api.querydefn.Binding;
+import org.eclipse.birt.data.engine.api.querydefn.ColumnDefinition;
+import org.eclipse.birt.data.engine.api.querydefn.GroupDefinition;
+import org.eclipse.birt.data.engine.api.querydefn.QueryDefinition;
+import org.eclipse.birt.data.engine.api.querydefn.ScriptDataSetDesign;
+import org.eclipse.birt.data.engine.api.querydefn.ScriptDataSourceDesign;
+import org.eclipse.birt.data.engine.api.querydefn.ScriptExpression;
+
+import testutil.BaseTestCase;
+
+/**
+ * Test that the aggregations calculated on a worker pool have the same values
+ * as the ones calculated on the calling thread.
+ */
+public class ParallelAggregationTest extends BaseTestCase
+{
+	// more than two blocks of rows, so that groups span the blocks
+	private static final int ROW_COUNT = 40000;
+
+	private static final String[] AGGREGATIONS = {
+			"SUM_NUM", "COUNT_NUM", "MAX_NUM", "AVE_DOUBLE", "FILTERED_SUM", "TOTAL"
+	};
+
+	/**
+	 * @throws Exception
+	 */
+	public void testSummaryAggregations( ) throws Exception
+	{
+		List serial = aggregate( 1, null );
+		List parallel = aggregate( 4, null );
+		assertEquals( ROW_COUNT, serial.size( ) );
+		assertEquals( serial, parallel );
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testScriptArgument( ) throws Exception
+	{
+		// an argument evaluated by Rhino is calculated on the calling thread
+		List serial = aggregate( 1, "Math.abs( dataSetRow.NUM )" );
+		List parallel = aggregate( 4, "Math.abs( dataSetRow.NUM )" );
+		assertEquals( serial, parallel );
+	}
+
+	/**
+	 * @param threadCount
+	 * @param maxArgument
+	 *            the argument of the MAX aggregation, dataSetRow.NUM if null
+	 * @return the values of the aggregations on each row
+	 * @throws Exception
+	 */
+	private List aggregate( int threadCount, String maxArgument )
+			throws Exception
+	{
+		ScriptDataSourceDesign dataSource = new ScriptDataSourceDesign( "dataSource" );
+		ScriptDataSetDesign dataSet = new ScriptDataSetDesign( "dataSet" );
+		dataSet.setDataSource( dataSource.getName( ) );
+		dataSet.setOpenScript( "count=" + ROW_COUNT + ";" );
+		dataSet.setFetchScript( "if (count==0) "
+				+ "{" + "return false; " + "} " + "else " + "{ "
+				+ "row.NUM=count; " + "row.KEY=Math.floor(count/7); "
+				+ "row.AMOUNT=count/4; " + "--count; " + "return true; "
+				+ "}" );
+
+		String[] columnNames = new String[]{
+				"NUM", "KEY", "AMOUNT"
+		};
+		int[] columnTypes = new int[]{
+				DataType.INTEGER_TYPE,
+				DataType.INTEGER_TYPE,
+				DataType.DOUBLE_TYPE
+		};
+		for ( int i = 0; i < columnNames.length; i++ )
+		{
+			ColumnDefinition colInfo = new ColumnDefinition( columnNames[i] );
+			colInfo.setDataType( columnTypes[i] );
+			dataSet.getResultSetHints( ).add( colInfo );
+		}
+
+		DataEngineContext context = DataEngineContext.newInstance( DataEngineContext.DIRECT_PRESENTATION,
+				null,
+				null,
+				null );
+		context.setTmpdir( this.getTempDir( ) );
+		DataEngine dataEngine = DataEngine.newDataEngine( context );
+		dataEngine.defineDataSource( dataSource );
+		dataEngine.defineDataSet( dataSet );
+
+		QueryDefinition qd = new QueryDefinition( );
+		qd.setDataSetName( dataSet.getName( ) );
+		qd.addBinding( new Binding( "KEY", new ScriptExpression( "dataSetRow.KEY" ) ) );
+		GroupDefinition group = new GroupDefinition( "G1" );
+		group.setKeyExpression( "row.KEY" );
+		qd.addGroup( group );
+
+		addAggregation( qd, "SUM_NUM", "SUM", "dataSetRow.NUM", "G1", null );
+		addAggregation( qd, "COUNT_NUM", "COUNT", "dataSetRow.NUM", "G1", null );
+		addAggregation( qd,
+				"MAX_NUM",
+				"MAX",
+				maxArgument == null ? "dataSetRow.NUM" : maxArgument,
+				"G1",
+				null );
+		addAggregation( qd,
+				"AVE_DOUBLE",
+				"AVE",
+				"dataSetRow.AMOUNT * 2",
+				"G1",
+				null );
+		addAggregation( qd,
+				"FILTERED_SUM",
+				"SUM",
+				"dataSetRow.AMOUNT",
+				"G1",
+				"dataSetRow.NUM % 3 == 0" );
+		addAggregation( qd, "TOTAL", "SUM", "dataSetRow.NUM", null, null );
+
+		Map appContext = new HashMap( );
+		appContext.put( DataEngine.AGGREGATION_THREAD_COUNT, "" + threadCount );
+
+		IQueryResults qr = dataEngine.prepare( qd, appContext ).execute( null );
+		IResultIterator ri = qr.getResultIterator( );
+		List result = new ArrayList( );
+		while ( ri.next( ) )
+		{
+			List values = new ArrayList( );
+			for ( int i = 0; i < AGGREGATIONS.length; i++ )
+			{
+				values.add( ri.getValue( AGGREGATIONS[i] ) );
+			}
+			result.add( values );
+		}
+		ri.close( );
+		qr.close( );
+		dataEngine.shutdown( );
+		return result;
+	}
+
+	private static void addAggregation( QueryDefinition qd, String name,
+			String function, String argument, String group, String filter )
+			throws Exception
+	{
+		IBinding binding = new Binding( name, new ScriptExpression( argument ) );
+		binding.setAggrFunction( function );
+		if ( group != null )
+			binding.addAggregateOn( group );
+		if ( filter != null )
+			binding.setFilter( new ScriptExpression( filter ) );
+		qd.addBinding( binding );
+	}
+}
@@ -0,0 +1,267 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.birt.data.engine.executor.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.eclipse.birt.core.data.DataType;
+import org.eclipse.birt.data.engine.core.DataException;
+import org.eclipse.birt.data.engine.executor.ResultClass;
+import org.eclipse.birt.data.engine.executor.ResultFieldMetadata;
+import org.eclipse.birt.data.engine.executor.ResultObject;
+import org.eclipse.birt.data.engine.odi.IResultClass;
+import org.eclipse.birt.data.engine.odi.IResultObject;
+
+import junit.framework.TestCase;
+
+/**
+ * Test the column based memory cache
+ */
+public class ColumnarMemoryCacheTest extends TestCase
+{
+	private IResultClass resultClass;
+	private IResultObject[] resultObjects;
+
+	/*
+	 * @see junit.framework.TestCase#setUp()
+	 */
+	public void setUp( ) throws DataException
+	{
+		List columnsList = new ArrayList( );
+		columnsList.add( new ResultFieldMetadata( 1,
+				"intCol",
+				"intCol",
+				DataType.getClass( DataType.INTEGER_TYPE ),
+				"Integer" /* nativeTypeName */,
+				false ) );
+		columnsList.add( new ResultFieldMetadata( 2,
+				"doubleCol",
+				"doubleCol",
+				DataType.getClass( DataType.DOUBLE_TYPE ),
+				"Double" /* nativeTypeName */,
+				false ) );
+		columnsList.add( new ResultFieldMetadata( 3,
+				"stringCol",
+				"stringCol",
+				DataType.getClass( DataType.STRING_TYPE ),
+				"String" /* nativeTypeName */,
+				false ) );
+		columnsList.add( new ResultFieldMetadata( 4,
+				"decimalCol",
+				"decimalCol",
+				DataType.getClass( DataType.DECIMAL_TYPE ),
+				"BigDecimal" /* nativeTypeName */,
+				false ) );
+		resultClass = new ResultClass( columnsList );
+
+		resultObjects = new IResultObject[200];
+		for ( int i = 0; i < resultObjects.length; i++ )
+		{
+			resultObjects[i] = new ResultObject( resultClass, new Object[]{
+					Integer.valueOf( resultObjects.length - i ),
+					i % 7 == 0 ? null : new Double( i / 2.0 ),
+					"str" + ( i % 3 ),
+					new BigDecimal( i )
+			} );
+		}
+	}
+
+	private ColumnarResultSetStore createStore( ) throws DataException
+	{
+		ColumnarResultSetStore store = new ColumnarResultSetStore( resultClass );
+		for ( int i = 0; i < resultObjects.length; i++ )
+		{
+			store.add( resultObjects[i], resultClass.getFieldCount( ) );
+		}
+		return store;
+	}
+
+	/**
+	 * the values read from the store must be equal to the original ones
+	 */
+	public void testValues( ) throws DataException
+	{
+		ColumnarMemoryCache cache = new ColumnarMemoryCache( createStore( ),
+				resultClass,
+				null );
+		assertEquals( resultObjects.length, cache.getCount( ) );
+		int i = 0;
+		while ( cache.next( ) )
+		{
+			IResultObject row = cache.getCurrentResult( );
+			for ( int j = 1; j <= resultClass.getFieldCount( ); j++ )
+			{
+				assertEquals( resultObjects[i].getFieldValue( j ),
+						row.getFieldValue( j ) );
+			}
+			assertEquals( resultObjects[i].getFieldValue( "stringCol" ),
+					row.getFieldValue( "stringCol" ) );
+			i++;
+		}
+		assertEquals( resultObjects.length, i );
+
+		cache.moveTo( 10 );
+		assertEquals( resultObjects[10].getFieldValue( 1 ),
+				cache.getCurrentResult( ).getFieldValue( 1 ) );
+		cache.close( );
+	}
+
+	/**
+	 * a value which doesn't match the declared type is kept as it is
+	 */
+	public void testTypeMismatch( ) throws DataException
+	{
+		ColumnarResultSetStore store = createStore( );
+		store.add( new ResultObject( resultClass, new Object[]{
+				"notAnInteger", null, null, null
+		} ), resultClass.getFieldCount( ) );
+		assertEquals( resultObjects.length + 1, store.getRowCount( ) );
+		assertEquals( "notAnInteger", store.getValue( resultObjects.length, 1 ) );
+		for ( int i = 0; i < resultObjects.length; i++ )
+		{
+			assertEquals( resultObjects[i].getFieldValue( 1 ),
+					store.getValue( i, 1 ) );
+		}
+	}
+
+	/**
+	 * the rows are visited in the order of the comparator
+	 */
+	public void testSort( ) throws DataException
+	{
+		Comparator comparator = new Comparator( ) {
+
+			public int compare( Object o1, Object o2 )
+			{
+				try
+				{
+					return ( (Integer) ( (IResultObject) o1 ).getFieldValue( 1 ) ).compareTo( (Integer) ( (IResultObject) o2 ).getFieldValue( 1 ) );
+				}
+				catch ( DataException e )
+				{
+					throw new RuntimeException( e );
+				}
+			}
+		};
+		ColumnarMemoryCache cache = new ColumnarMemoryCache( createStore( ),
+				resultClass,
+				comparator );
+		int expected = 1;
+		while ( cache.next( ) )
+		{
+			assertEquals( Integer.valueOf( expected ), cache.getCurrentResult( )
+					.getFieldValue( 1 ) );
+			expected++;
+		}
+		assertEquals( resultObjects.length + 1, expected );
+	}
+
+	/**
+	 * the rows are sorted by the sort keys evaluated once per row, stable
+	 * among the equal keys
+	 */
+	public void testSortByKeys( ) throws DataException
+	{
+		Comparator comparator = new SortKeyComparator( ) {
+
+			public int compare( Object o1, Object o2 )
+			{
+				try
+				{
+					return compareSortKeys( getSortKeys( (IResultObject) o1 ),
+							getSortKeys( (IResultObject) o2 ) );
+				}
+				catch ( DataException e )
+				{
+					throw new RuntimeException( e );
+				}
+			}
+
+			public Object[] getSortKeys( IResultObject row )
+					throws DataException
+			{
+				return new Object[]{
+					row.getFieldValue( 3 )
+				};
+			}
+
+			public int compareSortKeys( Object[] keys1, Object[] keys2 )
+			{
+				return ( (String) keys1[0] ).compareTo( (String) keys2[0] );
+			}
+		};
+		ColumnarMemoryCache cache = new ColumnarMemoryCache( createStore( ),
+				resultClass,
+				comparator );
+		String lastString = null;
+		int lastInt = Integer.MAX_VALUE;
+		int count = 0;
+		while ( cache.next( ) )
+		{
+			IResultObject row = cache.getCurrentResult( );
+			String string = (String) row.getFieldValue( 3 );
+			int value = ( (Integer) row.getFieldValue( 1 ) ).intValue( );
+			if ( string.equals( lastString ) )
+			{
+				// in the order of the rows, whose int values decrease
+				assertTrue( value < lastInt );
+			}
+			else
+			{
+				assertTrue( lastString == null
+						|| lastString.compareTo( string ) < 0 );
+			}
+			lastString = string;
+			lastInt = value;
+			count++;
+		}
+		assertEquals( resultObjects.length, count );
+	}
+
+	/**
+	 * the columnar rows are written to disk as the result objects
+	 */
+	public void testWriteData( ) throws DataException, IOException
+	{
+		ColumnarResultSetStore store = createStore( );
+		ResultObjectUtil util = ResultObjectUtil.newInstance( resultClass,
+				null );
+		for ( int i = 0; i < resultObjects.length; i++ )
+		{
+			ByteArrayOutputStream expected = new ByteArrayOutputStream( );
+			util.writeData( expected, resultObjects[i] );
+			ByteArrayOutputStream actual = new ByteArrayOutputStream( );
+			util.writeData( actual, store.getResultObject( i ) );
+			assertTrue( Arrays.equals( expected.toByteArray( ),
+					actual.toByteArray( ) ) );
+		}
+	}
+
+	/**
+	 * the columns occupy less memory than the result objects
+	 */
+	public void testMemorySize( ) throws DataException
+	{
+		SizeOfUtil sizeOfUtil = new SizeOfUtil( resultClass );
+		long objectSize = 0;
+		for ( int i = 0; i < resultObjects.length; i++ )
+		{
+			objectSize += sizeOfUtil.sizeOf( resultObjects[i] );
+		}
+		assertTrue( createStore( ).getMemorySize( ) < objectSize );
+	}
+}
@@ -0,0 +1,195 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.birt.data.engine.executor.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.eclipse.birt.core.data.DataType;
+import org.eclipse.birt.data.engine.core.DataException;
+import org.eclipse.birt.data.engine.executor.IncreDataSetCacheObject;
+import org.eclipse.birt.data.engine.executor.ResultClass;
+import org.eclipse.birt.data.engine.executor.ResultFieldMetadata;
+import org.eclipse.birt.data.engine.executor.ResultObject;
+import org.eclipse.birt.data.engine.odi.IResultObject;
+
+/**
+ * The rows sorted with the sorted run of an incremental cache must be the
+ * same as the rows sorted again.
+ */
+public class IncreSortedRunTest extends TestCase
+{
+	private IncreDataSetCacheObject cacheObject;
+	private ResultClass resultClass;
+	private Random random = new Random( 7 );
+
+	/*
+	 * @see junit.framework.TestCase#setUp()
+	 */
+	public void setUp( ) throws DataException
+	{
+		cacheObject = new IncreDataSetCacheObject( System.getProperty( "java.io.tmpdir" ) );
+		List columnsList = new ArrayList( );
+		columnsList.add( new ResultFieldMetadata( 1,
+				"KEY",
+				"KEY",
+				DataType.getClass( DataType.INTEGER_TYPE ),
+				"Integer" /* nativeTypeName */,
+				false ) );
+		columnsList.add( new ResultFieldMetadata( 2,
+				"ID",
+				"ID",
+				DataType.getClass( DataType.INTEGER_TYPE ),
+				"Integer" /* nativeTypeName */,
+				false ) );
+		resultClass = new ResultClass( columnsList );
+	}
+
+	/*
+	 * @see junit.framework.TestCase#tearDown()
+	 */
+	public void tearDown( )
+	{
+		cacheObject.release( );
+	}
+
+	/**
+	 * the rows are appended to the cache by several runs
+	 */
+	public void testAppendedRows( ) throws DataException
+	{
+		Comparator comparator = new KeyComparator( true );
+		IncreSortedRun sortedRun = new IncreSortedRun( cacheObject, "KEY asc" );
+		List rows = new ArrayList( );
+		append( rows, 1000 );
+		for ( int i = 0; i < 10; i++ )
+		{
+			assertSorted( rows, sortedRun, comparator );
+			append( rows, random.nextInt( 20 ) );
+		}
+	}
+
+	/**
+	 * the run saved by a sort on other keys is not used
+	 */
+	public void testOtherSortKeys( ) throws DataException
+	{
+		Comparator ascending = new KeyComparator( true );
+		Comparator descending = new KeyComparator( false );
+		List rows = new ArrayList( );
+		append( rows, 500 );
+		assertSorted( rows,
+				new IncreSortedRun( cacheObject, "KEY asc" ),
+				ascending );
+		append( rows, 10 );
+		assertSorted( rows,
+				new IncreSortedRun( cacheObject, "KEY desc" ),
+				descending );
+		append( rows, 10 );
+		assertSorted( rows,
+				new IncreSortedRun( cacheObject, "KEY asc" ),
+				ascending );
+	}
+
+	/**
+	 * the run saved for more rows than the cache has is not used
+	 */
+	public void testFewerRows( ) throws DataException
+	{
+		Comparator comparator = new KeyComparator( true );
+		IncreSortedRun sortedRun = new IncreSortedRun( cacheObject, "KEY asc" );
+		List rows = new ArrayList( );
+		append( rows, 500 );
+		assertSorted( rows, sortedRun, comparator );
+		assertSorted( rows.subList( 0, 200 ), sortedRun, comparator );
+		append( rows, 10 );
+		assertSorted( rows, sortedRun, comparator );
+	}
+
+	/**
+	 * the appended rows are merged after the equal rows of the run
+	 */
+	public void testMerge( ) throws DataException
+	{
+		List rows = new ArrayList( );
+		int[] keys = new int[]{
+				2, 1, 2, 1, 1, 2, 0
+		};
+		for ( int i = 0; i < keys.length; i++ )
+		{
+			rows.add( new ResultObject( resultClass, new Object[]{
+					Integer.valueOf( keys[i] ), Integer.valueOf( i )
+			} ) );
+		}
+		int[] positions = IncreSortedRun.merge( (IResultObject[]) rows.toArray( new IResultObject[0] ),
+				new int[]{
+						1, 3, 0, 2
+				},
+				new KeyComparator( true ) );
+		assertTrue( Arrays.equals( new int[]{
+				6, 1, 3, 4, 0, 2, 5
+		}, positions ) );
+	}
+
+	private void append( List rows, int count ) throws DataException
+	{
+		for ( int i = 0; i < count; i++ )
+		{
+			rows.add( new ResultObject( resultClass, new Object[]{
+					Integer.valueOf( random.nextInt( 50 ) ),
+					Integer.valueOf( rows.size( ) )
+			} ) );
+		}
+	}
+
+	private void assertSorted( List rows, IncreSortedRun sortedRun,
+			Comparator comparator ) throws DataException
+	{
+		IResultObject[] expected = (IResultObject[]) rows.toArray( new IResultObject[0] );
+		Arrays.sort( expected, comparator );
+		IResultObject[] sorted = sortedRun.sort( (IResultObject[]) rows.toArray( new IResultObject[0] ),
+				comparator );
+		assertEquals( expected.length, sorted.length );
+		for ( int i = 0; i < expected.length; i++ )
+		{
+			assertEquals( expected[i].getFieldValue( 2 ),
+					sorted[i].getFieldValue( 2 ) );
+		}
+	}
+
+	private static class KeyComparator implements Comparator
+	{
+		private boolean ascending;
+
+		KeyComparator( boolean ascending )
+		{
+			this.ascending = ascending;
+		}
+
+		public int compare( Object o1, Object o2 )
+		{
+			try
+			{
+				int result = ( (Integer) ( (IResultObject) o1 ).getFieldValue( 1 ) ).compareTo( (Integer) ( (IResultObject) o2 ).getFieldValue( 1 ) );
+				return ascending ? result : -result;
+			}
+			catch ( DataException e )
+			{
+				throw new RuntimeException( e );
+			}
+		}
+	}
+}
@@ -0,0 +1,192 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.expression;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.eclipse.birt.core.script.ScriptContext;
+import org.eclipse.birt.data.engine.executor.ResultClass;
+import org.eclipse.birt.data.engine.executor.ResultFieldMetadata;
+import org.eclipse.birt.data.engine.executor.ResultObject;
+import org.eclipse.birt.data.engine.odi.IResultClass;
+import org.eclipse.birt.data.engine.odi.IResultObject;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+
+/**
+ * Test that the expressions evaluated in Java have the same values as the
+ * ones evaluated by Rhino.
+ */
+public class FastExpressionTest extends TestCase
+{
+	private static final String[] COLUMNS = {
+			"A", "B", "S", "F", "N", "D"
+	};
+	private static final Object[][] ROWS = {
+			{
+					Integer.valueOf( 5 ),
+					new Double( 2.5 ),
+					"EU",
+					Boolean.TRUE,
+					null,
+					new Date( 0 )
+			},
+			{
+					Integer.valueOf( 150 ),
+					new Double( -1 ),
+					"US",
+					Boolean.FALSE,
+					null,
+					new Date( 0 )
+			},
+			{
+					Integer.valueOf( 0 ),
+					new Double( 0 ),
+					"",
+					Boolean.FALSE,
+					null,
+					new Date( 0 )
+			},
+			{
+					Integer.valueOf( 150 ),
+					new Double( 150 ),
+					"EU",
+					Boolean.TRUE,
+					null,
+					new Date( 0 )
+			}
+	};
+
+	private ScriptContext context;
+	private ScriptableObject scope;
+	private ExpressionCompiler compiler;
+	private IResultClass resultClass;
+
+	protected void setUp( ) throws Exception
+	{
+		context = new ScriptContext( );
+		scope = Context.getCurrentContext( ).initStandardObjects( );
+		compiler = new ExpressionCompiler( );
+		List fields = new ArrayList( );
+		for ( int i = 0; i < COLUMNS.length; i++ )
+		{
+			fields.add( new ResultFieldMetadata( i + 1,
+					COLUMNS[i],
+					COLUMNS[i],
+					i == 5 ? Date.class : Object.class,
+					null,
+					false ) );
+		}
+		resultClass = new ResultClass( fields );
+	}
+
+	protected void tearDown( ) throws Exception
+	{
+		context.close( );
+	}
+
+	public void testArithmetic( ) throws Exception
+	{
+		checkExpression( "row[\"A\"] * row[\"B\"]" );
+		checkExpression( "row[\"A\"] + row[\"B\"] / 2 - 1" );
+		checkExpression( "row[\"A\"] % 3" );
+		checkExpression( "-row[\"A\"]" );
+		checkExpression( "row.A * 2" );
+		checkExpression( "row[1] + row[2]" );
+		checkExpression( "row[\"N\"] + 1" );
+		checkExpression( "row[\"F\"] + 1" );
+		checkExpression( "row[\"A\"] / row[\"B\"]" );
+	}
+
+	public void testString( ) throws Exception
+	{
+		checkExpression( "row[\"S\"] + row[\"A\"]" );
+		checkExpression( "row[\"A\"] + 1 + row[\"S\"]" );
+		checkExpression( "row[\"B\"] + \"\"" );
+		checkExpression( "row[\"S\"] < \"F\"" );
+	}
+
+	public void testComparison( ) throws Exception
+	{
+		checkExpression( "row[\"A\"] > 100 && row[\"S\"] == \"EU\"" );
+		checkExpression( "row[\"A\"] >= 10 || row[\"F\"]" );
+		checkExpression( "row[\"A\"] && row[\"S\"]" );
+		checkExpression( "!row[\"F\"]" );
+		checkExpression( "row[\"N\"] == null" );
+		checkExpression( "row[\"A\"] == \"5\"" );
+		checkExpression( "row[\"A\"] === 5" );
+		checkExpression( "row[\"A\"] != row[\"B\"]" );
+		checkExpression( "row[\"A\"] <= row[\"B\"] * 2" );
+		checkExpression( "row[\"A\"] > 10 ? row[\"S\"] : \"none\"" );
+	}
+
+	public void testNotCompiled( ) throws Exception
+	{
+		assertFalse( isFastEvaluated( "row[\"S\"].length" ) );
+		assertFalse( isFastEvaluated( "row[\"S\"].toUpperCase( )" ) );
+		assertFalse( isFastEvaluated( "x = row[\"A\"] + 1" ) );
+		assertFalse( isFastEvaluated( "row[\"A\"] + 1; row[\"B\"]" ) );
+		assertFalse( isFastEvaluated( "dataSetRow[\"A\"] + 1" ) );
+		assertFalse( isFastEvaluated( "row[\"A\"] & 1" ) );
+	}
+
+	public void testUnsupportedValue( ) throws Exception
+	{
+		// a date is evaluated by Rhino
+		checkExpression( "row[\"D\"] != null" );
+	}
+
+	private boolean isFastEvaluated( String expression )
+	{
+		CompiledExpression expr = compiler.compile( expression, null, context );
+		return expr instanceof ComplexExpression
+				&& ( (ComplexExpression) expr ).isFastEvaluated( );
+	}
+
+	private void checkExpression( String expression ) throws Exception
+	{
+		CompiledExpression expr = compiler.compile( expression, null, context );
+		assertTrue( expression, expr instanceof ComplexExpression );
+		ComplexExpression complexExpr = (ComplexExpression) expr;
+		assertTrue( expression, complexExpr.isFastEvaluated( ) );
+
+		for ( int i = 0; i < ROWS.length; i++ )
+		{
+			IResultObject row = new ResultObject( resultClass, ROWS[i] );
+			setRow( ROWS[i] );
+			Object expected = complexExpr.evaluate( context, scope );
+			if ( expected instanceof CharSequence )
+				expected = expected.toString( );
+			assertEquals( expression + " at row " + i,
+					expected,
+					complexExpr.evaluate( context, scope, row, i ) );
+		}
+	}
+
+	private void setRow( Object[] values )
+	{
+		Scriptable row = Context.getCurrentContext( ).newObject( scope );
+		for ( int i = 0; i < COLUMNS.length; i++ )
+		{
+			Object value = values[i] instanceof Date
+					? Context.javaToJS( values[i], scope ) : values[i];
+			row.put( COLUMNS[i], row, value );
+			row.put( i + 1, row, value );
+		}
+		scope.put( "row", scope, row );
+	}
+}
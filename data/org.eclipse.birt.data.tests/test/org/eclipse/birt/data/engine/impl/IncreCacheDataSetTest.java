@@ -21,8 +21,10 @@ import java.io.InputStream;
 import java.io.RandomAccessFile;
 import java.net.URL;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
 
@@ -31,8 +33,12 @@ import org.eclipse.birt.data.engine.api.APITestCase;
 import org.eclipse.birt.data.engine.api.DataEngine;
 import org.eclipse.birt.data.engine.api.IQueryResults;
 import org.eclipse.birt.data.engine.api.IResultIterator;
+import org.eclipse.birt.data.engine.api.ISortDefinition;
+import org.eclipse.birt.data.engine.api.querydefn.GroupDefinition;
 import org.eclipse.birt.data.engine.api.querydefn.OdaDataSetDesign;
 import org.eclipse.birt.data.engine.api.querydefn.QueryDefinition;
+import org.eclipse.birt.data.engine.api.querydefn.ScriptExpression;
+import org.eclipse.birt.data.engine.api.querydefn.SortDefinition;
 import org.eclipse.birt.data.engine.executor.DataSetCacheManager;
 
 import testutil.ConfigText;
@@ -220,6 +226,80 @@ public class IncreCacheDataSetTest extends APITestCase
 		}
 	}
 
+	/**
+	 * Test the grouped and sorted rows of the incremental cache are the same
+	 * as the rows of the query without cache after new data is appended
+	 */
+	public void testSortedIncreCache( )
+	{
+		try
+		{
+			assertEquals( getSortedRows( new HashMap( ) ),
+					getSortedRows( appContextMap ) );
+			Random random = new Random( );
+			for ( int i = 0; i < 3; i++ )
+			{
+				getDataSetCacheManager( (DataEngineImpl) dataEngine ).resetForTest( );
+				appendNewData( random.nextInt( 20 ) + 1 );
+				prepareDataSet( getDataSourceInfo( ) );
+				List cachedRows = getSortedRows( appContextMap );
+				assertTrue( getDataSetCacheManager( dataEngine ).doesLoadFromCache( ) );
+				getDataSetCacheManager( (DataEngineImpl) dataEngine ).resetForTest( );
+				assertEquals( getSortedRows( new HashMap( ) ), cachedRows );
+			}
+		}
+		catch ( Exception e )
+		{
+			fail( e.getMessage( ) );
+		}
+	}
+
+	/**
+	 * 
+	 * @param appContext
+	 * @return the rows grouped by country and sorted by amount
+	 * @throws BirtException
+	 */
+	private List getSortedRows( Map appContext ) throws BirtException
+	{
+		QueryDefinition qd = newReportQuery( );
+		GroupDefinition group = new GroupDefinition( "G1" );
+		group.setKeyExpression( "dataSetRow.COUNTRY" );
+		qd.addGroup( group );
+		SortDefinition sort = new SortDefinition( );
+		sort.setExpression( "dataSetRow.AMOUNT" );
+		sort.setSortDirection( ISortDefinition.SORT_DESC );
+		qd.addSort( sort );
+
+		String[] columns = new String[]{
+				"COUNTRY", "CITY", "SALE_DATE", "AMOUNT"
+		};
+		for ( int i = 0; i < columns.length; i++ )
+		{
+			qd.addResultSetExpression( columns[i],
+					new ScriptExpression( "dataSetRow." + columns[i] ) );
+		}
+		ScriptExpression total = new ScriptExpression( "Total.Sum( dataSetRow.AMOUNT )" );
+		total.setGroupName( "G1" );
+		qd.addResultSetExpression( "TOTAL", total );
+
+		IQueryResults qr = dataEngine.prepare( qd, appContext ).execute( null );
+		IResultIterator resultIterator = qr.getResultIterator( );
+		List rows = new ArrayList( );
+		while ( resultIterator.next( ) )
+		{
+			StringBuffer row = new StringBuffer( );
+			for ( int i = 0; i < columns.length; i++ )
+			{
+				row.append( resultIterator.getValue( columns[i] ) ).append( ',' );
+			}
+			row.append( resultIterator.getValue( "TOTAL" ) );
+			rows.add( row.toString( ) );
+		}
+		qr.close( );
+		return rows;
+	}
+
 	/**
 	 * 
 	 * @return
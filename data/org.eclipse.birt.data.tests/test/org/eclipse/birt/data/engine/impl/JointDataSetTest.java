@@ -51,7 +51,9 @@ public class JointDataSetTest extends APITestCase
 	//
 	private static int CARTESIAN_POPULATOR = 0;
 	private static int BINARY_TREE_POPULATOR = 1;
+	private static int HASH_POPULATOR = 2;
 	private static boolean ADD_FETCH_LIMIT = false;
+	private static int HASH_JOIN_MEMORY_ROW_COUNT = 100000;
 	private ScriptContext cx;
 	/*
 	 * @see org.eclipse.birt.data.engine.api.APITestCase#getDataSourceInfo()
@@ -155,6 +157,69 @@ public class JointDataSetTest extends APITestCase
 		checkOutputFile( );
 	}
 	
+	/**
+	 * 
+	 * @throws Exception
+	 */
+	public void testInnerJoin_HASH( ) throws Exception
+	{
+		String s = basicJoinTest( IJointDataSetDesign.INNER_JOIN, HASH_POPULATOR );
+		this.testPrint( s );
+		checkOutputFile( );
+	}
+
+	/**
+	 * 
+	 * @throws Exception
+	 */
+	public void testLeftOuterJoin_HASH( ) throws Exception
+	{
+		String s = basicJoinTest( IJointDataSetDesign.LEFT_OUTER_JOIN, HASH_POPULATOR );
+		this.testPrint( s );
+		checkOutputFile( );
+	}
+
+	/**
+	 * 
+	 * @throws Exception
+	 */
+	public void testRightOuterJoin_HASH( ) throws Exception
+	{
+		String s = basicJoinTest( IJointDataSetDesign.RIGHT_OUTER_JOIN, HASH_POPULATOR );
+		this.testPrint( s );
+		checkOutputFile( );
+	}
+
+	/**
+	 * The partitioned hash join returns the same rows as the hash join in
+	 * memory, in the same order.
+	 * 
+	 * @throws Exception
+	 */
+	public void testSpilledHashJoin( ) throws Exception
+	{
+		int[] joinTypes = new int[]{
+				IJointDataSetDesign.INNER_JOIN,
+				IJointDataSetDesign.LEFT_OUTER_JOIN,
+				IJointDataSetDesign.RIGHT_OUTER_JOIN
+		};
+		for ( int i = 0; i < joinTypes.length; i++ )
+		{
+			String expected = basicJoinTest( joinTypes[i], HASH_POPULATOR );
+			HASH_JOIN_MEMORY_ROW_COUNT = 2;
+			String actual = null;
+			try
+			{
+				actual = basicJoinTest( joinTypes[i], HASH_POPULATOR );
+			}
+			finally
+			{
+				HASH_JOIN_MEMORY_ROW_COUNT = 100000;
+			}
+			assertEquals( expected, actual );
+		}
+	}
+	
 	/**
 	 * 
 	 * @throws Exception
@@ -414,6 +479,8 @@ public class JointDataSetTest extends APITestCase
 		
 		if( populateType == BINARY_TREE_POPULATOR) 
 			populator = JointDataSetPopulatorFactory.getBinaryTreeDataSetPopulator(it1, it2, meta, matcher, joinType, ((DataEngineImpl)this.dataEngine).getSession( ), fetchRowLimit);
+		else if( populateType == HASH_POPULATOR )
+			populator = JointDataSetPopulatorFactory.getHashJointDataSetPopulator(it1, it2, meta, matcher, joinType, ((DataEngineImpl)this.dataEngine).getSession( ), fetchRowLimit, HASH_JOIN_MEMORY_ROW_COUNT);
 		else 
 			populator = JointDataSetPopulatorFactory.getCartesianJointDataSetPopulator(it1, it2, meta, matcher, joinType,  ((DataEngineImpl)this.dataEngine).getSession( ), fetchRowLimit);
 		
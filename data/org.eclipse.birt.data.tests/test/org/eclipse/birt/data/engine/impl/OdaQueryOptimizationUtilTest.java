@@ -0,0 +1,170 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.impl;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.eclipse.birt.core.data.DataType;
+import org.eclipse.birt.data.engine.api.IBinding;
+import org.eclipse.birt.data.engine.api.IConditionalExpression;
+import org.eclipse.birt.data.engine.api.querydefn.Binding;
+import org.eclipse.birt.data.engine.api.querydefn.ColumnDefinition;
+import org.eclipse.birt.data.engine.api.querydefn.ConditionalExpression;
+import org.eclipse.birt.data.engine.api.querydefn.ScriptExpression;
+import org.eclipse.datatools.connectivity.oda.spec.result.FilterExpression;
+import org.eclipse.datatools.connectivity.oda.spec.result.filter.CustomExpression;
+import org.eclipse.datatools.connectivity.oda.spec.result.filter.OrExpression;
+
+/**
+ * Test the translation of the filters pushed down to the data source.
+ */
+public class OdaQueryOptimizationUtilTest extends TestCase
+{
+
+	private static final String EXTENSION_ID = "test.dynamicResultSet";
+
+	public void testToLiteral( )
+	{
+		assertEquals( new BigDecimal( "12" ),
+				OdaQueryOptimizationUtil.toLiteral( new ScriptExpression( "12" ) ) );
+		assertEquals( new BigDecimal( "-1.5" ),
+				OdaQueryOptimizationUtil.toLiteral( new ScriptExpression( " -1.5 " ) ) );
+		assertEquals( new BigDecimal( "3" ),
+				OdaQueryOptimizationUtil.toLiteral( new ScriptExpression( "+3" ) ) );
+		assertEquals( "CA",
+				OdaQueryOptimizationUtil.toLiteral( new ScriptExpression( "\"CA\"" ) ) );
+		assertEquals( "CA",
+				OdaQueryOptimizationUtil.toLiteral( new ScriptExpression( "'CA'" ) ) );
+		assertNull( OdaQueryOptimizationUtil.toLiteral( new ScriptExpression( "\"C\\\"A\"" ) ) );
+		assertNull( OdaQueryOptimizationUtil.toLiteral( new ScriptExpression( "params[\"p\"]" ) ) );
+		assertNull( OdaQueryOptimizationUtil.toLiteral( new ScriptExpression( "1e3" ) ) );
+		assertNull( OdaQueryOptimizationUtil.toLiteral( null ) );
+	}
+
+	public void testNumberFilter( )
+	{
+		ColumnDefinition column = newColumn( "AMOUNT", DataType.DOUBLE_TYPE );
+		FilterExpression expr = OdaQueryOptimizationUtil.toFilterExpression( EXTENSION_ID,
+				new ConditionalExpression( "row[\"AMOUNT\"]",
+						IConditionalExpression.OP_GT,
+						"100" ),
+				column,
+				true );
+		assertTrue( expr instanceof OrExpression );
+
+		expr = OdaQueryOptimizationUtil.toFilterExpression( EXTENSION_ID,
+				new ConditionalExpression( "row[\"AMOUNT\"]",
+						IConditionalExpression.OP_BETWEEN,
+						"1",
+						"10" ),
+				column,
+				true );
+		assertTrue( expr instanceof OrExpression );
+
+		// a string is not compared with a number column
+		assertNull( OdaQueryOptimizationUtil.toFilterExpression( EXTENSION_ID,
+				new ConditionalExpression( "row[\"AMOUNT\"]",
+						IConditionalExpression.OP_EQ,
+						"\"100\"" ),
+				column,
+				true ) );
+		// the operand must be a literal
+		assertNull( OdaQueryOptimizationUtil.toFilterExpression( EXTENSION_ID,
+				new ConditionalExpression( "row[\"AMOUNT\"]",
+						IConditionalExpression.OP_EQ,
+						"row[\"OTHER\"]" ),
+				column,
+				true ) );
+		assertNull( OdaQueryOptimizationUtil.toFilterExpression( EXTENSION_ID,
+				new ConditionalExpression( "row[\"AMOUNT\"]",
+						IConditionalExpression.OP_TOP_N,
+						"3" ),
+				column,
+				true ) );
+	}
+
+	public void testStringFilter( )
+	{
+		ColumnDefinition column = newColumn( "STATE", DataType.STRING_TYPE );
+		FilterExpression expr = OdaQueryOptimizationUtil.toFilterExpression( EXTENSION_ID,
+				new ConditionalExpression( "row[\"STATE\"]",
+						IConditionalExpression.OP_EQ,
+						"\"CA\"" ),
+				column,
+				true );
+		assertTrue( expr instanceof OrExpression );
+
+		// the data source doesn't know the compare locale of the data set
+		assertNull( OdaQueryOptimizationUtil.toFilterExpression( EXTENSION_ID,
+				new ConditionalExpression( "row[\"STATE\"]",
+						IConditionalExpression.OP_EQ,
+						"\"CA\"" ),
+				column,
+				false ) );
+		// the order of the strings depends on the collation
+		assertNull( OdaQueryOptimizationUtil.toFilterExpression( EXTENSION_ID,
+				new ConditionalExpression( "row[\"STATE\"]",
+						IConditionalExpression.OP_LT,
+						"\"CA\"" ),
+				column,
+				true ) );
+	}
+
+	public void testNullFilter( )
+	{
+		ColumnDefinition column = newColumn( "STATE", DataType.STRING_TYPE );
+		column.setColumnNativeName( "NATIVE_STATE" );
+		FilterExpression expr = OdaQueryOptimizationUtil.toFilterExpression( EXTENSION_ID,
+				new ConditionalExpression( "row[\"STATE\"]",
+						IConditionalExpression.OP_NOT_NULL ),
+				column,
+				false );
+		assertTrue( expr instanceof CustomExpression );
+		assertEquals( OdaQueryOptimizationUtil.FILTER_IS_NOT_NULL,
+				( (CustomExpression) expr ).getId( ) );
+	}
+
+	public void testDirectColumnReferenceBindings( ) throws Exception
+	{
+		List<IBinding> bindings = new ArrayList<IBinding>( );
+		bindings.add( new Binding( "b1",
+				new ScriptExpression( "dataSetRow[\"COL1\"]" ) ) );
+		bindings.add( new Binding( "b2",
+				new ScriptExpression( "dataSetRow[\"COL1\"] + 1" ) ) );
+		bindings.add( new Binding( "b3",
+				new ScriptExpression( "dataSetRow[\"COL3\"]" ) ) );
+		Binding aggregation = new Binding( "b4",
+				new ScriptExpression( "dataSetRow[\"COL2\"]" ) );
+		aggregation.setAggrFunction( "SUM" );
+		bindings.add( aggregation );
+		List<String> columns = new ArrayList<String>( );
+		columns.add( "COL1" );
+		columns.add( "COL2" );
+
+		Set<String> result = OdaQueryOptimizationUtil.populateDirectDataSetColumnReferenceBindings( bindings,
+				columns );
+		assertEquals( 1, result.size( ) );
+		assertTrue( result.contains( "b1" ) );
+	}
+
+	private static ColumnDefinition newColumn( String name, int type )
+	{
+		ColumnDefinition column = new ColumnDefinition( name );
+		column.setDataType( type );
+		return column;
+	}
+}
@@ -152,6 +152,42 @@ public class ResultSetTest extends QueryTest
 		assertEquals( RESULTS[rowPosition - 1], row );
 	}
 
+	public final void testFetchInBatches( ) throws DataException
+	{
+		// the rows read ahead are returned one by one, the last batch is
+		// not full
+		m_resultSet.setFetchBatchSize( 2 );
+		int rowPosition = 0;
+		IResultObject resultObject = null;
+		IResultClass resultClass = null;
+		while ( ( resultObject = m_resultSet.fetch( ) ) != null )
+		{
+			rowPosition++;
+			if ( rowPosition == 1 )
+			{
+				resultClass = testResultClass( resultObject );
+			}
+
+			testFields( resultObject, resultClass, rowPosition );
+			assertEquals( rowPosition, m_resultSet.getRowPosition( ) );
+		}
+		assertEquals( RESULTS.length, rowPosition );
+		assertNull( m_resultSet.fetch( ) );
+	}
+
+	public final void testFetchArray( ) throws DataException
+	{
+		IResultObject[] rows = new IResultObject[3];
+		assertEquals( 3, m_resultSet.fetch( rows ) );
+		IResultClass resultClass = testResultClass( rows[0] );
+		for ( int i = 0; i < 3; i++ )
+			testFields( rows[i], resultClass, i + 1 );
+
+		assertEquals( 2, m_resultSet.fetch( rows ) );
+		testFields( rows[0], resultClass, 4 );
+		testFields( rows[1], resultClass, 5 );
+	}
+
 	public final void testGetRowPosition( ) throws DataException
 	{
 		int count = 0;
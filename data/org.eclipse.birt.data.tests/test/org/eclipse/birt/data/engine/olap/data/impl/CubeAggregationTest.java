@@ -444,6 +444,57 @@ public class CubeAggregationTest extends BaseTestCase
 		}
 	}
 	
+	public void testCube1AggregationInParallel( ) throws IOException, DataException, BirtException
+	{
+		String serial = aggregate( 1 );
+		String parallel = aggregate( 4 );
+		assertTrue( serial.length( ) > 0 );
+		assertEquals( serial, parallel );
+	}
+	
+	/**
+	 * calculate the aggregations sorted in different level orders and dump
+	 * the results.
+	 */
+	private String aggregate( int threadCount ) throws IOException, DataException, BirtException
+	{
+		CubeQueryExecutorHelper cubeQueryExcutorHelper = new CubeQueryExecutorHelper( 
+				CubeQueryExecutorHelper.loadCube( "cube1", documentManager, new StopSign( ) ) );
+		cubeQueryExcutorHelper.setAggregationThreadCount( threadCount );
+		
+		AggregationFunctionDefinition[] funcitons = new AggregationFunctionDefinition[3];
+		funcitons[0] = new AggregationFunctionDefinition( "measure1", IBuildInAggregation.TOTAL_SUM_FUNC );
+		funcitons[1] = new AggregationFunctionDefinition( "measure2", IBuildInAggregation.TOTAL_MAX_FUNC );
+		funcitons[2] = new AggregationFunctionDefinition( "measure2", IBuildInAggregation.TOTAL_AVE_FUNC );
+		AggregationDefinition[] aggregations = new AggregationDefinition[4];
+		aggregations[0] = new AggregationDefinition( new DimLevel[]{dimLevel21}, new int[]{IDimensionSortDefn.SORT_ASC}, funcitons );
+		aggregations[1] = new AggregationDefinition( new DimLevel[]{dimLevel31}, new int[]{IDimensionSortDefn.SORT_DESC}, funcitons );
+		aggregations[2] = new AggregationDefinition( new DimLevel[]{dimLevel11, dimLevel12}, new int[]{IDimensionSortDefn.SORT_ASC, IDimensionSortDefn.SORT_ASC}, funcitons );
+		aggregations[3] = new AggregationDefinition( null, null, funcitons );
+		
+		IAggregationResultSet[] resultSet = cubeQueryExcutorHelper.execute( aggregations,
+				new StopSign( ) );
+		StringBuffer buffer = new StringBuffer( );
+		for ( int i = 0; i < resultSet.length; i++ )
+		{
+			for ( int j = 0; j < resultSet[i].length( ); j++ )
+			{
+				resultSet[i].seek( j );
+				for ( int k = 0; k < resultSet[i].getLevelCount( ); k++ )
+				{
+					buffer.append( Arrays.asList( resultSet[i].getLevelKeyValue( k ) ) );
+				}
+				for ( int k = 0; k < resultSet[i].getAggregationCount( ); k++ )
+				{
+					buffer.append( ' ' ).append( resultSet[i].getAggregationValue( k ) );
+				}
+				buffer.append( '\n' );
+			}
+			resultSet[i].close( );
+		}
+		return buffer.toString( );
+	}
+	
 	public void testCube1AggregationWithFunctionFilter( ) throws IOException, DataException, BirtException
 	{
 		//query
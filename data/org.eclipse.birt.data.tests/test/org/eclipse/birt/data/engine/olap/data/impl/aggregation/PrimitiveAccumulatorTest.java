@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.birt.data.engine.olap.data.impl.aggregation;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+import junit.framework.TestCase;
+
+import org.eclipse.birt.data.aggregation.impl.BuildInAggregationFactory;
+import org.eclipse.birt.data.engine.api.aggregation.Accumulator;
+import org.eclipse.birt.data.engine.api.aggregation.IAggrFunction;
+
+/**
+ * The primitive accumulators must return the same values as the built-in
+ * accumulators.
+ */
+public class PrimitiveAccumulatorTest extends TestCase
+{
+
+	private BuildInAggregationFactory buildInAggrFactory = new BuildInAggregationFactory( );
+
+	private Object[] doubles = {
+			Double.valueOf( 3.5 ),
+			null,
+			Double.valueOf( -1 ),
+			Double.valueOf( 10.25 ),
+			Double.valueOf( 10.25 )
+	};
+
+	private Object[] integers = {
+			Integer.valueOf( 4 ),
+			Integer.valueOf( -43 ),
+			null,
+			Integer.valueOf( 23 )
+	};
+
+	private Object[] bigDecimals = {
+			new BigDecimal( "1.1" ), new BigDecimal( "2.2" ), null
+	};
+
+	private Object[] dates = {
+			new Date( 2000000L ), null, new Date( 1000000L )
+	};
+
+	private Object[] mixed = {
+			Integer.valueOf( 4 ), Integer.valueOf( 8 ), Double.valueOf( 6 )
+	};
+
+	private Object[] nulls = {
+			null, null
+	};
+
+	public void testSum( ) throws Exception
+	{
+		assertSameValues( "sum" );
+	}
+
+	public void testAve( ) throws Exception
+	{
+		assertSameValues( "ave" );
+	}
+
+	public void testCount( ) throws Exception
+	{
+		assertSameValues( "count" );
+	}
+
+	public void testMax( ) throws Exception
+	{
+		assertSameValues( "max" );
+	}
+
+	public void testMin( ) throws Exception
+	{
+		assertSameValues( "min" );
+	}
+
+	public void testUnsupportedFunction( ) throws Exception
+	{
+		assertNull( PrimitiveAccumulator.create( buildInAggrFactory.getAggregation( "median" ) ) );
+	}
+
+	private void assertSameValues( String name ) throws Exception
+	{
+		IAggrFunction function = buildInAggrFactory.getAggregation( name );
+		PrimitiveAccumulator primitive = PrimitiveAccumulator.create( function );
+		assertNotNull( primitive );
+		Object[][] groups = {
+				doubles, integers, bigDecimals, nulls, doubles
+		};
+		if ( !name.equals( "sum" ) && !name.equals( "ave" ) )
+		{
+			groups = new Object[][]{
+					doubles, integers, bigDecimals, dates, nulls, doubles
+			};
+		}
+		if ( name.equals( "sum" ) || name.equals( "ave" ) || name.equals( "count" ) )
+		{
+			groups = append( groups, mixed );
+		}
+		primitive.start( );
+		for ( int i = 0; i < groups.length; i++ )
+		{
+			Accumulator accumulator = function.newAccumulator( );
+			accumulator.start( );
+			for ( int j = 0; j < groups[i].length; j++ )
+			{
+				accumulator.onRow( new Object[]{
+					groups[i][j]
+				} );
+				primitive.onValue( groups[i][j] );
+			}
+			accumulator.finish( );
+			assertEquals( accumulator.getValue( ), primitive.getValue( ) );
+			primitive.start( );
+		}
+	}
+
+	private static Object[][] append( Object[][] groups, Object[] group )
+	{
+		Object[][] result = new Object[groups.length + 1][];
+		System.arraycopy( groups, 0, result, 0, groups.length );
+		result[groups.length] = group;
+		return result;
+	}
+}
@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.birt.data.engine.perf;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.eclipse.birt.data.aggregation.impl.BuildInAggregationFactory;
+import org.eclipse.birt.data.engine.api.aggregation.Accumulator;
+
+/**
+ * Compare the accuracy, the memory and the time of the approximate distinct
+ * count, median and percentile with the exact ones. The number of rows is
+ * 1000000 by default, the system property
+ * "birt.data.engine.perf.approxRowCount" changes it.
+ */
+public class ApproxAggregationPerfTest extends TestCase
+{
+	private static final int ROW_COUNT = Integer.getInteger( "birt.data.engine.perf.approxRowCount",
+			1000000 ).intValue( );
+
+	private BuildInAggregationFactory factory = new BuildInAggregationFactory( );
+
+	/**
+	 * @throws Exception
+	 */
+	public void testCountDistinct( ) throws Exception
+	{
+		Object[][] rows = new Object[ROW_COUNT][];
+		for ( int i = 0; i < ROW_COUNT; i++ )
+		{
+			rows[i] = new Object[]{
+				"customer" + ( i % ( ROW_COUNT / 2 ) )
+			};
+		}
+		Object exact = run( "countdistinct", rows );
+		Object approx = run( "approxcountdistinct", rows );
+		double error = Math.abs( ( (Integer) approx ).doubleValue( )
+				/ ( (Integer) exact ).doubleValue( ) - 1 );
+		System.out.println( "relative error of the distinct count: " + error );
+		assertTrue( error < 0.03 );
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testMedian( ) throws Exception
+	{
+		Object[][] rows = new Object[ROW_COUNT][];
+		Random random = new Random( 0 );
+		for ( int i = 0; i < ROW_COUNT; i++ )
+		{
+			rows[i] = new Object[]{
+				new Double( random.nextGaussian( ) * 100 )
+			};
+		}
+		Object exact = run( "median", rows );
+		Object approx = run( "approxmedian", rows );
+		double error = Math.abs( ( (Double) approx ).doubleValue( )
+				- ( (Double) exact ).doubleValue( ) );
+		System.out.println( "absolute error of the median: " + error );
+		assertTrue( error < 1 );
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testPercentile( ) throws Exception
+	{
+		Object[][] rows = new Object[ROW_COUNT][];
+		Random random = new Random( 0 );
+		for ( int i = 0; i < ROW_COUNT; i++ )
+		{
+			rows[i] = new Object[]{
+					new Double( -Math.log( 1 - random.nextDouble( ) ) * 100 ),
+					new Double( 0.99 )
+			};
+		}
+		Object exact = run( "percentile", rows );
+		Object approx = run( "approxpercentile", rows );
+		double error = Math.abs( ( (Double) approx ).doubleValue( )
+				/ ( (Double) exact ).doubleValue( ) - 1 );
+		System.out.println( "relative error of the 99th percentile: " + error );
+		assertTrue( error < 0.01 );
+	}
+
+	/**
+	 * Aggregate the rows and print the time and the heap used by the
+	 * accumulator.
+	 */
+	private Object run( String function, Object[][] rows ) throws Exception
+	{
+		Accumulator ac = factory.getAggregation( function ).newAccumulator( );
+		long heap = usedHeap( );
+		long start = System.currentTimeMillis( );
+		ac.start( );
+		for ( int i = 0; i < rows.length; i++ )
+		{
+			ac.onRow( rows[i] );
+		}
+		long time = System.currentTimeMillis( ) - start;
+		heap = usedHeap( ) - heap;
+		ac.finish( );
+		Object value = ac.getValue( );
+		System.out.println( function + " of " + rows.length + " rows: "
+				+ value + ", " + time + "ms, about " + heap / 1024
+				+ "KB of heap" );
+		return value;
+	}
+
+	private static long usedHeap( )
+	{
+		Runtime runtime = Runtime.getRuntime( );
+		for ( int i = 0; i < 3; i++ )
+		{
+			System.gc( );
+		}
+		return runtime.totalMemory( ) - runtime.freeMemory( );
+	}
+}
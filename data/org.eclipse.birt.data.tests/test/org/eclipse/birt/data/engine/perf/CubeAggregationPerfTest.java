@@ -0,0 +1,289 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.birt.data.engine.perf;
+
+import java.util.Arrays;
+
+import org.eclipse.birt.core.exception.BirtException;
+import org.eclipse.birt.data.aggregation.api.IBuildInAggregation;
+import org.eclipse.birt.data.engine.api.DataEngine;
+import org.eclipse.birt.data.engine.api.DataEngineContext;
+import org.eclipse.birt.data.engine.impl.DataEngineImpl;
+import org.eclipse.birt.data.engine.impl.StopSign;
+import org.eclipse.birt.data.engine.olap.data.api.CubeQueryExecutorHelper;
+import org.eclipse.birt.data.engine.olap.data.api.DimLevel;
+import org.eclipse.birt.data.engine.olap.data.api.IAggregationResultSet;
+import org.eclipse.birt.data.engine.olap.data.api.IDimensionSortDefn;
+import org.eclipse.birt.data.engine.olap.data.api.cube.CubeMaterializer;
+import org.eclipse.birt.data.engine.olap.data.api.cube.IDatasetIterator;
+import org.eclipse.birt.data.engine.olap.data.api.cube.ILevelDefn;
+import org.eclipse.birt.data.engine.olap.data.document.IDocumentManager;
+import org.eclipse.birt.data.engine.olap.data.impl.AggregationDefinition;
+import org.eclipse.birt.data.engine.olap.data.impl.AggregationFunctionDefinition;
+import org.eclipse.birt.data.engine.olap.data.impl.Cube;
+import org.eclipse.birt.data.engine.olap.data.impl.dimension.Dimension;
+import org.eclipse.birt.data.engine.olap.data.impl.dimension.DimensionFactory;
+import org.eclipse.birt.data.engine.olap.data.impl.dimension.DimensionForTest;
+import org.eclipse.birt.data.engine.olap.data.impl.dimension.LevelDefinition;
+import org.eclipse.birt.data.engine.olap.data.util.DataType;
+
+import testutil.BaseTestCase;
+
+/**
+ * Compare the time to aggregate a synthetic cube on the calling thread and on
+ * a pool of worker threads. The number of fact rows is 200000 by default, the
+ * system property "birt.data.engine.perf.cubeRowCount" changes it, for example
+ * to 20000000 for the full benchmark.
+ */
+public class CubeAggregationPerfTest extends BaseTestCase
+{
+	private static final int ROW_COUNT = Integer.getInteger( "birt.data.engine.perf.cubeRowCount",
+			200000 ).intValue( );
+	private static final int PRODUCT_COUNT = 1000;
+	private static final int CUSTOMER_COUNT = 500;
+
+	private DataEngineImpl engine;
+	private IDocumentManager documentManager;
+
+	public void setUp( ) throws Exception
+	{
+		super.setUp( );
+		DataEngineContext context = DataEngineContext.newInstance( DataEngineContext.DIRECT_PRESENTATION,
+				null,
+				null,
+				null );
+		context.setTmpdir( this.getTempDir( ) );
+		engine = (DataEngineImpl) DataEngine.newDataEngine( context );
+		documentManager = new CubeMaterializer( engine ).getDocumentManager( );
+		createCube( );
+	}
+
+	protected void tearDown( ) throws Exception
+	{
+		documentManager.close( );
+		engine.shutdown( );
+		super.tearDown( );
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testParallelCubeAggregation( ) throws Exception
+	{
+		long start = System.currentTimeMillis( );
+		String serial = aggregate( 1 );
+		long serialTime = System.currentTimeMillis( ) - start;
+
+		int threadCount = Math.max( 2, Runtime.getRuntime( )
+				.availableProcessors( ) );
+		start = System.currentTimeMillis( );
+		String parallel = aggregate( threadCount );
+		long parallelTime = System.currentTimeMillis( ) - start;
+
+		System.out.println( "cube aggregation of " + ROW_COUNT
+				+ " fact rows, serial: " + serialTime + "ms, " + threadCount
+				+ " threads: " + parallelTime + "ms" );
+
+		assertEquals( serial, parallel );
+	}
+
+	private void createCube( ) throws Exception
+	{
+		Dimension[] dimensions = new Dimension[2];
+
+		int[] categories = new int[PRODUCT_COUNT];
+		int[] products = new int[PRODUCT_COUNT];
+		for ( int i = 0; i < PRODUCT_COUNT; i++ )
+		{
+			categories[i] = i / 50;
+			products[i] = i;
+		}
+		DimensionForTest iterator = new DimensionForTest( new String[]{
+				"category", "product"
+		} );
+		iterator.setLevelMember( 0, categories );
+		iterator.setLevelMember( 1, products );
+		dimensions[0] = (Dimension) DimensionFactory.createDimension( "product",
+				documentManager,
+				iterator,
+				new ILevelDefn[]{
+						new LevelDefinition( "category", new String[]{
+							"category"
+						}, null ),
+						new LevelDefinition( "product", new String[]{
+							"product"
+						}, null )
+				},
+				false,
+				new StopSign( ) );
+
+		int[] regions = new int[CUSTOMER_COUNT];
+		int[] customers = new int[CUSTOMER_COUNT];
+		for ( int i = 0; i < CUSTOMER_COUNT; i++ )
+		{
+			regions[i] = i % 20;
+			customers[i] = i;
+		}
+		iterator = new DimensionForTest( new String[]{
+				"region", "customer"
+		} );
+		iterator.setLevelMember( 0, regions );
+		iterator.setLevelMember( 1, customers );
+		dimensions[1] = (Dimension) DimensionFactory.createDimension( "customer",
+				documentManager,
+				iterator,
+				new ILevelDefn[]{
+						new LevelDefinition( "region", new String[]{
+							"region"
+						}, null ),
+						new LevelDefinition( "customer", new String[]{
+							"customer"
+						}, null )
+				},
+				false,
+				new StopSign( ) );
+
+		Cube cube = new Cube( "cube", documentManager );
+		cube.create( new String[][]{
+				{
+					"product"
+				}, {
+					"customer"
+				}
+		}, dimensions, new SyntheticFactTable( ), new String[]{
+				"quantity", "amount"
+		}, new StopSign( ) );
+		cube.close( );
+		documentManager.flush( );
+	}
+
+	/**
+	 * calculate the aggregations of four different level orders and dump the
+	 * results.
+	 */
+	private String aggregate( int threadCount ) throws Exception
+	{
+		CubeQueryExecutorHelper helper = new CubeQueryExecutorHelper( CubeQueryExecutorHelper.loadCube( "cube",
+				documentManager,
+				new StopSign( ) ) );
+		helper.setMemoryCacheSize( 10 * 1024 * 1024 );
+		helper.setAggregationThreadCount( threadCount );
+
+		AggregationFunctionDefinition[] functions = new AggregationFunctionDefinition[]{
+				new AggregationFunctionDefinition( "quantity",
+						IBuildInAggregation.TOTAL_SUM_FUNC ),
+				new AggregationFunctionDefinition( "amount",
+						IBuildInAggregation.TOTAL_AVE_FUNC ),
+				new AggregationFunctionDefinition( "amount",
+						IBuildInAggregation.TOTAL_MAX_FUNC )
+		};
+		DimLevel category = new DimLevel( "product", "category" );
+		DimLevel product = new DimLevel( "product", "product" );
+		DimLevel region = new DimLevel( "customer", "region" );
+		DimLevel customer = new DimLevel( "customer", "customer" );
+		int[] asc = new int[]{
+				IDimensionSortDefn.SORT_ASC, IDimensionSortDefn.SORT_ASC
+		};
+		AggregationDefinition[] aggregations = new AggregationDefinition[]{
+				new AggregationDefinition( new DimLevel[]{
+						category, region
+				}, asc, functions ),
+				new AggregationDefinition( new DimLevel[]{
+						region, category
+				}, asc, functions ),
+				new AggregationDefinition( new DimLevel[]{
+						product, customer
+				}, asc, functions ),
+				new AggregationDefinition( new DimLevel[]{
+						customer, product
+				}, asc, functions )
+		};
+
+		IAggregationResultSet[] resultSets = helper.execute( aggregations,
+				new StopSign( ) );
+		StringBuffer buffer = new StringBuffer( );
+		for ( int i = 0; i < resultSets.length; i++ )
+		{
+			for ( int j = 0; j < resultSets[i].length( ); j++ )
+			{
+				resultSets[i].seek( j );
+				for ( int k = 0; k < resultSets[i].getLevelCount( ); k++ )
+				{
+					buffer.append( Arrays.asList( resultSets[i].getLevelKeyValue( k ) ) );
+				}
+				for ( int k = 0; k < resultSets[i].getAggregationCount( ); k++ )
+				{
+					buffer.append( ' ' )
+							.append( resultSets[i].getAggregationValue( k ) );
+				}
+				buffer.append( '\n' );
+			}
+			resultSets[i].close( );
+		}
+		return buffer.toString( );
+	}
+
+	/**
+	 * The fact rows, each product is sold to the customers in turn.
+	 */
+	private static class SyntheticFactTable implements IDatasetIterator
+	{
+
+		private int ptr = -1;
+
+		public int getFieldIndex( String name ) throws BirtException
+		{
+			if ( name.equals( "product" ) )
+				return 0;
+			else if ( name.equals( "customer" ) )
+				return 1;
+			else if ( name.equals( "quantity" ) )
+				return 2;
+			else if ( name.equals( "amount" ) )
+				return 3;
+			return -1;
+		}
+
+		public int getFieldType( String name ) throws BirtException
+		{
+			if ( name.equals( "amount" ) )
+				return DataType.DOUBLE_TYPE;
+			return DataType.INTEGER_TYPE;
+		}
+
+		public boolean next( ) throws BirtException
+		{
+			ptr++;
+			return ptr < ROW_COUNT;
+		}
+
+		public Object getValue( int fieldIndex ) throws BirtException
+		{
+			switch ( fieldIndex )
+			{
+				case 0 :
+					return Integer.valueOf( ptr % PRODUCT_COUNT );
+				case 1 :
+					return Integer.valueOf( ( ptr / PRODUCT_COUNT + ptr )
+							% CUSTOMER_COUNT );
+				case 2 :
+					return Integer.valueOf( ptr % 7 + 1 );
+				case 3 :
+					return Double.valueOf( ( ptr % 1000 ) / 4.0 );
+			}
+			return null;
+		}
+
+		public void close( ) throws BirtException
+		{
+		}
+	}
+}
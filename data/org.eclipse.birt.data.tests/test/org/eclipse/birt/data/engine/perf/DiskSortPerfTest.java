@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.birt.data.engine.perf;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.birt.core.data.DataType;
+import org.eclipse.birt.data.engine.api.DataEngine;
+import org.eclipse.birt.data.engine.api.DataEngineContext;
+import org.eclipse.birt.data.engine.api.IQueryResults;
+import org.eclipse.birt.data.engine.api.IResultIterator;
+import org.eclipse.birt.data.engine.api.ISortDefinition;
+import org.eclipse.birt.data.engine.api.querydefn.ColumnDefinition;
+import org.eclipse.birt.data.engine.api.querydefn.QueryDefinition;
+import org.eclipse.birt.data.engine.api.querydefn.ScriptDataSetDesign;
+import org.eclipse.birt.data.engine.api.querydefn.ScriptDataSourceDesign;
+import org.eclipse.birt.data.engine.api.querydefn.ScriptExpression;
+import org.eclipse.birt.data.engine.api.querydefn.SortDefinition;
+
+import testutil.BaseTestCase;
+
+/**
+ * Compare the throughput of the disk based sort with the sorted runs built on
+ * the calling thread and on a pool of worker threads.
+ */
+public class DiskSortPerfTest extends BaseTestCase
+{
+	private static final int ROW_COUNT = 200000;
+
+	/**
+	 * @throws Exception
+	 */
+	public void testParallelDiskSort( ) throws Exception
+	{
+		// warm up
+		sort( 1, 10000 );
+
+		long start = System.currentTimeMillis( );
+		int[] serial = sort( 1, ROW_COUNT );
+		long serialTime = System.currentTimeMillis( ) - start;
+
+		int threadCount = Math.max( 2, Runtime.getRuntime( )
+				.availableProcessors( ) );
+		start = System.currentTimeMillis( );
+		int[] parallel = sort( threadCount, ROW_COUNT );
+		long parallelTime = System.currentTimeMillis( ) - start;
+
+		System.out.println( "disk sort of " + ROW_COUNT + " rows, serial: "
+				+ serialTime + "ms, " + threadCount + " threads: "
+				+ parallelTime + "ms" );
+
+		assertEquals( serial.length, parallel.length );
+		for ( int i = 0; i < serial.length; i++ )
+		{
+			assertEquals( serial[i], parallel[i] );
+		}
+	}
+
+	/**
+	 * @param threadCount
+	 * @param rowCount
+	 * @return the NUM column of the sorted rows
+	 * @throws Exception
+	 */
+	private int[] sort( int threadCount, int rowCount ) throws Exception
+	{
+		ScriptDataSourceDesign dataSource = new ScriptDataSourceDesign( "dataSource" );
+		ScriptDataSetDesign dataSet = new ScriptDataSetDesign( "dataSet" );
+		dataSet.setDataSource( dataSource.getName( ) );
+		dataSet.setOpenScript( "count=" + rowCount + ";" );
+		dataSet.setFetchScript( "if (count==0) "
+				+ "{" + "return false; " + "} " + "else " + "{ "
+				+ "row.NUM=count; " + "row.KEY=(count*7919)%1000; "
+				+ "row.STR=\"row#\" + count; " + "--count; " + "return true; "
+				+ "}" );
+
+		String[] columnNames = new String[]{
+				"NUM", "KEY", "STR"
+		};
+		int[] columnTypes = new int[]{
+				DataType.INTEGER_TYPE,
+				DataType.INTEGER_TYPE,
+				DataType.STRING_TYPE
+		};
+		for ( int i = 0; i < columnNames.length; i++ )
+		{
+			ColumnDefinition colInfo = new ColumnDefinition( columnNames[i] );
+			colInfo.setDataType( columnTypes[i] );
+			dataSet.getResultSetHints( ).add( colInfo );
+		}
+
+		DataEngineContext context = DataEngineContext.newInstance( DataEngineContext.DIRECT_PRESENTATION,
+				null,
+				null,
+				null );
+		context.setTmpdir( this.getTempDir( ) );
+		DataEngine dataEngine = DataEngine.newDataEngine( context );
+		dataEngine.defineDataSource( dataSource );
+		dataEngine.defineDataSet( dataSet );
+
+		QueryDefinition qd = new QueryDefinition( );
+		qd.setDataSetName( dataSet.getName( ) );
+		qd.addResultSetExpression( "NUM",
+				new ScriptExpression( "dataSetRow.NUM" ) );
+		SortDefinition sort = new SortDefinition( );
+		sort.setExpression( "dataSetRow.KEY" );
+		sort.setSortDirection( ISortDefinition.SORT_ASC );
+		qd.addSort( sort );
+
+		Map appContext = new HashMap( );
+		appContext.put( "birt.data.engine.test.memcachesize", "2000000" );
+		appContext.put( DataEngine.DISK_SORT_THREAD_COUNT, "" + threadCount );
+
+		IQueryResults qr = dataEngine.prepare( qd, appContext ).execute( null );
+		IResultIterator ri = qr.getResultIterator( );
+		int[] result = new int[rowCount];
+		int i = 0;
+		while ( ri.next( ) )
+		{
+			result[i++] = ( (Number) ri.getValue( "NUM" ) ).intValue( );
+		}
+		ri.close( );
+		qr.close( );
+		dataEngine.shutdown( );
+		return result;
+	}
+}
@@ -0,0 +1,139 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.birt.data.engine.perf;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.eclipse.birt.core.script.ScriptContext;
+import org.eclipse.birt.data.engine.executor.ResultClass;
+import org.eclipse.birt.data.engine.executor.ResultFieldMetadata;
+import org.eclipse.birt.data.engine.executor.ResultObject;
+import org.eclipse.birt.data.engine.expression.ComplexExpression;
+import org.eclipse.birt.data.engine.expression.ExpressionCompiler;
+import org.eclipse.birt.data.engine.odi.IResultClass;
+import org.eclipse.birt.data.engine.odi.IResultObject;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+
+/**
+ * Compare the per row throughput of a binding and a filter expression
+ * evaluated by Rhino and in Java. The number of rows is 200000 by default, the
+ * system property "birt.data.engine.perf.expressionRowCount" changes it.
+ */
+public class ExpressionEvaluationPerfTest extends TestCase
+{
+	private static final int ROW_COUNT = Integer.getInteger( "birt.data.engine.perf.expressionRowCount",
+			200000 ).intValue( );
+	private static final String[] COLUMNS = {
+			"QUANTITY", "PRICE", "REGION"
+	};
+	private static final String[] REGIONS = {
+			"EU", "US", "APAC"
+	};
+
+	private ScriptContext context;
+	private ScriptableObject scope;
+	private IResultClass resultClass;
+
+	protected void setUp( ) throws Exception
+	{
+		context = new ScriptContext( );
+		scope = Context.getCurrentContext( ).initStandardObjects( );
+		List fields = new ArrayList( );
+		for ( int i = 0; i < COLUMNS.length; i++ )
+		{
+			fields.add( new ResultFieldMetadata( i + 1,
+					COLUMNS[i],
+					COLUMNS[i],
+					Object.class,
+					null,
+					false ) );
+		}
+		resultClass = new ResultClass( fields );
+	}
+
+	protected void tearDown( ) throws Exception
+	{
+		context.close( );
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testBinding( ) throws Exception
+	{
+		compare( "row[\"QUANTITY\"] * row[\"PRICE\"]" );
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testFilter( ) throws Exception
+	{
+		compare( "row[\"QUANTITY\"] > 10 && row[\"REGION\"] == \"EU\"" );
+	}
+
+	private void compare( String expression ) throws Exception
+	{
+		ComplexExpression expr = (ComplexExpression) new ExpressionCompiler( ).compile( expression,
+				null,
+				context );
+		assertTrue( expr.isFastEvaluated( ) );
+
+		Object[][] values = new Object[ROW_COUNT][];
+		for ( int i = 0; i < ROW_COUNT; i++ )
+		{
+			values[i] = new Object[]{
+					Integer.valueOf( i % 20 ),
+					new Double( ( i % 1000 ) / 4.0 ),
+					REGIONS[i % REGIONS.length]
+			};
+		}
+
+		Scriptable row = Context.getCurrentContext( ).newObject( scope );
+		scope.put( "row", scope, row );
+		Object rhinoResult = null;
+		long start = System.currentTimeMillis( );
+		for ( int i = 0; i < ROW_COUNT; i++ )
+		{
+			for ( int j = 0; j < COLUMNS.length; j++ )
+				row.put( COLUMNS[j], row, values[i][j] );
+			rhinoResult = expr.evaluate( context, scope );
+		}
+		long rhinoTime = System.currentTimeMillis( ) - start;
+
+		Object fastResult = null;
+		start = System.currentTimeMillis( );
+		for ( int i = 0; i < ROW_COUNT; i++ )
+		{
+			IResultObject resultObject = new ResultObject( resultClass,
+					values[i] );
+			fastResult = expr.evaluate( context, scope, resultObject, i );
+		}
+		long fastTime = System.currentTimeMillis( ) - start;
+
+		System.out.println( expression + " on " + ROW_COUNT + " rows, Rhino: "
+				+ rhinoTime + "ms (" + rowsPerSecond( rhinoTime )
+				+ " rows/s), Java: " + fastTime + "ms ("
+				+ rowsPerSecond( fastTime ) + " rows/s)" );
+
+		assertEquals( rhinoResult, fastResult );
+	}
+
+	private static long rowsPerSecond( long time )
+	{
+		return ROW_COUNT * 1000L / Math.max( 1, time );
+	}
+}
@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.birt.data.engine.perf;
+
+import java.math.BigDecimal;
+
+import junit.framework.TestCase;
+
+import org.eclipse.birt.data.aggregation.calculator.CalculatorFactory;
+import org.eclipse.birt.data.aggregation.calculator.ICalculator;
+import org.eclipse.birt.data.aggregation.impl.BuildInAggregationFactory;
+import org.eclipse.birt.data.engine.api.aggregation.Accumulator;
+
+/**
+ * Measure the time of the numeric built-in aggregations on integer, double
+ * and decimal values, compared with adding the values with their calculator.
+ * The number of rows is 1000000 by default, the system property
+ * "birt.data.engine.perf.aggregationRowCount" changes it, for example to
+ * 10000000 for the full benchmark.
+ */
+public class NumericAggregationPerfTest extends TestCase
+{
+	private static final int ROW_COUNT = Integer.getInteger( "birt.data.engine.perf.aggregationRowCount",
+			1000000 ).intValue( );
+	private static final String[] FUNCTIONS = {
+			"sum", "ave", "variance", "stddev", "runningsum"
+	};
+
+	private BuildInAggregationFactory factory = new BuildInAggregationFactory( );
+
+	/**
+	 * @throws Exception
+	 */
+	public void testInteger( ) throws Exception
+	{
+		Object[][] rows = new Object[ROW_COUNT][];
+		for ( int i = 0; i < ROW_COUNT; i++ )
+		{
+			rows[i] = new Object[]{
+				Integer.valueOf( i % 1000 )
+			};
+		}
+		run( "integer", rows );
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testDouble( ) throws Exception
+	{
+		Object[][] rows = new Object[ROW_COUNT][];
+		for ( int i = 0; i < ROW_COUNT; i++ )
+		{
+			rows[i] = new Object[]{
+				Double.valueOf( ( i % 1000 ) / 4.0 )
+			};
+		}
+		run( "double", rows );
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testDecimal( ) throws Exception
+	{
+		Object[][] rows = new Object[ROW_COUNT][];
+		for ( int i = 0; i < ROW_COUNT; i++ )
+		{
+			rows[i] = new Object[]{
+				BigDecimal.valueOf( i % 1000, 2 )
+			};
+		}
+		run( "decimal", rows );
+	}
+
+	private void run( String type, Object[][] rows ) throws Exception
+	{
+		// the sum calculated with the calculator of the values
+		long start = System.currentTimeMillis( );
+		ICalculator calculator = CalculatorFactory.getCalculator( rows[0][0].getClass( ) );
+		Number sum = Double.valueOf( 0D );
+		for ( int i = 0; i < rows.length; i++ )
+		{
+			sum = calculator.add( sum, rows[i][0] );
+		}
+		System.out.println( "calculator sum of " + rows.length + " " + type
+				+ " rows: " + ( System.currentTimeMillis( ) - start ) + "ms" );
+
+		for ( int i = 0; i < FUNCTIONS.length; i++ )
+		{
+			Accumulator ac = factory.getAggregation( FUNCTIONS[i] )
+					.newAccumulator( );
+			start = System.currentTimeMillis( );
+			ac.start( );
+			for ( int j = 0; j < rows.length; j++ )
+			{
+				ac.onRow( rows[j] );
+			}
+			ac.finish( );
+			Object value = ac.getValue( );
+			System.out.println( FUNCTIONS[i] + " of " + rows.length + " "
+					+ type + " rows: "
+					+ ( System.currentTimeMillis( ) - start ) + "ms" );
+			if ( i == 0 )
+			{
+				assertEquals( sum.doubleValue( ),
+						( (Number) value ).doubleValue( ),
+						Math.abs( sum.doubleValue( ) ) * 1E-12 );
+			}
+		}
+	}
+}
@@ -79,6 +79,95 @@ abstract public class DataEngine
 	 */
 	public static String MAX_DATA_OBJECT_ROWS = "org.eclipse.birt.data.query.MaxDataObjectRows";
 	
+	/**
+	 * The number of threads used to sort the rows which are spilled to disk.
+	 * Positive integer greater than 1: the sorted runs are built on a worker
+	 * pool of this size while the rows are being fetched. Other values: the
+	 * sorted runs are built on the calling thread.
+	 */
+	public static String DISK_SORT_THREAD_COUNT = "org.eclipse.birt.data.query.DiskSortThreadCount";
+	
+	/**
+	 * Whether the rows cached in memory are stored column by column. "true":
+	 * the values are kept in primitive arrays and the strings are dictionary
+	 * encoded, so that much more rows fit in the memory buffer before they are
+	 * spilled to disk. Other values: each row is cached as a result object.
+	 */
+	public static String COLUMNAR_MEMORY_CACHE = "org.eclipse.birt.data.query.ColumnarMemoryCache";
+	
+	/**
+	 * The number of threads used to aggregate a cube. Positive integer greater
+	 * than 1: the aggregations sorted in different level orders are
+	 * calculated in parallel on a worker pool of this size. Other values: the
+	 * aggregations are calculated on the calling thread.
+	 */
+	public static String CUBE_AGGREGATION_THREAD_COUNT = "org.eclipse.birt.data.query.CubeAggregationThreadCount";
+	
+	/**
+	 * The number of threads used to calculate the aggregations of a query.
+	 * Positive integer greater than 1: when all the aggregations are summary
+	 * aggregations whose arguments and filters are evaluated in Java, the
+	 * groups of a large result set are accumulated in parallel on a worker
+	 * pool of this size. Other values: the aggregations are calculated on the
+	 * calling thread.
+	 */
+	public static String AGGREGATION_THREAD_COUNT = "org.eclipse.birt.data.query.AggregationThreadCount";
+	
+	/**
+	 * Whether the inner, left outer and right outer joint data sets are hash
+	 * joined. "false": the rows of both data sets are sorted and merge
+	 * joined. Other values: the rows of the secondary data set are indexed in
+	 * a hash table and only the primary data set is sorted.
+	 */
+	public static String JOINT_DATA_SET_HASH_JOIN = "org.eclipse.birt.data.query.JointDataSetHashJoin";
+	
+	/**
+	 * The maximum number of the rows of a hash joined data set which are
+	 * indexed in memory. Positive integer: when the secondary data set has
+	 * more rows, the rows of both data sets are partitioned to disk and
+	 * joined partition by partition. Other values: the default count is used.
+	 */
+	public static String HASH_JOIN_MEMORY_ROW_COUNT = "org.eclipse.birt.data.query.HashJoinMemoryRowCount";
+	
+	/**
+	 * The number of the rows read at once from an ODA result set. Positive
+	 * integer greater than 1: the rows are read in batches of this size, and
+	 * the row fetch size of the JDBC data sets which don't specify one is set
+	 * to it. 1: the rows are read one by one. Other values: the default size
+	 * is used.
+	 */
+	public static String ODA_FETCH_BATCH_SIZE = "org.eclipse.birt.data.query.OdaFetchBatchSize";
+	
+	/**
+	 * The maximum number of the data sets kept in a data set cache. Positive
+	 * integer: the least recently used data sets are evicted when more data
+	 * sets are cached. Other values: the default number is used.
+	 */
+	public static String DATA_SET_CACHE_MAX_ENTRIES = "org.eclipse.birt.data.cache.MaxEntries";
+	
+	/**
+	 * The maximum total number of the rows of the data sets kept in a data set
+	 * cache. Positive integer: the least recently used data sets are evicted
+	 * when more rows are cached. Other values: the number of the rows is not
+	 * limited.
+	 */
+	public static String DATA_SET_CACHE_MAX_ROWS = "org.eclipse.birt.data.cache.MaxRows";
+	
+	/**
+	 * The milliseconds a data set is kept in a data set cache after it is
+	 * saved. Positive integer: the data set is queried again when it is
+	 * requested after that. Other values: the cached data sets don't expire.
+	 */
+	public static String DATA_SET_CACHE_TIME_TO_LIVE = "org.eclipse.birt.data.cache.TimeToLive";
+	
+	/**
+	 * The maximum milliseconds a request waits for another request which is
+	 * saving the same data set into a data set cache. Positive integer: when
+	 * the data set is not saved in time, it is queried by the waiting
+	 * request. Other values: the default timeout is used.
+	 */
+	public static String DATA_SET_CACHE_LOAD_TIMEOUT = "org.eclipse.birt.data.cache.LoadTimeout";
+	
 	
 	public static String DATA_SET_CACHE_DELTA_FILE = "org.eclipse.birt.data.cache.DeltaFile";
 	
@@ -49,4 +49,28 @@ public class DataEngineThreadLocal
 		pathManager.remove( );
 	}
 	
+	/**
+	 * Let the current thread share the temp path and the close listeners of
+	 * another thread, so a worker thread creates its temp files in the same
+	 * place and they are closed together with the ones of that thread.
+	 * 
+	 * @param pathManager
+	 * @param closeListener
+	 */
+	public void attach( TempPathManager pathManager,
+			CloseListenerManager closeListener )
+	{
+		this.pathManager.set( pathManager );
+		this.closeHolder.set( closeListener );
+	}
+	
+	/**
+	 * Stop sharing the temp path and close listeners set by attach.
+	 */
+	public void detach( )
+	{
+		this.pathManager.remove( );
+		this.closeHolder.remove( );
+	}
+	
 }
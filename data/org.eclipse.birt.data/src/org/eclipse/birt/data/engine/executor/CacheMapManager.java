@@ -11,17 +11,26 @@
 package org.eclipse.birt.data.engine.executor;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.eclipse.birt.data.engine.core.DataException;
+import org.eclipse.birt.data.engine.executor.cache.CacheUtil;
 import org.eclipse.birt.data.engine.odi.IResultClass;
 
 /**
- * Manage the cache map
+ * Manage the cache map. The cached data sets are kept in the least recently
+ * used order, and the least recently used ones are evicted when the number of
+ * the cached data sets or of their rows is over the limits. A cached data set
+ * also expires when its time to live is over.
+ *
+ * The data set of a key is populated by one thread at a time: the thread which
+ * decides to save the data set into the cache first owns the entry until the
+ * data set is saved or the population is aborted, and the other threads
+ * requesting the same data set wait for it instead of querying the data set
+ * again.
  */
 class CacheMapManager
 {
@@ -29,10 +38,10 @@ class CacheMapManager
 	 * Please notice that we must use static variable here for the sharing of
 	 * cached data set would be cross data set session.
 	 */
-	private static Map JVMLevelCacheMap = Collections.synchronizedMap( new HashMap( ) );
-	
-	private Map cacheMap;
-	
+	private static CacheMap JVMLevelCacheMap = new CacheMap( );
+
+	private CacheMap cacheMap;
+
 	/**
 	 * construction
 	 */
@@ -44,71 +53,195 @@ class CacheMapManager
 		}
 		else
 		{
-			cacheMap = new HashMap( );
+			cacheMap = new CacheMap( );
 		}
 	}
-	
+
 	/**
-	 * @param appContext 
-	 * @param collection 
-	 * @param baseDataSetDesign 
-	 * @param baseDataSourceDesign 
+	 * @param dsAndDs
+	 * @param dscc
+	 * @param appContext
 	 * @return
-	 * @throws DataException 
+	 * @throws DataException
 	 */
 	boolean doesSaveToCache( DataSourceAndDataSet dsAndDs,
-			DataSetCacheConfig dscc) throws DataException
-	{		
-		synchronized ( cacheMap )
+			DataSetCacheConfig dscc, Map appContext ) throws DataException
+	{
+		List released = new ArrayList( );
+		try
 		{
-			IDataSetCacheObject cacheObject = (IDataSetCacheObject)cacheMap.get( dsAndDs );
-			if (cacheObject != null)
+			synchronized ( cacheMap )
 			{
-				return cacheObject.needUpdateCache( dscc.getCacheCapability( ) );
-			}
-			else
-			{
-				IDataSetCacheObject dsco = dscc.createDataSetCacheObject( );
-				cacheMap.put( dsAndDs, dsco );
-				return true;
+				CacheEntry entry = (CacheEntry) cacheMap.get( dsAndDs );
+				if ( entry == null )
+				{
+					cacheMap.claim( dsAndDs, dscc, appContext, released );
+					return true;
+				}
+				if ( entry.loader != null )
+				{
+					// another thread is populating the same data set
+					return entry.loader == Thread.currentThread( );
+				}
+				if ( entry.cacheObject.needUpdateCache( dscc.getCacheCapability( ) ) )
+				{
+					entry.startLoad( );
+					return true;
+				}
+				return false;
 			}
 		}
+		finally
+		{
+			release( released );
+		}
 	}
-	
+
 	/**
+	 * Return whether the data set can be loaded from the cache. If it is being
+	 * populated by another thread, wait until it is populated. A data set not
+	 * cached is not claimed here, the caller may never save it.
+	 *
 	 * @param dsAndDs
+	 * @param dscc
+	 * @param appContext
 	 * @return
+	 * @throws DataException
 	 */
-	boolean doesLoadFromCache( DataSourceAndDataSet dsAndDs, int requiredCapability )
+	boolean doesLoadFromCache( DataSourceAndDataSet dsAndDs,
+			DataSetCacheConfig dscc, Map appContext ) throws DataException
 	{
-		synchronized ( cacheMap )
+		List released = new ArrayList( );
+		try
 		{
-			IDataSetCacheObject cacheObject = (IDataSetCacheObject)cacheMap.get( dsAndDs );
-			if (cacheObject != null)
+			synchronized ( cacheMap )
 			{
-				boolean reusable = cacheObject.isCachedDataReusable( requiredCapability );
-				if ( !reusable )
+				while ( true )
 				{
-					cacheObject.release( );
-					cacheMap.remove( dsAndDs );
+					CacheEntry entry = (CacheEntry) cacheMap.get( dsAndDs );
+					if ( entry == null )
+					{
+						cacheMap.statistics.recordMiss( );
+						return false;
+					}
+					if ( entry.loader == Thread.currentThread( ) )
+					{
+						return false;
+					}
+					long now = System.currentTimeMillis( );
+					if ( entry.loader != null )
+					{
+						long remaining = entry.loadStartTime
+								+ CacheUtil.getDataSetCacheLoadTimeout( appContext )
+								- now;
+						if ( remaining > 0 )
+						{
+							try
+							{
+								cacheMap.wait( remaining );
+							}
+							catch ( InterruptedException e )
+							{
+								Thread.currentThread( ).interrupt( );
+								cacheMap.statistics.recordMiss( );
+								return false;
+							}
+							continue;
+						}
+						// the population takes too long, query the data set
+						// without the cache
+						cacheMap.statistics.recordMiss( );
+						return false;
+					}
+					else if ( !entry.isExpired( now ) )
+					{
+						if ( entry.cacheObject.isCachedDataReusable( dscc.getCacheCapability( ) ) )
+						{
+							cacheMap.statistics.recordHit( );
+							return true;
+						}
+					}
+					else
+					{
+						cacheMap.statistics.recordEviction( );
+					}
+					cacheMap.removeEntry( dsAndDs, released );
+					cacheMap.statistics.recordMiss( );
+					return false;
 				}
-				return reusable;
 			}
-			else
+		}
+		finally
+		{
+			release( released );
+		}
+	}
+
+	/**
+	 * Notify that the data set is saved into the cache by the calling thread,
+	 * so the threads waiting for it can load it from the cache.
+	 *
+	 * @param dsAndDs
+	 * @param rowCount
+	 *            the number of the saved rows
+	 * @param appContext
+	 */
+	void loadFinished( DataSourceAndDataSet dsAndDs, int rowCount, Map appContext )
+	{
+		List released = new ArrayList( );
+		synchronized ( cacheMap )
+		{
+			CacheEntry entry = (CacheEntry) cacheMap.get( dsAndDs );
+			if ( entry != null && entry.loader == Thread.currentThread( ) )
 			{
-				return false;
+				long now = System.currentTimeMillis( );
+				entry.loader = null;
+				entry.loadedTime = now;
+				cacheMap.rowCount += rowCount - entry.rowCount;
+				entry.rowCount = rowCount;
+				cacheMap.statistics.recordLoad( now - entry.loadStartTime );
+				cacheMap.evict( appContext, released );
 			}
+			cacheMap.notifyAll( );
 		}
+		release( released );
 	}
-	
+
+	/**
+	 * Give up the population of the data set by the calling thread, the
+	 * partly saved data set is removed and the waiting threads query the data
+	 * set themselves. Nothing is done if the data set is not being populated
+	 * by the calling thread.
+	 *
+	 * @param dsAndDs
+	 */
+	void abortLoad( DataSourceAndDataSet dsAndDs )
+	{
+		List released = new ArrayList( );
+		synchronized ( cacheMap )
+		{
+			CacheEntry entry = (CacheEntry) cacheMap.get( dsAndDs );
+			if ( entry != null && entry.loader == Thread.currentThread( ) )
+			{
+				cacheMap.removeEntry( dsAndDs, released );
+				cacheMap.notifyAll( );
+			}
+		}
+		release( released );
+	}
+
 	/**
 	 * @return
 	 */
 	IDataSetCacheObject getCacheObject( DataSourceAndDataSet dsAndDs )
 	{
-		return (IDataSetCacheObject) cacheMap.get( dsAndDs );
+		synchronized ( cacheMap )
+		{
+			CacheEntry entry = (CacheEntry) cacheMap.get( dsAndDs );
+			return entry == null ? null : entry.cacheObject;
+		}
 	}
-	
+
 	/**
 	 * @param dataSourceDesign2
 	 * @param dataSetDesign2
@@ -121,34 +254,50 @@ class CacheMapManager
 			Object key = getKey(dsAndDs);
 			while ( key != null )
 			{
-				cacheObjects.add( cacheMap.remove( key ) );
+				cacheMap.removeEntry( key, cacheObjects );
 				key = getKey(dsAndDs);
 			}
+			// the threads waiting for a removed entry populate it again
+			cacheMap.notifyAll( );
 		}
-		for ( int i = 0; i < cacheObjects.size( ); i++ )
-		{
-			IDataSetCacheObject cacheObject = (IDataSetCacheObject)cacheObjects.get( i );
-			cacheObject.release( );
-		}
-
+		release( cacheObjects );
 	}
-	
+
 	/**
 	 * Reset for test case
 	 */
 	void resetForTest( )
 	{
-		synchronized ( this )
+		synchronized ( cacheMap )
 		{
 			cacheMap.clear( );
+			cacheMap.rowCount = 0;
+			cacheMap.statistics.reset( );
+			cacheMap.notifyAll( );
 		}
 	}
-	
+
+	/**
+	 * @return the counters of the cache map
+	 */
+	DataSetCacheStatistics getStatistics( )
+	{
+		return cacheMap.statistics;
+	}
+
+	/**
+	 * @return the counters of the JVM level cache map
+	 */
+	static DataSetCacheStatistics getJVMLevelStatistics( )
+	{
+		return JVMLevelCacheMap.statistics;
+	}
+
 	/**
 	 * Return the cached result metadata featured by the given
 	 * DataSourceAndDataSet. Please note that the paramter would have no impact
 	 * to DataSourceAndDataSet so that will be omited.
-	 * 
+	 *
 	 * @param dsAndDs
 	 * @return
 	 * @throws DataException
@@ -157,10 +306,18 @@ class CacheMapManager
 			throws DataException
 	{
 		IDataSetCacheObject cacheObject = null;
-		Object key = getKey( dsAndDs );
-		if ( key != null )
+		synchronized ( cacheMap )
 		{
-			cacheObject = (IDataSetCacheObject)cacheMap.get( key );
+			Object key = getKey( dsAndDs );
+			if ( key != null )
+			{
+				CacheEntry entry = (CacheEntry) cacheMap.get( key );
+				// the result class of an entry being populated is not known
+				if ( entry.loader == null )
+				{
+					cacheObject = entry.cacheObject;
+				}
+			}
 		}
 		if (cacheObject != null)
 		{
@@ -171,9 +328,9 @@ class CacheMapManager
 			return null;
 		}
 	}
-	
+
 	/**
-	 * 
+	 *
 	 * @param dsAndDs
 	 * @return
 	 */
@@ -192,4 +349,120 @@ class CacheMapManager
 			return null;
 		}
 	}
+
+	/**
+	 * Release the cache objects removed from the map. It is done out of the
+	 * lock of the map since releasing a disk cache deletes its files.
+	 *
+	 * @param cacheObjects
+	 */
+	private static void release( List cacheObjects )
+	{
+		for ( int i = 0; i < cacheObjects.size( ); i++ )
+		{
+			( (IDataSetCacheObject) cacheObjects.get( i ) ).release( );
+		}
+	}
+
+	/**
+	 * The map from DataSourceAndDataSet to CacheEntry in the least recently
+	 * used order. All the accesses must be synchronized on the map.
+	 */
+	private static class CacheMap extends LinkedHashMap
+	{
+		private static final long serialVersionUID = 1L;
+
+		// the number of the rows of the cached data sets
+		private long rowCount;
+		private DataSetCacheStatistics statistics = new DataSetCacheStatistics( );
+
+		CacheMap( )
+		{
+			super( 16, 0.75f, true );
+		}
+
+		/**
+		 * Add an entry populated by the calling thread.
+		 */
+		void claim( DataSourceAndDataSet dsAndDs, DataSetCacheConfig dscc,
+				Map appContext, List released ) throws DataException
+		{
+			CacheEntry entry = new CacheEntry( dscc.createDataSetCacheObject( ),
+					CacheUtil.getDataSetCacheTimeToLive( appContext ) );
+			entry.startLoad( );
+			put( dsAndDs, entry );
+			evict( appContext, released );
+		}
+
+		/**
+		 * Remove an entry and add its cache object to the released ones.
+		 */
+		void removeEntry( Object key, List released )
+		{
+			CacheEntry entry = (CacheEntry) remove( key );
+			if ( entry != null )
+			{
+				rowCount -= entry.rowCount;
+				released.add( entry.cacheObject );
+			}
+		}
+
+		/**
+		 * Remove the least recently used entries until the cache is in its
+		 * bounds. The entries being populated are not removed.
+		 */
+		void evict( Map appContext, List released )
+		{
+			int maxEntries = CacheUtil.getDataSetCacheMaxEntries( appContext );
+			long maxRows = CacheUtil.getDataSetCacheMaxRows( appContext );
+			long now = System.currentTimeMillis( );
+			Iterator it = entrySet( ).iterator( );
+			while ( it.hasNext( ) )
+			{
+				Map.Entry e = (Map.Entry) it.next( );
+				CacheEntry entry = (CacheEntry) e.getValue( );
+				if ( entry.loader != null )
+					continue;
+				if ( size( ) <= maxEntries
+						&& ( maxRows <= 0 || rowCount <= maxRows )
+						&& !entry.isExpired( now ) )
+					continue;
+				it.remove( );
+				rowCount -= entry.rowCount;
+				released.add( entry.cacheObject );
+				statistics.recordEviction( );
+			}
+		}
+	}
+
+	/**
+	 * A cached data set.
+	 */
+	private static class CacheEntry
+	{
+		private IDataSetCacheObject cacheObject;
+		// the thread populating the data set, null if it is populated
+		private Thread loader;
+		private long loadStartTime;
+		private long loadedTime;
+		private long timeToLive;
+		private int rowCount;
+
+		CacheEntry( IDataSetCacheObject cacheObject, long timeToLive )
+		{
+			this.cacheObject = cacheObject;
+			this.timeToLive = timeToLive;
+		}
+
+		void startLoad( )
+		{
+			this.loader = Thread.currentThread( );
+			this.loadStartTime = System.currentTimeMillis( );
+		}
+
+		boolean isExpired( long now )
+		{
+			return timeToLive > 0 && now - loadedTime >= timeToLive;
+		}
+	}
 }
@@ -152,7 +152,71 @@ public class DataSetCacheManager
 		return cacheMapManager.doesSaveToCache( DataSourceAndDataSet.newInstance( this.dataSourceDesign,
 				this.dataSetDesign,
 				this.parameterHints ),
-				dscc);
+				dscc,
+				appContext );
+	}
+
+	/**
+	 * Notify that the current data set is saved into the cache, so that the
+	 * other threads waiting for it can load it from the cache.
+	 * 
+	 * @param rowCount
+	 *            the number of the saved rows
+	 * @throws DataException
+	 */
+	public void loadFinished( int rowCount ) throws DataException
+	{
+		loadFinished( this.dataSourceDesign,
+				this.dataSetDesign,
+				this.parameterHints,
+				rowCount );
+	}
+
+	/**
+	 * Notify that the data set is saved into the cache, so that the other
+	 * threads waiting for it can load it from the cache.
+	 * 
+	 * @param dataSourceDesign
+	 * @param dataSetDesign
+	 * @param parameterHints
+	 * @param rowCount
+	 *            the number of the saved rows
+	 * @throws DataException
+	 */
+	public void loadFinished( IBaseDataSourceDesign dataSourceDesign,
+			IBaseDataSetDesign dataSetDesign, Collection parameterHints,
+			int rowCount ) throws DataException
+	{
+		switchCacheMap( dataSetDesign );
+		cacheMapManager.loadFinished( DataSourceAndDataSet.newInstance( dataSourceDesign,
+				dataSetDesign,
+				parameterHints ),
+				rowCount,
+				appContext );
+	}
+
+	/**
+	 * Give up saving the data set into the cache after doesSaveToCache
+	 * returned true, so that the other threads waiting for it don't wait any
+	 * more. Nothing is done if the data set has been saved.
+	 * 
+	 * @param dataSourceDesign
+	 * @param dataSetDesign
+	 * @param parameterHints
+	 * @throws DataException
+	 */
+	public void abortLoad( IBaseDataSourceDesign dataSourceDesign,
+			IBaseDataSetDesign dataSetDesign, Collection parameterHints )
+			throws DataException
+	{
+		if ( dataSetDesign == null )
+		{
+			return;
+		}
+		switchCacheMap( dataSetDesign );
+		cacheMapManager.abortLoad( DataSourceAndDataSet.newInstance( dataSourceDesign,
+				dataSetDesign,
+				parameterHints ) );
 	}
 
 	/**
@@ -190,7 +254,8 @@ public class DataSetCacheManager
 		return cacheMapManager.doesLoadFromCache( DataSourceAndDataSet.newInstance( this.dataSourceDesign,
 				dataSetDesign,
 				parameterHints ),
-				dscc.getCacheCapability( ));
+				dscc,
+				appContext );
 	}
 
 	/**
@@ -303,7 +368,8 @@ public class DataSetCacheManager
 		return cacheMapManager.doesLoadFromCache( DataSourceAndDataSet.newInstance( this.dataSourceDesign,
 				this.dataSetDesign,
 				this.parameterHints ),
-				dscc.getCacheCapability( ));
+				dscc,
+				appContext );
 	}
 
 	/**
@@ -320,6 +386,17 @@ public class DataSetCacheManager
 		}
 	}
 
+	/**
+	 * Return the counters of the data set cache shared by the data engines of
+	 * the JVM.
+	 * 
+	 * @return
+	 */
+	public static DataSetCacheStatistics getJVMLevelCacheStatistics( )
+	{
+		return CacheMapManager.getJVMLevelStatistics( );
+	}
+
 	/**
 	 * Return the cached result metadata. Please note that parameter hint will
 	 * not change the returned metadata.
@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.executor;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The counters of a data set cache map. A hit is a request which is served
+ * from the cache, a miss is a request which has to query the data set, and an
+ * eviction is a cached data set which is removed to bound the cache or
+ * because its time to live is over.
+ */
+public class DataSetCacheStatistics
+{
+	private AtomicLong hitCount = new AtomicLong( );
+	private AtomicLong missCount = new AtomicLong( );
+	private AtomicLong evictionCount = new AtomicLong( );
+	private AtomicLong loadCount = new AtomicLong( );
+	private AtomicLong totalLoadTime = new AtomicLong( );
+
+	/**
+	 * @return the number of the requests served from the cache
+	 */
+	public long getHitCount( )
+	{
+		return hitCount.get( );
+	}
+
+	/**
+	 * @return the number of the requests which query the data set
+	 */
+	public long getMissCount( )
+	{
+		return missCount.get( );
+	}
+
+	/**
+	 * @return the number of the cached data sets removed by the bounds or the
+	 *         time to live of the cache
+	 */
+	public long getEvictionCount( )
+	{
+		return evictionCount.get( );
+	}
+
+	/**
+	 * @return the number of the data sets saved into the cache
+	 */
+	public long getLoadCount( )
+	{
+		return loadCount.get( );
+	}
+
+	/**
+	 * @return the milliseconds spent in querying and saving the cached data
+	 *         sets
+	 */
+	public long getTotalLoadTime( )
+	{
+		return totalLoadTime.get( );
+	}
+
+	void recordHit( )
+	{
+		hitCount.incrementAndGet( );
+	}
+
+	void recordMiss( )
+	{
+		missCount.incrementAndGet( );
+	}
+
+	void recordEviction( )
+	{
+		evictionCount.incrementAndGet( );
+	}
+
+	void recordLoad( long loadTime )
+	{
+		loadCount.incrementAndGet( );
+		totalLoadTime.addAndGet( loadTime );
+	}
+
+	/**
+	 * Reset the counters.
+	 */
+	void reset( )
+	{
+		hitCount.set( 0 );
+		missCount.set( 0 );
+		evictionCount.set( 0 );
+		loadCount.set( 0 );
+		totalLoadTime.set( 0 );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString( )
+	{
+		return "hits=" + getHitCount( ) + ", misses=" + getMissCount( ) //$NON-NLS-1$ //$NON-NLS-2$
+				+ ", evictions=" + getEvictionCount( ) + ", loads=" //$NON-NLS-1$ //$NON-NLS-2$
+				+ getLoadCount( ) + ", loadTime=" + getTotalLoadTime( ); //$NON-NLS-1$
+	}
+}
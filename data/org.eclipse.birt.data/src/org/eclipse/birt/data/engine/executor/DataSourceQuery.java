@@ -25,11 +25,14 @@ import java.util.Map.Entry;
 import org.eclipse.birt.core.data.DataType;
 import org.eclipse.birt.core.data.DataTypeUtil;
 import org.eclipse.birt.data.engine.api.DataEngineContext;
+import org.eclipse.birt.data.engine.api.IBaseDataSetDesign;
+import org.eclipse.birt.data.engine.api.IBaseDataSourceDesign;
 import org.eclipse.birt.data.engine.api.IColumnDefinition;
 import org.eclipse.birt.data.engine.api.IOdaDataSetDesign;
 import org.eclipse.birt.data.engine.api.IQueryDefinition;
 import org.eclipse.birt.data.engine.core.DataException;
 import org.eclipse.birt.data.engine.executor.QueryExecutionStrategyUtil.Strategy;
+import org.eclipse.birt.data.engine.executor.cache.CacheUtil;
 import org.eclipse.birt.data.engine.executor.dscache.DataSetToCache;
 import org.eclipse.birt.data.engine.executor.transform.CachedResultSet;
 import org.eclipse.birt.data.engine.executor.transform.ResultSetWrapper;
@@ -871,7 +874,33 @@ public class DataSourceQuery extends BaseQuery implements IDataSourceQuery, IPre
 	/*
 	 * @see org.eclipse.birt.data.engine.odi.IPreparedDSQuery#execute()
 	 */
-    public IResultIterator execute( IEventHandler eventHandler )
+	public IResultIterator execute( IEventHandler eventHandler )
+			throws DataException
+	{
+		DataSetCacheManager cacheManager = session.getDataSetCacheManager( );
+		IBaseDataSourceDesign dataSourceDesign = cacheManager.getCurrentDataSourceDesign( );
+		IBaseDataSetDesign dataSetDesign = cacheManager.getCurrentDataSetDesign( );
+		Collection parameterHints = cacheManager.getCurrentParameterHints( );
+		try
+		{
+			return doExecute( eventHandler );
+		}
+		finally
+		{
+			// the data set claimed by doesSaveToCache is saved when the result
+			// set is created, it is given up if the execution fails before
+			cacheManager.abortLoad( dataSourceDesign,
+					dataSetDesign,
+					parameterHints );
+		}
+	}
+
+	/**
+	 * @param eventHandler
+	 * @return
+	 * @throws DataException
+	 */
+	private IResultIterator doExecute( IEventHandler eventHandler )
 			throws DataException
 	{
     	assert odaStatement != null;
@@ -974,6 +1003,10 @@ public class DataSourceQuery extends BaseQuery implements IDataSourceQuery, IPre
 		{
 			rs = odaStatement.getResultSet( );
 		}
+		if ( rs != null && eventHandler != null )
+		{
+			rs.setFetchBatchSize( CacheUtil.getOdaFetchBatchSize( eventHandler.getAppContext( ) ) );
+		}
 		
 		List modelResultHints = design.getResultSetHints( );
 		// If we did not get a result set metadata at prepare() time, get it now
@@ -27,6 +27,7 @@ import org.eclipse.birt.data.engine.api.aggregation.IAggrFunction;
 import org.eclipse.birt.data.engine.api.aggregation.IParameterDefn;
 import org.eclipse.birt.data.engine.cache.BasicCachedList;
 import org.eclipse.birt.data.engine.core.DataException;
+import org.eclipse.birt.data.engine.executor.cache.CacheUtil;
 import org.eclipse.birt.data.engine.executor.transform.ResultSetPopulator;
 import org.eclipse.birt.data.engine.expression.ExprEvaluateUtil;
 import org.eclipse.birt.data.engine.i18n.ResourceConstants;
@@ -131,6 +132,9 @@ public class AggregationHelper implements IAggrValueHolder
 			accumulatorManagers[i] = new AccumulatorManager( this.getAggrInfo( i ).getAggregation( ) );
 		}
 
+		if ( calculateInParallel( ) )
+			return;
+
 		while ( validAggregations.size( ) > 0 )
 		{
 			int[] validAggregationArray = new int[validAggregations.size( )];
@@ -155,6 +159,96 @@ public class AggregationHelper implements IAggrValueHolder
 		}
 	}
 	
+	/**
+	 * Calculates the aggregations on a worker pool if they are all single
+	 * pass summary aggregations whose arguments and filters are evaluated in
+	 * Java, and the result set is large enough.
+	 * 
+	 * @return true if the aggregations are calculated, false if they must be
+	 *         calculated by the sequential passes
+	 * @throws DataException
+	 */
+	private boolean calculateInParallel( ) throws DataException
+	{
+		if ( this.currentAggrCount == 0
+				|| this.populator.getEventHandler( ) == null )
+			return false;
+		int threadCount = CacheUtil.getAggregationThreadCount( this.populator.getEventHandler( )
+				.getAppContext( ) );
+		if ( threadCount < 2
+				|| this.populator.getCache( ).getCount( ) < ParallelAggregationPass.BLOCK_SIZE
+				|| this.getCurrentResult( ) == null )
+			return false;
+
+		IAggrInfo[] aggrInfos = new IAggrInfo[this.currentAggrCount];
+		for ( int i = 0; i < this.currentAggrCount; i++ )
+		{
+			aggrInfos[i] = this.getAggrInfo( i );
+			if ( !isCalculatedInParallel( aggrInfos[i] ) )
+				return false;
+		}
+
+		ParallelAggregationPass pass = new ParallelAggregationPass( aggrInfos,
+				threadCount );
+		boolean calculated = pass.calculate( this.populator,
+				this.currentRoundAggrValue );
+		if ( !calculated )
+		{
+			// the sequential pass reports the errors as usual
+			for ( int i = 0; i < this.currentAggrCount; i++ )
+				this.currentRoundAggrValue[i].clear( );
+		}
+		this.first( 0 );
+		return calculated;
+	}
+
+	/**
+	 * @param aggrInfo
+	 * @return whether the aggregation only has a value per group and its
+	 *         arguments are valid and evaluated in Java
+	 */
+	private boolean isCalculatedInParallel( IAggrInfo aggrInfo )
+	{
+		IAggrFunction aggrFunc = aggrInfo.getAggregation( );
+		if ( aggrFunc.getType( ) != IAggrFunction.SUMMARY_AGGR
+				|| aggrFunc.getNumberOfPasses( ) > 1
+				|| !ParallelAggregationPass.isSupported( aggrInfo.getFilter( ) ) )
+			return false;
+
+		IBaseExpression[] arguments = aggrInfo.getArgument( );
+		IParameterDefn[] argDefs = aggrFunc.getParameterDefn( );
+		if ( arguments == null )
+			return false;
+		int optionalAgrsNum = 0;
+		for ( int i = 0; i < argDefs.length; i++ )
+		{
+			if ( argDefs[i].isOptional( ) )
+				optionalAgrsNum++;
+		}
+		if ( !isValidArgumentNumber( arguments.length,
+				argDefs.length,
+				optionalAgrsNum ) )
+			return false;
+		for ( int i = 0; i < arguments.length; i++ )
+		{
+			if ( arguments[i] != null
+					&& !( arguments[i] instanceof IScriptExpression ) )
+				return false;
+		}
+		if ( argDefs.length == 0 || isEmptyAggrArgument( aggrInfo ) )
+			return true;
+		for ( int i = 0; i < argDefs.length && i < arguments.length; i++ )
+		{
+			if ( !ParallelAggregationPass.isSupported( arguments[i] ) )
+				return false;
+			if ( !argDefs[i].isOptional( )
+					&& !isFunctionCount( aggrInfo )
+					&& isEmptyScriptExpression( arguments[i] ) )
+				return false;
+		}
+		return true;
+	}
+
 	/**
 	 * Make a pass to all aggregations. Iterator over entire result set. At each row, call
 	 * each aggregate aggregationtion.
@@ -0,0 +1,356 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.executor.aggregation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.eclipse.birt.core.data.DataTypeUtil;
+import org.eclipse.birt.core.exception.BirtException;
+import org.eclipse.birt.data.engine.api.CloseListenerManager;
+import org.eclipse.birt.data.engine.api.DataEngineThreadLocal;
+import org.eclipse.birt.data.engine.api.IBaseExpression;
+import org.eclipse.birt.data.engine.api.IScriptExpression;
+import org.eclipse.birt.data.engine.api.aggregation.Accumulator;
+import org.eclipse.birt.data.engine.core.DataException;
+import org.eclipse.birt.data.engine.core.security.TempPathManager;
+import org.eclipse.birt.data.engine.executor.transform.ResultSetPopulator;
+import org.eclipse.birt.data.engine.expression.ExprEvaluateUtil;
+import org.eclipse.birt.data.engine.i18n.ResourceConstants;
+import org.eclipse.birt.data.engine.odi.IAggrInfo;
+import org.eclipse.birt.data.engine.odi.IResultObject;
+
+/**
+ * Calculates the summary aggregations of a result set on a worker pool. The
+ * calling thread reads the rows in blocks. For each aggregation, the rows of a
+ * block are split into slices which only end where a group of the aggregation
+ * ends, and the slices are accumulated in parallel. A group is thus always
+ * accumulated by a single accumulator in the order of its rows, and the values
+ * are the same as the ones of a sequential pass, without merging partial
+ * states. A group which is not finished at the end of a block is continued by
+ * the first slice of the next block.
+ *
+ * Since the script context is bound to the calling thread, the arguments and
+ * the filters of the aggregations must be evaluated in Java.
+ */
+final class ParallelAggregationPass
+{
+
+	/**
+	 * The number of the rows read before they are accumulated, also the
+	 * minimum number of the rows for which the pass is worth it.
+	 */
+	static final int BLOCK_SIZE = 16384;
+
+	private IAggrInfo[] aggrInfos;
+	private int threadCount;
+
+	// the not blank arguments of each aggregation
+	private IBaseExpression[][] arguments;
+
+	// the accumulators of the slices of each aggregation, the first one may
+	// hold a group not finished in the previous block
+	private List<Accumulator>[] accumulators;
+
+	// the current block
+	private IResultObject[] rows;
+	private int[] indexes;
+	private int[] startingGroupLevels;
+	private int[] endingGroupLevels;
+	private int rowCount;
+
+	/**
+	 * @param aggrInfos
+	 *            the single pass summary aggregations whose arguments and
+	 *            filters are accepted by isSupported
+	 * @param threadCount
+	 */
+	@SuppressWarnings("unchecked")
+	ParallelAggregationPass( IAggrInfo[] aggrInfos, int threadCount )
+	{
+		this.aggrInfos = aggrInfos;
+		this.threadCount = threadCount;
+		this.arguments = new IBaseExpression[aggrInfos.length][];
+		this.accumulators = new List[aggrInfos.length];
+		for ( int i = 0; i < aggrInfos.length; i++ )
+		{
+			IBaseExpression[] args = aggrInfos[i].getArgument( );
+			arguments[i] = new IBaseExpression[aggrInfos[i].getAggregation( )
+					.getParameterDefn( ).length];
+			for ( int j = 0; j < arguments[i].length && j < args.length; j++ )
+			{
+				if ( !isBlank( args[j] ) )
+					arguments[i][j] = args[j];
+			}
+			accumulators[i] = new ArrayList<Accumulator>( );
+		}
+		this.rows = new IResultObject[BLOCK_SIZE];
+		this.indexes = new int[BLOCK_SIZE];
+		this.startingGroupLevels = new int[BLOCK_SIZE];
+		this.endingGroupLevels = new int[BLOCK_SIZE];
+	}
+
+	/**
+	 * @param expr
+	 * @return whether the expression is blank or evaluated in Java
+	 */
+	static boolean isSupported( IBaseExpression expr )
+	{
+		return isBlank( expr ) || ExprEvaluateUtil.isEvaluatedInJava( expr );
+	}
+
+	private static boolean isBlank( IBaseExpression expr )
+	{
+		if ( expr == null )
+			return true;
+		if ( !( expr instanceof IScriptExpression ) )
+			return false;
+		String text = ( (IScriptExpression) expr ).getText( );
+		return text == null || text.trim( ).length( ) == 0;
+	}
+
+	/**
+	 * Makes one pass over the rows of the populator, from the current row,
+	 * and adds the values of the groups of each aggregation to its list.
+	 *
+	 * @param populator
+	 * @param values
+	 * @return false if an aggregation failed, a value could not be evaluated
+	 *         in Java for example. The lists are then incomplete and the
+	 *         aggregations must be calculated sequentially.
+	 * @throws DataException
+	 */
+	boolean calculate( ResultSetPopulator populator, List[] values )
+			throws DataException
+	{
+		final TempPathManager pathManager = DataEngineThreadLocal.getInstance( )
+				.getPathManager( );
+		final CloseListenerManager closeListener = DataEngineThreadLocal.getInstance( )
+				.getCloseListener( );
+		ExecutorService executor = Executors.newFixedThreadPool( threadCount,
+				new ThreadFactory( ) {
+
+					public Thread newThread( Runnable r )
+					{
+						Thread thread = new Thread( r, "BIRT aggregation" );
+						thread.setDaemon( true );
+						return thread;
+					}
+				} );
+		try
+		{
+			boolean hasNext = true;
+			while ( hasNext )
+			{
+				rowCount = 0;
+				do
+				{
+					rows[rowCount] = populator.getCache( ).getCurrentResult( );
+					indexes[rowCount] = populator.getCache( ).getCurrentIndex( );
+					startingGroupLevels[rowCount] = populator.getResultIterator( )
+							.getStartingGroupLevel( );
+					endingGroupLevels[rowCount] = populator.getResultIterator( )
+							.getEndingGroupLevel( );
+					rowCount++;
+					hasNext = populator.getResultIterator( ).next( );
+				} while ( hasNext && rowCount < BLOCK_SIZE );
+
+				if ( !accumulateBlock( executor,
+						pathManager,
+						closeListener,
+						values ) )
+					return false;
+			}
+			return true;
+		}
+		finally
+		{
+			executor.shutdownNow( );
+			for ( int i = 0; i < rowCount; i++ )
+				rows[i] = null;
+		}
+	}
+
+	/**
+	 * Accumulates the slices of the current block in parallel, then adds the
+	 * values of the groups finished in the block.
+	 */
+	private boolean accumulateBlock( ExecutorService executor,
+			final TempPathManager pathManager,
+			final CloseListenerManager closeListener, List[] values )
+			throws DataException
+	{
+		List<List<Future<List<Object>>>> futures = new ArrayList<List<Future<List<Object>>>>( );
+		for ( int i = 0; i < aggrInfos.length; i++ )
+		{
+			final int aggrIndex = i;
+			int groupLevel = aggrInfos[i].getGroupLevel( );
+			int target = ( rowCount + threadCount - 1 ) / threadCount;
+			List<Future<List<Object>>> slices = new ArrayList<Future<List<Object>>>( );
+			int start = 0;
+			for ( int row = 0; row < rowCount; row++ )
+			{
+				if ( row == rowCount - 1
+						|| ( row + 1 - start >= target && endingGroupLevels[row] <= groupLevel ) )
+				{
+					final Accumulator acc = getAccumulator( i, slices.size( ) );
+					final int from = start;
+					final int to = row + 1;
+					slices.add( executor.submit( new Callable<List<Object>>( ) {
+
+						public List<Object> call( ) throws Exception
+						{
+							DataEngineThreadLocal.getInstance( )
+									.attach( pathManager, closeListener );
+							try
+							{
+								return accumulate( aggrIndex, acc, from, to );
+							}
+							finally
+							{
+								DataEngineThreadLocal.getInstance( ).detach( );
+							}
+						}
+					} ) );
+					start = row + 1;
+				}
+			}
+			futures.add( slices );
+		}
+
+		boolean succeeded = true;
+		for ( int i = 0; i < futures.size( ); i++ )
+		{
+			List<Future<List<Object>>> slices = futures.get( i );
+			for ( int j = 0; j < slices.size( ); j++ )
+			{
+				List<Object> groupValues = waitForSlice( slices.get( j ) );
+				if ( groupValues == null )
+					succeeded = false;
+				else if ( succeeded )
+					values[i].addAll( groupValues );
+			}
+			// the group not finished in this block continues in the first
+			// slice of the next block
+			if ( slices.size( ) > 1 )
+			{
+				Accumulator last = accumulators[i].get( slices.size( ) - 1 );
+				accumulators[i].set( slices.size( ) - 1,
+						accumulators[i].get( 0 ) );
+				accumulators[i].set( 0, last );
+			}
+		}
+		return succeeded;
+	}
+
+	private Accumulator getAccumulator( int aggrIndex, int slice )
+	{
+		List<Accumulator> list = accumulators[aggrIndex];
+		if ( list.size( ) == slice )
+			list.add( aggrInfos[aggrIndex].getAggregation( ).newAccumulator( ) );
+		return list.get( slice );
+	}
+
+	/**
+	 * @return the values of the slice, null if it failed
+	 */
+	private static List<Object> waitForSlice( Future<List<Object>> future )
+			throws DataException
+	{
+		try
+		{
+			return future.get( );
+		}
+		catch ( InterruptedException e )
+		{
+			Thread.currentThread( ).interrupt( );
+			throw new DataException( ResourceConstants.FAIL_CALCULATE_AGGREGATIONS,
+					e );
+		}
+		catch ( ExecutionException e )
+		{
+			// the sequential pass reports the error
+			return null;
+		}
+	}
+
+	/**
+	 * Accumulates the rows of a slice as the sequential pass does.
+	 *
+	 * @return the values of the groups finished in the slice
+	 */
+	private List<Object> accumulate( int aggrIndex, Accumulator acc, int from,
+			int to ) throws BirtException
+	{
+		IAggrInfo aggrInfo = aggrInfos[aggrIndex];
+		int groupLevel = aggrInfo.getGroupLevel( );
+		int calculateLevel = aggrInfo.getCalcualteLevel( );
+		IBaseExpression filter = aggrInfo.getFilter( );
+		IBaseExpression[] args = arguments[aggrIndex];
+		boolean emptyArgs = args.length > 0 && args[0] == null;
+		Object[] argValues = new Object[args.length];
+
+		List<Object> groupValues = new ArrayList<Object>( );
+		for ( int row = from; row < to; row++ )
+		{
+			if ( startingGroupLevels[row] <= groupLevel )
+				acc.start( );
+
+			boolean accepted = true;
+			if ( filter != null )
+			{
+				Object filterResult = ExprEvaluateUtil.evaluateValueInJava( filter,
+						indexes[row],
+						rows[row] );
+				if ( filterResult != null )
+					accepted = DataTypeUtil.toBoolean( filterResult )
+							.booleanValue( );
+			}
+			if ( calculateLevel > 0
+					&& startingGroupLevels[row] > calculateLevel )
+				accepted = false;
+
+			if ( accepted )
+			{
+				if ( emptyArgs )
+				{
+					acc.onRow( null );
+				}
+				else
+				{
+					for ( int i = 0; i < args.length; i++ )
+					{
+						argValues[i] = args[i] == null
+								? null
+								: ExprEvaluateUtil.evaluateValueInJava( args[i],
+										indexes[row],
+										rows[row] );
+					}
+					acc.onRow( argValues );
+				}
+			}
+
+			if ( endingGroupLevels[row] <= groupLevel )
+			{
+				acc.finish( );
+				groupValues.add( acc.getValue( ) );
+			}
+		}
+		return groupValues;
+	}
+}
@@ -38,6 +38,10 @@ public class CacheUtil
 	private static final int MAX_DIR_CREATION_ATTEMPT = 1000;
 	private static final String PATH_SEP = File.separator;
 	private static final String TEST_MEM_BUFFER_SIZE = "birt.data.engine.test.memcachesize";
+	private static final int DEFAULT_HASH_JOIN_MEMORY_ROW_COUNT = 100000;
+	private static final int DEFAULT_ODA_FETCH_BATCH_SIZE = 100;
+	private static final int DEFAULT_DATA_SET_CACHE_MAX_ENTRIES = 1000;
+	private static final long DEFAULT_DATA_SET_CACHE_LOAD_TIMEOUT = 60000;
 	
 	/**
 	 * timestamp.data file will be used in incremental cache, while
@@ -94,6 +98,194 @@ public class CacheUtil
 		}
 	}
 
+	/**
+	 * @param appContext
+	 * @return the number of threads used to sort the rows spilled to disk,
+	 *         which is at least 1.
+	 */
+	public static int getDiskSortThreadCount( Map appContext )
+	{
+		return getThreadCount( appContext, DataEngine.DISK_SORT_THREAD_COUNT );
+	}
+
+	/**
+	 * @param appContext
+	 * @return the number of threads used to aggregate a cube, which is at
+	 *         least 1.
+	 */
+	public static int getCubeAggregationThreadCount( Map appContext )
+	{
+		return getThreadCount( appContext,
+				DataEngine.CUBE_AGGREGATION_THREAD_COUNT );
+	}
+
+	/**
+	 * @param appContext
+	 * @return the number of threads used to calculate the aggregations of a
+	 *         query, which is at least 1.
+	 */
+	public static int getAggregationThreadCount( Map appContext )
+	{
+		return getThreadCount( appContext, DataEngine.AGGREGATION_THREAD_COUNT );
+	}
+
+	private static int getThreadCount( Map appContext, String key )
+	{
+		if ( appContext == null )
+			return 1;
+		Object threadCount = appContext.get( key );
+		if ( threadCount != null )
+		{
+			try
+			{
+				return Math.max( 1, Integer.parseInt( threadCount.toString( ) ) );
+			}
+			catch ( NumberFormatException e )
+			{
+				return 1;
+			}
+		}
+		return 1;
+	}
+
+	/**
+	 * @param appContext
+	 * @return true if the rows cached in memory are stored column by column
+	 */
+	public static boolean isColumnarMemoryCache( Map appContext )
+	{
+		if ( appContext == null )
+			return false;
+		Object columnar = appContext.get( DataEngine.COLUMNAR_MEMORY_CACHE );
+		return columnar != null
+				&& Boolean.valueOf( columnar.toString( ) ).booleanValue( );
+	}
+
+	/**
+	 * @param appContext
+	 * @return false if the joint data sets are always merge joined
+	 */
+	public static boolean isHashJoinEnabled( Map appContext )
+	{
+		if ( appContext == null )
+			return true;
+		Object hashJoin = appContext.get( DataEngine.JOINT_DATA_SET_HASH_JOIN );
+		return hashJoin == null
+				|| !"false".equalsIgnoreCase( hashJoin.toString( ).trim( ) );
+	}
+
+	/**
+	 * @param appContext
+	 * @return the maximum number of the rows of a hash joined data set which
+	 *         are indexed in memory
+	 */
+	public static int getHashJoinMemoryRowCount( Map appContext )
+	{
+		if ( appContext == null )
+			return DEFAULT_HASH_JOIN_MEMORY_ROW_COUNT;
+		Object rowCount = appContext.get( DataEngine.HASH_JOIN_MEMORY_ROW_COUNT );
+		if ( rowCount != null )
+		{
+			try
+			{
+				int value = Integer.parseInt( rowCount.toString( ) );
+				if ( value > 0 )
+					return value;
+			}
+			catch ( NumberFormatException e )
+			{
+				return DEFAULT_HASH_JOIN_MEMORY_ROW_COUNT;
+			}
+		}
+		return DEFAULT_HASH_JOIN_MEMORY_ROW_COUNT;
+	}
+
+	/**
+	 * @param appContext
+	 * @return the number of the rows read at once from an ODA result set,
+	 *         which is at least 1
+	 */
+	public static int getOdaFetchBatchSize( Map appContext )
+	{
+		return (int) Math.min( getPositiveLong( appContext,
+				DataEngine.ODA_FETCH_BATCH_SIZE,
+				DEFAULT_ODA_FETCH_BATCH_SIZE ), Integer.MAX_VALUE );
+	}
+
+	/**
+	 * @param appContext
+	 * @return the maximum number of the data sets in a data set cache
+	 */
+	public static int getDataSetCacheMaxEntries( Map appContext )
+	{
+		return (int) Math.min( getPositiveLong( appContext,
+				DataEngine.DATA_SET_CACHE_MAX_ENTRIES,
+				DEFAULT_DATA_SET_CACHE_MAX_ENTRIES ), Integer.MAX_VALUE );
+	}
+
+	/**
+	 * @param appContext
+	 * @return the maximum number of the rows in a data set cache, 0 if it is
+	 *         not limited
+	 */
+	public static long getDataSetCacheMaxRows( Map appContext )
+	{
+		return getPositiveLong( appContext, DataEngine.DATA_SET_CACHE_MAX_ROWS, 0 );
+	}
+
+	/**
+	 * @param appContext
+	 * @return the milliseconds a cached data set is kept, 0 if it doesn't
+	 *         expire
+	 */
+	public static long getDataSetCacheTimeToLive( Map appContext )
+	{
+		return getPositiveLong( appContext,
+				DataEngine.DATA_SET_CACHE_TIME_TO_LIVE,
+				0 );
+	}
+
+	/**
+	 * @param appContext
+	 * @return the milliseconds a request waits for a data set saved into the
+	 *         cache by another request
+	 */
+	public static long getDataSetCacheLoadTimeout( Map appContext )
+	{
+		return getPositiveLong( appContext,
+				DataEngine.DATA_SET_CACHE_LOAD_TIMEOUT,
+				DEFAULT_DATA_SET_CACHE_LOAD_TIMEOUT );
+	}
+
+	/**
+	 * @param appContext
+	 * @param name
+	 * @param defaultValue
+	 * @return the positive value of the property, the default value if the
+	 *         property is not a positive integer
+	 */
+	private static long getPositiveLong( Map appContext, String name,
+			long defaultValue )
+	{
+		if ( appContext == null )
+			return defaultValue;
+		Object value = appContext.get( name );
+		if ( value != null )
+		{
+			try
+			{
+				long result = Long.parseLong( value.toString( ).trim( ) );
+				if ( result > 0 )
+					return result;
+			}
+			catch ( NumberFormatException e )
+			{
+				return defaultValue;
+			}
+		}
+		return defaultValue;
+	}
+
 	/**
 	 * 
 	 * @param propValue
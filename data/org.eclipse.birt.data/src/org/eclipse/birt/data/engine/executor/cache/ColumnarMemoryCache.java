@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.executor.cache;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import org.eclipse.birt.data.engine.core.DataException;
+import org.eclipse.birt.data.engine.executor.cache.ColumnarResultSetStore.ColumnarResultObject;
+import org.eclipse.birt.data.engine.odi.IResultClass;
+import org.eclipse.birt.data.engine.odi.IResultObject;
+
+/**
+ * Memory implementation of ResultSetCache which keeps the rows in a
+ * ColumnarResultSetStore. The sort order is kept as an array of row indexes,
+ * the result objects are created when they are visited. The sort keys of a
+ * SortKeyComparator are evaluated once per row, so that the values of the
+ * columns are not boxed again for every comparison.
+ */
+public class ColumnarMemoryCache extends MemoryCache
+{
+
+	private ColumnarResultSetStore store;
+	/**
+	 * the row index in the store of each result, null if the rows are not
+	 * sorted.
+	 */
+	private int[] rowIndexes;
+
+	/**
+	 * @param store
+	 * @param rsMeta
+	 * @param comparator
+	 * @throws DataException
+	 */
+	public ColumnarMemoryCache( ColumnarResultSetStore store,
+			IResultClass rsMeta, Comparator comparator ) throws DataException
+	{
+		super( store.getRowCount( ), rsMeta );
+		this.store = store;
+
+		if ( comparator instanceof SortKeyComparator )
+		{
+			sortByKeys( (SortKeyComparator) comparator );
+		}
+		else if ( comparator != null )
+		{
+			IResultObject[] rows = store.toResultObjects( );
+			Arrays.sort( rows, comparator );
+			rowIndexes = new int[rows.length];
+			for ( int i = 0; i < rows.length; i++ )
+			{
+				rowIndexes[i] = ( (ColumnarResultObject) rows[i] ).getRowIndex( );
+			}
+		}
+	}
+
+	/**
+	 * Sort the rows by their evaluated sort keys. The sort is stable, so the
+	 * result is the same as sorting the rows with the comparator.
+	 * 
+	 * @param comparator
+	 * @throws DataException
+	 */
+	private void sortByKeys( final SortKeyComparator comparator )
+			throws DataException
+	{
+		int rowCount = store.getRowCount( );
+		RowKeys[] rows = new RowKeys[rowCount];
+		for ( int i = 0; i < rowCount; i++ )
+		{
+			rows[i] = new RowKeys( i,
+					comparator.getSortKeys( store.getResultObject( i ) ) );
+		}
+		Arrays.sort( rows, new Comparator( ) {
+
+			public int compare( Object o1, Object o2 )
+			{
+				return comparator.compareSortKeys( ( (RowKeys) o1 ).keys,
+						( (RowKeys) o2 ).keys );
+			}
+		} );
+		rowIndexes = new int[rowCount];
+		for ( int i = 0; i < rowCount; i++ )
+		{
+			rowIndexes[i] = rows[i].rowIndex;
+		}
+	}
+
+	/*
+	 * @see org.eclipse.birt.data.engine.executor.cache.MemoryCache#getResultObject(int)
+	 */
+	protected IResultObject getResultObject( int index )
+	{
+		if ( rowIndexes != null )
+		{
+			index = rowIndexes[index];
+		}
+		return store.getResultObject( index );
+	}
+
+	/*
+	 * @see org.eclipse.birt.data.engine.executor.cache.MemoryCache#close()
+	 */
+	public void close( )
+	{
+		super.close( );
+		store = null;
+		rowIndexes = null;
+	}
+
+	/**
+	 * A row index with the evaluated sort keys of the row.
+	 */
+	private static class RowKeys
+	{
+
+		int rowIndex;
+		Object[] keys;
+
+		RowKeys( int rowIndex, Object[] keys )
+		{
+			this.rowIndex = rowIndex;
+			this.keys = keys;
+		}
+	}
+}
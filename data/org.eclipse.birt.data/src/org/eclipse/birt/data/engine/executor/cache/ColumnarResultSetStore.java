@@ -0,0 +1,619 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.executor.cache;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.birt.core.data.DataType;
+import org.eclipse.birt.data.engine.core.DataException;
+import org.eclipse.birt.data.engine.i18n.ResourceConstants;
+import org.eclipse.birt.data.engine.odi.IResultClass;
+import org.eclipse.birt.data.engine.odi.IResultObject;
+
+/**
+ * Store the rows of a result set column by column. Integer, double and boolean
+ * values are kept in primitive arrays, string values are dictionary encoded,
+ * and values of other types are kept in object arrays. A column falls back to
+ * an object array if it meets a value which doesn't match the type declared in
+ * the result class.
+ *
+ * The rows are accessed as IResultObject through light weight views which are
+ * created on demand. The sort and the export to disk read the primitive
+ * columns through the primitive accessors, so that their values are not
+ * boxed.
+ */
+public class ColumnarResultSetStore
+{
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	private IResultClass rsMeta;
+	private Column[] columns;
+	private int rowCount;
+	private int capacity;
+
+	/**
+	 * @param rsMeta
+	 * @throws DataException
+	 */
+	public ColumnarResultSetStore( IResultClass rsMeta ) throws DataException
+	{
+		this.rsMeta = rsMeta;
+		this.capacity = INITIAL_CAPACITY;
+		this.columns = new Column[rsMeta.getFieldCount( )];
+		for ( int i = 0; i < columns.length; i++ )
+		{
+			columns[i] = createColumn( rsMeta.getFieldValueClass( i + 1 ),
+					capacity );
+		}
+	}
+
+	private static Column createColumn( Class valueClass, int capacity )
+	{
+		if ( Integer.class.equals( valueClass ) )
+			return new IntColumn( capacity );
+		if ( Double.class.equals( valueClass ) )
+			return new DoubleColumn( capacity );
+		if ( Boolean.class.equals( valueClass ) )
+			return new BooleanColumn( capacity );
+		if ( String.class.equals( valueClass ) )
+			return new StringColumn( capacity );
+		return new ObjectColumn( capacity );
+	}
+
+	/**
+	 * Append a row, the fields which are not provided by the row are null.
+	 *
+	 * @param row
+	 * @param fieldCount
+	 *            the number of fields to be copied from the row
+	 * @throws DataException
+	 */
+	public void add( IResultObject row, int fieldCount ) throws DataException
+	{
+		if ( rowCount == capacity )
+		{
+			capacity = capacity * 2;
+			for ( int i = 0; i < columns.length; i++ )
+			{
+				columns[i].ensureCapacity( capacity );
+			}
+		}
+		for ( int i = 0; i < fieldCount && i < columns.length; i++ )
+		{
+			setColumnValue( i, rowCount, row.getFieldValue( i + 1 ) );
+		}
+		rowCount++;
+	}
+
+	private void setColumnValue( int column, int row, Object value )
+	{
+		if ( !columns[column].set( row, value ) )
+		{
+			ObjectColumn objectColumn = new ObjectColumn( capacity );
+			int count = Math.max( row, rowCount );
+			for ( int i = 0; i < count; i++ )
+			{
+				objectColumn.set( i, columns[column].get( i ) );
+			}
+			objectColumn.set( row, value );
+			columns[column] = objectColumn;
+		}
+	}
+
+	/**
+	 * @param row
+	 *            0-based row index
+	 * @param fieldIndex
+	 *            1-based field index
+	 * @return the field value
+	 */
+	public Object getValue( int row, int fieldIndex )
+	{
+		return columns[fieldIndex - 1].get( row );
+	}
+
+	/**
+	 * @param row
+	 *            0-based row index
+	 * @param fieldIndex
+	 *            1-based field index
+	 * @param value
+	 */
+	public void setValue( int row, int fieldIndex, Object value )
+	{
+		setColumnValue( fieldIndex - 1, row, value );
+	}
+
+	/**
+	 * @param fieldIndex
+	 *            1-based field index
+	 * @return the class of the values of the field if they are kept in a
+	 *         primitive array, otherwise null
+	 */
+	Class getPrimitiveClass( int fieldIndex )
+	{
+		if ( fieldIndex < 1 || fieldIndex > columns.length )
+			return null;
+		Column column = columns[fieldIndex - 1];
+		if ( column instanceof IntColumn )
+			return Integer.class;
+		if ( column instanceof DoubleColumn )
+			return Double.class;
+		if ( column instanceof BooleanColumn )
+			return Boolean.class;
+		return null;
+	}
+
+	/**
+	 * @param row
+	 *            0-based row index
+	 * @param fieldIndex
+	 *            1-based field index
+	 * @return whether the value is null
+	 */
+	boolean isNull( int row, int fieldIndex )
+	{
+		return columns[fieldIndex - 1].isNull( row );
+	}
+
+	/**
+	 * @param row
+	 *            0-based row index
+	 * @param fieldIndex
+	 *            1-based field index of an Integer primitive column
+	 * @return the value, 0 if it is null
+	 */
+	int getInt( int row, int fieldIndex )
+	{
+		return ( (IntColumn) columns[fieldIndex - 1] ).values[row];
+	}
+
+	/**
+	 * @param row
+	 *            0-based row index
+	 * @param fieldIndex
+	 *            1-based field index of a Double primitive column
+	 * @return the value, 0 if it is null
+	 */
+	double getDouble( int row, int fieldIndex )
+	{
+		return ( (DoubleColumn) columns[fieldIndex - 1] ).values[row];
+	}
+
+	/**
+	 * @param row
+	 *            0-based row index
+	 * @param fieldIndex
+	 *            1-based field index of a Boolean primitive column
+	 * @return the value, false if it is null
+	 */
+	boolean getBoolean( int row, int fieldIndex )
+	{
+		return ( (BooleanColumn) columns[fieldIndex - 1] ).values[row] == BooleanColumn.TRUE;
+	}
+
+	public IResultClass getResultClass( )
+	{
+		return rsMeta;
+	}
+
+	public int getRowCount( )
+	{
+		return rowCount;
+	}
+
+	/**
+	 * @return the estimated size of memory occupied by the stored rows
+	 */
+	public long getMemorySize( )
+	{
+		long size = 0;
+		for ( int i = 0; i < columns.length; i++ )
+		{
+			size += columns[i].getMemorySize( );
+		}
+		return size;
+	}
+
+	/**
+	 * @param row
+	 *            0-based row index
+	 * @return a view of the row
+	 */
+	public IResultObject getResultObject( int row )
+	{
+		return new ColumnarResultObject( this, row );
+	}
+
+	/**
+	 * @return the views of all the stored rows
+	 */
+	public IResultObject[] toResultObjects( )
+	{
+		IResultObject[] rows = new IResultObject[rowCount];
+		for ( int i = 0; i < rowCount; i++ )
+		{
+			rows[i] = new ColumnarResultObject( this, i );
+		}
+		return rows;
+	}
+
+	/**
+	 * A row of the store.
+	 */
+	static class ColumnarResultObject implements IResultObject
+	{
+
+		private ColumnarResultSetStore store;
+		private int row;
+
+		ColumnarResultObject( ColumnarResultSetStore store, int row )
+		{
+			this.store = store;
+			this.row = row;
+		}
+
+		int getRowIndex( )
+		{
+			return row;
+		}
+
+		ColumnarResultSetStore getStore( )
+		{
+			return store;
+		}
+
+		/*
+		 * @see org.eclipse.birt.data.engine.odi.IResultObject#getResultClass()
+		 */
+		public IResultClass getResultClass( )
+		{
+			return store.rsMeta;
+		}
+
+		/*
+		 * @see org.eclipse.birt.data.engine.odi.IResultObject#getFieldValue(java.lang.String)
+		 */
+		public Object getFieldValue( String fieldName ) throws DataException
+		{
+			int fieldIndex = store.rsMeta.getFieldIndex( fieldName );
+			if ( fieldIndex < 1 )
+				throw new DataException( ResourceConstants.INVALID_FIELD_NAME,
+						fieldName );
+			return getFieldValue( fieldIndex );
+		}
+
+		/*
+		 * @see org.eclipse.birt.data.engine.odi.IResultObject#getFieldValue(int)
+		 */
+		public Object getFieldValue( int fieldIndex ) throws DataException
+		{
+			return store.getValue( row, fieldIndex );
+		}
+
+		/*
+		 * @see org.eclipse.birt.data.engine.odi.IResultObject#setCustomFieldValue(java.lang.String, java.lang.Object)
+		 */
+		public void setCustomFieldValue( String fieldName, Object value )
+				throws DataException
+		{
+			int idx = store.rsMeta.getFieldIndex( fieldName );
+			setCustomFieldValue( idx, value );
+		}
+
+		/*
+		 * @see org.eclipse.birt.data.engine.odi.IResultObject#setCustomFieldValue(int, java.lang.Object)
+		 */
+		public void setCustomFieldValue( int fieldIndex, Object value )
+				throws DataException
+		{
+			if ( store.rsMeta.isCustomField( fieldIndex ) )
+				store.setValue( row, fieldIndex, value );
+			else
+				throw new DataException( ResourceConstants.INVALID_CUSTOM_FIELD_INDEX,
+						Integer.valueOf( fieldIndex ) );
+		}
+	}
+
+	/**
+	 * The values of a field.
+	 */
+	static abstract class Column
+	{
+
+		abstract Object get( int row );
+
+		abstract boolean isNull( int row );
+
+		/**
+		 * @return false if the value can't be saved in this column
+		 */
+		abstract boolean set( int row, Object value );
+
+		abstract void ensureCapacity( int capacity );
+
+		abstract long getMemorySize( );
+	}
+
+	static class IntColumn extends Column
+	{
+
+		private int[] values;
+		private BitSet nulls = new BitSet( );
+
+		IntColumn( int capacity )
+		{
+			values = new int[capacity];
+		}
+
+		boolean isNull( int row )
+		{
+			return nulls.get( row );
+		}
+
+		Object get( int row )
+		{
+			if ( nulls.get( row ) )
+				return null;
+			return Integer.valueOf( values[row] );
+		}
+
+		boolean set( int row, Object value )
+		{
+			if ( value == null )
+			{
+				nulls.set( row );
+				return true;
+			}
+			if ( value.getClass( ) != Integer.class )
+				return false;
+			values[row] = ( (Integer) value ).intValue( );
+			nulls.clear( row );
+			return true;
+		}
+
+		void ensureCapacity( int capacity )
+		{
+			int[] newValues = new int[capacity];
+			System.arraycopy( values, 0, newValues, 0, values.length );
+			values = newValues;
+		}
+
+		long getMemorySize( )
+		{
+			return values.length * 4L + nulls.size( ) / 8;
+		}
+	}
+
+	static class DoubleColumn extends Column
+	{
+
+		private double[] values;
+		private BitSet nulls = new BitSet( );
+
+		DoubleColumn( int capacity )
+		{
+			values = new double[capacity];
+		}
+
+		boolean isNull( int row )
+		{
+			return nulls.get( row );
+		}
+
+		Object get( int row )
+		{
+			if ( nulls.get( row ) )
+				return null;
+			return new Double( values[row] );
+		}
+
+		boolean set( int row, Object value )
+		{
+			if ( value == null )
+			{
+				nulls.set( row );
+				return true;
+			}
+			if ( value.getClass( ) != Double.class )
+				return false;
+			values[row] = ( (Double) value ).doubleValue( );
+			nulls.clear( row );
+			return true;
+		}
+
+		void ensureCapacity( int capacity )
+		{
+			double[] newValues = new double[capacity];
+			System.arraycopy( values, 0, newValues, 0, values.length );
+			values = newValues;
+		}
+
+		long getMemorySize( )
+		{
+			return values.length * 8L + nulls.size( ) / 8;
+		}
+	}
+
+	static class BooleanColumn extends Column
+	{
+
+		private static final byte NULL = 0;
+		private static final byte FALSE = 1;
+		private static final byte TRUE = 2;
+
+		private byte[] values;
+
+		BooleanColumn( int capacity )
+		{
+			values = new byte[capacity];
+		}
+
+		boolean isNull( int row )
+		{
+			return values[row] == NULL;
+		}
+
+		Object get( int row )
+		{
+			switch ( values[row] )
+			{
+				case TRUE :
+					return Boolean.TRUE;
+				case FALSE :
+					return Boolean.FALSE;
+				default :
+					return null;
+			}
+		}
+
+		boolean set( int row, Object value )
+		{
+			if ( value == null )
+			{
+				values[row] = NULL;
+				return true;
+			}
+			if ( !( value instanceof Boolean ) )
+				return false;
+			values[row] = ( (Boolean) value ).booleanValue( ) ? TRUE : FALSE;
+			return true;
+		}
+
+		void ensureCapacity( int capacity )
+		{
+			byte[] newValues = new byte[capacity];
+			System.arraycopy( values, 0, newValues, 0, values.length );
+			values = newValues;
+		}
+
+		long getMemorySize( )
+		{
+			return values.length;
+		}
+	}
+
+	/**
+	 * Dictionary encoded string column, the code -1 stands for null.
+	 */
+	static class StringColumn extends Column
+	{
+
+		private int[] codes;
+		private List<String> dictionary = new ArrayList<String>( );
+		private Map<String, Integer> codeMap = new HashMap<String, Integer>( );
+		private long dictionarySize;
+
+		StringColumn( int capacity )
+		{
+			codes = new int[capacity];
+		}
+
+		boolean isNull( int row )
+		{
+			return codes[row] < 0;
+		}
+
+		Object get( int row )
+		{
+			int code = codes[row];
+			if ( code < 0 )
+				return null;
+			return dictionary.get( code );
+		}
+
+		boolean set( int row, Object value )
+		{
+			if ( value == null )
+			{
+				codes[row] = -1;
+				return true;
+			}
+			if ( value.getClass( ) != String.class )
+				return false;
+			Integer code = codeMap.get( value );
+			if ( code == null )
+			{
+				code = Integer.valueOf( dictionary.size( ) );
+				dictionary.add( (String) value );
+				codeMap.put( (String) value, code );
+				// the string, the map entry, the boxed code and two references
+				dictionarySize += SizeOfUtil.sizeOfValue( value )
+						+ SizeOfUtil.getArraySize( 4 )
+						+ SizeOfUtil.sizeOf( DataType.INTEGER_TYPE )
+						+ SizeOfUtil.getPointerSize( ) * 2;
+			}
+			codes[row] = code.intValue( );
+			return true;
+		}
+
+		void ensureCapacity( int capacity )
+		{
+			int[] newCodes = new int[capacity];
+			System.arraycopy( codes, 0, newCodes, 0, codes.length );
+			codes = newCodes;
+		}
+
+		long getMemorySize( )
+		{
+			return codes.length * 4L + dictionarySize;
+		}
+	}
+
+	static class ObjectColumn extends Column
+	{
+
+		private Object[] values;
+		private long valueSize;
+
+		ObjectColumn( int capacity )
+		{
+			values = new Object[capacity];
+		}
+
+		boolean isNull( int row )
+		{
+			return values[row] == null;
+		}
+
+		Object get( int row )
+		{
+			return values[row];
+		}
+
+		boolean set( int row, Object value )
+		{
+			valueSize -= SizeOfUtil.sizeOfValue( values[row] );
+			values[row] = value;
+			valueSize += SizeOfUtil.sizeOfValue( value );
+			return true;
+		}
+
+		void ensureCapacity( int capacity )
+		{
+			Object[] newValues = new Object[capacity];
+			System.arraycopy( values, 0, newValues, 0, values.length );
+			values = newValues;
+		}
+
+		long getMemorySize( )
+		{
+			return (long) values.length * SizeOfUtil.getPointerSize( )
+					+ valueSize;
+		}
+	}
+}
@@ -0,0 +1,292 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.executor.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.eclipse.birt.data.engine.core.DataException;
+import org.eclipse.birt.data.engine.core.security.FileSecurity;
+import org.eclipse.birt.data.engine.executor.IncreDataSetCacheObject;
+import org.eclipse.birt.data.engine.expression.CompareHints;
+import org.eclipse.birt.data.engine.i18n.ResourceConstants;
+import org.eclipse.birt.data.engine.odi.IResultClass;
+import org.eclipse.birt.data.engine.odi.IResultObject;
+
+/**
+ * The sorted order of the rows of an incremental data set cache. The cache
+ * only appends rows, so the order in which the rows of the last run were
+ * sorted is saved in the cache folder, and the next run only sorts the
+ * appended rows and merges them into it. The result is the same as a stable
+ * sort of all the rows.
+ */
+public class IncreSortedRun
+{
+	private static final String FILE_PREFIX = "sortedrun_";
+
+	private static Logger logger = Logger.getLogger( IncreSortedRun.class.getName( ) );
+
+	private IncreDataSetCacheObject cacheObject;
+	private String signature;
+	private File file;
+
+	/**
+	 * @param cacheObject
+	 *            the incremental cache whose rows are sorted
+	 * @param signature
+	 *            the description of the sort keys, the saved order is only
+	 *            used by the sort with the same signature
+	 */
+	IncreSortedRun( IncreDataSetCacheObject cacheObject, String signature )
+	{
+		this.cacheObject = cacheObject;
+		this.signature = signature;
+		this.file = new File( cacheObject.getCacheDir( ), FILE_PREFIX
+				+ Integer.toHexString( signature.hashCode( ) ) );
+	}
+
+	/**
+	 * @param sortSpec
+	 * @param rsMeta
+	 * @return whether the sorted order of the rows of an incremental cache
+	 *         can be kept for the sort specification
+	 * @throws DataException
+	 */
+	public static boolean isApplicable( SortSpec sortSpec, IResultClass rsMeta )
+			throws DataException
+	{
+		return getSignature( sortSpec, rsMeta ) != null;
+	}
+
+	/**
+	 * @param sortSpec
+	 * @param rsMeta
+	 * @return the description of the sort keys, or null if the rows are not
+	 *         sorted by the columns saved in the cache
+	 * @throws DataException
+	 */
+	static String getSignature( SortSpec sortSpec, IResultClass rsMeta )
+			throws DataException
+	{
+		if ( sortSpec == null
+				|| sortSpec.getSortKeyIndexes( ) == null
+				|| sortSpec.getSortKeyIndexes( ).length == 0 )
+			return null;
+
+		int[] sortKeyIndexes = sortSpec.getSortKeyIndexes( );
+		String[] sortKeyColumns = sortSpec.getSortKeyColumns( );
+		boolean[] sortAscending = sortSpec.getSortAscending( );
+		CompareHints[] comparators = sortSpec.getComparator( );
+		StringBuffer signature = new StringBuffer( );
+		for ( int i = 0; i < sortKeyIndexes.length; i++ )
+		{
+			// the order of the computed values and of the custom comparators
+			// may change between the runs, so it can't be kept
+			int index = sortKeyIndexes[i];
+			if ( index < 1
+					|| index > rsMeta.getFieldCount( )
+					|| rsMeta.isCustomField( index ) )
+				return null;
+			String name = rsMeta.getFieldName( index );
+			if ( sortKeyColumns[i] != null && !sortKeyColumns[i].equals( name ) )
+				return null;
+			if ( comparators[i] != null
+					&& comparators[i].getComparator( ) != null )
+				return null;
+			signature.append( name )
+					.append( sortAscending[i] ? " asc " : " desc " )
+					.append( comparators[i] == null ? null
+							: comparators[i].getNullType( ) )
+					.append( ',' );
+		}
+		return signature.toString( );
+	}
+
+	/**
+	 * Sort the rows and save their order for the next run.
+	 *
+	 * @param rows
+	 *            the rows of the cache, in the order they are saved in it
+	 * @param comparator
+	 * @return the sorted rows
+	 * @throws DataException
+	 */
+	IResultObject[] sort( IResultObject[] rows, Comparator comparator )
+			throws DataException
+	{
+		int[] positions;
+		synchronized ( cacheObject )
+		{
+			positions = merge( rows, load( rows.length ), comparator );
+			save( positions );
+		}
+		IResultObject[] sorted = new IResultObject[rows.length];
+		for ( int i = 0; i < positions.length; i++ )
+		{
+			sorted[i] = rows[positions[i]];
+		}
+		return sorted;
+	}
+
+	/**
+	 * Merge the rows appended after the sorted run into it.
+	 *
+	 * @param rows
+	 * @param run
+	 *            the sorted positions of the first run.length rows
+	 * @param comparator
+	 * @return the sorted positions of all the rows
+	 */
+	static int[] merge( final IResultObject[] rows, int[] run,
+			final Comparator comparator )
+	{
+		int count = run.length;
+		Integer[] added = new Integer[rows.length - count];
+		for ( int i = 0; i < added.length; i++ )
+		{
+			added[i] = Integer.valueOf( count + i );
+		}
+		// the sort is stable, the appended rows which are equal keep their
+		// order
+		Arrays.sort( added, new Comparator( ) {
+
+			public int compare( Object o1, Object o2 )
+			{
+				return comparator.compare( rows[( (Integer) o1 ).intValue( )],
+						rows[( (Integer) o2 ).intValue( )] );
+			}
+		} );
+
+		int[] positions = new int[rows.length];
+		int from = 0;
+		int index = 0;
+		for ( int i = 0; i < added.length; i++ )
+		{
+			int position = added[i].intValue( );
+			// a row goes after the rows of the run which are equal to it
+			int to = upperBound( rows, run, from, rows[position], comparator );
+			System.arraycopy( run, from, positions, index, to - from );
+			index += to - from;
+			positions[index++] = position;
+			from = to;
+		}
+		System.arraycopy( run, from, positions, index, count - from );
+		return positions;
+	}
+
+	/**
+	 * @return the index of the first row of run[from..] greater than the row
+	 */
+	private static int upperBound( IResultObject[] rows, int[] run, int from,
+			IResultObject row, Comparator comparator )
+	{
+		int low = from;
+		int high = run.length;
+		while ( low < high )
+		{
+			int middle = ( low + high ) >>> 1;
+			if ( comparator.compare( rows[run[middle]], row ) <= 0 )
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		return low;
+	}
+
+	/**
+	 * Load the saved run, an empty run is returned if it can't be used for
+	 * the rows.
+	 *
+	 * @param rowCount
+	 * @return
+	 */
+	private int[] load( int rowCount )
+	{
+		if ( !FileSecurity.fileExist( file ) )
+			return new int[0];
+		try
+		{
+			DataInputStream dis = new DataInputStream( new BufferedInputStream( FileSecurity.createFileInputStream( file ) ) );
+			try
+			{
+				if ( !signature.equals( dis.readUTF( ) ) )
+					return new int[0];
+				int count = dis.readInt( );
+				if ( count < 0 || count > rowCount )
+					return new int[0];
+				int[] run = new int[count];
+				BitSet found = new BitSet( count );
+				for ( int i = 0; i < count; i++ )
+				{
+					run[i] = dis.readInt( );
+					if ( run[i] < 0 || run[i] >= count || found.get( run[i] ) )
+						return new int[0];
+					found.set( run[i] );
+				}
+				return run;
+			}
+			finally
+			{
+				dis.close( );
+			}
+		}
+		catch ( IOException e )
+		{
+			logger.log( Level.FINE, "The sorted run is not loaded", e );
+			return new int[0];
+		}
+		catch ( DataException e )
+		{
+			logger.log( Level.FINE, "The sorted run is not loaded", e );
+			return new int[0];
+		}
+	}
+
+	/**
+	 * @param positions
+	 * @throws DataException
+	 */
+	private void save( int[] positions ) throws DataException
+	{
+		try
+		{
+			DataOutputStream dos = new DataOutputStream( new BufferedOutputStream( FileSecurity.createFileOutputStream( file ) ) );
+			try
+			{
+				dos.writeUTF( signature );
+				dos.writeInt( positions.length );
+				for ( int i = 0; i < positions.length; i++ )
+				{
+					dos.writeInt( positions[i] );
+				}
+			}
+			finally
+			{
+				dos.close( );
+			}
+		}
+		catch ( IOException e )
+		{
+			throw new DataException( ResourceConstants.DATASETCACHE_SAVE_ERROR,
+					e );
+		}
+	}
+}
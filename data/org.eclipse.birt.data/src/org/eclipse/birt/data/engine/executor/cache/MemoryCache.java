@@ -58,6 +58,29 @@ public class MemoryCache implements ResultSetCache
 			Arrays.sort( this.resultObjects, comparator );
 	}
 
+	/**
+	 * Constructor for the sub class which provides the result objects by
+	 * getResultObject.
+	 * 
+	 * @param countOfResult
+	 * @param rsMeta
+	 */
+	protected MemoryCache( int countOfResult, IResultClass rsMeta )
+	{
+		this.countOfResult = countOfResult;
+		this.rsMeta = rsMeta;
+	}
+
+	/**
+	 * @param index
+	 *            0-based index of the result object
+	 * @return the result object
+	 */
+	protected IResultObject getResultObject( int index )
+	{
+		return resultObjects[index];
+	}
+
 	/*
 	 * @see org.eclipse.birt.data.engine.executor.cache.ResultSetCache#getCurrentIndex()
 	 */
@@ -92,7 +115,7 @@ public class MemoryCache implements ResultSetCache
 			if ( currResultIndex == countOfResult )
 				currResultObject = null;
 			else
-				currResultObject = resultObjects[currResultIndex];
+				currResultObject = getResultObject( currResultIndex );
 		}
 
 		return currResultObject != null;
@@ -121,7 +144,7 @@ public class MemoryCache implements ResultSetCache
 		if ( currResultIndex == -1 || currResultIndex == countOfResult )
 			currResultObject = null;
 		else
-			currResultObject = resultObjects[currResultIndex];
+			currResultObject = getResultObject( currResultIndex );
 	}
 
 	/**
@@ -176,7 +199,7 @@ public class MemoryCache implements ResultSetCache
 		try
 		{
 			// save data
-			int rowCount = this.resultObjects.length;
+			int rowCount = this.countOfResult;
 			int colCount = getColumnCount( this.rsMeta );
 
 			IOUtil.writeInt( dos, rowCount );
@@ -185,7 +208,7 @@ public class MemoryCache implements ResultSetCache
 			{
 				IOUtil.writeLong( rowLensStream, offset );
 				offset += ResultSetUtil.writeResultObject( dos,
-						resultObjects[i],
+						getResultObject( i ),
 						colCount,
 						resultSetNameSet, stringTable, index, i, version );
 			}
@@ -224,7 +247,7 @@ public class MemoryCache implements ResultSetCache
 		try
 		{
 			// save data
-			int rowCount = originalRowCount + this.resultObjects.length;
+			int rowCount = originalRowCount + this.countOfResult;
 			int colCount = this.rsMeta.getFieldCount( );
 			
 			IOUtil.writeInt( outputStream, rowCount );
@@ -242,7 +265,7 @@ public class MemoryCache implements ResultSetCache
 			{
 				IOUtil.writeLong( rlos, offset );
 				offset += ResultSetUtil.writeResultObject( dos,
-						resultObjects[i],
+						getResultObject( i ),
 						colCount,
 						resultSetNameSet, stringTable, map, originalRowCount + i, version );
 			}
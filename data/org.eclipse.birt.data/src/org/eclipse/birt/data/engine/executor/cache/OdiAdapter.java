@@ -17,6 +17,7 @@ import java.util.Set;
 import org.eclipse.birt.core.data.DataTypeUtil;
 import org.eclipse.birt.core.exception.BirtException;
 import org.eclipse.birt.data.engine.core.DataException;
+import org.eclipse.birt.data.engine.executor.IncreDataSetCacheObject;
 import org.eclipse.birt.data.engine.executor.ResultObject;
 import org.eclipse.birt.data.engine.executor.dscache.DataSetFromCache;
 import org.eclipse.birt.data.engine.executor.dscache.DataSetToCache;
@@ -168,6 +169,17 @@ public class OdiAdapter
 		this.populator = populator;
 	}
 	
+	/**
+	 * @return the incremental cache the rows are loaded from, or null if the
+	 *         rows are not loaded from an incremental cache
+	 * @throws DataException
+	 */
+	IncreDataSetCacheObject getIncreCacheObject( ) throws DataException
+	{
+		return datasetFromCache == null ? null
+				: datasetFromCache.getIncreCacheObject( );
+	}
+	
 	private IResultObject getConvertedResultObject( IResultObject resultObject ) throws DataException
 	{
 		if ( resultObject == null )
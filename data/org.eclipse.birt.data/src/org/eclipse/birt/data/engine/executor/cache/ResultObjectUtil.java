@@ -35,6 +35,7 @@ import org.eclipse.birt.core.util.IOUtil;
 import org.eclipse.birt.data.engine.core.DataException;
 import org.eclipse.birt.data.engine.core.security.ObjectSecurity;
 import org.eclipse.birt.data.engine.executor.ResultObject;
+import org.eclipse.birt.data.engine.executor.cache.ColumnarResultSetStore.ColumnarResultObject;
 import org.eclipse.birt.data.engine.i18n.ResourceConstants;
 import org.eclipse.birt.data.engine.impl.DataEngineSession;
 import org.eclipse.birt.data.engine.odi.IResultClass;
@@ -269,6 +270,16 @@ public class ResultObjectUtil
 
 		for ( int j = 0; j < columnCount; j++ )
 		{
+			Class fieldType = typeArray[j];
+			if ( resultObject instanceof ColumnarResultObject
+					&& writePrimitive( dos,
+							(ColumnarResultObject) resultObject,
+							j + 1,
+							fieldType ) )
+			{
+				continue;
+			}
+
 			Object fieldValue = null;
 			try
 			{
@@ -279,7 +290,6 @@ public class ResultObjectUtil
 				// never get here since the index value is always value
 			}
 
-			Class fieldType = typeArray[j];
 			writeObject( dos, fieldValue, fieldType );
 		}
 		dos.flush( );
@@ -293,6 +303,42 @@ public class ResultObjectUtil
 		baos = null;
 	}
 
+	/**
+	 * Write a field of a columnar row as writeObject does, without boxing the
+	 * value of a primitive column.
+	 * 
+	 * @param dos
+	 * @param row
+	 * @param fieldIndex
+	 * @param fieldType
+	 * @return false if the field is not kept in a primitive column of the type
+	 * @throws IOException
+	 */
+	private static boolean writePrimitive( DataOutputStream dos,
+			ColumnarResultObject row, int fieldIndex, Class fieldType )
+			throws IOException
+	{
+		ColumnarResultSetStore store = row.getStore( );
+		Class primitiveClass = store.getPrimitiveClass( fieldIndex );
+		if ( primitiveClass == null || !primitiveClass.equals( fieldType ) )
+			return false;
+
+		int rowIndex = row.getRowIndex( );
+		if ( store.isNull( rowIndex, fieldIndex ) )
+		{
+			dos.writeByte( 0 );
+			return true;
+		}
+		dos.writeByte( 1 );
+		if ( fieldType.equals( Integer.class ) )
+			dos.writeInt( store.getInt( rowIndex, fieldIndex ) );
+		else if ( fieldType.equals( Double.class ) )
+			dos.writeDouble( store.getDouble( rowIndex, fieldIndex ) );
+		else
+			dos.writeBoolean( store.getBoolean( rowIndex, fieldIndex ) );
+		return true;
+	}
+
 	public static void writeObject( DataOutputStream dos, Object fieldValue,
 			Class fieldType ) throws IOException, DataException
 	{
@@ -231,6 +231,26 @@ public class SizeOfUtil
 		return 0;
 	}
 	
+	/**
+	 * Return the size of memory occupied by a value.
+	 * 
+	 * @param value
+	 * @return
+	 */
+	public static int sizeOfValue( Object value )
+	{
+		if ( value == null )
+		{
+			return 0;
+		}
+		return sizeOf( value.getClass( ), value );
+	}
+
+	public static int getPointerSize( )
+	{
+		return POINTER_SIZE;
+	}
+
 	public static int getArraySize( int length )
 	{
 		if( length == 0 )
@@ -12,11 +12,13 @@
 package org.eclipse.birt.data.engine.executor.cache;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 import java.util.logging.Logger;
 
 import org.eclipse.birt.data.engine.core.DataException;
+import org.eclipse.birt.data.engine.executor.IncreDataSetCacheObject;
 import org.eclipse.birt.data.engine.executor.ResultObject;
 import org.eclipse.birt.data.engine.executor.cache.disk.DiskCache;
 import org.eclipse.birt.data.engine.i18n.ResourceConstants;
@@ -259,7 +261,7 @@ class SmartCacheHelper
 			throws DataException
 	{
 		this.eventHandler = cacheRequest.getEventHandler( );
-		populateData( rowResultSet, rsMeta, cacheRequest.getSortSpec( ) );
+		populateData( rowResultSet, rsMeta, cacheRequest.getSortSpec( ), null );
 		return this.resultSetCache;
 	}
 
@@ -282,7 +284,33 @@ class SmartCacheHelper
 				odiAdpater,
 				rsMeta,
 				cacheRequest.getDistinctValueFlag( ) ) );
-		populateData( rowResultSet, rsMeta, cacheRequest.getSortSpec( ) );
+		populateData( rowResultSet,
+				rsMeta,
+				cacheRequest.getSortSpec( ),
+				getSortedRun( odiAdpater, cacheRequest.getSortSpec( ), rsMeta ) );
+	}
+
+	/**
+	 * @param odiAdapter
+	 * @param sortSpec
+	 * @param rsMeta
+	 * @return the sorted run of the incremental cache which the rows are
+	 *         loaded from, null if the rows are not loaded from an incremental
+	 *         cache or are not sorted by the columns saved in it
+	 * @throws DataException
+	 */
+	private static IncreSortedRun getSortedRun( OdiAdapter odiAdapter,
+			SortSpec sortSpec, IResultClass rsMeta ) throws DataException
+	{
+		String signature = IncreSortedRun.getSignature( sortSpec, rsMeta );
+		if ( signature == null )
+			return null;
+
+		IncreDataSetCacheObject cacheObject = odiAdapter.getIncreCacheObject( );
+		if ( cacheObject == null )
+			return null;
+
+		return new IncreSortedRun( cacheObject, signature );
 	}
 
 	/**
@@ -291,11 +319,13 @@ class SmartCacheHelper
 	 * @param rsMeta
 	 * @param rowResultSet
 	 * @param sortSpec
-	 * @param stopSign
+	 * @param sortedRun
+	 *            the sorted run of the incremental cache the rows are loaded
+	 *            from, or null
 	 * @throws DataException
 	 */
 	private void populateData( IRowResultSet rowResultSet, IResultClass rsMeta,
-			SortSpec sortSpec ) throws DataException
+			SortSpec sortSpec, IncreSortedRun sortedRun ) throws DataException
 	{
 		long startTime = System.currentTimeMillis( );
 		SizeOfUtil sizeOfUtil = new SizeOfUtil( rsMeta );
@@ -308,6 +338,11 @@ class SmartCacheHelper
 		IResultObject odaObject;
 		IResultObject[] resultObjects;
 		List resultObjectsList = new ArrayList( );
+		ColumnarResultSetStore columnarStore = null;
+		if ( CacheUtil.isColumnarMemoryCache( eventHandler.getAppContext( ) ) )
+		{
+			columnarStore = new ColumnarResultSetStore( rsMeta );
+		}
 
 		int dataCount = 0;
 		long usedMemorySize = 0;
@@ -325,6 +360,20 @@ class SmartCacheHelper
 				//the followed variable is for performance
 				int odaObjectFieldCount = odaObject.getResultClass( ).getFieldCount( );
 				int metaFieldCount = rsMeta.getFieldCount( );
+				if ( columnarStore != null )
+				{
+					if ( odaObjectFieldCount <= metaFieldCount )
+					{
+						columnarStore.add( odaObject, odaObjectFieldCount );
+						if ( memoryCacheSize != 0 )
+							usedMemorySize = columnarStore.getMemorySize( );
+						continue;
+					}
+					// the row has extra fields which can't be kept in the
+					// columns, go on with the result objects
+					resultObjectsList.addAll( Arrays.asList( columnarStore.toResultObjects( ) ) );
+					columnarStore = null;
+				}
 				if(odaObjectFieldCount < metaFieldCount)
 				{
 					//Populate Data according to the given meta data.
@@ -350,7 +399,10 @@ class SmartCacheHelper
 			{
 				logger.fine( "DisckCache is used" );
 
-				resultObjects = (IResultObject[]) resultObjectsList.toArray( new IResultObject[0] );
+				if ( columnarStore != null )
+					resultObjects = columnarStore.toResultObjects( );
+				else
+					resultObjects = (IResultObject[]) resultObjectsList.toArray( new IResultObject[0] );
 				// the order is: resultObjects, odaObject, rowResultSet
 				resultSetCache = new DiskCache( resultObjects,
 						odaObject,
@@ -359,25 +411,40 @@ class SmartCacheHelper
 						getComparator( sortSpec, eventHandler ),
 						dataCount,
 						maxRows,
+						CacheUtil.getDiskSortThreadCount( eventHandler.getAppContext( ) ),
 						this.session );
 				break;
 			}
 		}
 
-		if ( resultSetCache == null )
+		if ( resultSetCache == null && columnarStore != null )
+		{
+			logger.fine( "ColumnarMemoryCache is used" );
+
+			resultSetCache = new ColumnarMemoryCache( columnarStore,
+					rsMeta,
+					getComparator( sortSpec, eventHandler ) );
+		}
+		else if ( resultSetCache == null )
 		{
 			logger.fine( "MemoryCache is used" );
 
 			resultObjects = (IResultObject[]) resultObjectsList.toArray( new IResultObject[0] );
 
-			resultSetCache = new MemoryCache( resultObjects,
-					rsMeta,
-					getComparator( sortSpec, eventHandler ) );
+			Comparator comparator = getComparator( sortSpec, eventHandler );
+			if ( sortedRun != null && comparator != null )
+			{
+				logger.fine( "The sorted run of the incremental cache is used" );
+				resultObjects = sortedRun.sort( resultObjects, comparator );
+				comparator = null;
+			}
+			resultSetCache = new MemoryCache( resultObjects, rsMeta, comparator );
 		}
 
 		odaObject = null;
 		resultObjects = null;
 		resultObjectsList = null;
+		columnarStore = null;
 		rowResultSet = null;
 
 		long consumedTime = ( System.currentTimeMillis( ) - startTime ) / 1000;
@@ -403,7 +470,7 @@ class SmartCacheHelper
 
 		final boolean[] sortAscending = sortSpec.getSortAscending();
 		final CompareHints[] comparators = sortSpec.getComparator( );
-		Comparator comparator = new Comparator( ) {
+		Comparator comparator = new SortKeyComparator( ) {
 
 			/**
 			 * compares two row indexes, actually compares two rows pointed by
@@ -455,6 +522,54 @@ class SmartCacheHelper
 				// all equal, so return 0
 				return 0;
 			}
+
+			/*
+			 * @see org.eclipse.birt.data.engine.executor.cache.SortKeyComparator#getSortKeys(org.eclipse.birt.data.engine.odi.IResultObject)
+			 */
+			public Object[] getSortKeys( IResultObject row )
+					throws DataException
+			{
+				Object[] keys = new Object[sortKeyIndexes.length];
+				for ( int i = 0; i < sortKeyIndexes.length; i++ )
+				{
+					if ( eventHandler != null )
+					{
+						keys[i] = eventHandler.getValue( row,
+								sortKeyIndexes[i],
+								sortKeyColumns[i] );
+					}
+					else
+					{
+						keys[i] = row.getFieldValue( sortKeyIndexes[i] );
+					}
+				}
+				return keys;
+			}
+
+			/*
+			 * @see org.eclipse.birt.data.engine.executor.cache.SortKeyComparator#compareSortKeys(java.lang.Object[], java.lang.Object[])
+			 */
+			public int compareSortKeys( Object[] keys1, Object[] keys2 )
+			{
+				for ( int i = 0; i < keys1.length; i++ )
+				{
+					try
+					{
+						int result = ScriptEvalUtil.compare( keys1[i],
+								keys2[i],
+								comparators[i] );
+						if ( result != 0 )
+						{
+							return sortAscending[i] ? result : -result;
+						}
+					}
+					catch ( DataException e )
+					{
+						// Should never get here
+					}
+				}
+				return 0;
+			}
 		};
 
 		return comparator;
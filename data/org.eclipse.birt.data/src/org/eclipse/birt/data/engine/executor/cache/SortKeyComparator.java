@@ -0,0 +1,46 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.birt.data.engine.executor.cache;
+
+import java.util.Comparator;
+
+import org.eclipse.birt.data.engine.core.DataException;
+import org.eclipse.birt.data.engine.odi.IResultObject;
+
+/**
+ * A comparator of result objects which can separate the evaluation of the sort
+ * keys from the comparison. The sort keys may be evaluated by script, so
+ * getSortKeys must be called on the thread which owns the script context,
+ * while compareSortKeys can be called on any thread.
+ */
+public abstract class SortKeyComparator implements Comparator
+{
+
+	/**
+	 * Evaluate the sort keys of a row.
+	 *
+	 * @param row
+	 * @return the sort key values, in the order of the sort specification
+	 * @throws DataException
+	 */
+	public abstract Object[] getSortKeys( IResultObject row )
+			throws DataException;
+
+	/**
+	 * Compare two arrays of sort keys returned by getSortKeys. This method
+	 * must be thread safe.
+	 *
+	 * @param keys1
+	 * @param keys2
+	 * @return the compare result, which is consistent with compare
+	 */
+	public abstract int compareSortKeys( Object[] keys1, Object[] keys2 );
+}
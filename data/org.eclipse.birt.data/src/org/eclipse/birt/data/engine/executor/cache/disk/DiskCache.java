@@ -55,6 +55,9 @@ public class DiskCache implements ResultSetCache
 	
 	// how many rows can be accomondated
 	private int MemoryCacheRowCount;
+	
+	// how many threads can be used to sort the rows
+	private int sortThreadCount = 1;
 
 	// goal file of this session
 	private String goalFileStr;	
@@ -98,9 +101,40 @@ public class DiskCache implements ResultSetCache
 			IRowResultSet rowResultSet, IResultClass rsMeta,
 			Comparator comparator, int MemoryCacheRowCount,int maxRows, DataEngineSession session )
 			throws DataException
+	{
+		this( resultObjects,
+				resultObject,
+				rowResultSet,
+				rsMeta,
+				comparator,
+				MemoryCacheRowCount,
+				maxRows,
+				1,
+				session );
+	}
+	
+	/**
+	 * @param resultObjects
+	 * @param resultObject
+	 * @param rowResultSet
+	 * @param rsMeta
+	 * @param comparator
+	 * @param MemoryCacheRowCount
+	 * @param maxRows
+	 * @param sortThreadCount
+	 *            the number of threads used to build the sorted runs
+	 * @param session
+	 * @throws DataException
+	 */
+	public DiskCache( IResultObject[] resultObjects, IResultObject resultObject,
+			IRowResultSet rowResultSet, IResultClass rsMeta,
+			Comparator comparator, int MemoryCacheRowCount, int maxRows,
+			int sortThreadCount, DataEngineSession session )
+			throws DataException
 	{
 		//this.rsMeta = rsMeta;
 		this.MemoryCacheRowCount = MemoryCacheRowCount;
+		this.sortThreadCount = sortThreadCount;
 		this.rsMeta = rsMeta;
 		this.session = session;
 		this.diskBasedResultSet = new DiskCacheResultSet( getInfoMap( ), session );
@@ -348,6 +382,7 @@ public class DiskCache implements ResultSetCache
 	 * 		tempDir, to generated temp file in DiskMergeSort
 	 * 		goalFile, to generate the end result file
 	 * 		dataCountOfUnit, to indicate how many rows can be loaded into memory
+	 * 		sortThreadCount, to indicate how many threads can be used to sort
 	 * @throws DataException 
 	 */
 	private Map getInfoMap( ) throws DataException
@@ -358,6 +393,7 @@ public class DiskCache implements ResultSetCache
 		goalFileStr = getGoalFileStr( );
 		infoMap.put( "goalFile", goalFileStr );
 		infoMap.put( "dataCountOfUnit", "" + MemoryCacheRowCount );
+		infoMap.put( "sortThreadCount", "" + sortThreadCount );
 
 		return infoMap;
 	}
@@ -46,7 +46,9 @@ abstract class DiskDataExport
 			ResultObjectUtil resultObjectUtil, DataEngineSession session )
 	{
 		DiskDataExport dbExport;
-		if ( comparator != null )
+		if ( comparator != null && getSortThreadCount( infoMap ) > 1 )
+			dbExport = new ParallelSortExport( infoMap, comparator, resultObjectUtil );
+		else if ( comparator != null )
 			dbExport = new DiskSortExport2( infoMap, comparator, resultObjectUtil );
 		else
 			dbExport = new DiskDirectExport( infoMap, resultObjectUtil );
@@ -56,6 +58,18 @@ abstract class DiskDataExport
 		return dbExport;
 	}
 	
+	/**
+	 * @param infoMap
+	 * @return how many threads can be used to sort
+	 */
+	private static int getSortThreadCount( Map infoMap )
+	{
+		Object threadCount = infoMap.get( "sortThreadCount" );
+		if ( threadCount == null )
+			return 1;
+		return Integer.parseInt( (String) threadCount );
+	}
+	
 	/**
 	 * Export data which is stored in the resultObjects array to disk, which is
 	 * the first step of export.
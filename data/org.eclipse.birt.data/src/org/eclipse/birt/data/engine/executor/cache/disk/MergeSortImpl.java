@@ -50,6 +50,22 @@ class MergeSortImpl
 		this.session = session;
 	}
 	
+	/**
+	 * Merges the runs of the parallel sort. The heap of MergeSortRowFiles
+	 * keeps only one row of every run in memory, so all the runs are merged
+	 * in one pass as long as their count is within the limit of open files.
+	 * Only more runs than that are merged level by level.
+	 * 
+	 * @param mergeSortUtil
+	 * @param tempFileUtil
+	 * @param tempFiles
+	 */
+	MergeSortImpl( MergeSortUtil mergeSortUtil,
+			MergeTempFileUtil tempFileUtil, List tempRowFiles, DataEngineSession session )
+	{
+		this( maxOpenFile, mergeSortUtil, tempFileUtil, tempRowFiles, session );
+	}
+
 	/**
 	 * Merge sort on units
 	 * 
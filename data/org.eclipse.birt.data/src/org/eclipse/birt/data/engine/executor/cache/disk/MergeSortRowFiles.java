@@ -12,8 +12,8 @@
 package org.eclipse.birt.data.engine.executor.cache.disk;
 
 import java.io.IOException;
-import java.util.Arrays;
 import java.util.Comparator;
+import java.util.PriorityQueue;
 
 import org.eclipse.birt.data.engine.core.DataException;
 import org.eclipse.birt.data.engine.odi.IResultObject;
@@ -27,9 +27,10 @@ class MergeSortRowFiles implements IRowIterator
 {
 	private IRowIterator[] subRowIterators = null;
 	private MergeSortUtil mergeSortUtil = null;
-	private ValueIndex[] rowBuffer = null;
-	private ValueIndex mValueIndex = null;
-	private int rowBufferSize = 0;
+	
+	// the heap of the current row of every sub row iterator, the top of which
+	// is the next row to be fetched.
+	private PriorityQueue rowHeap = null;
 	
 	/**
 	 * @param rowFiles
@@ -42,7 +43,6 @@ class MergeSortRowFiles implements IRowIterator
 		
 		this.subRowIterators = subRowIterators;
 		this.mergeSortUtil = mergeSortUtil;
-		this.mValueIndex = new ValueIndex( null, 0, mergeSortUtil.getComparator( ) );
 	}
 	
 	/*
@@ -57,7 +57,7 @@ class MergeSortRowFiles implements IRowIterator
 			subRowIterators[i].reset( );
 		}
 		
-		rowBuffer = null;
+		rowHeap = null;
 	}
 
 	/*
@@ -65,51 +65,23 @@ class MergeSortRowFiles implements IRowIterator
 	 */
 	public IResultObject fetch( ) throws IOException, DataException
 	{	
-		if ( rowBuffer == null )
+		if ( rowHeap == null )
 		{
 			prepareFirstFetch( );
 		}
-		if ( rowBufferSize == 0 )
+		
+		ValueIndex reObj = (ValueIndex) rowHeap.poll( );
+		if ( reObj == null )
 		{
 			return null;
 		}
 		
-		ValueIndex reObj = rowBuffer[0];
 		IResultObject value = reObj.value;
-		
 		IResultObject readValue = subRowIterators[reObj.index].fetch( );
-		if( readValue == null )
-		{
-			rowBufferSize--;
-			if( rowBufferSize > 0 )
-			{
-				ValueIndex[] tBuffer = new ValueIndex[rowBufferSize];
-				System.arraycopy( rowBuffer, 1, tBuffer, 0, rowBufferSize );
-				rowBuffer = tBuffer;
-			}
-		}
-		else
+		if ( readValue != null )
 		{
-			int pos = 0;
-			mValueIndex.value = readValue;
-			mValueIndex.index = reObj.index;
-			if( rowBufferSize > 1 )
-			{
-				pos = Arrays.binarySearch( rowBuffer, mValueIndex );
-				
-				if( pos < 0 )
-					pos = ( pos + 1 ) * -1;
-				pos--;
-				if( pos == -1 )
-					pos = 0;
-
-				if( pos > 0 )
-				{
-					System.arraycopy( rowBuffer, 1 , rowBuffer, 0, pos );
-				}
-			}
-			rowBuffer[pos] = mValueIndex;
-			mValueIndex = reObj;
+			reObj.value = readValue;
+			rowHeap.add( reObj );
 		}
 		return value;
 	}
@@ -120,25 +92,16 @@ class MergeSortRowFiles implements IRowIterator
 	 */
 	private void prepareFirstFetch( ) throws IOException, DataException
 	{
-		rowBuffer = new ValueIndex[subRowIterators.length];
+		rowHeap = new PriorityQueue( Math.max( 1, subRowIterators.length ) );
 		
-		for ( int i = 0; i < rowBuffer.length; i++ )
+		for ( int i = 0; i < subRowIterators.length; i++ )
 		{
 			IResultObject value = subRowIterators[i].fetch( );
-			if( value != null )
-				rowBuffer[i] = new ValueIndex( value, i, this.mergeSortUtil.getComparator( ) );;
-		}
-		rowBufferSize = 0;
-		for ( int i = 0; i < rowBuffer.length; i++ )
-		{
-			if( rowBuffer[i] != null )
-			{
-				rowBuffer[rowBufferSize] = rowBuffer[i];
-				rowBufferSize++;
-			}
+			if ( value != null )
+				rowHeap.add( new ValueIndex( value,
+						i,
+						this.mergeSortUtil.getComparator( ) ) );
 		}
-		Arrays.sort( rowBuffer, 0, rowBufferSize );
-		
 	}
 	
 	/*
@@ -0,0 +1,439 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.birt.data.engine.executor.cache.disk;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.eclipse.birt.data.engine.core.DataException;
+import org.eclipse.birt.data.engine.executor.cache.IRowResultSet;
+import org.eclipse.birt.data.engine.executor.cache.ResultObjectUtil;
+import org.eclipse.birt.data.engine.executor.cache.SortKeyComparator;
+import org.eclipse.birt.data.engine.i18n.ResourceConstants;
+import org.eclipse.birt.data.engine.odi.IResultObject;
+
+/**
+ * One implemenation of DataBaseExport which builds the sorted temp files on a
+ * pool of worker threads. The rows are split into runs while they are being
+ * fetched, each run is sorted and written to its own temp file by a worker,
+ * and all the runs are merged at last by MergeSortImpl.
+ *
+ * The sort keys are evaluated on the fetching thread, since they might be
+ * evaluated by script. Only the comparison of the evaluated keys and the file
+ * output are done by the workers. If the comparator can not separate the
+ * evaluation of the keys, the runs are sorted on the fetching thread and only
+ * the output is done by the workers.
+ */
+class ParallelSortExport extends DiskDataExport
+{
+	private int dataCountOfUnit;
+	private int threadCount;
+
+	// the max row count of one run. The buffers of all the runs which are in
+	// process are no more than dataCountOfUnit rows in total.
+	private int runSize;
+
+	private MergeTempFileUtil tempFileUtil;
+	private MergeSortUtil mergeSortUtil;
+	private Comparator comparator;
+
+	private List currRowFiles;
+
+	// the run which is being filled
+	private IResultObject[] runBuffer;
+	private int runRowCount;
+
+	// the runs which are being sorted and written by the workers
+	private LinkedList pendingRuns;
+	private ExecutorService executor;
+
+	// the goal file
+	private IRowIterator goalRowIterator = null;
+
+	/**
+	 * @param infoMap
+	 * @param comparator
+	 * @param resultObjectUtil
+	 */
+	ParallelSortExport( Map infoMap, Comparator comparator,
+			ResultObjectUtil resultObjectUtil )
+	{
+		dataCountOfUnit = Integer.parseInt( (String) infoMap.get( "dataCountOfUnit" ) );
+		if ( dataCountOfUnit < 2 )
+		{
+			throw new IllegalArgumentException( "the dataCountOfUnit of "
+					+ dataCountOfUnit + " is less than 2 "
+					+ ", and then merge sort on file can not be done" );
+		}
+		threadCount = Integer.parseInt( (String) infoMap.get( "sortThreadCount" ) );
+
+		runSize = Math.max( 2, dataCountOfUnit / ( threadCount + 1 ) );
+		runBuffer = new IResultObject[runSize];
+		runRowCount = 0;
+
+		tempFileUtil = new MergeTempFileUtil( (String) ( infoMap.get( "tempDir" ) ),
+				resultObjectUtil );
+		mergeSortUtil = MergeSortUtil.getUtil( comparator );
+		this.comparator = comparator;
+
+		currRowFiles = new ArrayList( );
+		pendingRuns = new LinkedList( );
+		executor = Executors.newFixedThreadPool( threadCount,
+				new ThreadFactory( ) {
+
+					public Thread newThread( Runnable r )
+					{
+						Thread thread = new Thread( r, "BIRT disk sort" );
+						thread.setDaemon( true );
+						return thread;
+					}
+				} );
+	}
+
+	/*
+	 * @see org.eclipse.birt.data.engine.executor.cache.disk.DiskDataExport#exportStartDataToDisk(org.eclipse.birt.data.engine.odi.IResultObject[])
+	 */
+	public void exportStartDataToDisk( IResultObject[] resultObjects )
+			throws IOException, DataException
+	{
+		try
+		{
+			for ( int i = 0; i < resultObjects.length; i++ )
+			{
+				addNewRow( resultObjects[i] );
+			}
+		}
+		catch ( IOException e )
+		{
+			abort( );
+			throw e;
+		}
+		catch ( DataException e )
+		{
+			abort( );
+			throw e;
+		}
+	}
+
+	/*
+	 * @see org.eclipse.birt.data.engine.executor.cache.disk.DiskDataExport#exportRestDataToDisk(org.eclipse.birt.data.engine.odi.IResultObject,
+	 *      org.eclipse.birt.data.engine.executor.cache.IRowResultSet, int)
+	 */
+	public int exportRestDataToDisk( IResultObject resultObject,
+			IRowResultSet rs, int maxRows ) throws DataException, IOException
+	{
+		try
+		{
+			int dataCountOfRest = innerExportRestData( resultObject,
+					rs,
+					runSize,
+					maxRows );
+			if ( session.getStopSign( ).isStopped( ) )
+			{
+				waitForAllRuns( );
+				return dataCountOfRest;
+			}
+
+			MergeSortImpl mergeSortImpl = new MergeSortImpl( this.mergeSortUtil,
+					this.tempFileUtil,
+					this.currRowFiles,
+					session );
+			this.goalRowIterator = mergeSortImpl.mergeSortOnUnits( );
+			return dataCountOfRest;
+		}
+		catch ( IOException e )
+		{
+			abort( );
+			throw e;
+		}
+		catch ( DataException e )
+		{
+			abort( );
+			throw e;
+		}
+		finally
+		{
+			executor.shutdown( );
+		}
+	}
+
+	/*
+	 * @see org.eclipse.birt.data.engine.executor.cache.disk.DiskDataExport#innerExportRestData(org.eclipse.birt.data.engine.odi.IResultObject,
+	 *      org.eclipse.birt.data.engine.executor.cache.IRowResultSet, int, int)
+	 */
+	protected int innerExportRestData( IResultObject resultObject,
+			IRowResultSet rs, int dataCountOfUnit, int maxRows )
+			throws DataException, IOException
+	{
+		addNewRow( resultObject );
+
+		int columnCount = rs.getMetaData( ).getFieldCount( );
+		int currDataCount = 1;
+		IResultObject odaObject = null;
+
+		while ( ( odaObject = rs.next( ) ) != null )
+		{
+			if ( maxRows > 0 && currDataCount > maxRows )
+				throw new DataException( ResourceConstants.EXCEED_MAX_DATA_OBJECT_ROWS );
+			if ( session.getStopSign( ).isStopped( ) )
+				return 0;
+			Object[] ob = new Object[columnCount];
+			for ( int i = 0; i < columnCount; i++ )
+				ob[i] = odaObject.getFieldValue( i + 1 );
+
+			addNewRow( resultObjectUtil.newResultObject( ob ) );
+			currDataCount++;
+		}
+
+		processLastRun( );
+
+		return currDataCount;
+	}
+
+	/**
+	 * @param resultObject
+	 * @throws IOException
+	 * @throws DataException
+	 */
+	private void addNewRow( IResultObject resultObject ) throws IOException,
+			DataException
+	{
+		runBuffer[runRowCount++] = resultObject;
+		if ( runRowCount == runSize )
+		{
+			submitRun( runBuffer, 0 );
+			runBuffer = new IResultObject[runSize];
+			runRowCount = 0;
+		}
+	}
+
+	/**
+	 * The last run is kept in memory, and all the runs are completed after
+	 * this call.
+	 *
+	 * @throws IOException
+	 * @throws DataException
+	 */
+	private void processLastRun( ) throws IOException, DataException
+	{
+		if ( runRowCount > 0 )
+		{
+			IResultObject[] lastRun = new IResultObject[runRowCount];
+			System.arraycopy( runBuffer, 0, lastRun, 0, runRowCount );
+			submitRun( lastRun, runRowCount );
+		}
+		runBuffer = null;
+		runRowCount = 0;
+		waitForAllRuns( );
+	}
+
+	/**
+	 * Sort the rows and write them to a new temp file on a worker thread.
+	 *
+	 * @param rows
+	 * @param cacheSize
+	 * @throws IOException
+	 * @throws DataException
+	 */
+	private void submitRun( final IResultObject[] rows, int cacheSize )
+			throws IOException, DataException
+	{
+		// bound the number of the runs in memory
+		while ( pendingRuns.size( ) >= threadCount )
+		{
+			waitForRun( (Future) pendingRuns.removeFirst( ) );
+		}
+
+		final Object[][] sortKeys;
+		if ( comparator instanceof SortKeyComparator )
+		{
+			SortKeyComparator keyComparator = (SortKeyComparator) comparator;
+			sortKeys = new Object[rows.length][];
+			for ( int i = 0; i < rows.length; i++ )
+			{
+				sortKeys[i] = keyComparator.getSortKeys( rows[i] );
+			}
+		}
+		else
+		{
+			sortKeys = null;
+			mergeSortUtil.sortSelf( rows );
+		}
+
+		final RowFile rowFile = tempFileUtil.newTempFile( cacheSize );
+		currRowFiles.add( rowFile );
+
+		pendingRuns.add( executor.submit( new Callable( ) {
+
+			public Object call( ) throws Exception
+			{
+				if ( sortKeys != null )
+				{
+					sortByKeys( rows, sortKeys );
+				}
+				rowFile.writeRows( rows, rows.length );
+				rowFile.endWrite( );
+				return null;
+			}
+		} ) );
+	}
+
+	/**
+	 * Sort the rows by the evaluated sort keys. The sort is stable, so the
+	 * result is the same as sorting the rows with the comparator.
+	 *
+	 * @param rows
+	 * @param sortKeys
+	 */
+	private void sortByKeys( IResultObject[] rows, Object[][] sortKeys )
+	{
+		final SortKeyComparator keyComparator = (SortKeyComparator) comparator;
+		RowKeys[] entries = new RowKeys[rows.length];
+		for ( int i = 0; i < rows.length; i++ )
+		{
+			entries[i] = new RowKeys( rows[i], sortKeys[i] );
+		}
+		Arrays.sort( entries, new Comparator( ) {
+
+			public int compare( Object o1, Object o2 )
+			{
+				return keyComparator.compareSortKeys( ( (RowKeys) o1 ).keys,
+						( (RowKeys) o2 ).keys );
+			}
+		} );
+		for ( int i = 0; i < rows.length; i++ )
+		{
+			rows[i] = entries[i].row;
+		}
+	}
+
+	/**
+	 * @throws IOException
+	 * @throws DataException
+	 */
+	private void waitForAllRuns( ) throws IOException, DataException
+	{
+		while ( !pendingRuns.isEmpty( ) )
+		{
+			waitForRun( (Future) pendingRuns.removeFirst( ) );
+		}
+	}
+
+	/**
+	 * @param run
+	 * @throws IOException
+	 * @throws DataException
+	 */
+	private static void waitForRun( Future run ) throws IOException,
+			DataException
+	{
+		try
+		{
+			run.get( );
+		}
+		catch ( InterruptedException e )
+		{
+			Thread.currentThread( ).interrupt( );
+			throw new DataException( ResourceConstants.WRITE_TEMPFILE_ERROR,
+					e );
+		}
+		catch ( ExecutionException e )
+		{
+			Throwable cause = e.getCause( );
+			if ( cause instanceof IOException )
+				throw (IOException) cause;
+			if ( cause instanceof DataException )
+				throw (DataException) cause;
+			if ( cause instanceof RuntimeException )
+				throw (RuntimeException) cause;
+			if ( cause instanceof Error )
+				throw (Error) cause;
+			throw new DataException( ResourceConstants.WRITE_TEMPFILE_ERROR,
+					cause );
+		}
+	}
+
+	/**
+	 * Wait for the workers and then delete all the temp files.
+	 */
+	private void abort( )
+	{
+		while ( !pendingRuns.isEmpty( ) )
+		{
+			try
+			{
+				waitForRun( (Future) pendingRuns.removeFirst( ) );
+			}
+			catch ( Exception e )
+			{
+				// the first exception has been thrown
+			}
+		}
+		for ( int i = 0; i < currRowFiles.size( ); i++ )
+		{
+			( (RowFile) currRowFiles.get( i ) ).close( );
+		}
+		currRowFiles.clear( );
+		executor.shutdown( );
+	}
+
+	/*
+	 * @see org.eclipse.birt.data.engine.executor.cache.disk.DiskDataExport#outputResultObjects(org.eclipse.birt.data.engine.odi.IResultObject[],
+	 *      int)
+	 */
+	protected void outputResultObjects( IResultObject[] resultObjects,
+			int indexOfUnit ) throws IOException
+	{
+	}
+
+	/*
+	 * @see org.eclipse.birt.data.engine.executor.cache.disk.DiskDataExport#getRowIterator()
+	 */
+	public IRowIterator getRowIterator( )
+	{
+		return goalRowIterator;
+	}
+
+	/*
+	 * @see org.eclipse.birt.data.engine.executor.cache.disk.DiskDataExport#close()
+	 */
+	public void close( )
+	{
+		executor.shutdown( );
+		tempFileUtil.clearTempDir( );
+	}
+
+	/**
+	 * A row with its evaluated sort keys.
+	 */
+	private static class RowKeys
+	{
+		IResultObject row;
+		Object[] keys;
+
+		RowKeys( IResultObject row, Object[] keys )
+		{
+			this.row = row;
+			this.keys = keys;
+		}
+	}
+}
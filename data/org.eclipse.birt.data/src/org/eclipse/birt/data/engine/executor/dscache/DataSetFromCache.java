@@ -18,6 +18,7 @@ import org.eclipse.birt.core.data.DataType;
 import org.eclipse.birt.data.engine.api.querydefn.ComputedColumn;
 import org.eclipse.birt.data.engine.core.DataException;
 import org.eclipse.birt.data.engine.executor.IDataSetCacheObject;
+import org.eclipse.birt.data.engine.executor.IncreDataSetCacheObject;
 import org.eclipse.birt.data.engine.executor.ResultClass;
 import org.eclipse.birt.data.engine.executor.ResultFieldMetadata;
 import org.eclipse.birt.data.engine.executor.ResultObject;
@@ -149,6 +150,18 @@ public class DataSetFromCache
 		return session.getDataSetCacheManager( ).getCacheObject( );
 	}
 	
+	/**
+	 * @return the incremental cache the rows are loaded from, in the order
+	 *         they are saved in it, or null if the cache is not incremental
+	 * @throws DataException
+	 */
+	public IncreDataSetCacheObject getIncreCacheObject( ) throws DataException
+	{
+		IDataSetCacheObject cacheObject = getCacheObject( );
+		return cacheObject instanceof IncreDataSetCacheObject
+				? (IncreDataSetCacheObject) cacheObject : null;
+	}
+	
 	/**
 	 * @return result class
 	 * @throws DataException 
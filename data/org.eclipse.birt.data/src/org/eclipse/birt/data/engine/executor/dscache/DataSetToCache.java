@@ -11,9 +11,11 @@
 package org.eclipse.birt.data.engine.executor.dscache;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import org.eclipse.birt.data.engine.api.IBaseDataSetDesign;
+import org.eclipse.birt.data.engine.api.IBaseDataSourceDesign;
 import org.eclipse.birt.data.engine.core.DataException;
 import org.eclipse.birt.data.engine.executor.DataSetCacheManager;
 import org.eclipse.birt.data.engine.executor.IDataSetCacheObject;
@@ -55,6 +57,12 @@ public class DataSetToCache
 
 	private Integer increCacheMode;
 	
+	// the data set being saved, the current one of the cache manager may be
+	// changed by the nested queries
+	private IBaseDataSourceDesign dataSourceDesign;
+	private IBaseDataSetDesign dataSetDesign;
+	private Collection parameterHints;
+	
 	/**
 	 * @param odaDataSet
 	 * @param resultSet
@@ -103,10 +111,26 @@ public class DataSetToCache
 	 */
 	private void init( IResultClass rsMeta, DataEngineSession session ) throws DataException
 	{
-		this.rsMeta = rebuildResultClass ( rsMeta );
 		this.session = session;
-		this.cacheCount = getCacheCapability( );
-		populateCacheMode( session );
+		DataSetCacheManager cacheManager = getDataSetCacheManager( );
+		this.dataSourceDesign = cacheManager.getCurrentDataSourceDesign( );
+		this.dataSetDesign = cacheManager.getCurrentDataSetDesign( );
+		this.parameterHints = cacheManager.getCurrentParameterHints( );
+		boolean initialized = false;
+		try
+		{
+			this.rsMeta = rebuildResultClass( rsMeta );
+			this.cacheCount = getCacheCapability( );
+			populateCacheMode( session );
+			initialized = true;
+		}
+		finally
+		{
+			if ( !initialized )
+			{
+				abortLoad( );
+			}
+		}
 	}
 
 	/**
@@ -199,6 +223,10 @@ public class DataSetToCache
 				itr.next( );
 			} 
 			this.saveClose( );
+			getDataSetCacheManager( ).loadFinished( dataSourceDesign,
+					dataSetDesign,
+					parameterHints,
+					saved );
 		}
 		catch ( DataException de )
 		{
@@ -218,6 +246,19 @@ public class DataSetToCache
 		}
 	}
 
+	/**
+	 * Give up saving the data set if it is not saved yet, so that the queries
+	 * waiting for it don't wait any more.
+	 * 
+	 * @throws DataException
+	 */
+	public void abortLoad( ) throws DataException
+	{
+		getDataSetCacheManager( ).abortLoad( dataSourceDesign,
+				dataSetDesign,
+				parameterHints );
+	}
+
 	/**
 	 * @throws DataException 
 	 * 
@@ -200,9 +200,19 @@ public class ResultSetPopulator
 	
 	public DataSetFromCache cacheDataSet( DataSetToCache dstc ) throws DataException
 	{
-		PassManager.populateDataSetResultSet( this, new OdiResultSetWrapper( dstc ) );
-		CachedResultSet itr = this.getResultIterator( );
-		dstc.saveDataSetResult( itr );
+		try
+		{
+			PassManager.populateDataSetResultSet( this,
+					new OdiResultSetWrapper( dstc ) );
+			CachedResultSet itr = this.getResultIterator( );
+			dstc.saveDataSetResult( itr );
+		}
+		finally
+		{
+			// the queries waiting for the data set must not wait any more if
+			// it failed to be saved
+			dstc.abortLoad( );
+		}
 		return new DataSetFromCache( session );
 	}
 
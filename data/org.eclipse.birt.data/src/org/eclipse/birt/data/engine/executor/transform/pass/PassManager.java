@@ -23,6 +23,8 @@ import org.eclipse.birt.data.engine.api.IComputedColumn;
 import org.eclipse.birt.data.engine.core.DataException;
 import org.eclipse.birt.data.engine.executor.aggregation.AggrDefnRoundManager;
 import org.eclipse.birt.data.engine.executor.aggregation.AggregationHelper;
+import org.eclipse.birt.data.engine.executor.cache.IncreSortedRun;
+import org.eclipse.birt.data.engine.executor.cache.SortSpec;
 import org.eclipse.birt.data.engine.executor.dscache.DataSetFromCache;
 import org.eclipse.birt.data.engine.executor.transform.IComputedColumnsState;
 import org.eclipse.birt.data.engine.executor.transform.IExpressionProcessor;
@@ -229,13 +231,14 @@ public class PassManager
 			iccState = new ComputedColumnsState( computedColumnHelper );
 		}
 		
+		SortSpec sortSpec = getIncreCacheSortSpec( odaResultSet );
 		List cachedSorting = Arrays.asList( this.populator.getQuery( )
 				.getOrdering( ) == null ? new Object[0]
 				: this.populator.getQuery( ).getOrdering( ) );
 		this.populator.getQuery( ).setOrdering( new ArrayList( ) );
 		this.populator.getExpressionProcessor( ).setDataSetMode( true );
 		
-		populateResultSetCacheInResultSetPopulator( odaResultSet );
+		populateResultSetCacheInResultSetPopulator( odaResultSet, sortSpec );
 
 		if ( !(odaResultSet.getWrappedOdiResultSet( ) instanceof DataSetFromCache ))
 		{
@@ -250,13 +253,44 @@ public class PassManager
 	}
 
 	/**
+	 * The rows loaded from an incremental cache are sorted when they are
+	 * loaded, so that the sorted order of the rows saved in the cache is kept
+	 * and only the appended rows are sorted. The passes of the result set sort
+	 * them again with the same specification, which keeps their order. It is
+	 * only done when no filter or computed column of the result set is
+	 * evaluated on the rows before they are sorted.
 	 * 
 	 * @param odaResultSet
-	 * @param stopSign
+	 * @return the sort specification of the rows of the incremental cache, or
+	 *         null if they are not sorted when they are loaded
+	 * @throws DataException
+	 */
+	private SortSpec getIncreCacheSortSpec( OdiResultSetWrapper odaResultSet )
+			throws DataException
+	{
+		if ( !( odaResultSet.getWrappedOdiResultSet( ) instanceof DataSetFromCache )
+				|| ( (DataSetFromCache) odaResultSet.getWrappedOdiResultSet( ) ).getIncreCacheObject( ) == null )
+			return null;
+		if ( filterByRow != null
+				|| psController.needDoOperation( PassStatusController.RESULT_SET_TEMP_COMPUTED_COLUMN_POPULATING ) )
+			return null;
+
+		SortSpec sortSpec = this.populator.getGroupProcessorManager( )
+				.getGroupCalculationUtil( )
+				.getSortSpec( );
+		return IncreSortedRun.isApplicable( sortSpec,
+				this.populator.getResultSetMetadata( ) ) ? sortSpec : null;
+	}
+
+	/**
+	 * 
+	 * @param odaResultSet
+	 * @param sortSpec
 	 * @throws DataException
 	 */
 	private void populateResultSetCacheInResultSetPopulator(
-			OdiResultSetWrapper odaResultSet ) throws DataException
+			OdiResultSetWrapper odaResultSet, SortSpec sortSpec )
+			throws DataException
 	{
 		int max = 0;
 		
@@ -273,7 +307,7 @@ public class PassManager
 		if ( filterByRow != null )
 			this.populator.getQuery( ).setMaxRows( 0 );
 		
-		PassUtil.pass( this.populator, odaResultSet, false );
+		PassUtil.pass( this.populator, odaResultSet, sortSpec );
 		this.removeOnFetchScriptHelper( );
 		this.populator.getQuery( ).setMaxRows( max );
 	}
@@ -75,6 +75,26 @@ class PassUtil
 		populator.getExpressionProcessor( ).setResultIterator( populator.getResultIterator( ));
 	}
 
+	/**
+	 * Pass the result source, create a new smartCache sorted by the sort
+	 * specification, without grouping.
+	 * 
+	 * @param populator
+	 * @param resultSource
+	 * @param sortSpec
+	 * @throws DataException
+	 */
+	public static void pass( ResultSetPopulator populator,
+			OdiResultSetWrapper resultSource, SortSpec sortSpec )
+			throws DataException
+	{
+		populateOdiResultSet( populator, resultSource, sortSpec );
+
+		populator.getCache( ).next( );
+		
+		populator.getExpressionProcessor( ).setResultIterator( populator.getResultIterator( ));
+	}
+
 	/**
 	 * 
 	 * @param populator
@@ -462,6 +462,21 @@ abstract class AbstractExpressionCompiler
 		Object compiledOb = compiler.compile( compilerEnv, tree, null, false );
 		Script script = (Script) compiler.createScriptObject( compiledOb, null );
 		( (BytecodeExpression) expr ).setScript( script );
+		if ( expr instanceof ComplexExpression )
+		{
+			( (ComplexExpression) expr ).setFastExpression( compileFastExpression( tree ) );
+		}
+	}
+
+	/**
+	 * Compile the tree to an expression evaluated in Java.
+	 * 
+	 * @param tree
+	 * @return null if the expression can only be evaluated by Rhino
+	 */
+	protected FastExpression compileFastExpression( ScriptOrFnNode tree )
+	{
+		return null;
 	}
 
 	/**
@@ -15,16 +15,29 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 
+import org.eclipse.birt.core.script.ScriptContext;
+import org.eclipse.birt.data.engine.core.DataException;
+import org.eclipse.birt.data.engine.i18n.ResourceConstants;
+import org.eclipse.birt.data.engine.odi.IResultObject;
+import org.mozilla.javascript.Scriptable;
+
 /**
  * A Javascript expression that cannot be reduced to other simpler types of 
  * CompiledExpression. An expression of this type has been compiled to Rhino
- * byte code.
+ * byte code. A simple expression is also compiled to a FastExpression, which
+ * is evaluated in Java when the row is available.
  */
 public final class ComplexExpression extends BytecodeExpression
 {
+	// the number of the rows evaluated by Rhino before the Java evaluation
+	// is given up
+	private static final int MAX_FALLBACK_COUNT = 16;
+
     private ArrayList m_subExpressions;
     private ArrayList m_tokenList;
     private ArrayList m_constantExpressions;
+    private FastExpression fastExpression;
+    private int fallbackCount;
 
     ComplexExpression()
 	{
@@ -210,6 +223,99 @@ public final class ComplexExpression extends BytecodeExpression
 		return  result;
 	}
 
+	/**
+	 * Set the Java form of the expression.
+	 * 
+	 * @param fastExpression
+	 *            null if the expression can only be evaluated by Rhino
+	 */
+	void setFastExpression( FastExpression fastExpression )
+	{
+		this.fastExpression = fastExpression;
+	}
+
+	/**
+	 * @return the Java form of the expression, null if the expression can
+	 *         only be evaluated by Rhino
+	 */
+	FastExpression getFastExpression( )
+	{
+		return this.fastExpression;
+	}
+
+	/**
+	 * @return whether the expression is evaluated in Java
+	 */
+	public boolean isFastEvaluated( )
+	{
+		return fastExpression != null;
+	}
+
+	/**
+	 * Evaluates the expression on a row. The expression is evaluated in Java
+	 * if it is compiled to a FastExpression and the values of the row are
+	 * supported, otherwise it is evaluated by Rhino in the scope, where the
+	 * row must have been set up.
+	 * 
+	 * @param context
+	 * @param scope
+	 * @param row
+	 *            the current row, may be null
+	 * @param index
+	 *            the index of the current row
+	 * @return
+	 * @throws DataException
+	 */
+	public Object evaluate( ScriptContext context, Scriptable scope,
+			IResultObject row, int index ) throws DataException
+	{
+		FastExpression fast = this.fastExpression;
+		if ( fast != null && row != null )
+		{
+			try
+			{
+				return fast.evaluate( row, index );
+			}
+			catch ( FastExpression.UnsupportedValueException e )
+			{
+				// the values of the column are of other types, a date for
+				// example
+				if ( ++fallbackCount >= MAX_FALLBACK_COUNT )
+					this.fastExpression = null;
+			}
+		}
+		return evaluate( context, scope );
+	}
+
+	/**
+	 * Evaluates the expression on a row in Java only. Rhino is not used, so
+	 * the expression may be evaluated on any thread.
+	 * 
+	 * @param row
+	 * @param index
+	 *            the index of the row
+	 * @return
+	 * @throws DataException
+	 *             if the expression is not compiled to a FastExpression or a
+	 *             value of the row is not supported
+	 */
+	public Object evaluateInJava( IResultObject row, int index )
+			throws DataException
+	{
+		FastExpression fast = this.fastExpression;
+		if ( fast != null && row != null )
+		{
+			try
+			{
+				return fast.evaluate( row, index );
+			}
+			catch ( FastExpression.UnsupportedValueException e )
+			{
+			}
+		}
+		throw new DataException( ResourceConstants.EXPRESSION_NOT_EVALUATED_IN_JAVA );
+	}
+
 	/*
 	 * @see java.lang.Object#hashCode()
 	 */
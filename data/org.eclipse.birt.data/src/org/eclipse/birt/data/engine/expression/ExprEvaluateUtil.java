@@ -13,6 +13,7 @@ package org.eclipse.birt.data.engine.expression;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.birt.core.data.DataType;
 import org.eclipse.birt.core.data.DataTypeUtil;
@@ -44,6 +45,11 @@ import org.mozilla.javascript.Scriptable;
  */
 public class ExprEvaluateUtil
 {
+	// returned when an expression must be evaluated by Rhino
+	private static final Object NOT_EVALUATED = new Object( );
+	// the number of the rows evaluated by Rhino before the Java evaluation
+	// of a raw expression is given up
+	private static final int MAX_FALLBACK_COUNT = 16;
 	
 	/**
 	 * @param dataExpr
@@ -200,6 +206,13 @@ public class ExprEvaluateUtil
 					return null;
 			}
 		}
+		else if ( expr instanceof ComplexExpression )
+		{
+			return ( (ComplexExpression) expr ).evaluate( cx,
+					scope,
+					ro,
+					currentIndex );
+		}
 		else
 		{
 			return expr.evaluate( cx, scope );
@@ -402,9 +415,84 @@ public class ExprEvaluateUtil
 			}
 		}
 		
+		Object value = evaluateFastExpression( dataExpr, cx, dataSet );
+		if ( value != NOT_EVALUATED )
+		{
+			return DataTypeUtil.convert( value, dataExpr.getDataType( ) );
+		}
 		return doEvaluateRawExpression( dataExpr, scope, javaType, cx );
 	}
 
+	/**
+	 * Evaluates a simple script expression on the current row of the data
+	 * set in Java. The expression is compiled when it is evaluated for the
+	 * first time, and the compiled form is kept by the data set. When the row
+	 * object is a JSResultSetRow, row["xxx"] refers to the binding xxx rather
+	 * than the data set column, so the expression is left to Rhino.
+	 * 
+	 * @param dataExpr
+	 * @param cx
+	 * @param dataSet
+	 * @return the value, NOT_EVALUATED if the expression must be evaluated by
+	 *         Rhino
+	 * @throws DataException
+	 */
+	private static Object evaluateFastExpression( IBaseExpression dataExpr,
+			ScriptContext cx, DataSetRuntime dataSet ) throws DataException
+	{
+		if ( !( dataExpr instanceof IScriptExpression )
+				|| ( (IScriptExpression) dataExpr ).isConstant( )
+				|| ( (IScriptExpression) dataExpr ).getText( ) == null )
+			return NOT_EVALUATED;
+		IResultObject row = dataSet.getCurrentRow( );
+		if ( row == null )
+			return NOT_EVALUATED;
+
+		if ( dataSet.getJSResultRowObject( ) instanceof JSResultSetRow )
+			return NOT_EVALUATED;
+		Map compiledExpressions = dataSet.getCompiledExpressions( );
+		RawExpressionHandle handle = (RawExpressionHandle) compiledExpressions.get( dataExpr );
+		if ( handle == null )
+		{
+			ExpressionCompiler compiler = new ExpressionCompiler( );
+			compiler.setDataSetMode( true );
+			CompiledExpression expr = compiler.compile( ( (IScriptExpression) dataExpr ).getText( ),
+					null,
+					cx );
+			handle = new RawExpressionHandle( expr instanceof ComplexExpression
+							? ( (ComplexExpression) expr ).getFastExpression( )
+							: null );
+			compiledExpressions.put( dataExpr, handle );
+		}
+		if ( handle.fastExpression == null )
+			return NOT_EVALUATED;
+		try
+		{
+			return handle.fastExpression.evaluate( row,
+					dataSet.getCurrentRowIndex( ) );
+		}
+		catch ( FastExpression.UnsupportedValueException e )
+		{
+			if ( ++handle.fallbackCount >= MAX_FALLBACK_COUNT )
+				handle.fastExpression = null;
+			return NOT_EVALUATED;
+		}
+	}
+
+	/**
+	 * The compiled form of a raw expression.
+	 */
+	private static class RawExpressionHandle
+	{
+		private FastExpression fastExpression;
+		private int fallbackCount;
+
+		RawExpressionHandle( FastExpression fastExpression )
+		{
+			this.fastExpression = fastExpression;
+		}
+	}
+
 	/**
 	 * 
 	 * @param dataExpr
@@ -517,6 +605,71 @@ public class ExprEvaluateUtil
 	}
 	
 	//------------------------------------------------------------------
+
+	/**
+	 * @param dataExpr
+	 * @return whether the compiled expression is evaluated in Java only, so
+	 *         that evaluateValueInJava may be called on any thread
+	 */
+	public static boolean isEvaluatedInJava( IBaseExpression dataExpr )
+	{
+		Object handle = dataExpr == null ? null : dataExpr.getHandle( );
+		return handle instanceof ColumnReferenceExpression
+				|| handle instanceof ConstantExpression
+				|| ( handle instanceof ComplexExpression && ( (ComplexExpression) handle ).isFastEvaluated( ) );
+	}
+
+	/**
+	 * Evaluates the value of an expression without Rhino, as evaluateValue
+	 * does for the expressions accepted by isEvaluatedInJava.
+	 * 
+	 * @param dataExpr
+	 * @param index
+	 * @param roObject
+	 * @return
+	 * @throws DataException
+	 *             if the expression cannot be evaluated in Java or its value
+	 *             cannot be converted
+	 */
+	public static Object evaluateValueInJava( IBaseExpression dataExpr,
+			int index, IResultObject roObject ) throws DataException
+	{
+		Object handle = dataExpr == null ? null : dataExpr.getHandle( );
+		Object value;
+		if ( handle instanceof ComplexExpression )
+		{
+			value = ( (ComplexExpression) handle ).evaluateInJava( roObject,
+					index );
+		}
+		else if ( handle instanceof ColumnReferenceExpression
+				|| handle instanceof ConstantExpression )
+		{
+			// neither the scope nor the script context is used
+			value = evaluateCompiledExpression( (CompiledExpression) handle,
+					roObject,
+					index,
+					null,
+					null );
+		}
+		else
+		{
+			throw new DataException( ResourceConstants.EXPRESSION_NOT_EVALUATED_IN_JAVA );
+		}
+
+		try
+		{
+			return DataTypeUtil.convert( value, dataExpr.getDataType( ) );
+		}
+		catch ( BirtException e )
+		{
+			throw new DataException( ResourceConstants.INCONVERTIBLE_DATATYPE,
+					new Object[]{
+							value,
+							value.getClass( ),
+							DataType.getClass( dataExpr.getDataType( ) )
+					} );
+		}
+	}
 		
 	/**
 	 * TODO: need refactoring
@@ -656,6 +809,13 @@ public class ExprEvaluateUtil
 			ColumnReferenceExpression colref = (ColumnReferenceExpression) expr;
 			return evaluateColumnReferenceExpression( roObject, index, colref );
 		}
+		else if ( expr instanceof ComplexExpression )
+		{
+			return ( (ComplexExpression) expr ).evaluate( cx,
+					scope,
+					roObject,
+					index );
+		}
 		else
 		{
 			return  expr.evaluate( cx, scope );
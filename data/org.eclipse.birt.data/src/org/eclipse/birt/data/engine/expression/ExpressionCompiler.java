@@ -16,6 +16,7 @@ import org.eclipse.birt.data.engine.api.aggregation.IAggrFunction;
 import org.eclipse.birt.data.engine.core.DataException;
 import org.eclipse.birt.data.engine.i18n.ResourceConstants;
 import org.eclipse.birt.data.engine.impl.aggregation.AggregateRegistry;
+import org.eclipse.birt.data.engine.script.JSRowObject;
 import org.eclipse.birt.data.engine.script.ScriptConstants;
 import org.mozilla.javascript.Context;
 import org.mozilla.javascript.Node;
@@ -30,7 +31,9 @@ import org.mozilla.javascript.Token;
  * its derived class. The expression handle is used by the factory to evaluate
  * the expression after the report query is executed. <br>
  * ExpressionCompiler compiles the expression into Rhino byte code for faster
- * evaluation at runtime.
+ * evaluation at runtime. The simple expressions made of column references,
+ * literals and operators are also compiled to a FastExpression, which is
+ * evaluated in Java.
  */
 public class ExpressionCompiler extends AbstractExpressionCompiler
 {
@@ -232,4 +235,112 @@ public class ExpressionCompiler extends AbstractExpressionCompiler
 		return null;
 	}
 	
-}
\ No newline at end of file
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.expression.AbstractExpressionCompiler#compileFastExpression(org.mozilla.javascript.ScriptOrFnNode)
+	 */
+	protected FastExpression compileFastExpression( ScriptOrFnNode tree )
+	{
+		Node exprNode = tree.getFirstChild( );
+		if ( exprNode == null
+				|| exprNode != tree.getLastChild( )
+				|| ( exprNode.getType( ) != Token.EXPR_RESULT && exprNode.getType( ) != Token.EXPR_VOID ) )
+			return null;
+		Node child = exprNode.getFirstChild( );
+		if ( child == null || child.getNext( ) != null )
+			return null;
+		try
+		{
+			return compileFastNode( child );
+		}
+		catch ( DataException e )
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * @param node
+	 * @return the expression of the node, null if the node is not supported
+	 * @throws DataException
+	 */
+	private FastExpression compileFastNode( Node node ) throws DataException
+	{
+		switch ( node.getType( ) )
+		{
+			case Token.NUMBER :
+				return FastExpression.newConstant( new Double( node.getDouble( ) ) );
+			case Token.STRING :
+				return FastExpression.newConstant( node.getString( ) );
+			case Token.TRUE :
+				return FastExpression.newConstant( Boolean.TRUE );
+			case Token.FALSE :
+				return FastExpression.newConstant( Boolean.FALSE );
+			case Token.NULL :
+				return FastExpression.newConstant( null );
+			case Token.GETPROP :
+			case Token.GETELEM :
+				return compileFastColumnReference( node );
+			case Token.HOOK :
+			{
+				Node first = node.getFirstChild( );
+				if ( first == null || first.getNext( ) == null
+						|| first.getNext( ).getNext( ) == null )
+					return null;
+				FastExpression condition = compileFastNode( first );
+				FastExpression value1 = condition == null ? null
+						: compileFastNode( first.getNext( ) );
+				FastExpression value2 = value1 == null ? null
+						: compileFastNode( first.getNext( ).getNext( ) );
+				return value2 == null ? null
+						: FastExpression.newConditional( condition,
+								value1,
+								value2 );
+			}
+		}
+		Node first = node.getFirstChild( );
+		if ( first == null )
+			return null;
+		FastExpression left = compileFastNode( first );
+		if ( left == null )
+			return null;
+		if ( first.getNext( ) == null )
+			return FastExpression.newUnary( node.getType( ), left );
+		if ( first.getNext( ).getNext( ) != null )
+			return null;
+		FastExpression right = compileFastNode( first.getNext( ) );
+		if ( right == null )
+			return null;
+		return FastExpression.newBinary( node.getType( ), left, right );
+	}
+
+	/**
+	 * @param refNode
+	 * @return the reference of a column of the row, null if the node is not
+	 *         a direct column reference
+	 * @throws DataException
+	 */
+	private FastExpression compileFastColumnReference( Node refNode )
+			throws DataException
+	{
+		CompiledExpression expr = compileDirectColRefExpr( null,
+				refNode,
+				null,
+				false,
+				null );
+		if ( !( expr instanceof ColumnReferenceExpression ) )
+			return null;
+		ColumnReferenceExpression colRef = (ColumnReferenceExpression) expr;
+		if ( colRef.isIndexed( ) )
+			return FastExpression.newColumnReference( colRef.getColumnindex( ) );
+		String name = colRef.getColumnName( );
+		if ( JSRowObject.ROW_POSITION.equals( name ) )
+			return FastExpression.newRowIndex( );
+		// the properties of the row object which are not columns
+		if ( JSRowObject.DATA_SET.equals( name )
+				|| JSRowObject.COLUMN_MD.equals( name ) )
+			return null;
+		return FastExpression.newColumnReference( name );
+	}
+}
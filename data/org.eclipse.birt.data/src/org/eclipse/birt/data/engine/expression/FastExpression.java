@@ -0,0 +1,732 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.expression;
+
+import org.eclipse.birt.data.engine.core.DataException;
+import org.eclipse.birt.data.engine.odi.IResultClass;
+import org.eclipse.birt.data.engine.odi.IResultObject;
+import org.mozilla.javascript.ScriptRuntime;
+import org.mozilla.javascript.Token;
+
+/**
+ * A simple expression compiled to be evaluated in Java instead of Rhino. The
+ * supported expressions are made of the column references, the number,
+ * string, boolean and null literals, the arithmetic, comparison and logical
+ * operators and the conditional operator. They are evaluated with the
+ * Javascript semantics as long as the column values are numbers, strings,
+ * booleans or nulls; a value of another type, a date for example, throws
+ * UnsupportedValueException and the expression must be evaluated by Rhino.
+ * <p>
+ * The numeric operators are evaluated on primitive doubles, so the
+ * intermediate values of an arithmetic expression are not boxed.
+ */
+abstract class FastExpression
+{
+	static final int TYPE_ANY = 0;
+	static final int TYPE_NUMBER = 1;
+	static final int TYPE_BOOLEAN = 2;
+
+	/**
+	 * Evaluates the expression.
+	 *
+	 * @param row
+	 *            the current row
+	 * @param index
+	 *            the index of the current row
+	 * @return the value with the Java type the Rhino evaluation would return
+	 * @throws UnsupportedValueException
+	 *             if the expression must be evaluated by Rhino
+	 */
+	abstract Object evaluate( IResultObject row, int index )
+			throws UnsupportedValueException;
+
+	/**
+	 * Evaluates the expression and converts the value to a number.
+	 */
+	double evaluateNumber( IResultObject row, int index )
+			throws UnsupportedValueException
+	{
+		return ScriptRuntime.toNumber( evaluate( row, index ) );
+	}
+
+	/**
+	 * Evaluates the expression and converts the value to a boolean.
+	 */
+	boolean evaluateBoolean( IResultObject row, int index )
+			throws UnsupportedValueException
+	{
+		return ScriptRuntime.toBoolean( evaluate( row, index ) );
+	}
+
+	/**
+	 * @return the type of the values of the expression, TYPE_ANY if it is
+	 *         not known before the evaluation
+	 */
+	int getResultType( )
+	{
+		return TYPE_ANY;
+	}
+
+	/**
+	 * @param value
+	 * @return the constant expression, null if the value is not supported
+	 */
+	static FastExpression newConstant( Object value )
+	{
+		if ( value == null || value instanceof Double || value instanceof String
+				|| value instanceof Boolean )
+			return new Constant( value );
+		return null;
+	}
+
+	/**
+	 * @param name
+	 * @return the reference of the column
+	 */
+	static FastExpression newColumnReference( String name )
+	{
+		return new ColumnByName( name );
+	}
+
+	/**
+	 * @param index
+	 *            1-based index of the column, 0 for the row index
+	 * @return the reference of the column
+	 */
+	static FastExpression newColumnReference( int index )
+	{
+		if ( index == 0 )
+			return new RowIndex( );
+		return new ColumnByIndex( index );
+	}
+
+	/**
+	 * @return the expression of the row index
+	 */
+	static FastExpression newRowIndex( )
+	{
+		return new RowIndex( );
+	}
+
+	/**
+	 * @param token
+	 *            the Rhino token of the operator
+	 * @param operand
+	 * @return the expression, null if the operator is not supported
+	 */
+	static FastExpression newUnary( int token, FastExpression operand )
+	{
+		switch ( token )
+		{
+			case Token.NEG :
+			case Token.POS :
+				return new Numeric( token, operand, null );
+			case Token.NOT :
+				return new Not( operand );
+		}
+		return null;
+	}
+
+	/**
+	 * @param token
+	 *            the Rhino token of the operator
+	 * @param left
+	 * @param right
+	 * @return the expression, null if the operator is not supported
+	 */
+	static FastExpression newBinary( int token, FastExpression left,
+			FastExpression right )
+	{
+		switch ( token )
+		{
+			case Token.ADD :
+				return new Add( left, right );
+			case Token.SUB :
+			case Token.MUL :
+			case Token.DIV :
+			case Token.MOD :
+				return new Numeric( token, left, right );
+			case Token.EQ :
+			case Token.NE :
+			case Token.SHEQ :
+			case Token.SHNE :
+				return new Equality( token, left, right );
+			case Token.LT :
+			case Token.LE :
+			case Token.GT :
+			case Token.GE :
+				return new Relational( token, left, right );
+			case Token.AND :
+				return new And( left, right );
+			case Token.OR :
+				return new Or( left, right );
+		}
+		return null;
+	}
+
+	/**
+	 * @return the expression condition ? first : second
+	 */
+	static FastExpression newConditional( FastExpression condition,
+			FastExpression first, FastExpression second )
+	{
+		return new Conditional( condition, first, second );
+	}
+
+	/**
+	 * Thrown when an expression can't be evaluated in Java. It is thrown for
+	 * each such row, so a single instance without stack trace is used.
+	 */
+	static final class UnsupportedValueException extends Exception
+	{
+		private static final long serialVersionUID = 1L;
+
+		static final UnsupportedValueException INSTANCE = new UnsupportedValueException( );
+
+		private UnsupportedValueException( )
+		{
+		}
+
+		/*
+		 * @see java.lang.Throwable#fillInStackTrace()
+		 */
+		public synchronized Throwable fillInStackTrace( )
+		{
+			return this;
+		}
+	}
+
+	/**
+	 * @param value
+	 *            a column value
+	 * @return the value if Rhino treats it as a primitive value
+	 * @throws UnsupportedValueException
+	 */
+	private static Object checkValue( Object value )
+			throws UnsupportedValueException
+	{
+		if ( value == null || value instanceof Number || value instanceof String
+				|| value instanceof Boolean )
+			return value;
+		throw UnsupportedValueException.INSTANCE;
+	}
+
+	private static class Constant extends FastExpression
+	{
+		private Object value;
+		private double number;
+		private boolean bool;
+
+		Constant( Object value )
+		{
+			this.value = value;
+			this.number = ScriptRuntime.toNumber( value );
+			this.bool = ScriptRuntime.toBoolean( value );
+		}
+
+		Object evaluate( IResultObject row, int index )
+		{
+			return value;
+		}
+
+		double evaluateNumber( IResultObject row, int index )
+		{
+			return number;
+		}
+
+		boolean evaluateBoolean( IResultObject row, int index )
+		{
+			return bool;
+		}
+
+		int getResultType( )
+		{
+			if ( value instanceof Double )
+				return TYPE_NUMBER;
+			if ( value instanceof Boolean )
+				return TYPE_BOOLEAN;
+			return TYPE_ANY;
+		}
+	}
+
+	private static class ColumnByName extends FastExpression
+	{
+		private String name;
+		// the index of the column in the last result class
+		private FieldIndex fieldIndex;
+
+		ColumnByName( String name )
+		{
+			this.name = name;
+		}
+
+		Object evaluate( IResultObject row, int index )
+				throws UnsupportedValueException
+		{
+			IResultClass resultClass = row.getResultClass( );
+			FieldIndex last = fieldIndex;
+			if ( last == null || last.resultClass != resultClass )
+			{
+				last = new FieldIndex( resultClass,
+						resultClass == null ? -1
+								: resultClass.getFieldIndex( name ) );
+				fieldIndex = last;
+			}
+			if ( last.index < 1 )
+				throw UnsupportedValueException.INSTANCE;
+			try
+			{
+				return checkValue( row.getFieldValue( last.index ) );
+			}
+			catch ( DataException e )
+			{
+				throw UnsupportedValueException.INSTANCE;
+			}
+		}
+	}
+
+	private static class FieldIndex
+	{
+		private final IResultClass resultClass;
+		private final int index;
+
+		FieldIndex( IResultClass resultClass, int index )
+		{
+			this.resultClass = resultClass;
+			this.index = index;
+		}
+	}
+
+	private static class ColumnByIndex extends FastExpression
+	{
+		private int columnIndex;
+
+		ColumnByIndex( int columnIndex )
+		{
+			this.columnIndex = columnIndex;
+		}
+
+		Object evaluate( IResultObject row, int index )
+				throws UnsupportedValueException
+		{
+			IResultClass resultClass = row.getResultClass( );
+			if ( resultClass == null
+					|| columnIndex > resultClass.getFieldCount( ) )
+				throw UnsupportedValueException.INSTANCE;
+			try
+			{
+				return checkValue( row.getFieldValue( columnIndex ) );
+			}
+			catch ( DataException e )
+			{
+				throw UnsupportedValueException.INSTANCE;
+			}
+		}
+	}
+
+	private static class RowIndex extends FastExpression
+	{
+		Object evaluate( IResultObject row, int index )
+		{
+			return Integer.valueOf( index );
+		}
+
+		double evaluateNumber( IResultObject row, int index )
+		{
+			return index;
+		}
+
+		int getResultType( )
+		{
+			return TYPE_NUMBER;
+		}
+	}
+
+	/**
+	 * The numeric operators except +, and the unary + and -.
+	 */
+	private static class Numeric extends FastExpression
+	{
+		private int token;
+		private FastExpression left;
+		private FastExpression right;
+
+		Numeric( int token, FastExpression left, FastExpression right )
+		{
+			this.token = token;
+			this.left = left;
+			this.right = right;
+		}
+
+		Object evaluate( IResultObject row, int index )
+				throws UnsupportedValueException
+		{
+			return new Double( evaluateNumber( row, index ) );
+		}
+
+		double evaluateNumber( IResultObject row, int index )
+				throws UnsupportedValueException
+		{
+			double value = left.evaluateNumber( row, index );
+			switch ( token )
+			{
+				case Token.NEG :
+					return -value;
+				case Token.POS :
+					return value;
+				case Token.SUB :
+					return value - right.evaluateNumber( row, index );
+				case Token.MUL :
+					return value * right.evaluateNumber( row, index );
+				case Token.DIV :
+					return value / right.evaluateNumber( row, index );
+				default :
+					return value % right.evaluateNumber( row, index );
+			}
+		}
+
+		boolean evaluateBoolean( IResultObject row, int index )
+				throws UnsupportedValueException
+		{
+			double value = evaluateNumber( row, index );
+			return value == value && value != 0;
+		}
+
+		int getResultType( )
+		{
+			return TYPE_NUMBER;
+		}
+	}
+
+	/**
+	 * The + operator, which concatenates the strings and adds the other
+	 * values.
+	 */
+	private static class Add extends FastExpression
+	{
+		private FastExpression left;
+		private FastExpression right;
+		private boolean isNumeric;
+
+		Add( FastExpression left, FastExpression right )
+		{
+			this.left = left;
+			this.right = right;
+			this.isNumeric = isNumeric( left ) && isNumeric( right );
+		}
+
+		private static boolean isNumeric( FastExpression expr )
+		{
+			return expr.getResultType( ) == TYPE_NUMBER
+					|| expr.getResultType( ) == TYPE_BOOLEAN;
+		}
+
+		Object evaluate( IResultObject row, int index )
+				throws UnsupportedValueException
+		{
+			if ( isNumeric )
+				return new Double( evaluateNumber( row, index ) );
+			Object value1 = left.evaluate( row, index );
+			Object value2 = right.evaluate( row, index );
+			if ( value1 instanceof String || value2 instanceof String )
+				return ScriptRuntime.toString( value1 )
+						+ ScriptRuntime.toString( value2 );
+			return new Double( ScriptRuntime.toNumber( value1 )
+					+ ScriptRuntime.toNumber( value2 ) );
+		}
+
+		double evaluateNumber( IResultObject row, int index )
+				throws UnsupportedValueException
+		{
+			if ( isNumeric )
+				return left.evaluateNumber( row, index )
+						+ right.evaluateNumber( row, index );
+			return ScriptRuntime.toNumber( evaluate( row, index ) );
+		}
+
+		int getResultType( )
+		{
+			return isNumeric ? TYPE_NUMBER : TYPE_ANY;
+		}
+	}
+
+	/**
+	 * The operators ==, !=, === and !==.
+	 */
+	private static class Equality extends FastExpression
+	{
+		private int token;
+		private FastExpression left;
+		private FastExpression right;
+		private boolean isNumeric;
+
+		Equality( int token, FastExpression left, FastExpression right )
+		{
+			this.token = token;
+			this.left = left;
+			this.right = right;
+			this.isNumeric = left.getResultType( ) == TYPE_NUMBER
+					&& right.getResultType( ) == TYPE_NUMBER;
+		}
+
+		Object evaluate( IResultObject row, int index )
+				throws UnsupportedValueException
+		{
+			return Boolean.valueOf( evaluateBoolean( row, index ) );
+		}
+
+		double evaluateNumber( IResultObject row, int index )
+				throws UnsupportedValueException
+		{
+			return evaluateBoolean( row, index ) ? 1 : 0;
+		}
+
+		boolean evaluateBoolean( IResultObject row, int index )
+				throws UnsupportedValueException
+		{
+			boolean equal;
+			if ( isNumeric )
+			{
+				equal = left.evaluateNumber( row, index ) == right.evaluateNumber( row,
+						index );
+			}
+			else
+			{
+				Object value1 = left.evaluate( row, index );
+				Object value2 = right.evaluate( row, index );
+				equal = token == Token.EQ || token == Token.NE
+						? ScriptRuntime.eq( value1, value2 )
+						: ScriptRuntime.shallowEq( value1, value2 );
+			}
+			return token == Token.EQ || token == Token.SHEQ ? equal : !equal;
+		}
+
+		int getResultType( )
+		{
+			return TYPE_BOOLEAN;
+		}
+	}
+
+	/**
+	 * The operators <, <=, > and >=.
+	 */
+	private static class Relational extends FastExpression
+	{
+		private int token;
+		private FastExpression left;
+		private FastExpression right;
+		private boolean isNumeric;
+
+		Relational( int token, FastExpression left, FastExpression right )
+		{
+			this.token = token;
+			this.left = left;
+			this.right = right;
+			this.isNumeric = left.getResultType( ) == TYPE_NUMBER
+					&& right.getResultType( ) == TYPE_NUMBER;
+		}
+
+		Object evaluate( IResultObject row, int index )
+				throws UnsupportedValueException
+		{
+			return Boolean.valueOf( evaluateBoolean( row, index ) );
+		}
+
+		double evaluateNumber( IResultObject row, int index )
+				throws UnsupportedValueException
+		{
+			return evaluateBoolean( row, index ) ? 1 : 0;
+		}
+
+		boolean evaluateBoolean( IResultObject row, int index )
+				throws UnsupportedValueException
+		{
+			if ( isNumeric )
+			{
+				// a comparison with NaN is false as in Javascript
+				double value1 = left.evaluateNumber( row, index );
+				double value2 = right.evaluateNumber( row, index );
+				switch ( token )
+				{
+					case Token.LT :
+						return value1 < value2;
+					case Token.LE :
+						return value1 <= value2;
+					case Token.GT :
+						return value1 > value2;
+					default :
+						return value1 >= value2;
+				}
+			}
+			Object value1 = left.evaluate( row, index );
+			Object value2 = right.evaluate( row, index );
+			switch ( token )
+			{
+				case Token.LT :
+					return ScriptRuntime.cmp_LT( value1, value2 );
+				case Token.LE :
+					return ScriptRuntime.cmp_LE( value1, value2 );
+				case Token.GT :
+					return ScriptRuntime.cmp_LT( value2, value1 );
+				default :
+					return ScriptRuntime.cmp_LE( value2, value1 );
+			}
+		}
+
+		int getResultType( )
+		{
+			return TYPE_BOOLEAN;
+		}
+	}
+
+	private static class Not extends FastExpression
+	{
+		private FastExpression operand;
+
+		Not( FastExpression operand )
+		{
+			this.operand = operand;
+		}
+
+		Object evaluate( IResultObject row, int index )
+				throws UnsupportedValueException
+		{
+			return Boolean.valueOf( evaluateBoolean( row, index ) );
+		}
+
+		double evaluateNumber( IResultObject row, int index )
+				throws UnsupportedValueException
+		{
+			return evaluateBoolean( row, index ) ? 1 : 0;
+		}
+
+		boolean evaluateBoolean( IResultObject row, int index )
+				throws UnsupportedValueException
+		{
+			return !operand.evaluateBoolean( row, index );
+		}
+
+		int getResultType( )
+		{
+			return TYPE_BOOLEAN;
+		}
+	}
+
+	/**
+	 * The && operator, whose value is one of the operand values as in
+	 * Javascript.
+	 */
+	private static class And extends FastExpression
+	{
+		private FastExpression left;
+		private FastExpression right;
+
+		And( FastExpression left, FastExpression right )
+		{
+			this.left = left;
+			this.right = right;
+		}
+
+		Object evaluate( IResultObject row, int index )
+				throws UnsupportedValueException
+		{
+			Object value = left.evaluate( row, index );
+			if ( !ScriptRuntime.toBoolean( value ) )
+				return value;
+			return right.evaluate( row, index );
+		}
+
+		boolean evaluateBoolean( IResultObject row, int index )
+				throws UnsupportedValueException
+		{
+			return left.evaluateBoolean( row, index )
+					&& right.evaluateBoolean( row, index );
+		}
+	}
+
+	/**
+	 * The || operator, whose value is one of the operand values as in
+	 * Javascript.
+	 */
+	private static class Or extends FastExpression
+	{
+		private FastExpression left;
+		private FastExpression right;
+
+		Or( FastExpression left, FastExpression right )
+		{
+			this.left = left;
+			this.right = right;
+		}
+
+		Object evaluate( IResultObject row, int index )
+				throws UnsupportedValueException
+		{
+			Object value = left.evaluate( row, index );
+			if ( ScriptRuntime.toBoolean( value ) )
+				return value;
+			return right.evaluate( row, index );
+		}
+
+		boolean evaluateBoolean( IResultObject row, int index )
+				throws UnsupportedValueException
+		{
+			return left.evaluateBoolean( row, index )
+					|| right.evaluateBoolean( row, index );
+		}
+	}
+
+	private static class Conditional extends FastExpression
+	{
+		private FastExpression condition;
+		private FastExpression first;
+		private FastExpression second;
+
+		Conditional( FastExpression condition, FastExpression first,
+				FastExpression second )
+		{
+			this.condition = condition;
+			this.first = first;
+			this.second = second;
+		}
+
+		Object evaluate( IResultObject row, int index )
+				throws UnsupportedValueException
+		{
+			return condition.evaluateBoolean( row, index )
+					? first.evaluate( row, index ) : second.evaluate( row,
+							index );
+		}
+
+		double evaluateNumber( IResultObject row, int index )
+				throws UnsupportedValueException
+		{
+			return condition.evaluateBoolean( row, index )
+					? first.evaluateNumber( row, index )
+					: second.evaluateNumber( row, index );
+		}
+
+		boolean evaluateBoolean( IResultObject row, int index )
+				throws UnsupportedValueException
+		{
+			return condition.evaluateBoolean( row, index )
+					? first.evaluateBoolean( row, index )
+					: second.evaluateBoolean( row, index );
+		}
+
+		int getResultType( )
+		{
+			return first.getResultType( ) == second.getResultType( )
+					? first.getResultType( ) : TYPE_ANY;
+		}
+	}
+}
@@ -86,6 +86,8 @@ public class ResourceConstants
 
 	public final static String UNSUPPORTTED_COND_OPERATOR = "data.engine.UnsupportedCondOp";
 	public final static String EXPRESSION_CANNOT_BE_NULL_OR_BLANK = "data.engine.EmptyExpression";
+	public final static String EXPRESSION_NOT_EVALUATED_IN_JAVA = "data.engine.ExpressionNotEvaluatedInJava";
+	public final static String FAIL_CALCULATE_AGGREGATIONS = "data.engine.FailCalculateAggregations";
 	public final static String AGGREGATION_ARGUMENT_CANNOT_BE_BLANK = "data.engine.AggregationBinding.EmptyArgument";
 
 	public final static String INVALID_JOIN_TYPE="data.engine.InvalidJoinType";
@@ -396,6 +398,7 @@ public class ResourceConstants
 	public static final String REFERENCED_DIM_LEVEL_SET_ERROR = "data.olap.sort.exprError";
 	public static final String CUBE_QUERY_NO_CUBE_BINDING = "data.olap.query.noCubeBinding";
 	public static final String FAIL_LOAD_CUBE = "data.olap.FailLoadCube";
+	public static final String FAIL_AGGREGATE_CUBE = "data.olap.FailAggregateCube";
 	public static final String MISSING_DIMENSION_IN_CUBE = "data.olap.MissingDimensionInCube";
 
 	public final static String CONFIG_FILE_PARSER_MODE_FAIL = "data.executor.configFileParser.getModeByID";
@@ -16,6 +16,7 @@ package org.eclipse.birt.data.engine.impl;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -120,6 +121,12 @@ public class DataSetRuntime implements IDataSetInstanceHandle
      */
     private Map outParamValues = new LinkedHashMap( );
 	private boolean fromCache = false;;
+	
+	/**
+	 * Map of the filter expressions evaluated on the rows of this data set
+	 * (expression->compiled form), see ExprEvaluateUtil
+	 */
+	private Map compiledExpressions = new HashMap( );
     
     // Special value tag to indicate that a parameter value has not been set
     public static final Object UNSET_VALUE = Scriptable.NOT_FOUND;
@@ -711,6 +718,15 @@ public class DataSetRuntime implements IDataSetInstanceHandle
 		return resultObject;
 	}
 	
+	/**
+	 * @return the map of the expressions evaluated on the rows of this data
+	 *         set to their compiled forms
+	 */
+	public Map getCompiledExpressions( )
+	{
+		return this.compiledExpressions;
+	}
+	
 	/**
 	 * Gets value of row[0]
 	 */
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2004, 2007 Actuate Corporation.
+ * Copyright (c) 2004, 2012 Actuate Corporation.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,37 +11,549 @@
 
 package org.eclipse.birt.data.engine.impl;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
 
+import org.eclipse.birt.core.data.DataType;
+import org.eclipse.birt.core.data.ExpressionUtil;
+import org.eclipse.birt.core.exception.BirtException;
+import org.eclipse.birt.data.engine.api.IBaseExpression;
 import org.eclipse.birt.data.engine.api.IBinding;
+import org.eclipse.birt.data.engine.api.IColumnDefinition;
+import org.eclipse.birt.data.engine.api.IComputedColumn;
+import org.eclipse.birt.data.engine.api.IConditionalExpression;
+import org.eclipse.birt.data.engine.api.IFilterDefinition;
+import org.eclipse.birt.data.engine.api.IGroupDefinition;
 import org.eclipse.birt.data.engine.api.IOdaDataSetDesign;
 import org.eclipse.birt.data.engine.api.IQueryDefinition;
+import org.eclipse.birt.data.engine.api.IScriptExpression;
+import org.eclipse.birt.data.engine.core.DataException;
+import org.eclipse.birt.data.engine.odaconsumer.QuerySpecHelper;
+import org.eclipse.datatools.connectivity.oda.spec.ExpressionArguments;
+import org.eclipse.datatools.connectivity.oda.spec.ExpressionVariable;
 import org.eclipse.datatools.connectivity.oda.spec.QuerySpecification;
 import org.eclipse.datatools.connectivity.oda.spec.ValidationContext;
+import org.eclipse.datatools.connectivity.oda.spec.result.FilterExpression;
+import org.eclipse.datatools.connectivity.oda.spec.result.ResultSetSpecification;
+import org.eclipse.datatools.connectivity.oda.spec.result.filter.AndExpression;
+import org.eclipse.datatools.connectivity.oda.spec.result.filter.CustomExpression;
+import org.eclipse.datatools.connectivity.oda.spec.result.filter.OrExpression;
+import org.eclipse.datatools.connectivity.oda.spec.valueexpr.ColumnValueExpression;
 
 /**
- * 
+ * Translates the parts of a query which the ODA data source can evaluate into
+ * an ODA QuerySpecification, so the data source returns fewer rows.
+ *
+ * The filters pushed down are still evaluated by the data engine, so a data
+ * source only needs to return a superset of the rows the filters accept. This
+ * keeps the BIRT semantics of the null values, the type conversions and the
+ * collations: a comparison pushed down also accepts the null values, and a
+ * string is only compared for equality when the data set has no compare
+ * locale. Sorts and aggregations are always evaluated by the data engine.
+ *
+ * The query definition and the data set design are not changed, a null query
+ * specification means nothing is pushed down.
  */
 
 public class OdaQueryOptimizationUtil
 {
 
+	/**
+	 * ids of the custom filter expressions, which must be declared by the ODA
+	 * dynamicResultSet extension of the data source
+	 */
+	public static final String FILTER_EQUAL = "Equal"; //$NON-NLS-1$
+	public static final String FILTER_NOT_EQUAL = "NotEqual"; //$NON-NLS-1$
+	public static final String FILTER_LESS_THAN = "LessThan"; //$NON-NLS-1$
+	public static final String FILTER_LESS_THAN_OR_EQUAL = "LessThanOrEqual"; //$NON-NLS-1$
+	public static final String FILTER_GREATER_THAN = "GreaterThan"; //$NON-NLS-1$
+	public static final String FILTER_GREATER_THAN_OR_EQUAL = "GreaterThanOrEqual"; //$NON-NLS-1$
+	public static final String FILTER_BETWEEN = "Between"; //$NON-NLS-1$
+	public static final String FILTER_IS_NULL = "IsNull"; //$NON-NLS-1$
+	public static final String FILTER_IS_NOT_NULL = "IsNotNull"; //$NON-NLS-1$
+
+	private static final Pattern NUMBER_LITERAL = Pattern.compile( "[+-]?\\d+(\\.\\d+)?" ); //$NON-NLS-1$
 
+	private static Logger logger = Logger.getLogger( OdaQueryOptimizationUtil.class.getName( ) );
+
+	/**
+	 * Creates the query specification of the filters which can be evaluated
+	 * by the data source.
+	 *
+	 * @param dataSourceId
+	 * @param validationContext
+	 * @param dataSetDesign
+	 * @param query
+	 * @param session
+	 * @param appContext
+	 * @param contextVisitor
+	 * @return the query specification, null if nothing can be pushed down
+	 * @throws DataException
+	 */
 	public static QuerySpecification optimizeExecution( String dataSourceId,
 			ValidationContext validationContext,
 			IOdaDataSetDesign dataSetDesign, IQueryDefinition query,
 			DataEngineSession session, Map appContext,
-			IQueryContextVisitor contextVisitor )
+			IQueryContextVisitor contextVisitor ) throws DataException
 	{
-		return null;
+		if ( !canPushDown( dataSetDesign, session, appContext )
+				|| dataSetDesign.getRowFetchLimit( ) > 0
+				|| hasTopBottomFilter( dataSetDesign.getFilters( ) )
+				|| hasTopBottomFilter( query.getFilters( ) ) )
+		{
+			// the row fetch limit is applied before the filters, and the
+			// top/bottom filters are evaluated on all the rows
+			return null;
+		}
+		QuerySpecHelper specHelper = new QuerySpecHelper( dataSourceId,
+				dataSetDesign.getExtensionID( ) );
+		String extensionId = specHelper.getResultExtensionId( );
+		if ( extensionId == null )
+		{
+			return null;
+		}
+
+		Map<String, IColumnDefinition> columns = getColumnHints( dataSetDesign );
+		boolean compareStrings = dataSetDesign.getCompareLocale( ) == null;
+		List<FilterExpression> filters = new ArrayList<FilterExpression>( );
+		for ( Iterator it = dataSetDesign.getFilters( ).iterator( ); it.hasNext( ); )
+		{
+			IFilterDefinition filter = (IFilterDefinition) it.next( );
+			String column = getReferencedColumn( filter, null );
+			FilterExpression expr = toFilterExpression( extensionId,
+					filter.getExpression( ),
+					columns.get( column ),
+					compareStrings );
+			if ( expr != null )
+			{
+				filters.add( expr );
+			}
+		}
+
+		Map<String, String> bindingColumns = getDirectColumnReferenceBindings( query.getBindings( )
+				.values( ),
+				columns.keySet( ) );
+		for ( Iterator it = query.getFilters( ).iterator( ); it.hasNext( ); )
+		{
+			IFilterDefinition filter = (IFilterDefinition) it.next( );
+			if ( !filter.updateAggregation( ) )
+			{
+				// the aggregations are calculated on the rows before the filter
+				continue;
+			}
+			String column = getReferencedColumn( filter, bindingColumns );
+			FilterExpression expr = toFilterExpression( extensionId,
+					filter.getExpression( ),
+					columns.get( column ),
+					compareStrings );
+			if ( expr != null )
+			{
+				filters.add( expr );
+			}
+		}
+		if ( filters.isEmpty( ) )
+		{
+			return null;
+		}
+
+		FilterExpression filterSpec = filters.get( 0 );
+		if ( filters.size( ) > 1 )
+		{
+			AndExpression and = new AndExpression( );
+			for ( FilterExpression expr : filters )
+			{
+				and.add( expr );
+			}
+			filterSpec = and;
+		}
+		QuerySpecification querySpec = specHelper.getFactoryHelper( )
+				.createQuerySpecification( );
+		ResultSetSpecification resultSpec = specHelper.getFactoryHelper( )
+				.createResultSetSpecification( );
+		resultSpec.setFilterSpecification( filterSpec );
+		querySpec.setResultSetSpecification( resultSpec );
+		logger.log( Level.FINE, "Push down " //$NON-NLS-1$
+				+ filters.size( ) + " filter(s) of data set " //$NON-NLS-1$
+				+ dataSetDesign.getName( ) );
+		return querySpec;
+	}
+
+	/**
+	 * Gets the max number of rows the data source returns. The max rows of
+	 * the query is pushed down if the data engine fetches the rows without
+	 * filtering them.
+	 *
+	 * @param dataSetDesign
+	 * @param query
+	 * @param session
+	 * @param appContext
+	 * @return the row fetch limit of the data source, 0 if no limit
+	 * @throws DataException
+	 */
+	public static int getRowFetchLimit( IOdaDataSetDesign dataSetDesign,
+			IQueryDefinition query, DataEngineSession session, Map appContext )
+			throws DataException
+	{
+		int rowFetchLimit = dataSetDesign.getRowFetchLimit( );
+		int maxRows = query.getMaxRows( );
+		if ( maxRows <= 0
+				|| ( rowFetchLimit > 0 && rowFetchLimit <= maxRows )
+				|| query.getStartingRow( ) > 0
+				|| query.getDistinctValue( )
+				|| dataSetDesign.needDistinctValue( )
+				|| !dataSetDesign.getFilters( ).isEmpty( )
+				|| !query.getFilters( ).isEmpty( )
+				|| !canPushDown( dataSetDesign, session, appContext ) )
+		{
+			return rowFetchLimit;
+		}
+		for ( Iterator it = query.getGroups( ).iterator( ); it.hasNext( ); )
+		{
+			if ( !( (IGroupDefinition) it.next( ) ).getFilters( ).isEmpty( ) )
+			{
+				return rowFetchLimit;
+			}
+		}
+		return maxRows;
 	}
-	
+
+	/**
+	 * Gets the bindings which directly reference a data set column, such as
+	 * dataSetRow["col"].
+	 *
+	 * @param candidateBinding
+	 * @param dataSetColumnName
+	 * @return the names of the bindings
+	 */
 	public static Set<String> populateDirectDataSetColumnReferenceBindings(
 			List<IBinding> candidateBinding, List<String> dataSetColumnName )
 	{
-		return null;
+		return new HashSet<String>( getDirectColumnReferenceBindings( candidateBinding,
+				dataSetColumnName ).keySet( ) );
+	}
+
+	/**
+	 * @param candidateBinding
+	 * @param dataSetColumnName
+	 * @return the map of the binding name to the referenced column name
+	 */
+	private static Map<String, String> getDirectColumnReferenceBindings(
+			Collection candidateBinding, Collection<String> dataSetColumnName )
+	{
+		Map<String, String> result = new HashMap<String, String>( );
+		for ( Iterator it = candidateBinding.iterator( ); it.hasNext( ); )
+		{
+			IBinding binding = (IBinding) it.next( );
+			try
+			{
+				if ( binding.getAggrFunction( ) != null
+						|| !( binding.getExpression( ) instanceof IScriptExpression ) )
+				{
+					continue;
+				}
+				String text = ( (IScriptExpression) binding.getExpression( ) ).getText( );
+				if ( text == null || ExpressionUtil.hasAggregation( text ) )
+				{
+					continue;
+				}
+				String column = ExpressionUtil.getColumnName( text );
+				if ( column != null && dataSetColumnName.contains( column ) )
+				{
+					result.put( binding.getBindingName( ), column );
+				}
+			}
+			catch ( BirtException e )
+			{
+				// the binding is not a column reference
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * The rows fetched from the data source must be the rows the data engine
+	 * would filter, so nothing may change or count the rows before the
+	 * filters.
+	 */
+	private static boolean canPushDown( IOdaDataSetDesign dataSetDesign,
+			DataEngineSession session, Map appContext ) throws DataException
+	{
+		if ( session.getDataSetCacheManager( ).needsToCache( dataSetDesign,
+				appContext ) )
+		{
+			// the cached rows are shared by the queries of the data set
+			return false;
+		}
+		String onFetch = dataSetDesign.getOnFetchScript( );
+		if ( onFetch != null && onFetch.trim( ).length( ) > 0 )
+		{
+			return false;
+		}
+		for ( Iterator it = dataSetDesign.getComputedColumns( ).iterator( ); it.hasNext( ); )
+		{
+			IComputedColumn column = (IComputedColumn) it.next( );
+			if ( column.getAggregateFunction( ) != null )
+			{
+				return false;
+			}
+			IBaseExpression expr = column.getExpression( );
+			if ( expr instanceof IScriptExpression )
+			{
+				String text = ( (IScriptExpression) expr ).getText( );
+				try
+				{
+					if ( text != null
+							&& ( ExpressionUtil.hasAggregation( text ) || text.indexOf( "__rownum" ) >= 0 ) ) //$NON-NLS-1$
+					{
+						return false;
+					}
+				}
+				catch ( BirtException e )
+				{
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private static boolean hasTopBottomFilter( List filters )
+	{
+		for ( Iterator it = filters.iterator( ); it.hasNext( ); )
+		{
+			IBaseExpression expr = ( (IFilterDefinition) it.next( ) ).getExpression( );
+			if ( expr instanceof IConditionalExpression )
+			{
+				int operator = ( (IConditionalExpression) expr ).getOperator( );
+				if ( operator >= IConditionalExpression.OP_TOP_N
+						&& operator <= IConditionalExpression.OP_BOTTOM_PERCENT )
+				{
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the result set hints of the data set by the column names and
+	 *         the aliases, excluding the computed columns
+	 */
+	private static Map<String, IColumnDefinition> getColumnHints(
+			IOdaDataSetDesign dataSetDesign )
+	{
+		Map<String, IColumnDefinition> columns = new HashMap<String, IColumnDefinition>( );
+		List hints = dataSetDesign.getResultSetHints( );
+		if ( hints == null )
+		{
+			return columns;
+		}
+		for ( Iterator it = hints.iterator( ); it.hasNext( ); )
+		{
+			IColumnDefinition hint = (IColumnDefinition) it.next( );
+			if ( hint.getColumnName( ) != null )
+			{
+				columns.put( hint.getColumnName( ), hint );
+			}
+			if ( hint.getAlias( ) != null )
+			{
+				columns.put( hint.getAlias( ), hint );
+			}
+		}
+		for ( Iterator it = dataSetDesign.getComputedColumns( ).iterator( ); it.hasNext( ); )
+		{
+			columns.remove( ( (IComputedColumn) it.next( ) ).getName( ) );
+		}
+		return columns;
+	}
+
+	/**
+	 * @param filter
+	 * @param bindingColumns
+	 *            the columns referenced by the bindings, null for a data set
+	 *            filter
+	 * @return the data set column referenced by the filter
+	 */
+	private static String getReferencedColumn( IFilterDefinition filter,
+			Map<String, String> bindingColumns )
+	{
+		if ( !( filter.getExpression( ) instanceof IConditionalExpression ) )
+		{
+			return null;
+		}
+		IScriptExpression expr = ( (IConditionalExpression) filter.getExpression( ) ).getExpression( );
+		if ( expr == null || expr.getText( ) == null )
+		{
+			return null;
+		}
+		try
+		{
+			String name = ExpressionUtil.getColumnBindingName( expr.getText( ) );
+			if ( bindingColumns == null )
+			{
+				return name != null ? name
+						: ExpressionUtil.getColumnName( expr.getText( ) );
+			}
+			return name == null ? null : bindingColumns.get( name );
+		}
+		catch ( BirtException e )
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * @param extensionId
+	 * @param expression
+	 *            the filter expression
+	 * @param column
+	 *            the column compared by the filter
+	 * @param compareStrings
+	 *            if the strings can be compared by the data source
+	 * @return the filter expression pushed down, null if the filter can't be
+	 *         pushed down
+	 */
+	static FilterExpression toFilterExpression( String extensionId,
+			IBaseExpression expression, IColumnDefinition column,
+			boolean compareStrings )
+	{
+		if ( column == null
+				|| !( expression instanceof IConditionalExpression ) )
+		{
+			return null;
+		}
+		IConditionalExpression cond = (IConditionalExpression) expression;
+		String columnName = column.getColumnNativeName( ) != null
+				&& column.getColumnNativeName( ).length( ) > 0
+				? column.getColumnNativeName( ) : column.getColumnName( );
+		int type = column.getDataType( );
+		boolean isNumber = type == DataType.INTEGER_TYPE
+				|| type == DataType.DOUBLE_TYPE
+				|| type == DataType.DECIMAL_TYPE;
+		int operator = cond.getOperator( );
+
+		if ( operator == IConditionalExpression.OP_NULL
+				|| operator == IConditionalExpression.OP_NOT_NULL )
+		{
+			return newExpression( extensionId,
+					operator == IConditionalExpression.OP_NULL ? FILTER_IS_NULL
+							: FILTER_IS_NOT_NULL,
+					columnName,
+					new Object[0] );
+		}
+
+		String id = null;
+		int argCount = 1;
+		switch ( operator )
+		{
+			case IConditionalExpression.OP_EQ :
+				id = FILTER_EQUAL;
+				break;
+			case IConditionalExpression.OP_NE :
+				id = FILTER_NOT_EQUAL;
+				break;
+			case IConditionalExpression.OP_LT :
+				id = FILTER_LESS_THAN;
+				break;
+			case IConditionalExpression.OP_LE :
+				id = FILTER_LESS_THAN_OR_EQUAL;
+				break;
+			case IConditionalExpression.OP_GT :
+				id = FILTER_GREATER_THAN;
+				break;
+			case IConditionalExpression.OP_GE :
+				id = FILTER_GREATER_THAN_OR_EQUAL;
+				break;
+			case IConditionalExpression.OP_BETWEEN :
+				id = FILTER_BETWEEN;
+				argCount = 2;
+				break;
+			default :
+				return null;
+		}
+		Object[] args = new Object[argCount];
+		for ( int i = 0; i < argCount; i++ )
+		{
+			args[i] = toLiteral( i == 0 ? cond.getOperand1( )
+					: cond.getOperand2( ) );
+			if ( args[i] == null )
+			{
+				return null;
+			}
+			if ( isNumber ? !( args[i] instanceof BigDecimal )
+					: !( args[i] instanceof String
+							&& type == DataType.STRING_TYPE
+							&& operator == IConditionalExpression.OP_EQ && compareStrings ) )
+			{
+				return null;
+			}
+		}
+
+		// the data engine compares a null value with the nulls ordering of
+		// the data set, so the null values are kept
+		OrExpression or = new OrExpression( );
+		or.add( newExpression( extensionId, id, columnName, args ) );
+		or.add( newExpression( extensionId,
+				FILTER_IS_NULL,
+				columnName,
+				new Object[0] ) );
+		return or;
+	}
+
+	private static CustomExpression newExpression( String extensionId,
+			String id, String columnName, Object[] args )
+	{
+		ExpressionVariable variable = new ExpressionVariable( new ColumnValueExpression( columnName ) );
+		if ( args.length == 0 )
+		{
+			return new CustomExpression( extensionId, id, variable );
+		}
+		ExpressionArguments arguments = new ExpressionArguments( );
+		for ( int i = 0; i < args.length; i++ )
+		{
+			arguments.addValue( args[i] );
+		}
+		return new CustomExpression( extensionId, id, variable, arguments );
 	}
 
+	/**
+	 * @param expr
+	 * @return the number or the string of a literal expression, null if the
+	 *         expression is not a literal
+	 */
+	static Object toLiteral( IBaseExpression expr )
+	{
+		if ( !( expr instanceof IScriptExpression )
+				|| ( (IScriptExpression) expr ).getText( ) == null )
+		{
+			return null;
+		}
+		String text = ( (IScriptExpression) expr ).getText( ).trim( );
+		if ( NUMBER_LITERAL.matcher( text ).matches( ) )
+		{
+			return new BigDecimal( text.startsWith( "+" ) ? text.substring( 1 ) : text ); //$NON-NLS-1$
+		}
+		if ( text.length( ) >= 2
+				&& ( text.charAt( 0 ) == '"' || text.charAt( 0 ) == '\'' )
+				&& text.charAt( text.length( ) - 1 ) == text.charAt( 0 ) )
+		{
+			String value = text.substring( 1, text.length( ) - 1 );
+			if ( value.indexOf( text.charAt( 0 ) ) < 0
+					&& value.indexOf( '\\' ) < 0 )
+			{
+				return value;
+			}
+		}
+		return null;
+	}
 }
@@ -1,42 +0,0 @@
-/*
- *************************************************************************
- * Copyright (c) 2010 Actuate Corporation.
- * All rights reserved. This program and the accompanying materials
- * are made available under the terms of the Eclipse Public License v1.0
- * which accompanies this distribution, and is available at
- * http://www.eclipse.org/legal/epl-v10.html
- *
- * Contributors:
- *  Actuate Corporation  - initial API and implementation
- *  
- *************************************************************************
- */
-package org.eclipse.birt.data.engine.impl;
-
-import org.eclipse.birt.data.engine.api.IOdaDataSetDesign;
-import org.eclipse.birt.data.engine.api.IQueryDefinition;
-import org.eclipse.birt.data.engine.core.DataException;
-
-/**
- * 
- */
-
-public class OptimizationRollbackHelper
-{
-
-	
-	public OptimizationRollbackHelper( IQueryDefinition qd, IOdaDataSetDesign ds )
-	{
-	}
-	
-
-	public void collectOriginalInfo( ) throws DataException
-	{
-	}
-	
-
-	public void rollback( ) throws DataException
-	{
-
-	}
-}
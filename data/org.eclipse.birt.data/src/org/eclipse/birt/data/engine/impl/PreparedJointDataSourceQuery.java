@@ -540,11 +540,18 @@ public class PreparedJointDataSourceQuery extends PreparedDataSourceQuery
 				isLeftDataSet,
 				queryDefinition );
 
-		for ( int i = 0; i < conditions.size( ); i++ )
+		// the secondary data set of a hash join needs not to be sorted
+		int type = PreparedJointDataSourceQuery.this.dataSet.getJoinType( );
+		boolean isPrimary = isLeftDataSet != ( type == IJointDataSetDesign.RIGHT_OUTER_JOIN );
+		if ( isPrimary
+				|| !JointDataSetPopulatorFactory.isHashJoin( type, appContext ) )
 		{
-			addSortToQuery( (IJoinCondition) conditions.get( i ),
-					isLeftDataSet,
-					queryDefinition );
+			for ( int i = 0; i < conditions.size( ); i++ )
+			{
+				addSortToQuery( (IJoinCondition) conditions.get( i ),
+						isLeftDataSet,
+						queryDefinition );
+			}
 		}
 
 		IPreparedQuery preparedQuery = PreparedQueryUtil.newInstance( dataEngine,
@@ -648,12 +655,13 @@ public class PreparedJointDataSourceQuery extends PreparedDataSourceQuery
 			JointResultMetadata jrm = getJointResultMetadata( left.getResultMetaData( ),
 					right.getResultMetaData( ) );
 			resultClass = jrm.getResultClass( );
-			populator = JointDataSetPopulatorFactory.getBinaryTreeDataSetPopulator( left.getOdiResult( ),
+			populator = JointDataSetPopulatorFactory.getJointDataSetPopulator( left.getOdiResult( ),
 					right.getOdiResult( ),
 					jrm,
 					matcher,
 					joinType, dataEngine.getSession( ),
-					dataSetDesign.getRowFetchLimit( ) );
+					dataSetDesign.getRowFetchLimit( ),
+					appContext );
 			
 			DataSetCacheManager dscm = dataEngine.getSession( ).getDataSetCacheManager( );
 			dscm.setDataSourceAndDataSet( 
@@ -34,6 +34,7 @@ import org.eclipse.birt.data.engine.api.IQueryDefinition;
 import org.eclipse.birt.data.engine.api.IQueryResults;
 import org.eclipse.birt.data.engine.core.DataException;
 import org.eclipse.birt.data.engine.executor.DataSourceFactory;
+import org.eclipse.birt.data.engine.executor.cache.CacheUtil;
 import org.eclipse.birt.data.engine.i18n.ResourceConstants;
 import org.eclipse.birt.data.engine.odaconsumer.QuerySpecHelper;
 import org.eclipse.birt.data.engine.odi.IDataSource;
@@ -53,6 +54,10 @@ import org.mozilla.javascript.Scriptable;
 public class PreparedOdaDSQuery extends PreparedDataSourceQuery
 		implements	IPreparedQuery
 {
+	// the data sets of the JDBC driver and its row fetch size property
+	private static final String JDBC_DATA_SET_PREFIX = "org.eclipse.birt.report.data.oda.jdbc.";
+	private static final String ROW_FETCH_SIZE = "rowFetchSize";
+	
 	/**
 	 * @param dataEngine
 	 * @param queryDefn
@@ -124,6 +129,39 @@ public class PreparedOdaDSQuery extends PreparedDataSourceQuery
 	    }
 	}
 	
+	/**
+	 * Sets the row fetch size of a JDBC data set which doesn't specify one,
+	 * so that the driver reads the rows in batches of the size the data engine
+	 * fetches them.
+	 * 
+	 * @param odiDSQuery
+	 * @param extDataSet
+	 * @param appContext
+	 * @throws DataException
+	 */
+	private static void addRowFetchSize( IDataSourceQuery odiDSQuery,
+			OdaDataSetRuntime extDataSet, Map appContext ) throws DataException
+	{
+		String extensionID = extDataSet.getExtensionID( );
+		if ( extensionID == null
+				|| !extensionID.startsWith( JDBC_DATA_SET_PREFIX )
+				|| hasValue( extDataSet.getPublicProperties( ), ROW_FETCH_SIZE )
+				|| hasValue( extDataSet.getPrivateProperties( ), ROW_FETCH_SIZE ) )
+			return;
+		
+		int batchSize = CacheUtil.getOdaFetchBatchSize( appContext );
+		if ( batchSize > 1 )
+			odiDSQuery.addProperty( ROW_FETCH_SIZE, String.valueOf( batchSize ) );
+	}
+	
+	private static boolean hasValue( Map props, String name )
+	{
+		if ( props == null )
+			return false;
+		Object value = props.get( name );
+		return value != null && value.toString( ).trim( ).length( ) > 0;
+	}
+	
 	/*
 	 * @see org.eclipse.birt.data.engine.api.IPreparedQuery#getParameterMetaData()
 	 */
@@ -195,6 +233,8 @@ public class PreparedOdaDSQuery extends PreparedDataSourceQuery
 
 		private QuerySpecification querySpec;
 
+		// the row fetch limit pushed down to the data source, -1 if none
+		private int pushDownRowFetchLimit = -1;
 		
 		/**
 		 * @return prepared query
@@ -311,9 +351,8 @@ public class PreparedOdaDSQuery extends PreparedDataSourceQuery
 					validationContext.setQueryText(((IOdaDataSetDesign) dataSetDesign).getQueryText());
 					//Change to use the specific ValidationContext API in next release.
 					validationContext.setData( "org.eclipse.birt.data.applicationContext", this.getAppContext());
-					OptimizationRollbackHelper rollbackHelper = new OptimizationRollbackHelper(
-							queryDefn, (IOdaDataSetDesign) dataSetDesign);
-					rollbackHelper.collectOriginalInfo();
+					// the query definition and the data set design are not
+					// changed by the optimization
 					querySpec = OdaQueryOptimizationUtil.optimizeExecution(
 									((OdaDataSourceRuntime) dataEngine
 											.getDataSourceRuntime(dataSetDesign
@@ -323,11 +362,10 @@ public class PreparedOdaDSQuery extends PreparedDataSourceQuery
 									(IOdaDataSetDesign) dataSetDesign,
 									queryDefn, dataEngine.getSession(),
 									appContext, contextVisitor);
-					if ( querySpec == null )
-					{
-						//roll back changes made in <code>dataSetDesign</code> and <code>queryDefn</code>
-						rollbackHelper.rollback( );
-					}
+					pushDownRowFetchLimit = OdaQueryOptimizationUtil.getRowFetchLimit( (IOdaDataSetDesign) dataSetDesign,
+							queryDefn,
+							dataEngine.getSession( ),
+							appContext );
 				}
 			}
 			
@@ -358,6 +396,11 @@ public class PreparedOdaDSQuery extends PreparedDataSourceQuery
 		{
 			super.populateOdiQuery( );
 			
+			if ( pushDownRowFetchLimit > 0 )
+			{
+				odiQuery.setRowFetchLimit( pushDownRowFetchLimit );
+			}
+			
 			OdaDataSetRuntime extDataSet = (OdaDataSetRuntime) dataSet;
 			assert extDataSet != null;
 			
@@ -367,6 +410,7 @@ public class PreparedOdaDSQuery extends PreparedDataSourceQuery
 			// assign driver properties
 		    addProperty( odiDSQuery, extDataSet.getPublicProperties() );
 		    addProperty( odiDSQuery, extDataSet.getPrivateProperties() );
+		    addRowFetchSize( odiDSQuery, extDataSet, getAppContext( ) );
 		   
      		// assign parameter hints and result column hints
 		    odiDSQuery.setParameterHints( 
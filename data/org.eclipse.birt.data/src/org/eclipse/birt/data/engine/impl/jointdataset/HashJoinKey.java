@@ -0,0 +1,179 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.birt.data.engine.impl.jointdataset;
+
+import java.util.Date;
+
+/**
+ * The hash key of the values of the join condition expressions. The values
+ * are normalized so that the values which JointDataSetUtil.compare() treats
+ * as equal have equal keys: the numbers are keyed by their double values and
+ * the dates by their milliseconds. Values which are not equal may still have
+ * equal keys, so the rows found by a key must be checked by
+ * IJoinConditionMatcher.compare().
+ */
+final class HashJoinKey
+{
+	static final int KIND_NULL = 0;
+	static final int KIND_NUMBER = 1;
+	static final int KIND_STRING = 2;
+	static final int KIND_DATE = 3;
+	static final int KIND_BOOLEAN = 4;
+	static final int KIND_OTHER = 5;
+
+	private Object[] values;
+	private int hashCode;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param values
+	 *            the normalized values
+	 */
+	private HashJoinKey( Object[] values )
+	{
+		this.values = values;
+		int hash = 1;
+		for ( int i = 0; i < values.length; i++ )
+		{
+			hash = 31 * hash + ( values[i] == null ? 0 : values[i].hashCode( ) );
+		}
+		this.hashCode = hash;
+	}
+
+	/**
+	 * Return the key of the values.
+	 *
+	 * @param values
+	 * @return null if a value can't be hashed
+	 */
+	static HashJoinKey create( Object[] values )
+	{
+		Object[] normalized = new Object[values.length];
+		for ( int i = 0; i < values.length; i++ )
+		{
+			switch ( getKind( values[i] ) )
+			{
+				case KIND_NULL :
+					break;
+				case KIND_NUMBER :
+					double d = ( (Number) values[i] ).doubleValue( );
+					// 0.0 and -0.0 are equal when they are compared as BigDecimal
+					normalized[i] = Double.valueOf( d == 0D ? 0D : d );
+					break;
+				case KIND_DATE :
+					normalized[i] = Long.valueOf( ( (Date) values[i] ).getTime( ) );
+					break;
+				case KIND_STRING :
+				case KIND_BOOLEAN :
+					normalized[i] = values[i];
+					break;
+				default :
+					return null;
+			}
+		}
+		return new HashJoinKey( normalized );
+	}
+
+	/**
+	 * Return the kind of a value.
+	 *
+	 * @param value
+	 * @return
+	 */
+	static int getKind( Object value )
+	{
+		if ( value == null )
+			return KIND_NULL;
+		if ( value instanceof Number )
+			return KIND_NUMBER;
+		if ( value instanceof String )
+			return KIND_STRING;
+		if ( value instanceof Date )
+			return KIND_DATE;
+		if ( value instanceof Boolean )
+			return KIND_BOOLEAN;
+		return KIND_OTHER;
+	}
+
+	/**
+	 * Add the kinds of the values to the masks of the kinds met at each
+	 * position of the keys.
+	 *
+	 * @param kindMasks
+	 * @param values
+	 */
+	static void addKinds( int[] kindMasks, Object[] values )
+	{
+		for ( int i = 0; i < values.length; i++ )
+		{
+			if ( values[i] != null )
+			{
+				kindMasks[i] |= 1 << getKind( values[i] );
+			}
+		}
+	}
+
+	/**
+	 * Return whether the rows matching the values can be found by the key of
+	 * the values. A number is compared with a string after a conversion for
+	 * example, so the rows must be scanned when a value has a kind different
+	 * from the kinds of the indexed values.
+	 *
+	 * @param values
+	 * @param kindMasks
+	 *            the kinds of the indexed values
+	 * @return
+	 */
+	static boolean isComparableByKey( Object[] values, int[] kindMasks )
+	{
+		for ( int i = 0; i < values.length; i++ )
+		{
+			if ( values[i] == null )
+				continue;
+			int kind = getKind( values[i] );
+			if ( kind == KIND_OTHER || ( kindMasks[i] & ~( 1 << kind ) ) != 0 )
+				return false;
+		}
+		return true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.lang.Object#hashCode()
+	 */
+	public int hashCode( )
+	{
+		return hashCode;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	public boolean equals( Object obj )
+	{
+		if ( this == obj )
+			return true;
+		if ( !( obj instanceof HashJoinKey ) )
+			return false;
+		HashJoinKey other = (HashJoinKey) obj;
+		if ( hashCode != other.hashCode || values.length != other.values.length )
+			return false;
+		for ( int i = 0; i < values.length; i++ )
+		{
+			if ( values[i] == null ? other.values[i] != null
+					: !values[i].equals( other.values[i] ) )
+				return false;
+		}
+		return true;
+	}
+}
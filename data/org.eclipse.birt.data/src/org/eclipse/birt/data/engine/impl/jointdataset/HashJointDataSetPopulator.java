@@ -0,0 +1,717 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.impl.jointdataset;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.eclipse.birt.data.engine.api.IJointDataSetDesign;
+import org.eclipse.birt.data.engine.cache.BasicCachedList;
+import org.eclipse.birt.data.engine.core.DataException;
+import org.eclipse.birt.data.engine.executor.ResultObject;
+import org.eclipse.birt.data.engine.impl.DataEngineSession;
+import org.eclipse.birt.data.engine.odi.IDataSetPopulator;
+import org.eclipse.birt.data.engine.odi.IResultClass;
+import org.eclipse.birt.data.engine.odi.IResultIterator;
+import org.eclipse.birt.data.engine.odi.IResultObject;
+
+/**
+ * An implementation of IJointDataSetPopulator which hash joins the inner,
+ * left outer and right outer joins with equality join conditions. The
+ * secondary rows are indexed by a HashResultObjectSeeker and the primary rows
+ * are read in their order, so only the primary rows need to be sorted, and
+ * the joint rows are in the same order as those of the
+ * BaseJointDataSetPopulator.
+ *
+ * When there are more secondary rows than the memory row count, the rows of
+ * both sides are partitioned by the hash of their keys into lists which are
+ * spilled to disk, and the partitions are joined one after another, so that
+ * only the rows of a partition are indexed in memory. The joint rows of every
+ * partition are spilled with the index of their primary row, and the joint
+ * rows of all the partitions are merged back in the order of the primary
+ * rows.
+ */
+public class HashJointDataSetPopulator implements IDataSetPopulator
+{
+	// the number of the partitions of a spilled join
+	private static final int PARTITION_COUNT = 64;
+
+	//
+	private JointResultMetadata meta;
+
+	private IResultIterator primaryIterator;
+	private IResultIterator secondaryIterator;
+	private int joinType;
+
+	private IJoinConditionMatcher jcm;
+
+	private HashResultObjectSeeker seeker;
+
+	private IResultObject curPrimaryResultObject = null;
+	// the values of the join condition expressions of a spilled primary row
+	private Object[] curPrimaryMatchValues = null;
+	// the sequence number of the current primary row
+	private int curPrimaryIndex = -1;
+	private boolean beCurPrimaryMatched = false;
+
+	// indicate whether this object is initialized.
+	private boolean beInitialized = false;
+
+	private DataEngineSession session;
+
+	private int rowFetchLimit;
+
+	private int rowCount;
+
+	private int memoryRowCount;
+
+	// the partitions of the spilled join, a row is spilled as a list of the
+	// values of its join condition expressions followed by its field values,
+	// the primary rows are preceded by their index
+	private List[] primaryPartitions;
+	private List[] secondaryPartitions;
+	// the primary rows which can't be found by key, they are matched at
+	// last by scanning all the secondary rows
+	private List residualPrimaryRows;
+	// the secondary rows which have no key
+	private List unkeyedSecondaryRows;
+	private int[] kindMasks;
+	private int partitionIndex;
+	private List curPrimaryRows;
+	private int curRowPosition;
+	private int scanListIndex;
+	private int scanPosition;
+	// the index of the current primary row of the spilled join
+	private int curPrimarySequence;
+	// the joint rows of the partitions and of the residual primary rows,
+	// spilled as the index of their primary row followed by their field values
+	private List[] jointPartitions;
+	private PriorityQueue jointCursors;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param left
+	 * @param right
+	 * @param meta
+	 * @param jcm
+	 * @param joinType
+	 * @param session
+	 * @param rowFetchLimit
+	 * @param memoryRowCount
+	 *            the maximum number of the secondary rows indexed in memory
+	 */
+	public HashJointDataSetPopulator( IResultIterator left,
+			IResultIterator right, JointResultMetadata meta,
+			IJoinConditionMatcher jcm, int joinType,
+			DataEngineSession session, int rowFetchLimit, int memoryRowCount )
+	{
+		assert joinType != IJointDataSetDesign.FULL_OUTER_JOIN;
+
+		this.meta = meta;
+		this.joinType = joinType;
+		this.jcm = jcm;
+		this.session = session;
+		if ( isPrimaryLeft( ) )
+		{
+			this.primaryIterator = left;
+			this.secondaryIterator = right;
+		}
+		else
+		{
+			this.primaryIterator = right;
+			this.secondaryIterator = left;
+		}
+		this.rowFetchLimit = rowFetchLimit;
+		this.rowCount = 0;
+		this.memoryRowCount = Math.max( 1, memoryRowCount );
+	}
+
+	/**
+	 * Return whether primary iterator is left.
+	 *
+	 * @return
+	 */
+	private boolean isPrimaryLeft( )
+	{
+		return joinType != IJointDataSetDesign.RIGHT_OUTER_JOIN;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.odi.IDataSetPopulator#next()
+	 */
+	public IResultObject next( ) throws DataException
+	{
+		IResultObject result = null;
+		if ( this.rowFetchLimit <= 0 || this.rowCount < this.rowFetchLimit )
+		{
+			if ( !beInitialized )
+			{
+				initialize( );
+				beInitialized = true;
+			}
+			result = jointCursors == null ? doNext( ) : nextJointRow( );
+		}
+		if ( result != null )
+			this.rowCount++;
+		else
+			clearPartitions( );
+		return result;
+	}
+
+	/**
+	 * Read the secondary rows. They are indexed in memory if there are not
+	 * more rows than the memory row count, otherwise the rows of both sides
+	 * are partitioned.
+	 *
+	 * @throws DataException
+	 */
+	private void initialize( ) throws DataException
+	{
+		List buffer = new ArrayList( );
+		if ( secondaryIterator.getCurrentResult( ) != null )
+		{
+			do
+			{
+				IResultObject row = secondaryIterator.getCurrentResult( );
+				Object[] values = jcm.getCompareValue( !isPrimaryLeft( ) );
+				if ( kindMasks == null )
+					kindMasks = new int[values.length];
+				HashJoinKey.addKinds( kindMasks, values );
+
+				if ( secondaryPartitions != null )
+				{
+					addSecondaryRow( row, values );
+				}
+				else if ( buffer.size( ) < memoryRowCount )
+				{
+					buffer.add( new Object[]{
+							row, values
+					} );
+				}
+				else
+				{
+					createPartitions( );
+					for ( int i = 0; i < buffer.size( ); i++ )
+					{
+						Object[] buffered = (Object[]) buffer.get( i );
+						addSecondaryRow( (IResultObject) buffered[0],
+								(Object[]) buffered[1] );
+					}
+					buffer = null;
+					addSecondaryRow( row, values );
+				}
+			} while ( secondaryIterator.next( ) );
+		}
+
+		if ( secondaryPartitions == null )
+		{
+			seeker = new HashResultObjectSeeker( jcm, joinType );
+			for ( int i = 0; i < buffer.size( ); i++ )
+			{
+				Object[] buffered = (Object[]) buffer.get( i );
+				seeker.add( (IResultObject) buffered[0], (Object[]) buffered[1] );
+			}
+		}
+		else
+		{
+			partitionPrimaryRows( );
+			joinPartitions( );
+		}
+	}
+
+	/**
+	 *
+	 * @return
+	 * @throws DataException
+	 */
+	private IResultObject doNext( ) throws DataException
+	{
+		while ( true )
+		{
+			if ( curPrimaryResultObject != null )
+			{
+				IResultObject secondary = getNextMatchedResultObject( );
+				if ( secondary != null )
+				{
+					beCurPrimaryMatched = true;
+					return createResultObject( curPrimaryResultObject,
+							secondary );
+				}
+				IResultObject primary = curPrimaryResultObject;
+				curPrimaryResultObject = null;
+				if ( !beCurPrimaryMatched
+						&& joinType != IJointDataSetDesign.INNER_JOIN )
+				{
+					return createResultObject( primary, null );
+				}
+			}
+			if ( !fetchPrimaryObject( ) )
+			{
+				// Return null means there is no more rows.
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * Return the next secondary row which matches the current primary row.
+	 *
+	 * @return
+	 * @throws DataException
+	 */
+	private IResultObject getNextMatchedResultObject( ) throws DataException
+	{
+		if ( primaryPartitions == null )
+			return seeker.getNextMatchedResultObject( curPrimaryIndex );
+		if ( seeker != null )
+			return seeker.getNextMatchedResultObject( curPrimaryIndex,
+					curPrimaryMatchValues );
+
+		// scan the secondary rows for a residual primary row
+		while ( scanListIndex <= secondaryPartitions.length )
+		{
+			List rows = scanListIndex < secondaryPartitions.length
+					? secondaryPartitions[scanListIndex] : unkeyedSecondaryRows;
+			while ( scanPosition < rows.size( ) )
+			{
+				List spilled = (List) rows.get( scanPosition++ );
+				Object[] values = getMatchValues( spilled, 0 );
+				int result = isPrimaryLeft( ) ? jcm.compare( curPrimaryMatchValues,
+						values ) : jcm.compare( values, curPrimaryMatchValues );
+				if ( result == 0 )
+					return getResultObject( spilled,
+							kindMasks.length,
+							secondaryIterator.getResultClass( ) );
+			}
+			scanListIndex++;
+			scanPosition = 0;
+		}
+		return null;
+	}
+
+	/**
+	 * Fetch a primary object.
+	 *
+	 * @return false if there are no more primary rows
+	 * @throws DataException
+	 */
+	private boolean fetchPrimaryObject( ) throws DataException
+	{
+		if ( primaryPartitions == null )
+		{
+			if ( curPrimaryIndex >= 0 )
+				primaryIterator.next( );
+			curPrimaryResultObject = primaryIterator.getCurrentResult( );
+		}
+		else
+		{
+			while ( curPrimaryRows == null
+					|| curRowPosition >= curPrimaryRows.size( ) )
+			{
+				if ( !nextPartition( ) )
+					return false;
+			}
+			List spilled = (List) curPrimaryRows.get( curRowPosition++ );
+			curPrimarySequence = ( (Integer) spilled.get( 0 ) ).intValue( );
+			curPrimaryMatchValues = getMatchValues( spilled, 1 );
+			curPrimaryResultObject = getResultObject( spilled,
+					1 + kindMasks.length,
+					primaryIterator.getResultClass( ) );
+			scanListIndex = 0;
+			scanPosition = 0;
+		}
+		curPrimaryIndex++;
+		beCurPrimaryMatched = false;
+		return curPrimaryResultObject != null;
+	}
+
+	/**
+	 * Create the partitions of the spilled join. The lists buffer no more rows
+	 * in memory than the memory row count all together.
+	 */
+	private void createPartitions( )
+	{
+		int bufferSize = getBufferSize( );
+		primaryPartitions = new List[PARTITION_COUNT];
+		secondaryPartitions = new List[PARTITION_COUNT];
+		for ( int i = 0; i < PARTITION_COUNT; i++ )
+		{
+			primaryPartitions[i] = new PartitionList( session, bufferSize );
+			secondaryPartitions[i] = new PartitionList( session, bufferSize );
+		}
+		residualPrimaryRows = new PartitionList( session, bufferSize );
+		unkeyedSecondaryRows = new PartitionList( session, bufferSize );
+		partitionIndex = 0;
+	}
+
+	/**
+	 * Return the number of the rows buffered in memory by a spilled list, so
+	 * that the lists of the inputs or of the joint rows don't buffer more
+	 * rows than the memory row count all together.
+	 *
+	 * @return
+	 */
+	private int getBufferSize( )
+	{
+		return Math.max( 1, memoryRowCount / ( 2 * PARTITION_COUNT + 2 ) );
+	}
+
+	/**
+	 * Spill a secondary row to its partition.
+	 *
+	 * @param row
+	 * @param values
+	 * @throws DataException
+	 */
+	private void addSecondaryRow( IResultObject row, Object[] values )
+			throws DataException
+	{
+		HashJoinKey key = HashJoinKey.create( values );
+		if ( key == null )
+			unkeyedSecondaryRows.add( toSpilledRow( row, values ) );
+		else
+			secondaryPartitions[getPartition( key )].add( toSpilledRow( row,
+					values ) );
+	}
+
+	/**
+	 * Spill the primary rows to their partitions.
+	 *
+	 * @throws DataException
+	 */
+	private void partitionPrimaryRows( ) throws DataException
+	{
+		if ( primaryIterator.getCurrentResult( ) == null )
+			return;
+		int sequence = 0;
+		do
+		{
+			IResultObject row = primaryIterator.getCurrentResult( );
+			Object[] values = jcm.getCompareValue( isPrimaryLeft( ) );
+			List spilled = toSpilledRow( row, values );
+			spilled.add( 0, Integer.valueOf( sequence++ ) );
+			if ( HashJoinKey.isComparableByKey( values, kindMasks ) )
+				primaryPartitions[getPartition( HashJoinKey.create( values ) )].add( spilled );
+			else
+				residualPrimaryRows.add( spilled );
+		} while ( primaryIterator.next( ) );
+	}
+
+	/**
+	 * Join the partitions one after another, and spill the joint rows of
+	 * every partition with the index of their primary row. The joint rows of
+	 * a partition are in the order of their primary rows, so they are merged
+	 * back by this index.
+	 *
+	 * @throws DataException
+	 */
+	private void joinPartitions( ) throws DataException
+	{
+		int bufferSize = getBufferSize( );
+		jointPartitions = new List[PARTITION_COUNT + 1];
+		for ( int i = 0; i < jointPartitions.length; i++ )
+		{
+			jointPartitions[i] = new PartitionList( session, bufferSize );
+		}
+		IResultObject row;
+		while ( ( row = doNext( ) ) != null )
+		{
+			// the partition of the current primary row is the one before
+			// the partition index, or the residual rows after the last one
+			jointPartitions[partitionIndex - 1].add( toSpilledRow( row,
+					new Object[]{
+						Integer.valueOf( curPrimarySequence )
+					} ) );
+		}
+		closeInputPartitions( );
+
+		jointCursors = new PriorityQueue( jointPartitions.length,
+				new Comparator( ) {
+
+					public int compare( Object o1, Object o2 )
+					{
+						return ( (JointCursor) o1 ).getSequence( )
+								- ( (JointCursor) o2 ).getSequence( );
+					}
+				} );
+		for ( int i = 0; i < jointPartitions.length; i++ )
+		{
+			JointCursor cursor = new JointCursor( jointPartitions[i] );
+			if ( cursor.next( ) )
+				jointCursors.add( cursor );
+		}
+	}
+
+	/**
+	 * Return the joint row of the spilled join with the smallest index of
+	 * primary row.
+	 *
+	 * @return null if there are no more rows
+	 */
+	private IResultObject nextJointRow( )
+	{
+		JointCursor cursor = (JointCursor) jointCursors.poll( );
+		if ( cursor == null )
+			return null;
+		List spilled = cursor.getRow( );
+		if ( cursor.next( ) )
+			jointCursors.add( cursor );
+		return getResultObject( spilled, 1, meta.getResultClass( ) );
+	}
+
+	/**
+	 * Return the partition of a key.
+	 *
+	 * @param key
+	 * @return
+	 */
+	private static int getPartition( HashJoinKey key )
+	{
+		return ( key.hashCode( ) & 0x7FFFFFFF ) % PARTITION_COUNT;
+	}
+
+	/**
+	 * Move to the next partition which has primary rows, and index its
+	 * secondary rows.
+	 *
+	 * @return false if there are no more partitions
+	 * @throws DataException
+	 */
+	private boolean nextPartition( ) throws DataException
+	{
+		if ( partitionIndex > 0 && partitionIndex <= PARTITION_COUNT )
+		{
+			closeList( primaryPartitions[partitionIndex - 1] );
+		}
+		while ( partitionIndex < PARTITION_COUNT )
+		{
+			int p = partitionIndex++;
+			if ( primaryPartitions[p].isEmpty( ) )
+				continue;
+			seeker = new HashResultObjectSeeker( jcm, joinType );
+			IResultClass resultClass = secondaryIterator.getResultClass( );
+			List rows = secondaryPartitions[p];
+			for ( int i = 0; i < rows.size( ); i++ )
+			{
+				List spilled = (List) rows.get( i );
+				seeker.add( getResultObject( spilled,
+						kindMasks.length,
+						resultClass ), getMatchValues( spilled, 0 ) );
+			}
+			curPrimaryRows = primaryPartitions[p];
+			curRowPosition = 0;
+			return true;
+		}
+		if ( partitionIndex == PARTITION_COUNT )
+		{
+			partitionIndex++;
+			seeker = null;
+			curPrimaryRows = residualPrimaryRows;
+			curRowPosition = 0;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Return the list of a spilled row.
+	 *
+	 * @param row
+	 * @param values
+	 * @return
+	 * @throws DataException
+	 */
+	private static List toSpilledRow( IResultObject row, Object[] values )
+			throws DataException
+	{
+		int fieldCount = row.getResultClass( ).getFieldCount( );
+		List spilled = new ArrayList( values.length + fieldCount );
+		for ( int i = 0; i < values.length; i++ )
+		{
+			spilled.add( values[i] );
+		}
+		for ( int i = 1; i <= fieldCount; i++ )
+		{
+			spilled.add( row.getFieldValue( i ) );
+		}
+		return spilled;
+	}
+
+	/**
+	 * Return the values of the join condition expressions of a spilled row.
+	 *
+	 * @param spilled
+	 * @param start
+	 *            the position of the first value in the spilled row
+	 * @return
+	 */
+	private Object[] getMatchValues( List spilled, int start )
+	{
+		Object[] values = new Object[kindMasks.length];
+		for ( int i = 0; i < values.length; i++ )
+		{
+			values[i] = spilled.get( start + i );
+		}
+		return values;
+	}
+
+	/**
+	 * Return the result object of a spilled row.
+	 *
+	 * @param spilled
+	 * @param start
+	 *            the position of the first field value in the spilled row
+	 * @param resultClass
+	 * @return
+	 */
+	private IResultObject getResultObject( List spilled, int start,
+			IResultClass resultClass )
+	{
+		Object[] fields = new Object[spilled.size( ) - start];
+		for ( int i = 0; i < fields.length; i++ )
+		{
+			fields[i] = spilled.get( start + i );
+		}
+		return new ResultObject( resultClass, fields );
+	}
+
+	/**
+	 * Delete the spilled partitions of the inputs.
+	 */
+	private void closeInputPartitions( )
+	{
+		if ( primaryPartitions == null )
+			return;
+		for ( int i = 0; i < PARTITION_COUNT; i++ )
+		{
+			closeList( primaryPartitions[i] );
+			closeList( secondaryPartitions[i] );
+		}
+		closeList( residualPrimaryRows );
+		closeList( unkeyedSecondaryRows );
+		primaryPartitions = null;
+		secondaryPartitions = null;
+	}
+
+	/**
+	 * Delete the spilled partitions.
+	 */
+	private void clearPartitions( )
+	{
+		closeInputPartitions( );
+		if ( jointPartitions == null )
+			return;
+		for ( int i = 0; i < jointPartitions.length; i++ )
+		{
+			closeList( jointPartitions[i] );
+		}
+		jointPartitions = null;
+	}
+
+	/**
+	 *
+	 * @param list
+	 */
+	private static void closeList( List list )
+	{
+		( (BasicCachedList) list ).close( );
+	}
+
+	/**
+	 * Create an instance of IResultObject.
+	 *
+	 * @param primary
+	 * @param secondary
+	 * @return
+	 * @throws DataException
+	 */
+	private IResultObject createResultObject( IResultObject primary,
+			IResultObject secondary ) throws DataException
+	{
+		Object[] fields = new Object[meta.getResultClass( ).getFieldCount( )];
+		for ( int i = 1; i <= fields.length; i++ )
+		{
+			IResultObject ri = null;
+
+			if ( meta.getColumnSource( i ) == JointResultMetadata.COLUMN_TYPE_LEFT )
+			{
+				ri = isPrimaryLeft( ) ? primary : secondary;
+			}
+			else if ( meta.getColumnSource( i ) == JointResultMetadata.COLUMN_TYPE_RIGHT )
+			{
+				ri = isPrimaryLeft( ) ? secondary : primary;
+			}
+
+			fields[i - 1] = ri == null ? null
+					: ri.getFieldValue( meta.getSourceIndex( i ) );
+		}
+		return new ResultObject( meta.getResultClass( ), fields );
+	}
+
+	/**
+	 * The position in the spilled joint rows of a partition.
+	 */
+	private static class JointCursor
+	{
+
+		private List rows;
+		private int position;
+		private List row;
+
+		JointCursor( List rows )
+		{
+			this.rows = rows;
+		}
+
+		/**
+		 * Move to the next row.
+		 *
+		 * @return false if there are no more rows
+		 */
+		boolean next( )
+		{
+			if ( position >= rows.size( ) )
+				return false;
+			row = (List) rows.get( position++ );
+			return true;
+		}
+
+		List getRow( )
+		{
+			return row;
+		}
+
+		int getSequence( )
+		{
+			return ( (Integer) row.get( 0 ) ).intValue( );
+		}
+	}
+
+	/**
+	 * The list of the spilled rows of a partition, which buffers a block of
+	 * the rows in memory.
+	 */
+	private static class PartitionList extends BasicCachedList
+	{
+
+		PartitionList( DataEngineSession session, int bufferSize )
+		{
+			super( session.getTempDir( ),
+					DataEngineSession.getCurrentClassLoader( ) );
+			this.cacheSize = bufferSize;
+		}
+	}
+}
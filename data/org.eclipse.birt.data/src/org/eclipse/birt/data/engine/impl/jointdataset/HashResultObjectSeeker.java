@@ -0,0 +1,177 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.birt.data.engine.impl.jointdataset;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.birt.data.engine.api.IJointDataSetDesign;
+import org.eclipse.birt.data.engine.core.DataException;
+import org.eclipse.birt.data.engine.odi.IResultIterator;
+import org.eclipse.birt.data.engine.odi.IResultObject;
+
+/**
+ * This implementation of IMatchResultObjectSeeker is used for the equality
+ * join conditions. The secondary rows are read once and indexed in a hash
+ * table by the values of their join condition expressions, so the secondary
+ * rows need not be sorted and the rows matching a primary row are found
+ * without comparing it with the other rows. The matched rows are returned in
+ * the order of the secondary rows.
+ */
+public class HashResultObjectSeeker implements IMatchResultObjectSeeker
+{
+	//
+	private IJoinConditionMatcher matcher;
+	private boolean isSecondaryLeft;
+
+	private List<Entry> entries;
+	private Map<HashJoinKey, List<Entry>> index;
+	// the kinds of the values of the indexed rows
+	private int[] kindMasks;
+
+	private int currentPrimaryIndex;
+	private Object[] probeValues;
+	private List<Entry> candidates;
+	private int position;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param matcher
+	 * @param joinType
+	 */
+	public HashResultObjectSeeker( IJoinConditionMatcher matcher, int joinType )
+	{
+		this.matcher = matcher;
+		this.isSecondaryLeft = joinType == IJointDataSetDesign.RIGHT_OUTER_JOIN;
+		this.entries = new ArrayList<Entry>( );
+		this.index = new HashMap<HashJoinKey, List<Entry>>( );
+		this.currentPrimaryIndex = -1;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.impl.jointdataset.IMatchResultObjectSeeker#setResultIterator(org.eclipse.birt.data.engine.odi.IResultIterator)
+	 */
+	public void setResultIterator( IResultIterator ri ) throws DataException
+	{
+		if ( ri.getCurrentResult( ) == null )
+			return;
+		do
+		{
+			add( ri.getCurrentResult( ),
+					matcher.getCompareValue( isSecondaryLeft ) );
+		} while ( ri.next( ) );
+	}
+
+	/**
+	 * Index a secondary row.
+	 *
+	 * @param row
+	 * @param values
+	 *            the values of the join condition expressions of the row
+	 */
+	void add( IResultObject row, Object[] values )
+	{
+		if ( kindMasks == null )
+			kindMasks = new int[values.length];
+		HashJoinKey.addKinds( kindMasks, values );
+
+		Entry entry = new Entry( row, values );
+		entries.add( entry );
+		HashJoinKey key = HashJoinKey.create( values );
+		if ( key == null )
+		{
+			// the row can only be found by scanning the rows
+			return;
+		}
+		List<Entry> rows = index.get( key );
+		if ( rows == null )
+		{
+			rows = new ArrayList<Entry>( 1 );
+			index.put( key, rows );
+		}
+		rows.add( entry );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.impl.jointdataset.IMatchResultObjectSeeker#getNextMatchedResultObject(int)
+	 */
+	public IResultObject getNextMatchedResultObject( int primaryIndex )
+			throws DataException
+	{
+		if ( this.currentPrimaryIndex != primaryIndex )
+		{
+			return getNextMatchedResultObject( primaryIndex,
+					matcher.getCompareValue( !isSecondaryLeft ) );
+		}
+		return getNextMatchedResultObject( primaryIndex, probeValues );
+	}
+
+	/**
+	 * Return the next secondary row which matches the values of a primary
+	 * row.
+	 *
+	 * @param primaryIndex
+	 * @param values
+	 *            the values of the join condition expressions of the primary
+	 *            row
+	 * @return
+	 * @throws DataException
+	 */
+	IResultObject getNextMatchedResultObject( int primaryIndex, Object[] values )
+			throws DataException
+	{
+		if ( this.currentPrimaryIndex != primaryIndex )
+		{
+			this.currentPrimaryIndex = primaryIndex;
+			this.probeValues = values;
+			this.position = 0;
+			if ( kindMasks == null )
+				this.candidates = null;
+			else if ( HashJoinKey.isComparableByKey( values, kindMasks ) )
+				this.candidates = index.get( HashJoinKey.create( values ) );
+			else
+				this.candidates = entries;
+		}
+		if ( candidates == null )
+			return null;
+
+		while ( position < candidates.size( ) )
+		{
+			Entry entry = candidates.get( position++ );
+			// different values may have the same key
+			int result = isSecondaryLeft ? matcher.compare( entry.values,
+					probeValues ) : matcher.compare( probeValues, entry.values );
+			if ( result == 0 )
+				return entry.row;
+		}
+		return null;
+	}
+
+	/**
+	 * An indexed secondary row.
+	 */
+	private static class Entry
+	{
+		private IResultObject row;
+		private Object[] values;
+
+		Entry( IResultObject row, Object[] values )
+		{
+			this.row = row;
+			this.values = values;
+		}
+	}
+}
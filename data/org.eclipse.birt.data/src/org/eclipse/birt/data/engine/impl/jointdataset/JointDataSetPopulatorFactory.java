@@ -10,7 +10,11 @@
  *******************************************************************************/
 package org.eclipse.birt.data.engine.impl.jointdataset;
 
+import java.util.Map;
+
+import org.eclipse.birt.data.engine.api.IJointDataSetDesign;
 import org.eclipse.birt.data.engine.core.DataException;
+import org.eclipse.birt.data.engine.executor.cache.CacheUtil;
 import org.eclipse.birt.data.engine.impl.DataEngineSession;
 import org.eclipse.birt.data.engine.odi.IDataSetPopulator;
 import org.eclipse.birt.data.engine.odi.IResultIterator;
@@ -54,4 +58,61 @@ public class JointDataSetPopulatorFactory
 	{
 		return new BaseJointDataSetPopulator( left, right, meta, jcm , joinType, null, session, rowFetchLimit );
 	}
+	
+	/**
+	 * Return instance of IJointDataSetPopulator which is used for hash join.
+	 * The secondary iterator needs not to be sorted.
+	 * 
+	 * @param left
+	 * @param right
+	 * @param meta
+	 * @param jcm
+	 * @param joinType
+	 * @param session
+	 * @param rowFetchLimit
+	 * @param memoryRowCount
+	 * @return
+	 * @throws DataException
+	 */
+	public static IDataSetPopulator getHashJointDataSetPopulator( IResultIterator left, IResultIterator right, JointResultMetadata meta, IJoinConditionMatcher jcm , int joinType, DataEngineSession session, int rowFetchLimit, int memoryRowCount ) throws DataException
+	{
+		return new HashJointDataSetPopulator( left, right, meta, jcm, joinType, session, rowFetchLimit, memoryRowCount );
+	}
+	
+	/**
+	 * Return whether the join is hash joined. The full outer join is always
+	 * merge joined.
+	 * 
+	 * @param joinType
+	 * @param appContext
+	 * @return true if only the primary iterator needs to be sorted
+	 */
+	public static boolean isHashJoin( int joinType, Map appContext )
+	{
+		return joinType != IJointDataSetDesign.FULL_OUTER_JOIN
+				&& CacheUtil.isHashJoinEnabled( appContext );
+	}
+	
+	/**
+	 * Return instance of IJointDataSetPopulator which is chosen for the join
+	 * type, the hash join if isHashJoin() returns true and the merge join
+	 * otherwise.
+	 * 
+	 * @param left
+	 * @param right
+	 * @param meta
+	 * @param jcm
+	 * @param joinType
+	 * @param session
+	 * @param rowFetchLimit
+	 * @param appContext
+	 * @return
+	 * @throws DataException
+	 */
+	public static IDataSetPopulator getJointDataSetPopulator( IResultIterator left, IResultIterator right, JointResultMetadata meta, IJoinConditionMatcher jcm , int joinType, DataEngineSession session, int rowFetchLimit, Map appContext ) throws DataException
+	{
+		if ( isHashJoin( joinType, appContext ) )
+			return getHashJointDataSetPopulator( left, right, meta, jcm, joinType, session, rowFetchLimit, CacheUtil.getHashJoinMemoryRowCount( appContext ) );
+		return getBinaryTreeDataSetPopulator( left, right, meta, jcm, joinType, session, rowFetchLimit );
+	}
 }
@@ -45,6 +45,7 @@ import org.eclipse.datatools.connectivity.oda.util.manifest.ConnectionProfilePro
 public class QuerySpecHelper
 {
     QuerySpecificationHelper m_specFactoryHelper;
+    String m_resultExtensionId;
     
     /**
      * Constructor for a specialized helper of the specified data source and data set types.
@@ -71,6 +72,8 @@ public class QuerySpecHelper
         if( contributors != null && contributors.length > 0 )
             resultSetContributor = contributors[0]; // use the first one found
         m_specFactoryHelper = new QuerySpecificationHelper( resultSetContributor );
+        if( resultSetContributor != null )
+            m_resultExtensionId = resultSetContributor.getDeclaringExtensionId();
     }
     
     /**
@@ -80,6 +83,7 @@ public class QuerySpecHelper
     public QuerySpecHelper( String dynamicResultSetExtnId )
     {
         m_specFactoryHelper = new QuerySpecificationHelper( dynamicResultSetExtnId );
+        m_resultExtensionId = dynamicResultSetExtnId;
     }
     
     /**
@@ -91,6 +95,16 @@ public class QuerySpecHelper
         return m_specFactoryHelper;
     }
     
+    /**
+     * Gets the id of the ODA dynamicResultSet extension which declares the 
+     * custom filter expressions supported by the data source.
+     * @return  the extension id; may be null if no extension is found
+     */
+    public String getResultExtensionId()
+    {
+        return m_resultExtensionId;
+    }
+    
     /**
      * Sets the specified input ParameterHint and corresponding value in the specified QuerySpecification.
      * @param querySpec a QuerySpecification to which the input parameter value is set 
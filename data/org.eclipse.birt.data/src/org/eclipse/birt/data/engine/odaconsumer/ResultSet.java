@@ -39,6 +39,32 @@ public class ResultSet extends ExceptionHandler
 {
 	private IResultSet m_resultSet;
 	private IResultClass m_resultClass;		// cached result class
+	
+	// the getter of each column, resolved on the first fetch
+	private static final int UNKNOWN_COLUMN = 0;
+	private static final int CUSTOM_COLUMN = 1;
+	private static final int INT_COLUMN = 2;
+	private static final int DOUBLE_COLUMN = 3;
+	private static final int STRING_COLUMN = 4;
+	private static final int DECIMAL_COLUMN = 5;
+	private static final int DATE_COLUMN = 6;
+	private static final int TIME_COLUMN = 7;
+	private static final int TIMESTAMP_COLUMN = 8;
+	private static final int BLOB_COLUMN = 9;
+	private static final int CLOB_COLUMN = 10;
+	private static final int BOOLEAN_COLUMN = 11;
+	private static final int OBJECT_COLUMN = 12;
+	
+	private int[] m_columnKinds;
+	private int[] m_driverPositions;
+	private boolean m_hasLobColumn;
+	
+	// the rows read ahead by fetch() and the index of the next one
+	private int m_batchSize = 1;
+	private IResultObject[] m_batch;
+	private int m_batchCount;
+	private int m_batchIndex;
+	private int m_readRowCount;
 
 	// trace logging variables
 	private static String sm_className = ResultSet.class.getName();
@@ -119,6 +145,21 @@ public class ResultSet extends ExceptionHandler
 		}
 	}
 	
+	/**
+	 * Specifies the number of rows read at once from the underlying result
+	 * set by <code>fetch()</code>. The rows of a result set with LOB columns
+	 * are always read one by one, since a LOB may no longer be readable once
+	 * the cursor has moved past its row.
+	 * @param size	the number of rows read at once; 1 or less to read the 
+	 *				rows one by one.
+	 * @throws DataException	if data source error occurs.
+	 */
+	public void setFetchBatchSize( int size ) throws DataException
+	{
+		initColumnKinds( );
+		m_batchSize = m_hasLobColumn ? 1 : Math.max( 1, size );
+	}
+	
 	/**
 	 * Returns the IResultObject representing the next row in the result set.
 	 * @return 	the IResultObject representing the next row; null if there are 
@@ -130,6 +171,51 @@ public class ResultSet extends ExceptionHandler
 		if ( m_resultSet == null )
 			return null;
 
+		if ( m_batchSize <= 1 )
+			return fetchRow( );
+
+		if ( m_batchIndex == m_batchCount )
+		{
+			if ( m_batchCount < m_batchSize && m_batch != null )
+				return null;	// the last batch was not full
+			if ( m_batch == null )
+				m_batch = new IResultObject[m_batchSize];
+			m_batchCount = fetch( m_batch );
+			m_batchIndex = 0;
+			if ( m_batchCount == 0 )
+				return null;
+		}
+		IResultObject ret = m_batch[m_batchIndex];
+		m_batch[m_batchIndex++] = null;
+		return ret;
+	}
+	
+	/**
+	 * Reads the next rows of the result set into the given array.
+	 * @param rows	the array to fill with the IResultObjects of the next rows.
+	 * @return	the number of the fetched rows, which is less than the length 
+	 * 			of the array only if there are no more rows available or if 
+	 * 			max rows limit has been reached.
+	 * @throws DataException	if data source error occurs.
+	 */
+	public int fetch( IResultObject[] rows ) throws DataException
+	{
+		if ( m_resultSet == null )
+			return 0;
+
+		int count = 0;
+		while ( count < rows.length )
+		{
+			IResultObject row = fetchRow( );
+			if ( row == null )
+				break;
+			rows[count++] = row;
+		}
+		return count;
+	}
+	
+	private IResultObject fetchRow( ) throws DataException
+	{
 	    final String methodName = "fetch"; //$NON-NLS-1$
         final String errorCode = ResourceConstants.CANNOT_FETCH_NEXT_ROW;
 
@@ -146,74 +232,140 @@ public class ResultSet extends ExceptionHandler
 		{
 		    throwException( ex, errorCode, methodName );
 		}
+		m_readRowCount++;
 
+		initColumnKinds( );
+		int columnCount = m_columnKinds.length;
+		Object[] fields = new Object[ columnCount ];
+		
+		for( int i = 0; i < columnCount; i++ )
+		{
+			int driverPosition = m_driverPositions[i];
+			Object colValue = null;
+			
+			switch( m_columnKinds[i] )
+			{
+				case CUSTOM_COLUMN:
+					continue;
+				case INT_COLUMN:
+				{
+					int j = getInt( driverPosition );
+					if( ! wasNull() )
+						fields[i] = Integer.valueOf( j );
+					continue;
+				}
+				case DOUBLE_COLUMN:
+				{
+					double d = getDouble( driverPosition );
+					if( ! wasNull() )
+						fields[i] = new Double( d );
+					continue;
+				}
+				case BOOLEAN_COLUMN:
+				{
+					boolean val = getBoolean( driverPosition );
+					if( ! wasNull() )
+						fields[i] = Boolean.valueOf( val );
+					continue;
+				}
+				case STRING_COLUMN:
+					colValue = getString( driverPosition );
+					break;
+				case DECIMAL_COLUMN:
+					colValue = getBigDecimal( driverPosition );
+					break;
+				case DATE_COLUMN:
+					colValue = getDate( driverPosition );
+					break;
+				case TIME_COLUMN:
+					colValue = getTime( driverPosition );
+					break;
+				case TIMESTAMP_COLUMN:
+					colValue = getTimestamp( driverPosition );
+					break;
+				case BLOB_COLUMN:
+					colValue = getBlob( driverPosition );
+					break;
+				case CLOB_COLUMN:
+					colValue = getClob( driverPosition );
+					break;
+				case OBJECT_COLUMN:
+					colValue = getObject( driverPosition );
+					break;
+				default:
+					assert false;
+			}
+			
+			if( colValue != null && wasNull( ) )
+				colValue = null;
+			
+			fields[i] = colValue;
+		}
+		
+		IResultObject ret = new ResultObject( m_resultClass, fields );
+
+		getLogger().logp( Level.FINEST, sm_className, methodName, 
+		            		"Fetched next row: {0} .", ret ); //$NON-NLS-1$
+
+		return ret;
+	}
+	
+	/**
+	 * Resolves once the getter and the driver position of each column, so 
+	 * that the type of a column is not checked for each row.
+	 */
+	private void initColumnKinds( ) throws DataException
+	{
+		if ( m_columnKinds != null )
+			return;
+		
 		int columnCount = m_resultClass.getFieldCount();
 		int[] driverPositions = 
 			( (ResultClass) m_resultClass ).getFieldDriverPositions();
 		assert( columnCount == driverPositions.length );
 		
-		Object[] fields = new Object[ columnCount ];
-		
+		int[] kinds = new int[ columnCount ];
 		for( int i = 1; i <= columnCount; i++ )
 		{
 			if ( m_resultClass.isCustomField( i ) == true )
+			{
+				kinds[i - 1] = CUSTOM_COLUMN;
 				continue;
+			}
 			
 			Class dataType = m_resultClass.getFieldValueClass( i );
-			int driverPosition = driverPositions[i - 1];
-			Object colValue = null;
-			
 			if( dataType == Integer.class )
-			{
-				int j = getInt( driverPosition );
-				if( ! wasNull() )
-					colValue = Integer.valueOf( j ); 
-			}
+				kinds[i - 1] = INT_COLUMN;
 			else if( dataType == Double.class )
-			{
-				double d = getDouble( driverPosition );
-				if( ! wasNull() )
-					colValue = new Double( d );
-			}
+				kinds[i - 1] = DOUBLE_COLUMN;
 			else if( dataType == String.class )
-				colValue = getString( driverPosition );
+				kinds[i - 1] = STRING_COLUMN;
 			else if( dataType == BigDecimal.class )
-				colValue = getBigDecimal( driverPosition );
+				kinds[i - 1] = DECIMAL_COLUMN;
 			else if( dataType == java.sql.Date.class )
-				colValue = getDate( driverPosition );
+				kinds[i - 1] = DATE_COLUMN;
 			else if( dataType == Time.class )
-				colValue = getTime( driverPosition );
+				kinds[i - 1] = TIME_COLUMN;
 			else if( dataType == java.util.Date.class )
-				colValue = getTimestamp( driverPosition );  // use timestamp to preserve the time portion of java.util.Date
+				kinds[i - 1] = TIMESTAMP_COLUMN;  // use timestamp to preserve the time portion of java.util.Date
 			else if( dataType == Timestamp.class )
-				colValue = getTimestamp( driverPosition );
+				kinds[i - 1] = TIMESTAMP_COLUMN;
 			else if( dataType == IBlob.class )
-				colValue = getBlob( driverPosition );
+				kinds[i - 1] = BLOB_COLUMN;
 			else if( dataType == IClob.class )
-				colValue = getClob( driverPosition );
+				kinds[i - 1] = CLOB_COLUMN;
             else if( dataType == Boolean.class )
-            {
-                boolean val = getBoolean( driverPosition );
-                if( ! wasNull() )
-                    colValue = Boolean.valueOf( val );
-            }
+            	kinds[i - 1] = BOOLEAN_COLUMN;
             else if( dataType == Object.class )
-                colValue = getObject( driverPosition );
+            	kinds[i - 1] = OBJECT_COLUMN;
 			else
-				assert false;
-			
-			if( wasNull( ) )
-				colValue = null;
+				kinds[i - 1] = UNKNOWN_COLUMN;
 			
-			fields[i - 1] = colValue;
+			if ( kinds[i - 1] == BLOB_COLUMN || kinds[i - 1] == CLOB_COLUMN )
+				m_hasLobColumn = true;
 		}
-		
-		IResultObject ret = new ResultObject( m_resultClass, fields );
-
-		getLogger().logp( Level.FINEST, sm_className, methodName, 
-		            		"Fetched next row: {0} .", ret ); //$NON-NLS-1$
-
-		return ret;
+		m_driverPositions = driverPositions;
+		m_columnKinds = kinds;
 	}
 
     private int getInt( int driverPosition ) throws DataException
@@ -463,6 +615,11 @@ public class ResultSet extends ExceptionHandler
 	public int getRowPosition( ) throws DataException
 	{
 	    final String methodName = "getRowPosition"; //$NON-NLS-1$
+	    
+	    // the cursor of the driver is past the rows read ahead
+	    if ( m_batchSize > 1 )
+	    	return m_readRowCount - ( m_batchCount - m_batchIndex );
+	    
 		try
 		{
 			return m_resultSet.getRow( );
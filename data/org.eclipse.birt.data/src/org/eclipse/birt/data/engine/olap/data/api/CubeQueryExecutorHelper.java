@@ -107,6 +107,7 @@ public class CubeQueryExecutorHelper implements ICubeQueryExcutorHelper
 	
 	public int maxDataObjectRows = -1;
 	public long memoryCacheSize = 0;
+	private int aggregationThreadCount = 1;
 	
 	private IBindingValueFetcher fetcher;
 	private CubeQueryExecutor cubeQueryExecutor;
@@ -936,6 +937,7 @@ public class CubeQueryExecutorHelper implements ICubeQueryExcutorHelper
 				memoryCacheSize );
 		
 		aggregationCalculatorExecutor.setMaxDataObjectRows( maxDataObjectRows );
+		aggregationCalculatorExecutor.setThreadCount( aggregationThreadCount );
 		
 		return aggregationCalculatorExecutor.execute( stopSign );
 	}
@@ -1100,4 +1102,14 @@ public class CubeQueryExecutorHelper implements ICubeQueryExcutorHelper
 	{
 		return memoryCacheSize;
 	}
+	
+	public void setAggregationThreadCount( int threadCount )
+	{
+		this.aggregationThreadCount = threadCount;
+	}
+	
+	public int getAggregationThreadCount( )
+	{
+		return aggregationThreadCount;
+	}
 }
\ No newline at end of file
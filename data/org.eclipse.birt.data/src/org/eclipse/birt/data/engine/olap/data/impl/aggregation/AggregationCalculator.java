@@ -55,6 +55,8 @@ public class AggregationCalculator
 {
 	AggregationDefinition aggregation;
 	private Accumulator[] accumulators;
+	//the primitive accumulators used instead of the accumulators, null if not applicable
+	private PrimitiveAccumulator[] primitiveAccumulators;
 	private Set<TimeMember>[] timeFunctionFilter;
 	private int[] timeFilterDimensionIndex;
 	private int[] timeFilterLevelCount;
@@ -95,6 +97,7 @@ public class AggregationCalculator
 		if ( aggregationFunction != null )
 		{
 			this.accumulators = new Accumulator[aggregationFunction.length];
+			this.primitiveAccumulators = new PrimitiveAccumulator[aggregationFunction.length];
 			this.timeFunctionFilter = new Set[aggregationFunction.length];
 			this.timeFilterDimensionIndex = new int[aggregationFunction.length];
 			this.timeFilterLevelCount = new int[aggregationFunction.length];
@@ -138,6 +141,17 @@ public class AggregationCalculator
 					throw new DataException( ResourceConstants.MEASURE_NAME_NOT_FOUND,
 							measureName );
 				}
+				if ( this.measureIndexes[i] >= 0
+						&& this.parameterColIndex[i] == -1
+						&& this.timeFunctionFilter[i] == null
+						&& aggregationFunction[i].getFilterEvalHelper( ) == null )
+				{
+					this.primitiveAccumulators[i] = PrimitiveAccumulator.create( aggregation );
+					if ( this.primitiveAccumulators[i] != null )
+					{
+						this.primitiveAccumulators[i].start( );
+					}
+				}
 			}
 		}
 		int levelSize = 0;
@@ -299,31 +313,14 @@ public class AggregationCalculator
 			{
 				if ( accumulators != null )
 				{
-					while( row.nextMeasures( ) )
-					{
-						for ( int i = 0; i < accumulators.length; i++ )
-						{
-							if ( !getFilterResult( row, i ) )
-							{
-								continue;
-							}
-							accumulators[i].onRow( getAccumulatorParameter( row, i ) );
-						}
-					}
-					row.firstMeasure( );
+					accumulate( row );
 				}
 			}
 			else
 			{
 				if ( accumulators != null )
 				{
-					currentResultObj.setAggregationValues( new Object[accumulators.length] );
-					for ( int i = 0; i < accumulators.length; i++ )
-					{
-						accumulators[i].finish( );
-						currentResultObj.getAggregationValues()[i] = accumulators[i].getValue( );
-						accumulators[i].start( );
-					}
+					finishAccumulators( );
 				}
 				result.add( currentResultObj );
 				newAggregationResultRow( row );
@@ -382,13 +379,7 @@ public class AggregationCalculator
 	{
 		if ( currentResultObj != null && accumulators != null )
 		{
-			currentResultObj.setAggregationValues( new Object[accumulators.length] );
-			for ( int i = 0; i < accumulators.length; i++ )
-			{
-				accumulators[i].finish( );
-				currentResultObj.getAggregationValues()[i] = accumulators[i].getValue( );
-				accumulators[i].start( );
-			}
+			finishAccumulators( );
 		}
 		if ( currentResultObj != null )
 			result.add( currentResultObj );
@@ -417,18 +408,58 @@ public class AggregationCalculator
 		}
 		if ( accumulators != null )
 		{
-			while( row.nextMeasures( ) )
+			accumulate( row );
+		}
+	}
+	
+	/**
+	 * accumulate all the measures of the row.
+	 * 
+	 * @param row
+	 * @throws DataException
+	 * @throws IOException
+	 */
+	private void accumulate( Row4Aggregation row ) throws DataException, IOException
+	{
+		while( row.nextMeasures( ) )
+		{
+			for ( int i = 0; i < accumulators.length; i++ )
 			{
-				for ( int i = 0; i < accumulators.length; i++ )
+				if ( primitiveAccumulators[i] != null )
 				{
-					if ( !getFilterResult( row, i ) )
-					{
-						continue;
-					}
-					accumulators[i].onRow( getAccumulatorParameter( row, i ) );
+					primitiveAccumulators[i].onValue( row.getMeasures( )[measureIndexes[i]] );
+					continue;
+				}
+				if ( !getFilterResult( row, i ) )
+				{
+					continue;
 				}
+				accumulators[i].onRow( getAccumulatorParameter( row, i ) );
+			}
+		}
+		row.firstMeasure( );
+	}
+	
+	/**
+	 * set the aggregation values of the current result row and start the
+	 * accumulators for the next one.
+	 * 
+	 * @throws DataException
+	 */
+	private void finishAccumulators( ) throws DataException
+	{
+		currentResultObj.setAggregationValues( new Object[accumulators.length] );
+		for ( int i = 0; i < accumulators.length; i++ )
+		{
+			if ( primitiveAccumulators[i] != null )
+			{
+				currentResultObj.getAggregationValues( )[i] = primitiveAccumulators[i].getValue( );
+				primitiveAccumulators[i].start( );
+				continue;
 			}
-			row.firstMeasure( );
+			accumulators[i].finish( );
+			currentResultObj.getAggregationValues()[i] = accumulators[i].getValue( );
+			accumulators[i].start( );
 		}
 	}
 	
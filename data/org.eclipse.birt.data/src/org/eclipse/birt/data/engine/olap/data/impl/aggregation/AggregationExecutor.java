@@ -17,10 +17,18 @@ import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.logging.Logger;
 
 import org.eclipse.birt.core.exception.BirtException;
 import org.eclipse.birt.data.engine.aggregation.AggregationUtil;
+import org.eclipse.birt.data.engine.api.CloseListenerManager;
+import org.eclipse.birt.data.engine.api.DataEngineThreadLocal;
 import org.eclipse.birt.data.engine.api.aggregation.AggregationManager;
 import org.eclipse.birt.data.engine.core.DataException;
 import org.eclipse.birt.data.engine.executor.ComparatorUtil;
@@ -36,6 +44,7 @@ import org.eclipse.birt.data.engine.olap.data.impl.AggregationDefinition;
 import org.eclipse.birt.data.engine.olap.data.impl.AggregationFunctionDefinition;
 import org.eclipse.birt.data.engine.olap.data.impl.DimColumn;
 import org.eclipse.birt.data.engine.olap.data.impl.dimension.Member;
+import org.eclipse.birt.data.engine.core.security.TempPathManager;
 import org.eclipse.birt.data.engine.olap.data.util.DiskSortedStack;
 
 /**
@@ -67,6 +76,7 @@ public class AggregationExecutor
 
 	public int maxDataObjectRows = -1;
 	public long memoryCacheSize = 0;
+	private int threadCount = 1;
 	public Row4Aggregation[] aggregationRow;
 	private AggregationFunctionDefinition simpleFunc;
 	private boolean existReferenceDate = false;
@@ -255,33 +265,17 @@ public class AggregationExecutor
 			throws IOException, DataException
 	{
 		populateSortedFactRows( stopSign );
-		for ( int i = 0; i < allSortedFactRows.size( ); i++ )
+		if ( threadCount > 1 && allSortedFactRows.size( ) > 1
+				&& isThreadSafe( ) )
 		{
-			DiskSortedStackWrapper diskSortedStackWrapper = (DiskSortedStackWrapper) allSortedFactRows.get( i );
-			int[] calculatorIndexs = new int[sortedFactRows.length];
-			int pos = 0;
-			for ( int j = 0; j < calculatorIndexs.length; j++ )
-			{
-				if ( sortedFactRows[j] == diskSortedStackWrapper )
-				{
-					calculatorIndexs[pos] = j;
-					pos++;
-				}
-			}
-			while ( diskSortedStackWrapper.pop( ) != null
-					&& !stopSign.isStopped( ) )
+			executeInParallel( stopSign );
+		}
+		else
+		{
+			for ( int i = 0; i < allSortedFactRows.size( ); i++ )
 			{
-				Row4Aggregation row = (Row4Aggregation) diskSortedStackWrapper.getCurrentObject( );
-				for ( int j = 0; j < pos; j++ )
-				{
-//					aggregationCalculators[calculatorIndexs[j]].onRow( cut( row,
-//							levelIndex[calculatorIndexs[j]].length / 2 ) );
-					if( timeFunctionCalculator[calculatorIndexs[j]].existTimeFunction() )
-					{
-						timeFunctionCalculator[calculatorIndexs[j]].onRow( row );
-					}
-					aggregationCalculators[calculatorIndexs[j]].onRow( row );
-				}
+				aggregate( (DiskSortedStackWrapper) allSortedFactRows.get( i ),
+						stopSign );
 			}
 		}
 		IAggregationResultSet[] resultSets = 
@@ -302,6 +296,166 @@ public class AggregationExecutor
 		return resultSets;
 	}
 	
+	/**
+	 * feed the rows of a sorted stack to the calculators of the aggregations
+	 * which are sorted by it.
+	 * 
+	 * @param diskSortedStackWrapper
+	 * @param stopSign
+	 * @throws IOException
+	 * @throws DataException
+	 */
+	private void aggregate( DiskSortedStackWrapper diskSortedStackWrapper,
+			StopSign stopSign ) throws IOException, DataException
+	{
+		int[] calculatorIndexs = new int[sortedFactRows.length];
+		int pos = 0;
+		for ( int j = 0; j < calculatorIndexs.length; j++ )
+		{
+			if ( sortedFactRows[j] == diskSortedStackWrapper )
+			{
+				calculatorIndexs[pos] = j;
+				pos++;
+			}
+		}
+		while ( diskSortedStackWrapper.pop( ) != null
+				&& !stopSign.isStopped( ) )
+		{
+			Row4Aggregation row = (Row4Aggregation) diskSortedStackWrapper.getCurrentObject( );
+			for ( int j = 0; j < pos; j++ )
+			{
+//				aggregationCalculators[calculatorIndexs[j]].onRow( cut( row,
+//						levelIndex[calculatorIndexs[j]].length / 2 ) );
+				if( timeFunctionCalculator[calculatorIndexs[j]].existTimeFunction() )
+				{
+					timeFunctionCalculator[calculatorIndexs[j]].onRow( row );
+				}
+				aggregationCalculators[calculatorIndexs[j]].onRow( row );
+			}
+		}
+	}
+	
+	/**
+	 * The sorted stacks and their calculators don't share any state, so each
+	 * stack is aggregated by a worker thread. The workers share the temp path
+	 * and the close listeners of the calling thread.
+	 * 
+	 * @param stopSign
+	 * @throws IOException
+	 * @throws DataException
+	 */
+	private void executeInParallel( final StopSign stopSign )
+			throws IOException, DataException
+	{
+		final TempPathManager pathManager = DataEngineThreadLocal.getInstance( )
+				.getPathManager( );
+		final CloseListenerManager closeListener = DataEngineThreadLocal.getInstance( )
+				.getCloseListener( );
+		ExecutorService executor = Executors.newFixedThreadPool( Math.min( threadCount,
+				allSortedFactRows.size( ) ),
+				new ThreadFactory( ) {
+
+					public Thread newThread( Runnable r )
+					{
+						Thread thread = new Thread( r, "BIRT cube aggregation" );
+						thread.setDaemon( true );
+						return thread;
+					}
+				} );
+		try
+		{
+			List<Future<Object>> futures = new ArrayList<Future<Object>>( );
+			for ( int i = 0; i < allSortedFactRows.size( ); i++ )
+			{
+				final DiskSortedStackWrapper diskSortedStackWrapper = (DiskSortedStackWrapper) allSortedFactRows.get( i );
+				futures.add( executor.submit( new Callable<Object>( ) {
+
+					public Object call( ) throws Exception
+					{
+						DataEngineThreadLocal.getInstance( )
+								.attach( pathManager, closeListener );
+						try
+						{
+							aggregate( diskSortedStackWrapper, stopSign );
+						}
+						finally
+						{
+							DataEngineThreadLocal.getInstance( ).detach( );
+						}
+						return null;
+					}
+				} ) );
+			}
+			for ( int i = 0; i < futures.size( ); i++ )
+			{
+				waitForAggregation( futures.get( i ) );
+			}
+		}
+		finally
+		{
+			executor.shutdownNow( );
+		}
+	}
+	
+	private static void waitForAggregation( Future<Object> future )
+			throws IOException, DataException
+	{
+		try
+		{
+			future.get( );
+		}
+		catch ( InterruptedException e )
+		{
+			Thread.currentThread( ).interrupt( );
+			throw new DataException( ResourceConstants.FAIL_AGGREGATE_CUBE, e );
+		}
+		catch ( ExecutionException e )
+		{
+			Throwable cause = e.getCause( );
+			if ( cause instanceof IOException )
+				throw (IOException) cause;
+			if ( cause instanceof DataException )
+				throw (DataException) cause;
+			if ( cause instanceof RuntimeException )
+				throw (RuntimeException) cause;
+			if ( cause instanceof Error )
+				throw (Error) cause;
+			throw new DataException( ResourceConstants.FAIL_AGGREGATE_CUBE,
+					cause );
+		}
+	}
+	
+	/**
+	 * The filters and the time functions are evaluated by script or read the
+	 * dimensions of the cube, which must be done by the calling thread.
+	 * 
+	 * @return whether the calculators can be run by the worker threads
+	 */
+	private boolean isThreadSafe( )
+	{
+		for ( int i = 0; i < aggregationCalculators.length; i++ )
+		{
+			if ( timeFunctionCalculator[i].existTimeFunction( ) )
+			{
+				return false;
+			}
+			AggregationFunctionDefinition[] functions = aggregationCalculators[i].aggregation.getAggregationFunctions( );
+			if ( functions == null )
+			{
+				continue;
+			}
+			for ( int j = 0; j < functions.length; j++ )
+			{
+				if ( functions[j].getFilterEvalHelper( ) != null
+						|| functions[j].getTimeFunctionFilter( ) != null )
+				{
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
 	/**
 	 * 
 	 * @param row
@@ -765,6 +919,22 @@ public class AggregationExecutor
 		this.maxDataObjectRows = rowSize;
 	}
 	
+	/**
+	 * @param threadCount
+	 *            the number of threads aggregating the sorted fact rows, the
+	 *            aggregations are calculated by the calling thread if it is
+	 *            not greater than 1.
+	 */
+	public void setThreadCount( int threadCount )
+	{
+		this.threadCount = threadCount;
+	}
+	
+	public int getThreadCount( )
+	{
+		return threadCount;
+	}
+	
 	public int getMaxDataObjectRows( )
 	{
 		return maxDataObjectRows;
@@ -0,0 +1,295 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.birt.data.engine.olap.data.impl.aggregation;
+
+import java.math.BigDecimal;
+
+import org.eclipse.birt.data.engine.api.aggregation.Accumulator;
+import org.eclipse.birt.data.engine.api.aggregation.IAggrFunction;
+import org.eclipse.birt.data.engine.core.DataException;
+
+/**
+ * An accumulator of the built-in SUM, COUNT, MIN, MAX and AVE functions
+ * which accumulates the numeric measures into primitive fields, without the
+ * argument array and the boxed intermediate values of the generic
+ * accumulators. It returns the same values as the built-in accumulators.
+ *
+ * When a group meets a value which the primitive fields can't represent, for
+ * example a BigDecimal or a Date, the group is accumulated by the generic
+ * accumulator of the function.
+ */
+
+abstract class PrimitiveAccumulator
+{
+
+	static final String SUM_FUNC = "SUM"; //$NON-NLS-1$
+	static final String COUNT_FUNC = "COUNT"; //$NON-NLS-1$
+	static final String MAX_FUNC = "MAX"; //$NON-NLS-1$
+	static final String MIN_FUNC = "MIN"; //$NON-NLS-1$
+	static final String AVE_FUNC = "AVE"; //$NON-NLS-1$
+
+	private IAggrFunction function;
+	private Accumulator delegate;
+
+	/**
+	 * create the primitive accumulator of the function.
+	 *
+	 * @param function
+	 * @return null if the function has no primitive accumulator
+	 */
+	static PrimitiveAccumulator create( IAggrFunction function )
+	{
+		String name = function.getName( );
+		PrimitiveAccumulator accumulator = null;
+		if ( SUM_FUNC.equalsIgnoreCase( name ) )
+		{
+			accumulator = new SumAccumulator( false );
+		}
+		else if ( AVE_FUNC.equalsIgnoreCase( name ) )
+		{
+			accumulator = new SumAccumulator( true );
+		}
+		else if ( COUNT_FUNC.equalsIgnoreCase( name ) )
+		{
+			accumulator = new CountAccumulator( );
+		}
+		else if ( MAX_FUNC.equalsIgnoreCase( name ) )
+		{
+			accumulator = new ExtremeAccumulator( true );
+		}
+		else if ( MIN_FUNC.equalsIgnoreCase( name ) )
+		{
+			accumulator = new ExtremeAccumulator( false );
+		}
+		if ( accumulator != null )
+		{
+			accumulator.function = function;
+		}
+		return accumulator;
+	}
+
+	/**
+	 * start a new group.
+	 */
+	void start( )
+	{
+		delegate = null;
+		reset( );
+	}
+
+	/**
+	 * accumulate a measure value of the group.
+	 *
+	 * @param value
+	 * @throws DataException
+	 */
+	void onValue( Object value ) throws DataException
+	{
+		if ( delegate != null )
+		{
+			delegate.onRow( new Object[]{
+				value
+			} );
+		}
+		else
+		{
+			accumulate( value );
+		}
+	}
+
+	/**
+	 * @return the aggregation value of the group
+	 * @throws DataException
+	 */
+	Object getValue( ) throws DataException
+	{
+		if ( delegate != null )
+		{
+			delegate.finish( );
+			return delegate.getValue( );
+		}
+		return getPrimitiveValue( );
+	}
+
+	/**
+	 * accumulate the rest of the group by the generic accumulator.
+	 *
+	 * @param values
+	 *            the values passed to the generic accumulator first
+	 * @throws DataException
+	 */
+	protected void fallback( Object[] values ) throws DataException
+	{
+		delegate = function.newAccumulator( );
+		delegate.start( );
+		for ( int i = 0; i < values.length; i++ )
+		{
+			onValue( values[i] );
+		}
+	}
+
+	protected abstract void reset( );
+
+	protected abstract void accumulate( Object value ) throws DataException;
+
+	protected abstract Object getPrimitiveValue( );
+
+	/**
+	 * SUM and AVE, the built-in functions add the values in double unless
+	 * the first value of the group is not a number or is a BigDecimal.
+	 */
+	private static class SumAccumulator extends PrimitiveAccumulator
+	{
+
+		private boolean average;
+		private double sum;
+		private int count;
+
+		SumAccumulator( boolean average )
+		{
+			this.average = average;
+		}
+
+		protected void reset( )
+		{
+			sum = 0D;
+			count = 0;
+		}
+
+		protected void accumulate( Object value ) throws DataException
+		{
+			if ( value == null )
+			{
+				return;
+			}
+			if ( count == 0
+					&& ( !( value instanceof Number ) || value instanceof BigDecimal ) )
+			{
+				fallback( new Object[]{
+					value
+				} );
+				return;
+			}
+			sum += ( (Number) value ).doubleValue( );
+			count++;
+		}
+
+		protected Object getPrimitiveValue( )
+		{
+			if ( count == 0 )
+			{
+				return null;
+			}
+			return Double.valueOf( average ? sum / count : sum );
+		}
+	}
+
+	/**
+	 * COUNT, counts the values which are not null.
+	 */
+	private static class CountAccumulator extends PrimitiveAccumulator
+	{
+
+		private int count;
+
+		protected void reset( )
+		{
+			count = 0;
+		}
+
+		protected void accumulate( Object value )
+		{
+			if ( value != null )
+			{
+				count++;
+			}
+		}
+
+		protected Object getPrimitiveValue( )
+		{
+			return Integer.valueOf( count );
+		}
+	}
+
+	/**
+	 * MAX and MIN of the Double or Integer values, the value returned is one
+	 * of the accumulated values as in the built-in functions.
+	 */
+	private static class ExtremeAccumulator extends PrimitiveAccumulator
+	{
+
+		private boolean max;
+		private Object extreme;
+		private Class<?> valueClass;
+		private double doubleValue;
+		private int intValue;
+
+		ExtremeAccumulator( boolean max )
+		{
+			this.max = max;
+		}
+
+		protected void reset( )
+		{
+			extreme = null;
+			valueClass = null;
+		}
+
+		protected void accumulate( Object value ) throws DataException
+		{
+			if ( value == null )
+			{
+				return;
+			}
+			Class<?> clz = value.getClass( );
+			if ( valueClass == null
+					&& ( clz == Double.class || clz == Integer.class ) )
+			{
+				valueClass = clz;
+			}
+			if ( clz != valueClass )
+			{
+				fallback( extreme == null ? new Object[]{
+					value
+				} : new Object[]{
+						extreme, value
+				} );
+				return;
+			}
+			if ( clz == Double.class )
+			{
+				double d = ( (Double) value ).doubleValue( );
+				// Double.compare keeps the order of Double.compareTo
+				if ( extreme == null
+						|| ( max ? Double.compare( d, doubleValue ) > 0
+								: Double.compare( d, doubleValue ) < 0 ) )
+				{
+					extreme = value;
+					doubleValue = d;
+				}
+			}
+			else
+			{
+				int i = ( (Integer) value ).intValue( );
+				if ( extreme == null || ( max ? i > intValue : i < intValue ) )
+				{
+					extreme = value;
+					intValue = i;
+				}
+			}
+		}
+
+		protected Object getPrimitiveValue( )
+		{
+			return extreme;
+		}
+	}
+}
@@ -34,8 +34,8 @@ import org.mozilla.javascript.ScriptableObject;
  */
 public class JSRowObject extends ScriptableObject
 {
-	static private final String DATA_SET = "dataSet";
-	static private final String COLUMN_MD = "columnDefns";
+	static public final String DATA_SET = "dataSet";
+	static public final String COLUMN_MD = "columnDefns";
 	static public final String ROW_POSITION = "_rowPosition";
 	
     private DataSetRuntime	dataSet;
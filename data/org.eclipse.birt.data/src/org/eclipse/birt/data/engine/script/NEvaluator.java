@@ -1,5 +1,7 @@
 package org.eclipse.birt.data.engine.script;
 
+import java.util.Arrays;
+
 import org.eclipse.birt.core.data.DataTypeUtil;
 import org.eclipse.birt.core.exception.BirtException;
 import org.eclipse.birt.core.script.ScriptContext;
@@ -7,6 +9,7 @@ import org.eclipse.birt.core.script.ScriptExpression;
 import org.eclipse.birt.data.engine.api.IConditionalExpression;
 import org.eclipse.birt.data.engine.api.IScriptExpression;
 import org.eclipse.birt.data.engine.cache.BasicCachedArray;
+import org.eclipse.birt.data.engine.cache.Constants;
 import org.eclipse.birt.data.engine.core.DataException;
 import org.eclipse.birt.data.engine.expression.ExprEvaluateUtil;
 import org.eclipse.birt.data.engine.i18n.ResourceConstants;
@@ -14,14 +17,34 @@ import org.eclipse.birt.data.engine.impl.DataSetRuntime;
 import org.mozilla.javascript.Scriptable;
 
 /**
- * The implementation of this class is used to evaluate TopN/BottomN expressions 
+ * The implementation of this class is used to evaluate TopN/BottomN expressions.
+ * When N is within the size of the memory buffer of the cached lists, the
+ * first pass keeps the N qualified rows in a bounded heap, so that each row
+ * costs O(log N), and the second pass looks the rows up in the sorted ids of
+ * the kept rows. A larger N is kept in disk-backed lists, which bound the
+ * memory of TopPercent filters over large data sets.
  * @author lzhu
  *
  */
 public abstract class NEvaluator
 {
+	// the initial capacity of the heap, which grows up to N
+	private static final int INITIAL_HEAP_SIZE = 64;
+
+	// the values and the row ids of the rows kept by the first pass when N is
+	// too large to keep them in memory
 	private BasicCachedArray valueList; 
 	private BasicCachedArray rowIdList;
+
+	// the values and the row ids of the rows kept by the first pass, in a heap
+	// whose root is the row to drop first: the last of the kept values, and
+	// the latest row among equal values, so that the earlier rows win ties
+	private Object[] heapValues;
+	private int[] heapRowIds;
+	private int heapSize = 0;
+
+	// the ids of the kept rows in ascending order, built for the second pass
+	private int[] qualifiedRowIds;
 	private int firstPassRowNumberCounter = 0;
 	private int secondPassRowNumberCounter = 0;
 	private int qualifiedRowCounter = 0;
@@ -155,8 +178,8 @@ public abstract class NEvaluator
 	}
 
 	/**
-	 * Do the first pass. In the first pass we maintain a value list and a row id list that will
-	 * host all top/bottom N values/rowIds so that in pass 2 we can use them to filter rows out.
+	 * Do the first pass. In the first pass we keep the top/bottom N values and
+	 * their row ids so that in pass 2 we can use them to filter rows out.
 	 * @param value
 	 * @return
 	 * @throws DataException
@@ -164,15 +187,30 @@ public abstract class NEvaluator
 	private boolean doFirstPass( Object value ) throws DataException
 	{
 		firstPassRowNumberCounter++;
-		if ( valueList == null )
+		if ( heapValues == null && valueList == null )
 		{
-			valueList = new BasicCachedArray( tempDir, N );
-			rowIdList = new BasicCachedArray( tempDir, N );
-			
+			if ( N <= Constants.LIST_BUFFER_SIZE )
+			{
+				int capacity = Math.min( N, INITIAL_HEAP_SIZE );
+				heapValues = new Object[capacity];
+				heapRowIds = new int[capacity];
+			}
+			else
+			{
+				valueList = new BasicCachedArray( tempDir, N );
+				rowIdList = new BasicCachedArray( tempDir, N );
+			}
 		}
 		if ( value != null )
 		{
-			populateValueListAndRowIdList( value, N );
+			if ( valueList != null )
+			{
+				populateValueListAndRowIdList( value, N );
+			}
+			else
+			{
+				offer( value, firstPassRowNumberCounter );
+			}
 		}
 		return true;
 	}
@@ -221,6 +259,109 @@ public abstract class NEvaluator
 			}
 		}
 	}
+
+	/**
+	 * Keep the row if it is one of the top/bottom N rows so far.
+	 * @param value
+	 * @param rowId
+	 * @throws DataException
+	 */
+	private void offer( Object value, int rowId ) throws DataException
+	{
+		assert N >= 0;
+		if ( heapSize < N )
+		{
+			if ( heapSize == heapValues.length )
+			{
+				int capacity = (int) Math.min( (long) N, 2L * heapSize );
+				Object[] values = new Object[capacity];
+				int[] rowIds = new int[capacity];
+				System.arraycopy( heapValues, 0, values, 0, heapSize );
+				System.arraycopy( heapRowIds, 0, rowIds, 0, heapSize );
+				heapValues = values;
+				heapRowIds = rowIds;
+			}
+			heapValues[heapSize] = value;
+			heapRowIds[heapSize] = rowId;
+			siftUp( heapSize++ );
+		}
+		else if ( N > 0 && isBefore( value, heapValues[0] ) )
+		{
+			// the new row is the latest one, so it only replaces the root if
+			// its value is strictly before
+			heapValues[0] = value;
+			heapRowIds[0] = rowId;
+			siftDown( 0 );
+		}
+	}
+
+	private void siftUp( int index ) throws DataException
+	{
+		while ( index > 0 )
+		{
+			int parent = ( index - 1 ) / 2;
+			if ( !isDroppedBefore( index, parent ) )
+				break;
+			swap( index, parent );
+			index = parent;
+		}
+	}
+
+	private void siftDown( int index ) throws DataException
+	{
+		while ( true )
+		{
+			int child = 2 * index + 1;
+			if ( child >= heapSize )
+				break;
+			if ( child + 1 < heapSize && isDroppedBefore( child + 1, child ) )
+				child++;
+			if ( !isDroppedBefore( child, index ) )
+				break;
+			swap( index, child );
+			index = child;
+		}
+	}
+
+	private void swap( int i, int j )
+	{
+		Object value = heapValues[i];
+		heapValues[i] = heapValues[j];
+		heapValues[j] = value;
+		int rowId = heapRowIds[i];
+		heapRowIds[i] = heapRowIds[j];
+		heapRowIds[j] = rowId;
+	}
+
+	/**
+	 * @return whether the row at index i of the heap is dropped before the
+	 *         one at index j
+	 */
+	private boolean isDroppedBefore( int i, int j ) throws DataException
+	{
+		if ( isBefore( heapValues[j], heapValues[i] ) )
+			return true;
+		if ( isBefore( heapValues[i], heapValues[j] ) )
+			return false;
+		return heapRowIds[i] > heapRowIds[j];
+	}
+
+	/**
+	 * @return whether value1 is strictly before value2 in the top/bottom order
+	 */
+	private boolean isBefore( Object value1, Object value2 )
+			throws DataException
+	{
+		try
+		{
+			return DataTypeUtil.toBoolean( this.doCompare( value1, value2 ) )
+					.booleanValue( );
+		}
+		catch ( BirtException e )
+		{
+			throw DataException.wrap( e );
+		}
+	}
 	
 	/**
 	 * Do the second pass
@@ -229,6 +370,16 @@ public abstract class NEvaluator
 	 */
 	private boolean doSecondPass( )
 	{
+		if ( qualifiedRowIds == null && valueList == null )
+		{
+			qualifiedRowIds = new int[heapSize];
+			if ( heapSize > 0 )
+				System.arraycopy( heapRowIds, 0, qualifiedRowIds, 0, heapSize );
+			Arrays.sort( qualifiedRowIds );
+			heapValues = null;
+			heapRowIds = null;
+		}
+
 		secondPassRowNumberCounter++;
 		if( secondPassRowNumberCounter > this.filterPassController.getSecondPassRowCount() )
 			this.filterPassController.setSecondPassRowCount( secondPassRowNumberCounter );
@@ -237,20 +388,11 @@ public abstract class NEvaluator
 		
 		if ( qualifiedRowCounter < N )
 		{
-			for ( int i = 0; i < N; i++ )
+			if ( isQualified( secondPassRowNumberCounter ) )
 			{
-				int rowId = 0;
-				if( rowIdList.get( i )!=null)
-				{
-					rowId = ((Integer)rowIdList.get( i )).intValue( );
-				}
-				if ( rowId == secondPassRowNumberCounter )
-				{
-					qualifiedRowCounter++;
-					reset( );
-					return true;
-
-				}
+				qualifiedRowCounter++;
+				reset( );
+				return true;
 			}
 			return false;
 		}
@@ -261,6 +403,27 @@ public abstract class NEvaluator
 		}
 	}
 
+	/**
+	 * @param rowId
+	 * @return whether the row is kept by the first pass
+	 */
+	private boolean isQualified( int rowId )
+	{
+		if ( valueList == null )
+		{
+			return Arrays.binarySearch( qualifiedRowIds, rowId ) >= 0;
+		}
+		for ( int i = 0; i < N; i++ )
+		{
+			Object id = rowIdList.get( i );
+			if ( id != null && ( (Integer) id ).intValue( ) == rowId )
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * Reset all the member data to their default value.
 	 */
@@ -283,6 +446,10 @@ public abstract class NEvaluator
 		qualifiedRowCounter = 0;
 		rowIdList = null;
 		valueList = null;
+		heapValues = null;
+		heapRowIds = null;
+		heapSize = 0;
+		qualifiedRowIds = null;
 		N = -1;
 	}
 	protected abstract Object doCompare( Object value1, Object value2 ) throws DataException;
@@ -33,6 +33,7 @@ public class AllTests
 		suite.addTestSuite( org.eclipse.birt.report.data.oda.jdbc.ConnectionTest.class );
 		suite.addTestSuite( org.eclipse.birt.report.data.oda.jdbc.DataSourceMetaDataTest.class );
 		suite.addTestSuite( org.eclipse.birt.report.data.oda.jdbc.JDBCExceptionTest.class );
+		suite.addTestSuite( org.eclipse.birt.report.data.oda.jdbc.JDBCConnectionPoolTest.class );
 		suite.addTestSuite( org.eclipse.birt.report.data.oda.jdbc.LogConfigurationTest.class );
 		suite.addTestSuite( org.eclipse.birt.report.data.oda.jdbc.OdaJdbcDriverTest.class );
 		suite.addTestSuite( org.eclipse.birt.report.data.oda.jdbc.ParameterMetaDataTest.class );
@@ -0,0 +1,206 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.report.data.oda.jdbc;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import junit.framework.TestCase;
+
+/**
+ * The unit test of the built-in connection pool, it runs against the embedded
+ * Derby database.
+ */
+public class JDBCConnectionPoolTest extends TestCase
+{
+
+	private JDBCConnectionPoolManager manager;
+	private Map appContext;
+
+	protected void setUp( ) throws Exception
+	{
+		super.setUp( );
+		manager = new JDBCConnectionPoolManager( );
+		appContext = new HashMap( );
+		appContext.put( JDBCConnectionPoolManager.POOL_ENABLED, "true" );
+	}
+
+	protected void tearDown( ) throws Exception
+	{
+		manager.close( );
+		JDBCConnectionPoolManager.getInstance( ).close( );
+		super.tearDown( );
+	}
+
+	private java.sql.Connection getConnection( ) throws Exception
+	{
+		return manager.getConnection( TestUtil.getDriverClassName( ),
+				TestUtil.getURL( ),
+				new Properties( ),
+				null,
+				appContext );
+	}
+
+	private JDBCConnectionPool getPool( )
+	{
+		assertEquals( 1, manager.getPools( ).size( ) );
+		return manager.getPools( ).get( 0 );
+	}
+
+	public void testPoolDisabled( ) throws Exception
+	{
+		appContext.clear( );
+		assertNull( getConnection( ) );
+		assertEquals( 0, manager.getPools( ).size( ) );
+	}
+
+	public void testReuseConnection( ) throws Exception
+	{
+		java.sql.Connection conn = getConnection( );
+		assertFalse( conn.isClosed( ) );
+		JDBCConnectionPool pool = getPool( );
+		assertEquals( 1, pool.getActiveCount( ) );
+		conn.close( );
+		assertTrue( conn.isClosed( ) );
+		assertEquals( 0, pool.getActiveCount( ) );
+		assertEquals( 1, pool.getIdleCount( ) );
+
+		conn = getConnection( );
+		assertEquals( 1, pool.getCreatedCount( ) );
+		assertEquals( 2, pool.getBorrowCount( ) );
+		conn.close( );
+		// closing twice is a no-op
+		conn.close( );
+		assertEquals( 1, pool.getIdleCount( ) );
+	}
+
+	public void testPartition( ) throws Exception
+	{
+		java.sql.Connection conn1 = getConnection( );
+		Properties props = new Properties( );
+		props.setProperty( "user", "another" ); //$NON-NLS-1$ //$NON-NLS-2$
+		java.sql.Connection conn2 = manager.getConnection( TestUtil.getDriverClassName( ),
+				TestUtil.getURL( ),
+				props,
+				null,
+				appContext );
+		assertEquals( 2, manager.getPools( ).size( ) );
+		conn1.close( );
+		conn2.close( );
+	}
+
+	public void testWaitTimeout( ) throws Exception
+	{
+		appContext.put( JDBCConnectionPoolManager.POOL_MAX_SIZE, "1" );
+		appContext.put( JDBCConnectionPoolManager.POOL_WAIT_TIMEOUT, "100" );
+		java.sql.Connection conn = getConnection( );
+		try
+		{
+			getConnection( );
+			fail( );
+		}
+		catch ( JDBCConnectionPool.ConnectionPoolTimeoutException e )
+		{
+		}
+		assertEquals( 1, getPool( ).getTimeoutCount( ) );
+		conn.close( );
+		getConnection( ).close( );
+		assertEquals( 1, getPool( ).getCreatedCount( ) );
+	}
+
+	public void testResetAndValidate( ) throws Exception
+	{
+		appContext.put( JDBCConnectionPoolManager.POOL_VALIDATION_QUERY,
+				"values 1" ); //$NON-NLS-1$
+		java.sql.Connection conn = getConnection( );
+		boolean autoCommit = conn.getAutoCommit( );
+		conn.setAutoCommit( !autoCommit );
+		conn.close( );
+
+		conn = getConnection( );
+		assertEquals( autoCommit, conn.getAutoCommit( ) );
+		conn.close( );
+		assertEquals( 1, getPool( ).getCreatedCount( ) );
+	}
+
+	public void testIdleEviction( ) throws Exception
+	{
+		appContext.put( JDBCConnectionPoolManager.POOL_MAX_IDLE_TIME, "1" );
+		getConnection( ).close( );
+		JDBCConnectionPool pool = getPool( );
+		assertEquals( 1, pool.getIdleCount( ) );
+		Thread.sleep( 50 );
+		manager.evictIdleConnections( );
+		assertEquals( 0, pool.getConnectionCount( ) );
+		assertEquals( 1, pool.getDestroyedCount( ) );
+	}
+
+	public void testEvictionOnReturn( ) throws Exception
+	{
+		appContext.put( JDBCConnectionPoolManager.POOL_MAX_IDLE_TIME, "1" );
+		getConnection( ).close( );
+		JDBCConnectionPool pool = getPool( );
+		assertEquals( 1, pool.getIdleCount( ) );
+		Thread.sleep( 50 );
+
+		// returning a connection to another pool closes the expired ones
+		appContext.remove( JDBCConnectionPoolManager.POOL_MAX_IDLE_TIME );
+		Properties props = new Properties( );
+		props.setProperty( "user", "another" ); //$NON-NLS-1$ //$NON-NLS-2$
+		manager.getConnection( TestUtil.getDriverClassName( ),
+				TestUtil.getURL( ),
+				props,
+				null,
+				appContext ).close( );
+		assertEquals( 2, manager.getPools( ).size( ) );
+		assertEquals( 0, pool.getConnectionCount( ) );
+		assertEquals( 1, pool.getDestroyedCount( ) );
+	}
+
+	public void testClose( ) throws Exception
+	{
+		java.sql.Connection conn = getConnection( );
+		getConnection( ).close( );
+		JDBCConnectionPool pool = getPool( );
+		manager.close( );
+		assertEquals( 0, manager.getPools( ).size( ) );
+		assertEquals( 1, pool.getConnectionCount( ) );
+		// the borrowed connection is closed once it is returned
+		conn.close( );
+		assertEquals( 0, pool.getConnectionCount( ) );
+		assertEquals( 2, pool.getDestroyedCount( ) );
+	}
+
+	public void testOdaConnection( ) throws Exception
+	{
+		Map context = new HashMap( );
+		context.put( JDBCConnectionPoolManager.POOL_ENABLED, "true" );
+		for ( int i = 0; i < 3; i++ )
+		{
+			Connection conn = new Connection( );
+			conn.setAppContext( context );
+			Properties props = new Properties( );
+			props.setProperty( Connection.Constants.ODAURL, TestUtil.getURL( ) );
+			props.setProperty( Connection.Constants.ODADriverClass,
+					TestUtil.getDriverClassName( ) );
+			conn.open( props );
+			assertTrue( conn.isOpen( ) );
+			conn.close( );
+		}
+		JDBCConnectionPoolManager shared = JDBCConnectionPoolManager.getInstance( );
+		assertEquals( 1, shared.getPools( ).size( ) );
+		JDBCConnectionPool pool = shared.getPools( ).get( 0 );
+		assertEquals( 1, pool.getCreatedCount( ) );
+		assertEquals( 3, pool.getBorrowCount( ) );
+	}
+}
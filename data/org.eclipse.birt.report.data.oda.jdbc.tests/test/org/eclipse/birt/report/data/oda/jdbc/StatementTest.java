@@ -11,8 +11,14 @@
 
 package org.eclipse.birt.report.data.oda.jdbc;
 
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.math.BigDecimal;
 import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.sql.Time;
 import java.sql.Timestamp;
 
@@ -20,6 +26,16 @@ import junit.framework.TestCase;
 
 import org.eclipse.datatools.connectivity.oda.IParameterMetaData;
 import org.eclipse.datatools.connectivity.oda.OdaException;
+import org.eclipse.datatools.connectivity.oda.spec.ExpressionArguments;
+import org.eclipse.datatools.connectivity.oda.spec.ExpressionVariable;
+import org.eclipse.datatools.connectivity.oda.spec.QuerySpecification;
+import org.eclipse.datatools.connectivity.oda.spec.result.FilterExpression;
+import org.eclipse.datatools.connectivity.oda.spec.result.ResultSetSpecification;
+import org.eclipse.datatools.connectivity.oda.spec.result.filter.AndExpression;
+import org.eclipse.datatools.connectivity.oda.spec.result.filter.CustomExpression;
+import org.eclipse.datatools.connectivity.oda.spec.result.filter.OrExpression;
+import org.eclipse.datatools.connectivity.oda.spec.util.QuerySpecificationHelper;
+import org.eclipse.datatools.connectivity.oda.spec.valueexpr.ColumnValueExpression;
 
 /**
  * Test case for Statement
@@ -283,4 +299,217 @@ public class StatementTest extends TestCase
 		}
 	}
 
+	/*
+	 * the filters of the query specification are evaluated by the database
+	 */
+	public void testFilterPushDown( ) throws Exception
+	{
+		OrExpression or = new OrExpression( );
+		or.add( newFilter( QuerySpecSQLBuilder.FILTER_GREATER_THAN,
+				"COL3",
+				new BigDecimal( "3" ) ) );
+		or.add( newFilter( QuerySpecSQLBuilder.FILTER_IS_NULL, "COL3", null ) );
+		stmt.setSpecification( newQuerySpec( or ) );
+		stmt.prepare( SELECT_SQL );
+		ResultSet rs = (ResultSet) stmt.executeQuery( );
+		int count = 0;
+		while ( rs.next( ) )
+		{
+			int value = rs.getInt( 4 );
+			assertTrue( rs.wasNull( ) || value > 3 );
+			count++;
+		}
+		assertEquals( 4, count );
+	}
+
+	/*
+	 * the parameters keep their positions in the filtered statement
+	 */
+	public void testFilterPushDownWithParameter( ) throws Exception
+	{
+		stmt.setSpecification( newQuerySpec( newFilter( QuerySpecSQLBuilder.FILTER_EQUAL,
+				"COL4",
+				"55" ) ) );
+		stmt.prepare( SELECT_SQL + " where col3 > ?" );
+		stmt.setInt( 1, 2 );
+		ResultSet rs = (ResultSet) stmt.executeQuery( );
+		assertTrue( rs.next( ) );
+		assertEquals( 5, rs.getInt( 4 ) );
+		assertFalse( rs.next( ) );
+	}
+
+	/*
+	 * a trailing comment of the original statement doesn't hide the filters
+	 */
+	public void testFilterPushDownWithComment( ) throws Exception
+	{
+		stmt.setSpecification( newQuerySpec( newFilter( QuerySpecSQLBuilder.FILTER_EQUAL,
+				"COL4",
+				"55" ) ) );
+		stmt.prepare( SELECT_SQL + " where col3 > ? -- the last rows" );
+		stmt.setInt( 1, 2 );
+		ResultSet rs = (ResultSet) stmt.executeQuery( );
+		assertTrue( rs.next( ) );
+		assertEquals( 5, rs.getInt( 4 ) );
+		assertFalse( rs.next( ) );
+	}
+
+	/*
+	 * the original statement is executed with the same parameters if the
+	 * filtered statement fails when it is executed
+	 */
+	public void testFilterPushDownFailsAtExecution( ) throws Exception
+	{
+		Statement failing = new Statement( failFilteredExecution( jdbcConn ) );
+		failing.setSpecification( newQuerySpec( newFilter( QuerySpecSQLBuilder.FILTER_EQUAL,
+				"COL4",
+				"55" ) ) );
+		failing.prepare( SELECT_SQL + " where col3 > ?" );
+		failing.setProperty( "rowFetchSize", "2" );
+		failing.setInt( 1, 2 );
+		ResultSet rs = (ResultSet) failing.executeQuery( );
+		// the rows are not filtered by the database
+		int count = 0;
+		while ( rs.next( ) )
+		{
+			assertTrue( rs.getInt( 4 ) > 2 );
+			count++;
+		}
+		assertEquals( 3, count );
+		failing.close( );
+	}
+
+	public void testQuerySpecSQLBuilder( ) throws Exception
+	{
+		QuerySpecSQLBuilder builder = new QuerySpecSQLBuilder( "\"" );
+		AndExpression and = new AndExpression( );
+		and.add( newFilter( QuerySpecSQLBuilder.FILTER_BETWEEN,
+				"COL2",
+				new BigDecimal( "1.5" ),
+				new BigDecimal( "5" ) ) );
+		and.add( newFilter( "Unknown", "COL2", new BigDecimal( "1" ) ) );
+		and.add( newFilter( QuerySpecSQLBuilder.FILTER_EQUAL, "COL4", "it's" ) );
+		QuerySpecification querySpec = newQuerySpec( and );
+
+		assertEquals( "SELECT * FROM ( select * from t\n) BIRT_FILTERED WHERE "
+				+ "(\"COL2\" BETWEEN 1.5 AND 5) AND (\"COL4\" = 'it''s')",
+				builder.build( "select * from t;", querySpec ) );
+		// a trailing comment ends at the end of the original statement
+		assertEquals( "SELECT * FROM ( select * from t -- all rows\n) BIRT_FILTERED WHERE "
+				+ "(\"COL2\" BETWEEN 1.5 AND 5) AND (\"COL4\" = 'it''s')",
+				builder.build( "select * from t -- all rows", querySpec ) );
+		// the order of the rows is kept by the original statement
+		assertNull( builder.build( "select * from t order by col2", querySpec ) );
+		assertNull( builder.build( "{call proc()}", querySpec ) );
+		assertNull( builder.build( "select * from t", null ) );
+		// an unquoted column must be a plain identifier
+		assertNull( new QuerySpecSQLBuilder( " " ).build( "select * from t",
+				newQuerySpec( newFilter( QuerySpecSQLBuilder.FILTER_IS_NULL,
+						"A B",
+						null ) ) ) );
+	}
+
+	private static CustomExpression newFilter( String id, String column,
+			Object value )
+	{
+		return value == null ? newFilter( id, column, new Object[0] )
+				: newFilter( id, column, new Object[]{
+					value
+				} );
+	}
+
+	private static CustomExpression newFilter( String id, String column,
+			Object value1, Object value2 )
+	{
+		return newFilter( id, column, new Object[]{
+				value1, value2
+		} );
+	}
+
+	private static CustomExpression newFilter( String id, String column,
+			Object[] values )
+	{
+		ExpressionVariable variable = new ExpressionVariable( new ColumnValueExpression( column ) );
+		ExpressionArguments args = new ExpressionArguments( );
+		for ( int i = 0; i < values.length; i++ )
+		{
+			args.addValue( values[i] );
+		}
+		return new CustomExpression( "org.eclipse.birt.report.data.oda.jdbc.dynamicResultSet",
+				id,
+				variable,
+				args );
+	}
+
+	/**
+	 * returns a connection whose filtered statements are prepared but fail to
+	 * execute.
+	 */
+	private static java.sql.Connection failFilteredExecution(
+			final java.sql.Connection connection )
+	{
+		return (java.sql.Connection) Proxy.newProxyInstance( StatementTest.class.getClassLoader( ),
+				new Class[]{
+					java.sql.Connection.class
+				},
+				new InvocationHandler( ) {
+
+					public Object invoke( Object proxy, Method method,
+							Object[] args ) throws Throwable
+					{
+						Object result = invokeMethod( connection, method, args );
+						if ( "prepareStatement".equals( method.getName( ) )
+								&& ( (String) args[0] ).indexOf( "BIRT_FILTERED" ) >= 0 )
+						{
+							return failExecution( (PreparedStatement) result );
+						}
+						return result;
+					}
+				} );
+	}
+
+	private static PreparedStatement failExecution(
+			final PreparedStatement statement )
+	{
+		return (PreparedStatement) Proxy.newProxyInstance( StatementTest.class.getClassLoader( ),
+				new Class[]{
+					PreparedStatement.class
+				},
+				new InvocationHandler( ) {
+
+					public Object invoke( Object proxy, Method method,
+							Object[] args ) throws Throwable
+					{
+						if ( method.getName( ).startsWith( "execute" ) )
+						{
+							throw new SQLException( "Filtered statement rejected" );
+						}
+						return invokeMethod( statement, method, args );
+					}
+				} );
+	}
+
+	private static Object invokeMethod( Object target, Method method,
+			Object[] args ) throws Throwable
+	{
+		try
+		{
+			return method.invoke( target, args );
+		}
+		catch ( InvocationTargetException e )
+		{
+			throw e.getCause( );
+		}
+	}
+
+	private static QuerySpecification newQuerySpec( FilterExpression filter )
+	{
+		QuerySpecificationHelper helper = new QuerySpecificationHelper( (String) null );
+		QuerySpecification querySpec = helper.createQuerySpecification( );
+		ResultSetSpecification resultSpec = helper.createResultSetSpecification( );
+		resultSpec.setFilterSpecification( filter );
+		querySpec.setResultSetSpecification( resultSpec );
+		return querySpec;
+	}
+
 }
\ No newline at end of file
@@ -237,6 +237,9 @@ public class Connection implements IConnection
 				//First try to identify the authorization info. 28000 is xOpen standard for login failure
 				if( "28000".equals( e1.getSQLState( )))
 					throw new JDBCException( ResourceConstants.CONN_CANNOT_GET, e1 );
+				// the pool is full, don't bypass it with a new connection
+				if ( e1 instanceof JDBCConnectionPool.ConnectionPoolTimeoutException )
+					throw new JDBCException( ResourceConstants.CONN_CANNOT_GET, e1 );
 			}
 			else
 			{
@@ -33,7 +33,9 @@ class ConnectionPoolFactory
 				}
 				catch ( ClassNotFoundException e )
 				{
-					return null;
+					// use the built-in pool manager
+					mgr_instance = JDBCConnectionPoolManager.getInstance( );
+					return mgr_instance;
 				}
 				if ( IConnectionPoolManager.class.isAssignableFrom( clazz ) )
 				{
@@ -0,0 +1,577 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.report.data.oda.jdbc;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.eclipse.datatools.connectivity.oda.OdaException;
+
+/**
+ * A pool of the physical connections opened with the same driver, url and
+ * connection properties.
+ *
+ * The connections handed out are proxies of the physical connections, closing
+ * a proxy returns the physical connection to the pool. The idle connections
+ * are validated before they are reused and closed once they have been idle
+ * longer than the max idle time.
+ */
+public class JDBCConnectionPool
+{
+
+	private static Logger logger = Logger.getLogger( JDBCConnectionPool.class.getName( ) );
+
+	private JDBCConnectionPoolManager manager;
+	private String driverClass;
+	private String url;
+	private Properties connectionProps;
+	private Collection<String> driverClassPath;
+
+	private int maxSize;
+	private long maxIdleTime;
+	private long waitTimeout;
+	private String validationQuery;
+
+	/**
+	 * the idle connections, the most recently used one is the first.
+	 */
+	private LinkedList<PooledConnection> idleConnections = new LinkedList<PooledConnection>( );
+	/**
+	 * the number of the physical connections, include the ones being created.
+	 */
+	private int connectionCount;
+	private boolean closed;
+
+	private long borrowCount;
+	private long borrowTime;
+	private long maxBorrowTime;
+	private long createdCount;
+	private long destroyedCount;
+	private long timeoutCount;
+
+	JDBCConnectionPool( JDBCConnectionPoolManager manager,
+			String driverClass, String url, Properties connectionProps,
+			Collection<String> driverClassPath, int maxSize, long maxIdleTime,
+			long waitTimeout, String validationQuery )
+	{
+		this.manager = manager;
+		this.driverClass = driverClass;
+		this.url = url;
+		this.connectionProps = connectionProps;
+		this.driverClassPath = driverClassPath;
+		this.maxSize = maxSize;
+		this.maxIdleTime = maxIdleTime;
+		this.waitTimeout = waitTimeout;
+		this.validationQuery = validationQuery;
+	}
+
+	/**
+	 * Borrow a connection from the pool. A new physical connection is opened
+	 * if there is no idle connection and the pool is not full, otherwise the
+	 * caller waits until a connection is returned.
+	 *
+	 * @return a connection which returns to the pool once it is closed
+	 * @throws SQLException
+	 * @throws OdaException
+	 */
+	public java.sql.Connection getConnection( ) throws SQLException,
+			OdaException
+	{
+		long startTime = System.currentTimeMillis( );
+		long deadline = startTime + waitTimeout;
+		while ( true )
+		{
+			PooledConnection connection = null;
+			synchronized ( this )
+			{
+				if ( closed )
+				{
+					throw new SQLException( "The connection pool is closed." ); //$NON-NLS-1$
+				}
+				closeExpiredConnections( startTime );
+				while ( idleConnections.isEmpty( ) && connectionCount >= maxSize )
+				{
+					long remainTime = deadline - System.currentTimeMillis( );
+					if ( remainTime <= 0 )
+					{
+						timeoutCount++;
+						throw new ConnectionPoolTimeoutException( "Timeout waiting for a connection of " //$NON-NLS-1$
+								+ LogUtil.encryptURL( url ) );
+					}
+					try
+					{
+						wait( remainTime );
+					}
+					catch ( InterruptedException e )
+					{
+						throw new SQLException( e.getLocalizedMessage( ) );
+					}
+				}
+				if ( !idleConnections.isEmpty( ) )
+				{
+					connection = idleConnections.removeFirst( );
+				}
+				else
+				{
+					connectionCount++;
+				}
+			}
+
+			if ( connection == null )
+			{
+				connection = createConnection( );
+			}
+			else if ( !validate( connection ) )
+			{
+				destroy( connection );
+				continue;
+			}
+			long time = System.currentTimeMillis( ) - startTime;
+			synchronized ( this )
+			{
+				borrowCount++;
+				borrowTime += time;
+				if ( time > maxBorrowTime )
+				{
+					maxBorrowTime = time;
+				}
+			}
+			return connection.open( );
+		}
+	}
+
+	private PooledConnection createConnection( ) throws SQLException,
+			OdaException
+	{
+		try
+		{
+			java.sql.Connection physical = JDBCDriverManager.getInstance( )
+					.getConnection( driverClass,
+							url,
+							connectionProps,
+							driverClassPath );
+			PooledConnection connection;
+			try
+			{
+				connection = new PooledConnection( physical );
+			}
+			catch ( SQLException e )
+			{
+				physical.close( );
+				throw e;
+			}
+			synchronized ( this )
+			{
+				createdCount++;
+			}
+			logger.log( Level.FINE, "Pooled JDBC connection: " + physical + " is opened" ); //$NON-NLS-1$ //$NON-NLS-2$
+			return connection;
+		}
+		catch ( SQLException e )
+		{
+			releaseSlot( );
+			throw e;
+		}
+		catch ( OdaException e )
+		{
+			releaseSlot( );
+			throw e;
+		}
+		catch ( RuntimeException e )
+		{
+			releaseSlot( );
+			throw e;
+		}
+	}
+
+	private synchronized void releaseSlot( )
+	{
+		connectionCount--;
+		notifyAll( );
+	}
+
+	private boolean validate( PooledConnection connection )
+	{
+		try
+		{
+			if ( connection.physical.isClosed( ) )
+			{
+				return false;
+			}
+			if ( validationQuery != null )
+			{
+				java.sql.Statement stmt = connection.physical.createStatement( );
+				try
+				{
+					stmt.execute( validationQuery );
+				}
+				finally
+				{
+					stmt.close( );
+				}
+			}
+			return true;
+		}
+		catch ( SQLException e )
+		{
+			logger.log( Level.FINE, "Pooled JDBC connection: " //$NON-NLS-1$
+					+ connection.physical + " is invalid", e ); //$NON-NLS-1$
+			return false;
+		}
+	}
+
+	/**
+	 * return the connection to the pool, the connection is closed if it can't
+	 * be reset to its initial state. The expired idle connections of all the
+	 * pools of the manager are closed too, so the pools which are no longer
+	 * used don't keep their connections open.
+	 */
+	private void release( PooledConnection connection )
+	{
+		if ( !connection.reset( ) )
+		{
+			destroy( connection );
+		}
+		else if ( !addIdleConnection( connection ) )
+		{
+			destroy( connection );
+		}
+		if ( manager != null )
+		{
+			manager.evictIdleConnections( );
+		}
+	}
+
+	private synchronized boolean addIdleConnection( PooledConnection connection )
+	{
+		if ( closed )
+		{
+			return false;
+		}
+		connection.lastUsedTime = System.currentTimeMillis( );
+		idleConnections.addFirst( connection );
+		notifyAll( );
+		return true;
+	}
+
+	private void destroy( PooledConnection connection )
+	{
+		try
+		{
+			connection.physical.close( );
+			logger.log( Level.FINE, "Pooled JDBC connection: " + connection.physical + " is closed" ); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		catch ( SQLException e )
+		{
+			logger.log( Level.FINE, e.getLocalizedMessage( ), e );
+		}
+		synchronized ( this )
+		{
+			destroyedCount++;
+			connectionCount--;
+			notifyAll( );
+		}
+	}
+
+	/**
+	 * close the connections which have been idle longer than the max idle
+	 * time, the idle list is ordered by the last used time.
+	 */
+	private void closeExpiredConnections( long now )
+	{
+		if ( maxIdleTime <= 0 )
+		{
+			return;
+		}
+		List<PooledConnection> expired = null;
+		while ( !idleConnections.isEmpty( )
+				&& now - idleConnections.getLast( ).lastUsedTime > maxIdleTime )
+		{
+			if ( expired == null )
+			{
+				expired = new ArrayList<PooledConnection>( );
+			}
+			expired.add( idleConnections.removeLast( ) );
+		}
+		if ( expired != null )
+		{
+			for ( PooledConnection connection : expired )
+			{
+				try
+				{
+					connection.physical.close( );
+				}
+				catch ( SQLException e )
+				{
+					logger.log( Level.FINE, e.getLocalizedMessage( ), e );
+				}
+				destroyedCount++;
+				connectionCount--;
+			}
+			notifyAll( );
+		}
+	}
+
+	/**
+	 * close the idle connections which have expired.
+	 */
+	public synchronized void evictIdleConnections( )
+	{
+		closeExpiredConnections( System.currentTimeMillis( ) );
+	}
+
+	/**
+	 * close the pool and all the idle connections, the borrowed connections
+	 * are closed once they are returned.
+	 */
+	public void close( )
+	{
+		List<PooledConnection> idle;
+		synchronized ( this )
+		{
+			closed = true;
+			idle = new ArrayList<PooledConnection>( idleConnections );
+			idleConnections.clear( );
+			notifyAll( );
+		}
+		for ( PooledConnection connection : idle )
+		{
+			destroy( connection );
+		}
+	}
+
+	public int getMaxSize( )
+	{
+		return maxSize;
+	}
+
+	/**
+	 * @return the number of the physical connections, both idle and borrowed
+	 */
+	public synchronized int getConnectionCount( )
+	{
+		return connectionCount;
+	}
+
+	public synchronized int getIdleCount( )
+	{
+		return idleConnections.size( );
+	}
+
+	public synchronized int getActiveCount( )
+	{
+		return connectionCount - idleConnections.size( );
+	}
+
+	public synchronized long getBorrowCount( )
+	{
+		return borrowCount;
+	}
+
+	/**
+	 * @return the average time in milliseconds to get a connection
+	 */
+	public synchronized double getAverageBorrowTime( )
+	{
+		return borrowCount == 0 ? 0 : (double) borrowTime / borrowCount;
+	}
+
+	public synchronized long getMaxBorrowTime( )
+	{
+		return maxBorrowTime;
+	}
+
+	public synchronized long getCreatedCount( )
+	{
+		return createdCount;
+	}
+
+	public synchronized long getDestroyedCount( )
+	{
+		return destroyedCount;
+	}
+
+	public synchronized long getTimeoutCount( )
+	{
+		return timeoutCount;
+	}
+
+	public synchronized String toString( )
+	{
+		StringBuffer buffer = new StringBuffer( "JDBCConnectionPool: " ); //$NON-NLS-1$
+		buffer.append( LogUtil.encryptURL( url ) );
+		buffer.append( ", size=" ).append( connectionCount ); //$NON-NLS-1$
+		buffer.append( ", idle=" ).append( idleConnections.size( ) ); //$NON-NLS-1$
+		buffer.append( ", max=" ).append( maxSize ); //$NON-NLS-1$
+		buffer.append( ", borrows=" ).append( borrowCount ); //$NON-NLS-1$
+		buffer.append( ", avgBorrowTime=" ).append( getAverageBorrowTime( ) ); //$NON-NLS-1$
+		buffer.append( ", maxBorrowTime=" ).append( maxBorrowTime ); //$NON-NLS-1$
+		buffer.append( ", timeouts=" ).append( timeoutCount ); //$NON-NLS-1$
+		return buffer.toString( );
+	}
+
+	/**
+	 * A physical connection managed by the pool.
+	 */
+	private class PooledConnection
+	{
+
+		java.sql.Connection physical;
+		long lastUsedTime;
+		boolean autoCommit;
+		int isolation;
+		boolean readOnly;
+
+		PooledConnection( java.sql.Connection physical ) throws SQLException
+		{
+			this.physical = physical;
+			this.autoCommit = physical.getAutoCommit( );
+			this.isolation = physical.getTransactionIsolation( );
+			this.readOnly = physical.isReadOnly( );
+		}
+
+		java.sql.Connection open( )
+		{
+			return (java.sql.Connection) Proxy.newProxyInstance( java.sql.Connection.class.getClassLoader( ),
+					new Class[]{
+						java.sql.Connection.class
+					},
+					new ConnectionHandler( this ) );
+		}
+
+		/**
+		 * restore the connection state which may be changed by the user.
+		 */
+		boolean reset( )
+		{
+			try
+			{
+				if ( physical.isClosed( ) )
+				{
+					return false;
+				}
+				if ( !physical.getAutoCommit( ) )
+				{
+					physical.rollback( );
+				}
+				if ( physical.getAutoCommit( ) != autoCommit )
+				{
+					physical.setAutoCommit( autoCommit );
+				}
+				if ( physical.getTransactionIsolation( ) != isolation )
+				{
+					physical.setTransactionIsolation( isolation );
+				}
+				if ( physical.isReadOnly( ) != readOnly )
+				{
+					physical.setReadOnly( readOnly );
+				}
+				physical.clearWarnings( );
+				return true;
+			}
+			catch ( SQLException e )
+			{
+				logger.log( Level.FINE, e.getLocalizedMessage( ), e );
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * The handler of the connection proxy handed out to the user.
+	 */
+	private class ConnectionHandler implements InvocationHandler
+	{
+
+		private PooledConnection connection;
+
+		ConnectionHandler( PooledConnection connection )
+		{
+			this.connection = connection;
+		}
+
+		public Object invoke( Object proxy, Method method, Object[] args )
+				throws Throwable
+		{
+			String name = method.getName( );
+			if ( "close".equals( name ) && method.getParameterTypes( ).length == 0 ) //$NON-NLS-1$
+			{
+				PooledConnection pooled;
+				synchronized ( this )
+				{
+					pooled = connection;
+					connection = null;
+				}
+				if ( pooled != null )
+				{
+					release( pooled );
+				}
+				return null;
+			}
+			if ( "isClosed".equals( name ) && method.getParameterTypes( ).length == 0 ) //$NON-NLS-1$
+			{
+				PooledConnection pooled = connection;
+				return Boolean.valueOf( pooled == null
+						|| pooled.physical.isClosed( ) );
+			}
+			if ( "equals".equals( name ) && method.getParameterTypes( ).length == 1 ) //$NON-NLS-1$
+			{
+				return Boolean.valueOf( proxy == args[0] );
+			}
+			if ( "hashCode".equals( name ) && method.getParameterTypes( ).length == 0 ) //$NON-NLS-1$
+			{
+				return Integer.valueOf( System.identityHashCode( proxy ) );
+			}
+			PooledConnection pooled = connection;
+			if ( pooled == null )
+			{
+				if ( "toString".equals( name ) ) //$NON-NLS-1$
+				{
+					return "Closed pooled connection"; //$NON-NLS-1$
+				}
+				throw new SQLException( "The connection is closed." ); //$NON-NLS-1$
+			}
+			try
+			{
+				return method.invoke( pooled.physical, args );
+			}
+			catch ( InvocationTargetException e )
+			{
+				throw e.getTargetException( );
+			}
+		}
+	}
+
+	/**
+	 * Thrown when no connection is available before the wait timeout.
+	 */
+	public static class ConnectionPoolTimeoutException extends SQLException
+	{
+
+		private static final long serialVersionUID = 1L;
+
+		ConnectionPoolTimeoutException( String message )
+		{
+			super( message );
+		}
+	}
+}
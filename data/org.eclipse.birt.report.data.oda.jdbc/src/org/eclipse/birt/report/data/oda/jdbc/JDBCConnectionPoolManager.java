@@ -0,0 +1,221 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.report.data.oda.jdbc;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.datatools.connectivity.oda.OdaException;
+
+/**
+ * The built-in connection pool manager, used when no other
+ * IConnectionPoolManager is provided.
+ *
+ * The pooling is disabled by default. It is enabled by setting POOL_ENABLED
+ * to "true" in the application context or as a system property. The
+ * connections are pooled separately for each driver, url and set of
+ * connection properties (which include the user). The settings of a pool are
+ * read when the pool is created, from the application context first and then
+ * from the system properties. The idle connections which have expired are
+ * closed in all the pools each time a connection is borrowed or returned, and
+ * all the pools are closed when the plugin stops.
+ */
+public class JDBCConnectionPoolManager implements IConnectionPoolManager
+{
+
+	/** "true" to pool the connections */
+	public static final String POOL_ENABLED = "OdaJDBCDriverConnectionPoolEnabled";
+	/** the max number of connections of a pool, 10 by default */
+	public static final String POOL_MAX_SIZE = "OdaJDBCDriverConnectionPoolMaxSize";
+	/**
+	 * the time in milliseconds before an idle connection is closed, 5 minutes
+	 * by default, 0 or negative value means never
+	 */
+	public static final String POOL_MAX_IDLE_TIME = "OdaJDBCDriverConnectionPoolMaxIdleTime";
+	/**
+	 * the time in milliseconds to wait for a connection when the pool is
+	 * full, 30 seconds by default
+	 */
+	public static final String POOL_WAIT_TIMEOUT = "OdaJDBCDriverConnectionPoolWaitTimeout";
+	/** the query used to validate an idle connection before it is reused */
+	public static final String POOL_VALIDATION_QUERY = "OdaJDBCDriverConnectionPoolValidationQuery";
+
+	static final int DEFAULT_MAX_SIZE = 10;
+	static final long DEFAULT_MAX_IDLE_TIME = 5 * 60 * 1000;
+	static final long DEFAULT_WAIT_TIMEOUT = 30 * 1000;
+
+	private static JDBCConnectionPoolManager instance = new JDBCConnectionPoolManager( );
+
+	private ConcurrentHashMap<String, JDBCConnectionPool> pools = new ConcurrentHashMap<String, JDBCConnectionPool>( );
+
+	public static JDBCConnectionPoolManager getInstance( )
+	{
+		return instance;
+	}
+
+	/*
+	 * @see org.eclipse.birt.report.data.oda.jdbc.IConnectionPoolManager#getConnection(java.lang.String, java.lang.String, java.util.Properties, java.util.Collection, java.util.Map)
+	 */
+	public java.sql.Connection getConnection( String driverClass, String url,
+			Properties connectionProps, Collection<String> driverClassPath,
+			Map appContext ) throws SQLException, OdaException
+	{
+		if ( !Boolean.valueOf( getSetting( appContext, POOL_ENABLED ) )
+				.booleanValue( ) )
+		{
+			// the caller opens the connection itself
+			return null;
+		}
+		evictIdleConnections( );
+		return getPool( driverClass,
+				url,
+				connectionProps,
+				driverClassPath,
+				appContext ).getConnection( );
+	}
+
+	/**
+	 * get the pool of the connections, the pool is created if it doesn't
+	 * exist.
+	 */
+	JDBCConnectionPool getPool( String driverClass, String url,
+			Properties connectionProps, Collection<String> driverClassPath,
+			Map appContext )
+	{
+		String key = getPoolKey( driverClass, url, connectionProps );
+		JDBCConnectionPool pool = pools.get( key );
+		if ( pool == null )
+		{
+			Properties props = new Properties( );
+			if ( connectionProps != null )
+			{
+				props.putAll( connectionProps );
+			}
+			pool = new JDBCConnectionPool( this,
+					driverClass,
+					url,
+					props,
+					driverClassPath,
+					getIntSetting( appContext, POOL_MAX_SIZE, DEFAULT_MAX_SIZE ),
+					getLongSetting( appContext,
+							POOL_MAX_IDLE_TIME,
+							DEFAULT_MAX_IDLE_TIME ),
+					getLongSetting( appContext,
+							POOL_WAIT_TIMEOUT,
+							DEFAULT_WAIT_TIMEOUT ),
+					getSetting( appContext, POOL_VALIDATION_QUERY ) );
+			JDBCConnectionPool oldPool = pools.putIfAbsent( key, pool );
+			if ( oldPool != null )
+			{
+				pool = oldPool;
+			}
+		}
+		return pool;
+	}
+
+	/**
+	 * @return all the pools created by this manager
+	 */
+	public List<JDBCConnectionPool> getPools( )
+	{
+		return new ArrayList<JDBCConnectionPool>( pools.values( ) );
+	}
+
+	/**
+	 * close the idle connections which have expired in all the pools.
+	 */
+	public void evictIdleConnections( )
+	{
+		for ( JDBCConnectionPool pool : pools.values( ) )
+		{
+			pool.evictIdleConnections( );
+		}
+	}
+
+	/**
+	 * close all the pools.
+	 */
+	public void close( )
+	{
+		for ( String key : new ArrayList<String>( pools.keySet( ) ) )
+		{
+			JDBCConnectionPool pool = pools.remove( key );
+			if ( pool != null )
+			{
+				pool.close( );
+			}
+		}
+	}
+
+	private static String getPoolKey( String driverClass, String url,
+			Properties connectionProps )
+	{
+		StringBuffer key = new StringBuffer( );
+		key.append( driverClass ).append( '\n' ).append( url ).append( '\n' );
+		if ( connectionProps != null )
+		{
+			// sort the properties so the key doesn't depend on the hash order
+			key.append( new TreeMap<Object, Object>( connectionProps ) );
+		}
+		return key.toString( );
+	}
+
+	private static String getSetting( Map appContext, String name )
+	{
+		Object value = appContext == null ? null : appContext.get( name );
+		if ( value == null )
+		{
+			return System.getProperty( name );
+		}
+		return value.toString( );
+	}
+
+	private static int getIntSetting( Map appContext, String name,
+			int defaultValue )
+	{
+		String value = getSetting( appContext, name );
+		if ( value != null )
+		{
+			try
+			{
+				return Integer.parseInt( value.trim( ) );
+			}
+			catch ( NumberFormatException e )
+			{
+			}
+		}
+		return defaultValue;
+	}
+
+	private static long getLongSetting( Map appContext, String name,
+			long defaultValue )
+	{
+		String value = getSetting( appContext, name );
+		if ( value != null )
+		{
+			try
+			{
+				return Long.parseLong( value.trim( ) );
+			}
+			catch ( NumberFormatException e )
+			{
+			}
+		}
+		return defaultValue;
+	}
+}
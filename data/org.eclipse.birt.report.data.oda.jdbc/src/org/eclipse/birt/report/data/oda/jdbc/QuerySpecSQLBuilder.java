@@ -0,0 +1,302 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.report.data.oda.jdbc;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.datatools.connectivity.oda.spec.ExpressionArguments;
+import org.eclipse.datatools.connectivity.oda.spec.ExpressionVariable;
+import org.eclipse.datatools.connectivity.oda.spec.QuerySpecification;
+import org.eclipse.datatools.connectivity.oda.spec.ValueExpression;
+import org.eclipse.datatools.connectivity.oda.spec.result.FilterExpression;
+import org.eclipse.datatools.connectivity.oda.spec.result.ResultSetSpecification;
+import org.eclipse.datatools.connectivity.oda.spec.result.filter.AndExpression;
+import org.eclipse.datatools.connectivity.oda.spec.result.filter.CustomExpression;
+import org.eclipse.datatools.connectivity.oda.spec.result.filter.OrExpression;
+import org.eclipse.datatools.connectivity.oda.spec.valueexpr.AtomicValueExpression;
+import org.eclipse.datatools.connectivity.oda.spec.valueexpr.ColumnValueExpression;
+
+/**
+ * Builds the SQL statement which evaluates the filters of a
+ * QuerySpecification in the database. The original statement is wrapped as a
+ * derived table:
+ *
+ * <pre>
+ * SELECT * FROM ( original statement ) BIRT_FILTERED WHERE ...
+ * </pre>
+ *
+ * The original statement is ended by a new line in the derived table, so a
+ * trailing "--" comment doesn't comment out the rest of the statement. The
+ * values of the filters are written as literals, so the positions of the
+ * statement parameters are not changed. A conjunct which can't be translated
+ * is left out, so the statement returns a superset of the rows the filters
+ * accept; the consumer still evaluates its filters.
+ */
+public class QuerySpecSQLBuilder
+{
+
+	/** ids of the filter expressions declared by the dynamicResultSet extension */
+	public static final String FILTER_EQUAL = "Equal"; //$NON-NLS-1$
+	public static final String FILTER_NOT_EQUAL = "NotEqual"; //$NON-NLS-1$
+	public static final String FILTER_LESS_THAN = "LessThan"; //$NON-NLS-1$
+	public static final String FILTER_LESS_THAN_OR_EQUAL = "LessThanOrEqual"; //$NON-NLS-1$
+	public static final String FILTER_GREATER_THAN = "GreaterThan"; //$NON-NLS-1$
+	public static final String FILTER_GREATER_THAN_OR_EQUAL = "GreaterThanOrEqual"; //$NON-NLS-1$
+	public static final String FILTER_BETWEEN = "Between"; //$NON-NLS-1$
+	public static final String FILTER_IS_NULL = "IsNull"; //$NON-NLS-1$
+	public static final String FILTER_IS_NOT_NULL = "IsNotNull"; //$NON-NLS-1$
+
+	private static final String DERIVED_TABLE_ALIAS = "BIRT_FILTERED"; //$NON-NLS-1$
+
+	private String quote;
+
+	/**
+	 * @param identifierQuote
+	 *            the quote string of the identifiers, see
+	 *            java.sql.DatabaseMetaData#getIdentifierQuoteString(); a
+	 *            space or null if the database doesn't quote the identifiers
+	 */
+	public QuerySpecSQLBuilder( String identifierQuote )
+	{
+		this.quote = identifierQuote == null
+				|| identifierQuote.trim( ).length( ) == 0 ? null
+				: identifierQuote.trim( );
+	}
+
+	/**
+	 * Builds the statement evaluating the filters of the query specification.
+	 *
+	 * @param command
+	 *            the original statement
+	 * @param querySpec
+	 *            may be null
+	 * @return the filtered statement, null if the statement is not changed
+	 */
+	public String build( String command, QuerySpecification querySpec )
+	{
+		if ( command == null || querySpec == null )
+		{
+			return null;
+		}
+		ResultSetSpecification resultSpec = querySpec.getResultSetSpecification( );
+		if ( resultSpec == null || resultSpec.getFilterSpecification( ) == null )
+		{
+			return null;
+		}
+		String query = command.trim( );
+		String lower = query.toLowerCase( );
+		// a derived table doesn't keep the order of the rows, and some
+		// databases reject an ordered derived table
+		if ( !lower.startsWith( "select" ) || lower.indexOf( "order by" ) >= 0 ) //$NON-NLS-1$ //$NON-NLS-2$
+		{
+			return null;
+		}
+		if ( query.endsWith( ";" ) ) //$NON-NLS-1$
+		{
+			query = query.substring( 0, query.length( ) - 1 );
+		}
+		String condition = toSQL( resultSpec.getFilterSpecification( ) );
+		if ( condition == null )
+		{
+			return null;
+		}
+		return "SELECT * FROM ( " + query + "\n) " + DERIVED_TABLE_ALIAS //$NON-NLS-1$ //$NON-NLS-2$
+				+ " WHERE " + condition; //$NON-NLS-1$
+	}
+
+	/**
+	 * @param filter
+	 * @return the SQL condition, null if the filter can't be translated
+	 */
+	String toSQL( FilterExpression filter )
+	{
+		if ( filter instanceof AndExpression )
+		{
+			// leaving out a conjunct only returns more rows
+			List<String> conditions = new ArrayList<String>( );
+			for ( FilterExpression child : ( (AndExpression) filter ).getChildren( ) )
+			{
+				String condition = toSQL( child );
+				if ( condition != null )
+				{
+					conditions.add( condition );
+				}
+			}
+			return join( conditions, " AND " ); //$NON-NLS-1$
+		}
+		if ( filter instanceof OrExpression )
+		{
+			List<String> conditions = new ArrayList<String>( );
+			for ( FilterExpression child : ( (OrExpression) filter ).getChildren( ) )
+			{
+				String condition = toSQL( child );
+				if ( condition == null )
+				{
+					return null;
+				}
+				conditions.add( condition );
+			}
+			return join( conditions, " OR " ); //$NON-NLS-1$
+		}
+		if ( filter instanceof CustomExpression )
+		{
+			return toSQL( (CustomExpression) filter );
+		}
+		return null;
+	}
+
+	private String toSQL( CustomExpression expr )
+	{
+		String column = getColumn( expr.getContextVariable( ) );
+		if ( column == null )
+		{
+			return null;
+		}
+		String id = expr.getId( );
+		if ( FILTER_IS_NULL.equals( id ) )
+		{
+			return column + " IS NULL"; //$NON-NLS-1$
+		}
+		if ( FILTER_IS_NOT_NULL.equals( id ) )
+		{
+			return column + " IS NOT NULL"; //$NON-NLS-1$
+		}
+
+		List<String> values = getValues( expr.getContextArguments( ) );
+		if ( values == null )
+		{
+			return null;
+		}
+		if ( FILTER_BETWEEN.equals( id ) )
+		{
+			return values.size( ) != 2 ? null : column + " BETWEEN " //$NON-NLS-1$
+					+ values.get( 0 ) + " AND " + values.get( 1 ); //$NON-NLS-1$
+		}
+		if ( values.size( ) != 1 )
+		{
+			return null;
+		}
+		String operator = null;
+		if ( FILTER_EQUAL.equals( id ) )
+			operator = " = "; //$NON-NLS-1$
+		else if ( FILTER_NOT_EQUAL.equals( id ) )
+			operator = " <> "; //$NON-NLS-1$
+		else if ( FILTER_LESS_THAN.equals( id ) )
+			operator = " < "; //$NON-NLS-1$
+		else if ( FILTER_LESS_THAN_OR_EQUAL.equals( id ) )
+			operator = " <= "; //$NON-NLS-1$
+		else if ( FILTER_GREATER_THAN.equals( id ) )
+			operator = " > "; //$NON-NLS-1$
+		else if ( FILTER_GREATER_THAN_OR_EQUAL.equals( id ) )
+			operator = " >= "; //$NON-NLS-1$
+		else
+			return null;
+		return column + operator + values.get( 0 );
+	}
+
+	/**
+	 * @return the quoted column name, null if the variable is not a column
+	 */
+	private String getColumn( ExpressionVariable variable )
+	{
+		if ( variable == null
+				|| !( variable.getValueExpression( ) instanceof ColumnValueExpression ) )
+		{
+			return null;
+		}
+		String name = ( (ColumnValueExpression) variable.getValueExpression( ) ).getColumnName( );
+		if ( name == null || name.length( ) == 0 )
+		{
+			return null;
+		}
+		if ( quote == null )
+		{
+			// an unquoted name must be a plain identifier
+			for ( int i = 0; i < name.length( ); i++ )
+			{
+				char c = name.charAt( i );
+				if ( !Character.isLetterOrDigit( c ) && c != '_' )
+				{
+					return null;
+				}
+			}
+			return name;
+		}
+		if ( name.indexOf( quote ) >= 0 )
+		{
+			return null;
+		}
+		return quote + name + quote;
+	}
+
+	/**
+	 * @return the SQL literals of the arguments, null if an argument is not a
+	 *         number or a string
+	 */
+	private List<String> getValues( ExpressionArguments args )
+	{
+		List<String> values = new ArrayList<String>( );
+		if ( args == null )
+		{
+			return values;
+		}
+		for ( ValueExpression expr : args.getValueExpressions( ) )
+		{
+			if ( !( expr instanceof AtomicValueExpression ) )
+			{
+				return null;
+			}
+			Object value = ( (AtomicValueExpression) expr ).getValue( );
+			if ( value instanceof BigDecimal )
+			{
+				values.add( ( (BigDecimal) value ).toPlainString( ) );
+			}
+			else if ( value instanceof Integer || value instanceof Long )
+			{
+				values.add( value.toString( ) );
+			}
+			else if ( value instanceof String )
+			{
+				values.add( "'" + ( (String) value ).replaceAll( "'", "''" ) + "'" ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+			}
+			else
+			{
+				return null;
+			}
+		}
+		return values;
+	}
+
+	private static String join( List<String> conditions, String separator )
+	{
+		if ( conditions.isEmpty( ) )
+		{
+			return null;
+		}
+		if ( conditions.size( ) == 1 )
+		{
+			return conditions.get( 0 );
+		}
+		StringBuffer buffer = new StringBuffer( );
+		for ( int i = 0; i < conditions.size( ); i++ )
+		{
+			if ( i > 0 )
+			{
+				buffer.append( separator );
+			}
+			buffer.append( '(' ).append( conditions.get( i ) ).append( ')' );
+		}
+		return buffer.toString( );
+	}
+}
@@ -17,6 +17,9 @@ import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Time;
 import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -59,6 +62,19 @@ public class Statement implements IQuery
 	private IResultSetMetaData cachedResultMetaData;
 	private IResultSet cachedResultSet;
 	private QuerySpecification querySpec;
+
+	/**
+	 * the original statement while the prepared statement is the filtered
+	 * one, null otherwise
+	 */
+	private String unfilteredCommand;
+
+	/**
+	 * the parameters and the properties set on the filtered statement, they
+	 * are set again on the original statement if the filtered one fails
+	 */
+	private Map<Integer, InParameter> inParameters = new HashMap<Integer, InParameter>( );
+	private Map<String, String> properties = new HashMap<String, String>( );
 	
 	/**
 	 * assertNull(Object o)
@@ -123,12 +139,19 @@ public class Statement implements IQuery
 			// Clear any cached result set or metadata
 			this.cachedResultMetaData = null;
 			this.cachedResultSet = null;
+			this.unfilteredCommand = null;
+			this.inParameters.clear( );
+			this.properties.clear( );
 			
 			/*
 			 * call the JDBC Connection.prepareStatement(String) method to get
 			 * the preparedStatement
 			 */
-			this.preStat = conn.prepareStatement( command );
+			this.preStat = prepareFiltered( command );
+			if ( this.preStat == null )
+				this.preStat = conn.prepareStatement( command );
+			else
+				this.unfilteredCommand = command;
 		}
 		catch ( SQLException e )
 		{
@@ -137,6 +160,104 @@ public class Statement implements IQuery
 		}
 	}
 	
+	/**
+	 * Prepares the statement which evaluates the filters of the query
+	 * specification in the database.
+	 * 
+	 * @param command
+	 * @return the prepared statement, null if there is no filter to push down
+	 *         or the database rejects the filtered statement
+	 */
+	private PreparedStatement prepareFiltered( String command )
+	{
+		if ( querySpec == null || querySpec.getResultSetSpecification( ) == null )
+			return null;
+		String filtered = null;
+		try
+		{
+			filtered = new QuerySpecSQLBuilder( conn.getMetaData( )
+					.getIdentifierQuoteString( ) ).build( command, querySpec );
+			if ( filtered == null )
+				return null;
+			logger.logp( java.util.logging.Level.FINER,
+					Statement.class.getName( ),
+					"prepare",
+					"Statement.prepare( \"" + filtered + "\" )" );
+			return conn.prepareStatement( filtered );
+		}
+		catch ( SQLException e )
+		{
+			// the filters are still evaluated by the consumer, so fall back
+			// to the original statement
+			logger.log( Level.FINE, "Cannot prepare the filtered statement: "
+					+ filtered, e );
+			return null;
+		}
+	}
+
+	/**
+	 * Prepares the original statement if the filtered statement fails to
+	 * execute. Some databases only check the statement when it is executed.
+	 * The parameters and the properties set on the filtered statement are set
+	 * again.
+	 * 
+	 * @param cause
+	 *            the execution failure
+	 * @return true if the original statement is prepared, false if the failed
+	 *         statement is not a filtered one
+	 * @throws OdaException
+	 */
+	private boolean prepareUnfiltered( SQLException cause )
+			throws OdaException
+	{
+		if ( unfilteredCommand == null )
+			return false;
+		logger.log( Level.FINE, "Cannot execute the filtered statement", cause );
+		String command = unfilteredCommand;
+		unfilteredCommand = null;
+		try
+		{
+			this.preStat.close( );
+		}
+		catch ( SQLException e )
+		{
+			logger.log( Level.FINE, e.getMessage( ), e );
+		}
+		try
+		{
+			this.preStat = conn.prepareStatement( command );
+		}
+		catch ( SQLException e )
+		{
+			throw new JDBCException( ResourceConstants.STATEMENT_CANNOT_PREPARE,
+					e );
+		}
+		maxRowsUpToDate = false;
+		for ( Map.Entry<String, String> entry : properties.entrySet( ) )
+		{
+			setProperty( entry.getKey( ), entry.getValue( ) );
+		}
+		for ( Map.Entry<Integer, InParameter> entry : inParameters.entrySet( ) )
+		{
+			entry.getValue( ).setTo( this, entry.getKey( ).intValue( ) );
+		}
+		properties.clear( );
+		inParameters.clear( );
+		return true;
+	}
+
+	/**
+	 * remembers a parameter of the filtered statement.
+	 */
+	private void recordInParameter( int parameterId, int type, Object value )
+	{
+		if ( unfilteredCommand != null )
+		{
+			inParameters.put( Integer.valueOf( parameterId ),
+					new InParameter( type, value ) );
+		}
+	}
+
 	/*
 	 * @see org.eclipse.datatools.connectivity.oda.IQuery#setAppContext(java.lang.Object)
 	 */
@@ -154,6 +275,9 @@ public class Statement implements IQuery
 		if ( name == null )
 			throw new NullPointerException("name is null");
 		
+		if ( unfilteredCommand != null )
+			properties.put( name, value );
+		
 		if ( name.equals("queryTimeOut") )
 		{
 			// Ignore null or empty value
@@ -461,6 +585,8 @@ public class Statement implements IQuery
 		}
 		catch ( SQLException e )
 		{
+			if ( prepareUnfiltered( e ) )
+				return executeQuery( );
 			throw new JDBCException( ResourceConstants.RESULTSET_CANNOT_RETURN , e );
 		}
 	}
@@ -489,6 +615,8 @@ public class Statement implements IQuery
 		}
 		catch ( SQLException e )
 		{
+			if ( prepareUnfiltered( e ) )
+				return execute( );
 			throw new JDBCException( ResourceConstants.QUERY_EXECUTE_FAIL, e );
 		}
 	}
@@ -534,6 +662,7 @@ public class Statement implements IQuery
 			/* redirect the call to JDBC preparedStatement.setInt(int,int) */
 			this.preStat.setInt( parameterId, value );
 			addLog( "setInt", parameterId, String.valueOf( value ) );
+			recordInParameter( parameterId, Types.INTEGER, Integer.valueOf( value ) );
 		}
 		catch ( SQLException e )
 		{
@@ -570,6 +699,7 @@ public class Statement implements IQuery
 			/* redirect the call to JDBC preparedStatement.setDouble(int,double) */
 			this.preStat.setDouble( parameterId, value );
 			addLog( "setDouble", parameterId, String.valueOf(value));
+			recordInParameter( parameterId, Types.DOUBLE, Double.valueOf( value ) );
 		}
 		catch ( SQLException e )
 		{
@@ -611,6 +741,7 @@ public class Statement implements IQuery
 			 */
 			this.preStat.setBigDecimal( parameterId, value );
 			addLog( "setBigDecimal", parameterId, String.valueOf(value));
+			recordInParameter( parameterId, Types.DECIMAL, value );
 		}
 		catch ( SQLException e )
 		{
@@ -648,6 +779,7 @@ public class Statement implements IQuery
 			/* redirect the call to JDBC preparedStatement.setString(int,String) */
 			this.preStat.setString( parameterId, value );
 			addLog( "setString", parameterId, value);
+			recordInParameter( parameterId, Types.VARCHAR, value );
 		}
 		catch ( SQLException e )
 		{
@@ -683,6 +815,7 @@ public class Statement implements IQuery
 			/* redirect the call to JDBC preparedStatement.setDate(int,Date) */
 			this.preStat.setDate( parameterId, value );
 			addLog( "setDate", parameterId, value.toString( ));
+			recordInParameter( parameterId, Types.DATE, value );
 		}
 		catch ( SQLException e )
 		{
@@ -720,6 +853,7 @@ public class Statement implements IQuery
 			/* redirect the call to JDBC preparedStatement.setDate(int,boolean) */
 			this.preStat.setBoolean( parameterId, value );
 			addLog( "setBoolean", parameterId, String.valueOf( value ));
+			recordInParameter( parameterId, Types.BOOLEAN, Boolean.valueOf( value ) );
 		}
 		catch ( SQLException e )
 		{
@@ -756,6 +890,7 @@ public class Statement implements IQuery
 			/* redirect the call to JDBC preparedStatement.setTime(int,Time) */
 			this.preStat.setTime( parameterId, value );
 			addLog( "setTime", parameterId, value.toString( ));
+			recordInParameter( parameterId, Types.TIME, value );
 		}
 		catch ( SQLException e )
 		{
@@ -797,6 +932,7 @@ public class Statement implements IQuery
 			 */
 			this.preStat.setTimestamp( parameterId, value );
 			addLog( "setTimestamp", parameterId, String.valueOf( value ) );
+			recordInParameter( parameterId, Types.TIMESTAMP, value );
 		}
 		catch ( SQLException e )
 		{
@@ -861,6 +997,7 @@ public class Statement implements IQuery
 				this.preStat.setNull( parameterId,
 						pm.getParameterType( parameterId ) );
 			}
+			recordInParameter( parameterId, Types.NULL, null );
 		}
 		catch ( SQLException e )
 		{
@@ -963,6 +1100,7 @@ public class Statement implements IQuery
 		try
 		{
 			preStat.clearParameters();
+			inParameters.clear( );
 		}
 		catch( SQLException ex )
 		{
@@ -1004,4 +1142,58 @@ public class Statement implements IQuery
 				"No named Parameter supported.",
 				e );
 	}	
-}
\ No newline at end of file
+
+	/**
+	 * a parameter value set on the filtered statement
+	 */
+	private static class InParameter
+	{
+
+		/** the type of the value, see java.sql.Types */
+		private int type;
+		private Object value;
+
+		InParameter( int type, Object value )
+		{
+			this.type = type;
+			this.value = value;
+		}
+
+		void setTo( Statement statement, int parameterId )
+				throws OdaException
+		{
+			switch ( type )
+			{
+				case Types.INTEGER :
+					statement.setInt( parameterId,
+							( (Integer) value ).intValue( ) );
+					break;
+				case Types.DOUBLE :
+					statement.setDouble( parameterId,
+							( (Double) value ).doubleValue( ) );
+					break;
+				case Types.DECIMAL :
+					statement.setBigDecimal( parameterId, (BigDecimal) value );
+					break;
+				case Types.VARCHAR :
+					statement.setString( parameterId, (String) value );
+					break;
+				case Types.DATE :
+					statement.setDate( parameterId, (Date) value );
+					break;
+				case Types.BOOLEAN :
+					statement.setBoolean( parameterId,
+							( (Boolean) value ).booleanValue( ) );
+					break;
+				case Types.TIME :
+					statement.setTime( parameterId, (Time) value );
+					break;
+				case Types.TIMESTAMP :
+					statement.setTimestamp( parameterId, (Timestamp) value );
+					break;
+				default :
+					statement.setNull( parameterId );
+			}
+		}
+	}
+}
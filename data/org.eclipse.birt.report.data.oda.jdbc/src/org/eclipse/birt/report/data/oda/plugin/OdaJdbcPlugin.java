@@ -10,6 +10,7 @@
  *******************************************************************************/
 package org.eclipse.birt.report.data.oda.plugin;
 
+import org.eclipse.birt.report.data.oda.jdbc.JDBCConnectionPoolManager;
 import org.eclipse.birt.report.data.oda.jdbc.JDBCDriverManager;
 import org.eclipse.core.runtime.Plugin;
 import org.osgi.framework.BundleContext;
@@ -22,6 +23,8 @@ public class OdaJdbcPlugin extends Plugin
 {
 	public void stop( BundleContext context )
 	{
+		// close the pooled connections before the drivers are released
+		JDBCConnectionPoolManager.getInstance( ).close( );
 		JDBCDriverManager.getInstance( ).close( );
 	}
 }
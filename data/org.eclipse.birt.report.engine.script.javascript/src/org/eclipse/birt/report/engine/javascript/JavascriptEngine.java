@@ -28,6 +28,7 @@ import org.eclipse.birt.core.framework.IExtensionPoint;
 import org.eclipse.birt.core.framework.IExtensionRegistry;
 import org.eclipse.birt.core.framework.Platform;
 import org.eclipse.birt.core.i18n.ResourceConstants;
+import org.eclipse.birt.core.script.CompiledScriptCache;
 import org.eclipse.birt.core.script.CoreJavaScriptInitializer;
 import org.eclipse.birt.core.script.CoreJavaScriptWrapper;
 import org.eclipse.birt.core.script.ICompiledScript;
@@ -67,6 +68,8 @@ public class JavascriptEngine implements IScriptEngine, IDataScriptEngine
 
 	private static Script cachedScript;
 
+	private static final CompiledScriptCache NO_CACHE = new CompiledScriptCache( 0 );
+
 	/**
 	 * the JavaScript Context
 	 */
@@ -292,16 +295,52 @@ public class JavascriptEngine implements IScriptEngine, IDataScriptEngine
 	public CompiledJavascript compile( ScriptContext scriptContext,
 			final String id, final int lineNumber, final String script ) throws BirtException
 	{
+		// the compiled scripts are immutable, so they are shared by all the
+		// engines of the factory. A script compiled for a debugger isn't shared.
+		final CompiledScriptCache cache = context.getDebugger( ) == null
+				? factory.getCompiledScriptCache( )
+				: NO_CACHE;
+		int optimizationLevel = context.getOptimizationLevel( );
+		CompiledJavascript compiledScript = (CompiledJavascript) cache.get(
+				JavascriptEngineFactory.SCRIPT_JAVASCRIPT, optimizationLevel,
+				id, lineNumber, script );
+		if ( compiledScript != null )
+		{
+			return compiledScript;
+		}
 		Script scriptObject = AccessController
 				.doPrivileged( new PrivilegedAction<Script>( ) {
 
 					public Script run( )
 					{
-						return context.compileString( script, id, lineNumber,
-								null );
+						if ( cache == NO_CACHE )
+						{
+							return context.compileString( script, id,
+									lineNumber, null );
+						}
+						// the classes of a shared script are defined under the
+						// class loader of Rhino, not the application class
+						// loader of the task, which must be freed with the task.
+						ClassLoader appLoader = context
+								.getApplicationClassLoader( );
+						context.setApplicationClassLoader( Context.class
+								.getClassLoader( ) );
+						try
+						{
+							return context.compileString( script, id,
+									lineNumber, null );
+						}
+						finally
+						{
+							context.setApplicationClassLoader( appLoader );
+						}
 					}
 				} );
-		return new CompiledJavascript( id, lineNumber, script, scriptObject );
+		compiledScript = new CompiledJavascript( id, lineNumber, script,
+				scriptObject );
+		cache.put( JavascriptEngineFactory.SCRIPT_JAVASCRIPT,
+				optimizationLevel, id, lineNumber, script, compiledScript );
+		return compiledScript;
 	}
 
 	private JavascriptContext createJsContext( final ScriptContext context )
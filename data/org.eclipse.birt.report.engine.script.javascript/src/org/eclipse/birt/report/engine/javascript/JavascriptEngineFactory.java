@@ -17,6 +17,7 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.eclipse.birt.core.exception.BirtException;
+import org.eclipse.birt.core.script.CompiledScriptCache;
 import org.eclipse.birt.core.script.IScriptEngine;
 import org.eclipse.birt.core.script.IScriptEngineFactory;
 import org.mozilla.javascript.ClassCache;
@@ -38,6 +39,12 @@ public class JavascriptEngineFactory implements IScriptEngineFactory
 	 */
 	private LinkedList<ScriptableObject> rootScopes = new LinkedList<ScriptableObject>( );
 
+	/**
+	 * the compiled scripts shared by the engines of this factory.
+	 */
+	private CompiledScriptCache scriptCache = new CompiledScriptCache(
+			CompiledScriptCache.getDefaultCacheSize( ) );
+
 	public static void initMyFactory( )
 	{
 		ContextFactory.initGlobal( new MyFactory( ) );
@@ -132,6 +139,11 @@ public class JavascriptEngineFactory implements IScriptEngineFactory
 		return SCRIPT_JAVASCRIPT;
 	}
 
+	public CompiledScriptCache getCompiledScriptCache( )
+	{
+		return scriptCache;
+	}
+
 	public static void destroyMyFactory( )
 	{
 		ContextFactory factory = ContextFactory.getGlobal( );
@@ -21,6 +21,7 @@ import java.util.regex.Pattern;
 import org.eclipse.birt.report.engine.api.EngineException;
 import org.eclipse.birt.report.engine.api.HTMLRenderOption;
 import org.eclipse.birt.report.engine.api.IRenderTask;
+import org.eclipse.birt.report.engine.api.IReportDocument;
 import org.eclipse.birt.report.engine.api.IRunAndRenderTask;
 
 /**
@@ -67,4 +68,65 @@ public class TableLayoutTest extends HTMLReportEmitterTestCase
 
 	}
 
+	/**
+	 * the rows of a table reach the output while the table is written in
+	 * streaming mode, and the output is the same as the buffered one.
+	 */
+	public void testStreamingTable( ) throws Exception
+	{
+		String designFile = "org/eclipse/birt/report/engine/emitter/html/TableStreaming.xml";
+		IReportDocument document = createReportDocument( designFile );
+		FlushRecordingStream buffered = renderTable( document, false );
+		FlushRecordingStream streamed = renderTable( document, true );
+		document.close( );
+
+		String content = new String( streamed.toByteArray( ), "UTF-8" );
+		assertEquals( new String( buffered.toByteArray( ), "UTF-8" ), content );
+		assertTrue( content.indexOf( "VALUE_299_" ) != -1 );
+
+		// the output is flushed every 10 rows while the table is written
+		int partialFlushes = 0;
+		for ( int size : streamed.flushedSizes )
+		{
+			String flushed = new String( streamed.toByteArray( ), 0, size,
+					"UTF-8" );
+			if ( flushed.indexOf( "VALUE_0_" ) != -1
+					&& flushed.indexOf( "VALUE_299_" ) == -1 )
+			{
+				partialFlushes++;
+			}
+		}
+		assertTrue( partialFlushes >= 20 );
+	}
+
+	private FlushRecordingStream renderTable( IReportDocument document,
+			boolean streaming ) throws EngineException
+	{
+		HTMLRenderOption options = new HTMLRenderOption( );
+		options.setOutputFormat( "html" );
+		FlushRecordingStream output = new FlushRecordingStream( );
+		options.setOutputStream( output );
+		options.setStreaming( streaming );
+		options.setStreamingFlushRows( 10 );
+		options.setStreamingFlushSize( 0 );
+		IRenderTask task = engine.createRenderTask( document );
+		task.setRenderOption( options );
+		task.render( );
+		task.close( );
+		return output;
+	}
+
+	/**
+	 * records the size of the output each time it is flushed.
+	 */
+	private static class FlushRecordingStream extends ByteArrayOutputStream
+	{
+
+		List<Integer> flushedSizes = new ArrayList<Integer>( );
+
+		public void flush( )
+		{
+			flushedSizes.add( Integer.valueOf( size( ) ) );
+		}
+	}
 }
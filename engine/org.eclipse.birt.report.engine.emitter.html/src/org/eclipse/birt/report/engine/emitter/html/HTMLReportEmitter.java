@@ -304,6 +304,16 @@ public class HTMLReportEmitter extends ContentEmitterAdapter
 	private boolean fixedReport = false;
 	private boolean enableAgentStyleEngine;
 	private boolean outputMasterPageMargins;
+
+	/**
+	 * flush the output each time streamingFlushRows rows or
+	 * streamingFlushSize characters are written.
+	 */
+	private boolean streaming = false;
+	private int streamingFlushRows;
+	private int streamingFlushSize;
+	private int rowsSinceFlush;
+	private long sizeAtFlush;
 	private IMetadataFilter metadataFilter = null;
 
 	private boolean needOutputBackgroundSize = false;
@@ -407,6 +417,9 @@ public class HTMLReportEmitter extends ContentEmitterAdapter
 				}
 			}
 			writer.setEnableCompactMode( htmlOption.isEnableCompactMode( ) );
+			streaming = htmlOption.isStreaming( );
+			streamingFlushRows = htmlOption.getStreamingFlushRows( );
+			streamingFlushSize = htmlOption.getStreamingFlushSize( );
 			ouputInstanceIDs = htmlOption.getInstanceIDs( );
 			metadataEmitter = creatMetadataEmitter( writer, htmlOption );
 			layoutPreference = htmlOption.getLayoutPreference( );
@@ -1704,7 +1717,10 @@ public class HTMLReportEmitter extends ContentEmitterAdapter
 			endBackgroundContainer( );
 			needOutputBackgroundSize = false;
 		}
-
+		if ( streaming )
+		{
+			flushStreaming( );
+		}
 	}
 
 	/*
@@ -2092,6 +2108,27 @@ public class HTMLReportEmitter extends ContentEmitterAdapter
 		{
 			fixedRowHeightStack.pop( );
 		}
+		if ( streaming )
+		{
+			rowsSinceFlush++;
+			if ( ( streamingFlushRows > 0 && rowsSinceFlush >= streamingFlushRows )
+					|| ( streamingFlushSize > 0 && writer.getWrittenSize( )
+							- sizeAtFlush >= streamingFlushSize ) )
+			{
+				flushStreaming( );
+			}
+		}
+	}
+
+	/**
+	 * flush the content written so far to the output stream in streaming
+	 * mode.
+	 */
+	private void flushStreaming( )
+	{
+		writer.flushOutput( );
+		rowsSinceFlush = 0;
+		sizeAtFlush = writer.getWrittenSize( );
 	}
 
 	private boolean isCellInHead( ICellContent cell )
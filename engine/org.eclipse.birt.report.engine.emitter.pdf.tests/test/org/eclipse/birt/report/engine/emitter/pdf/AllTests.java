@@ -30,6 +30,7 @@ public class AllTests
 		
 		/* in package: org.eclipse.birt.report.engine.emitter.pdf */
 		suite.addTestSuite( org.eclipse.birt.report.engine.emitter.pdf.PDFEmitterTest.class );
+		suite.addTestSuite( org.eclipse.birt.report.engine.emitter.pdf.ImageContentKeyTest.class );
 		
 		//$JUnit-END$
 		return suite;
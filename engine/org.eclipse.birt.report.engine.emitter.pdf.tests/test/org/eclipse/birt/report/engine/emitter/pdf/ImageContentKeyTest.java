@@ -0,0 +1,46 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.report.engine.emitter.pdf;
+
+import junit.framework.TestCase;
+
+public class ImageContentKeyTest extends TestCase
+{
+
+	public void testRasterImage( )
+	{
+		byte[] image = "raster image".getBytes( );
+		String key = ImageContentKey.getKey( image, false, 10, 20 );
+		assertNotNull( key );
+		// the same content at another size shares the template
+		assertEquals( key, ImageContentKey.getKey( "raster image".getBytes( ),
+				false, 30, 40 ) );
+		assertFalse( key.equals( ImageContentKey.getKey( "raster image2"
+				.getBytes( ), false, 10, 20 ) ) );
+	}
+
+	public void testVectorImage( )
+	{
+		byte[] image = "<svg/>".getBytes( );
+		String key = ImageContentKey.getKey( image, true, 10, 20 );
+		assertEquals( key, ImageContentKey.getKey( "<svg/>".getBytes( ), true,
+				10, 20 ) );
+		// a vector image is transcoded at its size
+		assertFalse( key.equals( ImageContentKey.getKey( image, true, 20, 10 ) ) );
+		assertFalse( key.equals( ImageContentKey.getKey( image, false, 10, 20 ) ) );
+	}
+
+	public void testNoData( )
+	{
+		assertNull( ImageContentKey.getKey( null, false, 10, 20 ) );
+	}
+}
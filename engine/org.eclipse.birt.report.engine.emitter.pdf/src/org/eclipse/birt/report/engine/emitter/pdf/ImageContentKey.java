@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.report.engine.emitter.pdf;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Creates the keys used to cache the images without id by their content, so
+ * that an image drawn several times is written once into the PDF.
+ */
+class ImageContentKey
+{
+
+	private static final String MD5 = "MD5";
+
+	private static final char[] HEX = "0123456789ABCDEF".toCharArray( );
+
+	/**
+	 * The template of a raster image is scaled to any size, while a vector
+	 * image is transcoded at its size, so the size is a part of its key.
+	 * 
+	 * @param imageData
+	 *            the content of the image
+	 * @param isVector
+	 *            whether the image is transcoded at the given size
+	 * @param width
+	 *            the width of the image in points
+	 * @param height
+	 *            the height of the image in points
+	 * @return the key of the image, or null if it can't be created
+	 */
+	static String getKey( byte[] imageData, boolean isVector, float width,
+			float height )
+	{
+		if ( imageData == null )
+		{
+			return null;
+		}
+		byte[] digest;
+		try
+		{
+			digest = MessageDigest.getInstance( MD5 ).digest( imageData );
+		}
+		catch ( NoSuchAlgorithmException e )
+		{
+			return null;
+		}
+		StringBuffer key = new StringBuffer( digest.length * 2 + 32 );
+		for ( int i = 0; i < digest.length; i++ )
+		{
+			key.append( HEX[( digest[i] >> 4 ) & 0x0f] );
+			key.append( HEX[digest[i] & 0x0f] );
+		}
+		key.append( ':' ).append( imageData.length );
+		if ( isVector )
+		{
+			key.append( ':' ).append( width ).append( 'x' ).append( height );
+		}
+		return key.toString( );
+	}
+}
@@ -384,13 +384,19 @@ public class PDFPage extends AbstractPage
 		}
 
 		// Cached Image
+		boolean isSvg = SvgFile.isSvg( null, null, extension );
+		Map<String, PdfTemplate> imageCache = pageDevice.getImageCache( );
+		String cacheKey = imageId;
+		if ( cacheKey == null )
+		{
+			// the images without id are cached by their content
+			imageCache = pageDevice.getContentImageCache( );
+			cacheKey = ImageContentKey.getKey( imageData, isSvg, width, height );
+		}
 		PdfTemplate template = null;
-		if ( imageId != null )
+		if ( cacheKey != null )
 		{
-			if ( pageDevice.getImageCache( ).containsKey( imageId ) )
-			{
-				template = pageDevice.getImageCache( ).get( imageId );
-			}
+			template = imageCache.get( cacheKey );
 			if ( template != null )
 			{
 				drawImage( template, imageX, imageY, height, width, helpText );
@@ -399,7 +405,7 @@ public class PDFPage extends AbstractPage
 		}
 
 		// Not cached yet
-		if ( SvgFile.isSvg( null, null, extension ) )
+		if ( isSvg )
 		{
 			template = generateTemplateFromSVG( null, imageData, imageX,
 					imageY, height, width, helpText );
@@ -408,9 +414,9 @@ public class PDFPage extends AbstractPage
 		{
 			// PNG/JPG/BMP... images:
 			Image image = Image.getInstance( imageData );
-			if ( imageId == null )
+			if ( cacheKey == null )
 			{
-				// image without imageId, not able to cache.
+				// not able to cache.
 				drawImage( image, imageX, imageY, height, width, helpText );
 				return;
 			}
@@ -418,9 +424,9 @@ public class PDFPage extends AbstractPage
 			template.addImage( image, width, 0, 0, height, 0, 0 );
 		}
 		// Cache the image
-		if ( imageId != null && template != null )
+		if ( cacheKey != null && template != null )
 		{
-			pageDevice.getImageCache( ).put( imageId, template );
+			imageCache.put( cacheKey, template );
 		}
 		if ( template != null )
 		{
@@ -63,6 +63,11 @@ public class PDFPageDevice implements IPageDevice
 
 	protected HashMap<String, PdfTemplate> imageCache = new HashMap<String, PdfTemplate>( );
 
+	/**
+	 * the templates of the images without id, keyed by their content
+	 */
+	protected HashMap<String, PdfTemplate> contentImageCache = new HashMap<String, PdfTemplate>( );
+
 	/**
 	 * the iText and Birt engine version info.
 	 */
@@ -162,6 +167,11 @@ public class PDFPageDevice implements IPageDevice
 		return imageCache;
 	}
 
+	public HashMap<String, PdfTemplate> getContentImageCache( )
+	{
+		return contentImageCache;
+	}
+
 	public void close( ) throws Exception
 	{
 		if ( !doc.isOpen( ) )
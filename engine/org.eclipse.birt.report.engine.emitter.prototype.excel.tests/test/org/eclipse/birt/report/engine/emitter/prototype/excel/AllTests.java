@@ -29,6 +29,8 @@ public class AllTests
 		
 		/* in package: org.eclipse.birt.report.engine.emitter.prototype.excel */
 		suite.addTestSuite( org.eclipse.birt.report.engine.emitter.prototype.excel.DateSymbolTest.class );
+		suite.addTestSuite( org.eclipse.birt.report.engine.emitter.prototype.excel.DataCacheTest.class );
+		suite.addTestSuite( org.eclipse.birt.report.engine.emitter.prototype.excel.StreamingRowsTest.class );
 		
 		//$JUnit-END$
 		return suite;
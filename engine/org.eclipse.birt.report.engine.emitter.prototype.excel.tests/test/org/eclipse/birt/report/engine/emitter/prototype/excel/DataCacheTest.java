@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright (c) 2009 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.report.engine.emitter.prototype.excel;
+
+import java.util.Iterator;
+
+import junit.framework.TestCase;
+
+import org.eclipse.birt.report.engine.emitter.excel.Data;
+import org.eclipse.birt.report.engine.emitter.excel.DataCache;
+import org.eclipse.birt.report.engine.emitter.excel.SheetData;
+
+public class DataCacheTest extends TestCase
+{
+
+	public void testRemoveRows( )
+	{
+		DataCache cache = new DataCache( 0, 10 );
+		cache.insertColumns( 0, 1 );
+		assertEquals( 2, cache.getColumnCount( ) );
+		// the second column ends at the third row
+		for ( int row = 1; row <= 5; row++ )
+		{
+			cache.addData( 0, createData( row ) );
+			if ( row <= 3 )
+			{
+				cache.addData( 1, createData( row ) );
+			}
+			cache.setRowHeight( row - 1, row );
+		}
+
+		Iterator<SheetData[]> iterator = cache.getRowIterator( 4 );
+		for ( int row = 1; row <= 4; row++ )
+		{
+			assertTrue( iterator.hasNext( ) );
+			assertEquals( row, iterator.next( )[0].getRowIndex( ) );
+		}
+		assertFalse( iterator.hasNext( ) );
+
+		cache.removeRows( 4 );
+		assertEquals( 5, cache.getFirstRowIndex( ) );
+		// the last data of each column is kept
+		assertEquals( 5, cache.getMaxRowIndex( 0 ) );
+		assertEquals( 3, cache.getMaxRowIndex( 1 ) );
+		// the height of the last removed row is kept
+		assertEquals( 4f, cache.getRowHeight( 3 ), 0f );
+		assertEquals( 0f, cache.getRowHeight( 2 ), 0f );
+
+		iterator = cache.getRowIterator( );
+		assertTrue( iterator.hasNext( ) );
+		SheetData[] row = iterator.next( );
+		assertEquals( 5, row[0].getRowIndex( ) );
+		assertNull( row[1] );
+		assertFalse( iterator.hasNext( ) );
+	}
+
+	private Data createData( int rowIndex )
+	{
+		Data data = new Data( "row " + rowIndex, SheetData.STRING );
+		data.setRowIndex( rowIndex );
+		return data;
+	}
+}
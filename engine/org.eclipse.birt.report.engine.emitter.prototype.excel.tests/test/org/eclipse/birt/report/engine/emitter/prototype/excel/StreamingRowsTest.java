@@ -0,0 +1,163 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.report.engine.emitter.prototype.excel;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import junit.framework.TestCase;
+
+import org.eclipse.birt.core.framework.Platform;
+import org.eclipse.birt.report.engine.api.EXCELRenderOption;
+import org.eclipse.birt.report.engine.api.EngineConfig;
+import org.eclipse.birt.report.engine.api.IExcelRenderOption;
+import org.eclipse.birt.report.engine.api.IReportEngine;
+import org.eclipse.birt.report.engine.api.IReportEngineFactory;
+import org.eclipse.birt.report.engine.api.IReportRunnable;
+import org.eclipse.birt.report.engine.api.IRunAndRenderTask;
+
+/**
+ * Renders the reports with and without the streaming rows option, the sheets
+ * must be the same.
+ */
+public class StreamingRowsTest extends TestCase
+{
+
+	private static final String EMITTER_ID = "org.eclipse.birt.report.engine.emitter.prototype.excel";
+
+	private IReportEngine engine;
+
+	protected void setUp( ) throws Exception
+	{
+		Object factory = Platform
+				.createFactoryObject( IReportEngineFactory.EXTENSION_REPORT_ENGINE_FACTORY );
+		engine = ( (IReportEngineFactory) factory )
+				.createReportEngine( new EngineConfig( ) );
+	}
+
+	protected void tearDown( ) throws Exception
+	{
+		engine.destroy( );
+	}
+
+	/**
+	 * the cells spanning two rows are merged the same way on both sides of
+	 * the output window
+	 */
+	public void testRowSpan( ) throws Exception
+	{
+		String buffered = render( "StreamingRowSpan.xml", false );
+		String streamed = render( "StreamingRowSpan.xml", true );
+		assertEquals( buffered, streamed );
+		assertEquals( 700, getCount( streamed, "ss:MergeDown=" ) );
+	}
+
+	/**
+	 * the bottom border of a table is applied to its last row, which is still
+	 * cached when the rows before it are output
+	 */
+	public void testContainerBottomBorder( ) throws Exception
+	{
+		String buffered = render( "StreamingBorder.xml", false );
+		String streamed = render( "StreamingBorder.xml", true );
+		assertEquals( buffered, streamed );
+		assertTrue( streamed.indexOf( "ss:Position=\"Bottom\"" ) != -1 );
+	}
+
+	/**
+	 * the columns of the output rows are fixed, the table which splits them
+	 * is continued in a new sheet
+	 */
+	public void testColumnSplit( ) throws Exception
+	{
+		String buffered = render( "StreamingColumnSplit.xml", false );
+		String streamed = render( "StreamingColumnSplit.xml", true );
+		List<String> names = new ArrayList<String>( );
+		names.add( "Streaming" );
+		assertEquals( names, getSheetNames( buffered ) );
+		names.add( "Streaming1" );
+		assertEquals( names, getSheetNames( streamed ) );
+		assertEquals( getDatas( buffered ), getDatas( streamed ) );
+	}
+
+	/**
+	 * the page label set before the first rows are output names the sheet,
+	 * the other pages are named the same way
+	 */
+	public void testSheetName( ) throws Exception
+	{
+		String buffered = render( "StreamingSheetName.xml", false );
+		String streamed = render( "StreamingSheetName.xml", true );
+		assertEquals( buffered, streamed );
+		List<String> names = getSheetNames( streamed );
+		assertEquals( 3, names.size( ) );
+		assertEquals( "Values", names.get( 0 ) );
+	}
+
+	private String render( String design, boolean streaming )
+			throws Exception
+	{
+		InputStream in = getClass( ).getResourceAsStream( design );
+		IReportRunnable runnable = engine.openReportDesign( design, in );
+		in.close( );
+		IRunAndRenderTask task = engine.createRunAndRenderTask( runnable );
+		EXCELRenderOption options = new EXCELRenderOption( );
+		options.setOutputFormat( "xls" );
+		options.setEmitterID( EMITTER_ID );
+		ByteArrayOutputStream out = new ByteArrayOutputStream( );
+		options.setOutputStream( out );
+		options.setOption( IExcelRenderOption.STREAMING_ROWS, Boolean
+				.valueOf( streaming ) );
+		task.setRenderOption( options );
+		task.run( );
+		assertTrue( task.getErrors( ).isEmpty( ) );
+		task.close( );
+		return out.toString( "UTF-8" );
+	}
+
+	private static List<String> getSheetNames( String xml )
+	{
+		return getGroups( xml, "<Worksheet ss:Name=\"([^\"]*)\"" );
+	}
+
+	private static List<String> getDatas( String xml )
+	{
+		return getGroups( xml, "<Data[^>]*>([^<]*)</Data>" );
+	}
+
+	private static List<String> getGroups( String xml, String regex )
+	{
+		List<String> groups = new ArrayList<String>( );
+		Matcher matcher = Pattern.compile( regex ).matcher( xml );
+		while ( matcher.find( ) )
+		{
+			groups.add( matcher.group( 1 ) );
+		}
+		return groups;
+	}
+
+	private static int getCount( String xml, String match )
+	{
+		int count = 0;
+		int index = xml.indexOf( match );
+		while ( index != -1 )
+		{
+			count++;
+			index = xml.indexOf( match, index + match.length( ) );
+		}
+		return count;
+	}
+}
@@ -31,6 +31,8 @@ public class DataCache
 	private int maxColumnCount;
 	private int maxRowIndex = 0;
 	private int offset = 0;
+	// the rows before it are output and removed from the cache
+	private int firstRowIndex = 1;
 	private Map<Integer, Float> rowIndex2Height = new HashMap<Integer, Float>( );
 
 	public DataCache( DataCache cache )
@@ -176,7 +178,59 @@ public class DataCache
 	public Iterator<SheetData[]> getRowIterator( DataFilter filter,
 	        RowIndexAdjuster rowIndexAdjuster )
 	{
-		return new DataCacheIterator( filter, rowIndexAdjuster );
+		return new DataCacheIterator( filter, rowIndexAdjuster,
+				Integer.MAX_VALUE );
+	}
+
+	/**
+	 * @param endRowIndex
+	 *            the last row to iterate
+	 * @return the iterator of the cached rows up to the given row
+	 */
+	public Iterator<SheetData[]> getRowIterator( int endRowIndex )
+	{
+		return new DataCacheIterator( null, null, endRowIndex );
+	}
+
+	/**
+	 * @return the index of the first row in the cache
+	 */
+	public int getFirstRowIndex( )
+	{
+		return firstRowIndex;
+	}
+
+	/**
+	 * Removes the rows which are output from the cache. The last data of each
+	 * column is kept, as the data added after it are laid out against it.
+	 * 
+	 * @param endRowIndex
+	 *            the last row to remove
+	 */
+	public void removeRows( int endRowIndex )
+	{
+		for ( ArrayList<SheetData> columnDatas : columns )
+		{
+			int count = 0;
+			int size = columnDatas.size( );
+			while ( count < size - 1
+					&& columnDatas.get( count ).getRowIndex( ) <= endRowIndex )
+			{
+				count++;
+			}
+			columnDatas.subList( 0, count ).clear( );
+		}
+		// the height of the last removed row is used to calculate the height
+		// of the next one
+		Iterator<Integer> iter = rowIndex2Height.keySet( ).iterator( );
+		while ( iter.hasNext( ) )
+		{
+			if ( iter.next( ) < endRowIndex - 1 )
+			{
+				iter.remove( );
+			}
+		}
+		firstRowIndex = Math.max( firstRowIndex, endRowIndex + 1 );
 	}
 
 	public void setOffset( int offset )
@@ -193,21 +247,23 @@ public class DataCache
 	{
 
 		private int[] columnIndexes;
-		private int rowIndex = 1;
+		private int rowIndex = firstRowIndex;
+		private int endRowIndex;
 		private DataFilter dataFilter;
 		private RowIndexAdjuster rowIndexAdjuster;
 
 		public DataCacheIterator( DataFilter dataFilter,
-		        RowIndexAdjuster rowIndexAdjuster )
+		        RowIndexAdjuster rowIndexAdjuster, int endRowIndex )
 		{
 			this.dataFilter = dataFilter;
 			this.rowIndexAdjuster = rowIndexAdjuster;
+			this.endRowIndex = endRowIndex;
 			columnIndexes = new int[columns.size( )];
 		}
 
 		public boolean hasNext( )
 		{
-			return rowIndex <= maxRowIndex;
+			return rowIndex <= maxRowIndex && rowIndex <= endRowIndex;
 		}
 
 		public SheetData[] next( )
@@ -119,4 +119,9 @@ public class AxisProcessor
 	{
 		return columnCoordinates.size( );
 	}
+
+	public int getMaxCoordinate( )
+	{
+		return columnCoordinates.get( columnCoordinates.size( ) - 1 );
+	}
 }
@@ -43,6 +43,7 @@ public class ExcelContext
 	private Boolean hideGridlines = false;
 	private boolean enableMultipleSheet = true;
 	private boolean ignoreImage = true;
+	private boolean streamingRows = false;
 	private String sheetName;
 	private String sheetPrefix;
 	private OutputStream out;
@@ -142,6 +143,13 @@ public class ExcelContext
 			this.ignoreImage = (Boolean) ignoreImage;
 		}
 
+		Object streamingRows = renderOptions
+				.getOption( IExcelRenderOption.STREAMING_ROWS );
+		if ( streamingRows instanceof Boolean )
+		{
+			this.streamingRows = (Boolean) streamingRows;
+		}
+
 		ReportDesignHandle designHandle = report.getDesign( ).getReportDesign( );
 		parseReportOrientation( designHandle );
 		parseReportLayout( designHandle );
@@ -271,6 +279,11 @@ public class ExcelContext
 		return this.ignoreImage;
 	}
 
+	public boolean isStreamingRows( )
+	{
+		return this.streamingRows;
+	}
+
 	public void setIgnoreImage( boolean isIgnoreImage )
 	{
 		this.ignoreImage = isIgnoreImage;
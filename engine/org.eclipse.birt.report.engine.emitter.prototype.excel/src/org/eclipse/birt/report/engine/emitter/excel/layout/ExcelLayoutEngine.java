@@ -85,6 +85,12 @@ public class ExcelLayoutEngine
 	public final static int MAX_ROW_OFFICE2003 = 65535;
 	
 	public final static int MAX_COLUMN_OFFICE2003 = 255;
+
+	/**
+	 * In the streaming mode, the number of the completed rows cached before
+	 * they are output.
+	 */
+	public final static int STREAMING_ROW_WINDOW = 1000;
 	
 	protected int maxRow = MAX_ROW_OFFICE2003;
 
@@ -227,8 +233,22 @@ public class ExcelLayoutEngine
 			contentVisitor.visitChildren( footer, null );
 		}
 
-		
-		// update sheet name to page label, if necessary		
+		applyPageLabel( );
+		outputSheet( page );
+		containers.clear( );
+		page = null;
+	}
+
+	/**
+	 * Updates the sheet name to the page label, if necessary. The name of a
+	 * sheet which is started can't change any more.
+	 */
+	private void applyPageLabel( )
+	{
+		if ( page.isStarted( ) )
+		{
+			return;
+		}
 		Object pageLabelObj = context.getReportContext().getPageVariable( IReportContext.PAGE_VAR_PAGE_LABEL );
 		if ( pageLabelObj instanceof String )
 		{
@@ -236,10 +256,6 @@ public class ExcelLayoutEngine
 			pageLabel = ExcelUtil.getValidSheetName( pageLabel );
 			page.setSheetName( pageLabel );
 		}
-		
-		outputSheet( page );
-		containers.clear( );
-		page = null;
 	}
 
 	public void startTable( ITableContent table )
@@ -322,6 +338,11 @@ public class ExcelLayoutEngine
 		                                                           endCoordinate,
 		                                                           autoExtend );
 
+		// the columns of the rows already output can't be split any more
+		if ( page.isStarted( ) && page.splitsColumns( columnStartCoordinates ) )
+		{
+			outputSheetAndContinue( );
+		}
 		page.splitColumns(	startCoordinate, endCoordinate,
 		                   columnStartCoordinates, autoExtend );
 		return columnStartCoordinates;
@@ -517,6 +538,7 @@ public class ExcelLayoutEngine
 			page.synchronize( rowHeight, rowContainer );
 		}
 		endContainer( );
+		outputCompletedRows( );
 	}
 
 	public void endTable( IContent content )
@@ -580,6 +602,7 @@ public class ExcelLayoutEngine
 			setParentContainerIndex( );
 		}
 		containers.pop( );
+		outputCompletedRows( );
 	}
 
 	public void endContainer( )
@@ -920,6 +943,10 @@ public class ExcelLayoutEngine
 	{
 		if ( !pageWidthApplied )
 		{
+			if ( page.isStarted( ) && page.isSplitByPageCoordinate( ) )
+			{
+				outputSheetAndContinue( );
+			}
 			page.addPageCoordinate( );
 			pageWidthApplied = true;
 		}
@@ -988,14 +1015,164 @@ public class ExcelLayoutEngine
 	{
 		if ( getCurrentContainer( ).getEndRow( ) >= maxRow )
 		{
-			Page lastPage = page;
-			outputSheet( page );
-			newPage( );
-			page.startPage( lastPage );
-			page.setHeader( null );
+			outputSheetAndContinue( );
+		}
+	}
+
+	/**
+	 * Outputs the current sheet and continues the page in a new one.
+	 */
+	private void outputSheetAndContinue( )
+	{
+		Page lastPage = page;
+		outputSheet( page );
+		newPage( );
+		page.startPage( lastPage );
+		page.setHeader( null );
+	}
+
+	/**
+	 * In the streaming mode, outputs the rows which can no longer change, so
+	 * that only a bounded window of rows is cached. The sheet is started by
+	 * the first rows output, its columns can't be split from then on.
+	 */
+	private void outputCompletedRows( )
+	{
+		if ( page == null || !context.isStreamingRows( ) )
+		{
+			return;
+		}
+		int firstRowIndex = page.getFirstRowIndex( );
+		int layoutRowIndex = getLayoutRowIndex( );
+		if ( layoutRowIndex - firstRowIndex + 1 < STREAMING_ROW_WINDOW )
+		{
+			return;
+		}
+		int endRowIndex = getCompletedRowIndex( layoutRowIndex );
+		if ( endRowIndex < firstRowIndex )
+		{
+			return;
+		}
+		try
+		{
+			// the page label known so far names the sheet
+			applyPageLabel( );
+			startSheet( page );
+			Iterator<SheetData[]> iterator = page.getRowIterator( endRowIndex );
+			completeRows( page, iterator );
+			Iterator<RowData> it = new ExcelLayoutEngineIterator( page, page
+					.getRowIterator( endRowIndex ) );
+			while ( it.hasNext( ) )
+			{
+				outputRowData( page, it.next( ) );
+			}
+			page.removeRows( endRowIndex );
+		}
+		catch ( IOException e )
+		{
+			logger.log( Level.SEVERE, e.getLocalizedMessage( ), e );
 		}
 	}
 
+	/**
+	 * The data are added after the end of the current container, and the
+	 * cells of a row after the start of the row.
+	 * 
+	 * @return the last row before which no data can be added
+	 */
+	private int getLayoutRowIndex( )
+	{
+		int rowIndex = -1;
+		for ( int i = containers.size( ) - 1; i >= 0; i-- )
+		{
+			XlsContainer container = containers.get( i );
+			if ( container == null )
+			{
+				continue;
+			}
+			if ( rowIndex == -1 || containers.get( i + 1 ) instanceof XlsCell )
+			{
+				int endRow = container.getEndRow( );
+				rowIndex = rowIndex == -1 ? endRow : Math.min( rowIndex,
+						endRow );
+			}
+		}
+		return rowIndex;
+	}
+
+	/**
+	 * The last data of a column still changes if a following row spans it, or
+	 * if the bottom border of a container is applied to it. The rows from the
+	 * one of its real data are not complete.
+	 * 
+	 * @param layoutRowIndex
+	 *            the last row before which no data can be added
+	 * @return the last row which can no longer change
+	 */
+	private int getCompletedRowIndex( int layoutRowIndex )
+	{
+		int rowIndex = layoutRowIndex;
+		int columnCount = page.getColumnCount( );
+		for ( int i = 0; i < columnCount; i++ )
+		{
+			SheetData data = page.getColumnLastData( i );
+			SheetData realData = ExcelUtil.getRealData( data );
+			if ( realData == null || realData.getRowIndex( ) > rowIndex )
+			{
+				continue;
+			}
+			if ( isChangeable( data, i ) )
+			{
+				rowIndex = realData.getRowIndex( ) - 1;
+			}
+		}
+		return rowIndex;
+	}
+
+	private boolean isChangeable( SheetData lastData, int column )
+	{
+		if ( lastData.getRowSpanInDesign( ) > 0 )
+		{
+			return true;
+		}
+		AxisProcessor axis = page.getAxis( );
+		for ( XlsContainer container : containers )
+		{
+			if ( container == null )
+			{
+				continue;
+			}
+			ContainerSizeInfo sizeInfo = container.getSizeInfo( );
+			int startColumn = axis.getColumnIndexByCoordinate( sizeInfo
+					.getStartCoordinate( ) );
+			int endColumn = axis.getColumnIndexByCoordinate( sizeInfo
+					.getEndCoordinate( ) );
+			if ( column < startColumn || column >= endColumn )
+			{
+				continue;
+			}
+			if ( hasBottomBorder( container.getStyle( ) ) )
+			{
+				return true;
+			}
+			// the following rows of the table pad it with empty data
+			if ( container instanceof XlsTable
+					&& lastData.getRowIndex( ) > container.getStartRow( ) )
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean hasBottomBorder( StyleEntry style )
+	{
+		return style != null
+				&& ( style.getProperty( StyleConstant.BORDER_BOTTOM_STYLE_PROP ) != null
+						|| style.getProperty( StyleConstant.BORDER_BOTTOM_COLOR_PROP ) != null || style
+						.getProperty( StyleConstant.BORDER_BOTTOM_WIDTH_PROP ) != null );
+	}
+
 	public void outputSheet( Page page )
 	{
 		page.finish( );
@@ -1094,37 +1271,52 @@ public class ExcelLayoutEngine
 		Iterator<SheetData[]> iterator = page.getRowIterator( );
 		if ( iterator.hasNext( ) )
 		{
-			while ( iterator.hasNext( ) )
-			{
-				SheetData[] rowData = iterator.next( );
+			completeRows( page, iterator );
+		}
+		else if ( !page.isStarted( ) )
+		{
+			ContainerSizeInfo containerSize = pageContainer.getSizeInfo( );
+			page.addEmptyDataToContainer( pageContainer.getStyle( ),
+					pageContainer,
+					containerSize.getStartCoordinate( ),
+					containerSize.getWidth( ) );
+		}
+	}
+
+	private void completeRows( Page page, Iterator<SheetData[]> iterator )
+	{
+		while ( iterator.hasNext( ) )
+		{
+			SheetData[] rowData = iterator.next( );
 
-				for ( int j = 0; j < rowData.length; j++ )
+			for ( int j = 0; j < rowData.length; j++ )
+			{
+				SheetData data = rowData[j];
+				if ( data == null || data.isBlank( ) )
 				{
-					SheetData data = rowData[j];
-					if ( data == null || data.isBlank( ) )
-					{
-						continue;
-					}
+					continue;
+				}
 
-					HyperlinkDef hyperLink = data.getHyperlinkDef( );
-					if ( hyperLink != null )
+				HyperlinkDef hyperLink = data.getHyperlinkDef( );
+				if ( hyperLink != null )
+				{
+					if ( hyperLink.getType( ) == IHyperlinkAction.ACTION_BOOKMARK )
 					{
-						if ( hyperLink.getType( ) == IHyperlinkAction.ACTION_BOOKMARK )
-						{
-							setLinkedBookmark( data, hyperLink );
-						}
+						setLinkedBookmark( data, hyperLink );
 					}
 				}
-				page.calculateRowHeight( rowData, context.isRTL( ) );
 			}
+			page.calculateRowHeight( rowData, context.isRTL( ) );
 		}
-		else
+	}
+
+	private void startSheet( Page page ) throws IOException
+	{
+		if ( !page.isStarted( ) )
 		{
-			ContainerSizeInfo containerSize = pageContainer.getSizeInfo( );
-			page.addEmptyDataToContainer( pageContainer.getStyle( ),
-					pageContainer,
-					containerSize.getStartCoordinate( ),
-					containerSize.getWidth( ) );
+			writer.startSheet( page.getCoordinates( ), page.getHeader( ),
+			                   page.getFooter( ), page.getSheetName( ) );
+			page.setStarted( true );
 		}
 	}
 
@@ -1136,11 +1328,10 @@ public class ExcelLayoutEngine
 	{
 		complete( page );
 		Iterator<RowData> it = getIterator( page );
-		if ( it.hasNext( ) )
+		if ( it.hasNext( ) || page.isStarted( ) )
 		{
 			double[] coordinates = page.getCoordinates( );
-			writer.startSheet( coordinates, page.getHeader( ),
-			                   page.getFooter( ), page.getSheetName( ) );
+			startSheet( page );
 			while ( it.hasNext( ) )
 			{
 				outputRowData( page, it.next( ) );
@@ -1228,9 +1419,15 @@ public class ExcelLayoutEngine
 
 		public ExcelLayoutEngineIterator( Page page, DataFilter filter,
 		        RowIndexAdjuster rowIndexAdjuster )
+		{
+			this( page, page.getRowIterator( filter, rowIndexAdjuster ) );
+		}
+
+		public ExcelLayoutEngineIterator( Page page,
+				Iterator<SheetData[]> rowIterator )
 		{
 			this.page = page;
-			rowIterator = page.getRowIterator( filter, rowIndexAdjuster );
+			this.rowIterator = rowIterator;
 		}
 
 		public boolean hasNext( )
@@ -64,6 +64,8 @@ public class Page
 	private XlsContainer pageContainer;
 	private int pageWidth;
 	private int lastInRangeCoordinateIndex = -1;
+	// whether the sheet of the page is started, its first rows being output
+	private boolean started = false;
 
 	public Page( int contentWidth, StyleEngine styleEngine, int maxCol,
 	        String sheetName, XlsContainer pageContainer )
@@ -80,6 +82,37 @@ public class Page
 	{
 		axis.addCoordinate( pageWidth );
 	}
+
+	/**
+	 * @return whether adding the page coordinate splits an existing column
+	 */
+	public boolean isSplitByPageCoordinate( )
+	{
+		return splitsColumns( new int[]{pageWidth} );
+	}
+
+	/**
+	 * Checks whether some coordinates split the existing columns, so that the
+	 * index of the following columns changes. The coordinates after the last
+	 * column only add columns.
+	 * 
+	 * @param coordinates
+	 * @return whether some coordinates split a column
+	 */
+	public boolean splitsColumns( int[] coordinates )
+	{
+		int maxCoordinate = axis.getMaxCoordinate( );
+		for ( int coordinate : coordinates )
+		{
+			int value = AxisProcessor.round( coordinate );
+			if ( value < maxCoordinate
+					&& axis.getColumnIndexByCoordinate( value ) == -1 )
+			{
+				return true;
+			}
+		}
+		return false;
+	}
 	
 	public void startPage( IPageContent pageContent )
 	{
@@ -1031,6 +1064,42 @@ public class Page
 		return currentCache.getRowIterator( filter, rowIndexAdjuster );
 	}
 
+	public Iterator<SheetData[]> getRowIterator( int endRowIndex )
+	{
+		return currentCache.getRowIterator( endRowIndex );
+	}
+
+	public int getFirstRowIndex( )
+	{
+		return currentCache.getFirstRowIndex( );
+	}
+
+	/**
+	 * Removes the rows which are output from the cache.
+	 * 
+	 * @param endRowIndex
+	 *            the last row output
+	 */
+	public void removeRows( int endRowIndex )
+	{
+		currentCache.removeRows( endRowIndex );
+	}
+
+	public int getColumnCount( )
+	{
+		return currentCache.getColumnCount( );
+	}
+
+	public boolean isStarted( )
+	{
+		return started;
+	}
+
+	public void setStarted( boolean started )
+	{
+		this.started = started;
+	}
+
 	public float getRowHeight( int rowIndex )
 	{
 		return currentCache.getRowHeight( rowIndex );
@@ -114,6 +114,7 @@ public class AllTests
 		suite.addTestSuite( org.eclipse.birt.report.engine.internal.document.v2.PageHintTest.class );
 		suite.addTestSuite( org.eclipse.birt.report.engine.internal.document.v2.ReportContentTest.class );
 		suite.addTestSuite( org.eclipse.birt.report.engine.internal.document.OffsetIndexReaderWriterTest.class );
+		suite.addTestSuite( org.eclipse.birt.report.engine.internal.document.StyleTableTest.class );
 		suite.addTestSuite( org.eclipse.birt.report.engine.internal.executor.doc.ReportPageReaderTest.class );
 		suite.addTestSuite( org.eclipse.birt.report.engine.ir.ActionTest.class );
 		suite.addTestSuite( org.eclipse.birt.report.engine.ir.CellTest.class );
@@ -12,10 +12,14 @@
 package org.eclipse.birt.report.engine.api;
 
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.eclipse.birt.core.archive.compound.ArchiveFile;
@@ -25,10 +29,14 @@ import org.eclipse.birt.report.engine.EngineCase;
 import org.eclipse.birt.report.engine.api.impl.ReportDocumentConstants;
 import org.eclipse.birt.report.engine.api.impl.ReportDocumentReader;
 
+import com.lowagie.text.pdf.PdfReader;
+import com.lowagie.text.pdf.SimpleBookmark;
+
 public class RenderTaskTest extends EngineCase
 {
 
 	static final String REPORT_DESIGN_RESOURCE = "org/eclipse/birt/report/engine/api/render_task_design.xml";
+	static final String COMPRESSED_DOCUMENT = "./utest/compressed.folder/";
 
 	public void setUp( )
 	{
@@ -46,6 +54,7 @@ public class RenderTaskTest extends EngineCase
 		engine.shutdown( );
 		removeFile( REPORT_DESIGN );
 		removeFile( REPORT_DOCUMENT );
+		removeFile( COMPRESSED_DOCUMENT );
 	}
 
 	public void testRenderOnTransientFile( ) throws Exception
@@ -184,6 +193,171 @@ public class RenderTaskTest extends EngineCase
 		reportDoc.close( );
 	}
 
+	public void testParallelRender( ) throws Exception
+	{
+		createReportDocument( );
+		IReportDocument reportDoc = engine.openReportDocument( REPORT_DOCUMENT );
+
+		String serial = renderEmbeddableHTML( reportDoc, 1 );
+		String parallel = renderEmbeddableHTML( reportDoc, 3 );
+
+		// the fragments have other ids but the same text
+		assertEquals( getText( serial ), getText( parallel ) );
+		reportDoc.close( );
+	}
+
+	/**
+	 * the pages of a fixed layout report are rendered into PDF in parallel,
+	 * the parts are copied into one document with their bookmarks.
+	 */
+	public void testParallelRenderPDF( ) throws Exception
+	{
+		String design = new String( loadResource( REPORT_DESIGN_RESOURCE ),
+				"UTF-8" ).replaceFirst( "<property name=\"units\">in</property>",
+				"<property name=\"units\">in</property>"
+						+ "<property name=\"layoutPreference\">fixed layout</property>" );
+		FileOutputStream designOut = new FileOutputStream( REPORT_DESIGN );
+		designOut.write( design.getBytes( "UTF-8" ) );
+		designOut.close( );
+		createReportDocument( );
+		IReportDocument reportDoc = engine.openReportDocument( REPORT_DOCUMENT );
+
+		PdfReader serial = new PdfReader( renderPDF( reportDoc, 1 ) );
+		PdfReader parallel = new PdfReader( renderPDF( reportDoc, 3 ) );
+		assertEquals( 3, parallel.getNumberOfPages( ) );
+		assertEquals( serial.getNumberOfPages( ), parallel
+				.getNumberOfPages( ) );
+		assertEquals( countBookmarks( SimpleBookmark.getBookmark( serial ) ),
+				countBookmarks( SimpleBookmark.getBookmark( parallel ) ) );
+		assertEquals( serial.getInfo( ).get( "Creator" ), parallel.getInfo( )
+				.get( "Creator" ) );
+		for ( int i = 1; i <= serial.getNumberOfPages( ); i++ )
+		{
+			assertEquals( serial.getPageSize( i ).getWidth( ), parallel
+					.getPageSize( i ).getWidth( ), 0.01f );
+			assertEquals( serial.getPageSize( i ).getHeight( ), parallel
+					.getPageSize( i ).getHeight( ), 0.01f );
+		}
+		serial.close( );
+		parallel.close( );
+		reportDoc.close( );
+	}
+
+	private byte[] renderPDF( IReportDocument reportDoc, int threadCount )
+			throws Exception
+	{
+		IRenderTask task = engine.createRenderTask( reportDoc );
+		PDFRenderOption options = new PDFRenderOption( );
+		options.setOutputFormat( "pdf" );
+		ByteArrayOutputStream out = new ByteArrayOutputStream( );
+		options.setOutputStream( out );
+		options.setOption( IRenderOption.RENDER_THREAD_COUNT, Integer
+				.valueOf( threadCount ) );
+		task.setRenderOption( options );
+		task.render( );
+		assertEquals( 3, task.getPageCount( ) );
+		assertTrue( task.getErrors( ).isEmpty( ) );
+		task.close( );
+		return out.toByteArray( );
+	}
+
+	private static int countBookmarks( List bookmarks )
+	{
+		int count = 0;
+		if ( bookmarks != null )
+		{
+			for ( Object bookmark : bookmarks )
+			{
+				count += 1 + countBookmarks( (List) ( (Map) bookmark )
+						.get( "Kids" ) );
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * a document whose streams are compressed in blocks renders as the plain
+	 * one, the check points flush the streams while the document is written.
+	 */
+	public void testRenderBlockCompressedDocument( ) throws Exception
+	{
+		String plain = runAndRenderHTML( REPORT_DOCUMENT, false );
+		String compressed = runAndRenderHTML( COMPRESSED_DOCUMENT, true );
+		assertEquals( getText( plain ), getText( compressed ) );
+
+		// the content stream starts with the magic "BIRTBCZ1"
+		DataInputStream in = new DataInputStream( new FileInputStream(
+				COMPRESSED_DOCUMENT + "content/content.dat" ) );
+		try
+		{
+			assertEquals( 0x4249525442435A31L, in.readLong( ) );
+		}
+		finally
+		{
+			in.close( );
+		}
+	}
+
+	private String runAndRenderHTML( String document, boolean compressed )
+			throws Exception
+	{
+		IReportRunnable report = engine.openReportDesign( REPORT_DESIGN );
+		IRunTask runTask = engine.createRunTask( report );
+		if ( compressed )
+		{
+			Map appContext = new HashMap( );
+			appContext.put( EngineConstants.APPCONTEXT_BLOCK_COMPRESSED_DOCUMENT,
+					Boolean.TRUE );
+			runTask.setAppContext( appContext );
+		}
+		runTask.enableProgressiveViewing( true );
+		runTask.run( document );
+		runTask.close( );
+
+		IReportDocument reportDoc = engine.openReportDocument( document );
+		IRenderTask task = engine.createRenderTask( reportDoc );
+		HTMLRenderOption options = new HTMLRenderOption( );
+		options.setOutputFormat( "html" );
+		ByteArrayOutputStream out = new ByteArrayOutputStream( );
+		options.setOutputStream( out );
+		options.setHtmlPagination( true );
+		task.setRenderOption( options );
+		task.render( );
+		assertEquals( 3, task.getPageCount( ) );
+		assertTrue( task.getErrors( ).isEmpty( ) );
+		task.close( );
+		reportDoc.close( );
+		return out.toString( "UTF-8" );
+	}
+
+	private String renderEmbeddableHTML( IReportDocument reportDoc,
+			int threadCount ) throws Exception
+	{
+		IRenderTask task = engine.createRenderTask( reportDoc );
+		HTMLRenderOption options = new HTMLRenderOption( );
+		options.setOutputFormat( "html" );
+		ByteArrayOutputStream out = new ByteArrayOutputStream( );
+		options.setOutputStream( out );
+		options.setHtmlPagination( true );
+		options.setEmbeddable( true );
+		options.setOption( IRenderOption.RENDER_THREAD_COUNT, Integer
+				.valueOf( threadCount ) );
+		task.setRenderOption( options );
+		task.render( );
+		assertEquals( 3, task.getPageCount( ) );
+		task.close( );
+		return out.toString( "UTF-8" );
+	}
+
+	private static String getText( String html )
+	{
+		return html.replaceAll( "(?s)<style.*?</style>", "" )
+				.replaceAll( "(?s)<script.*?</script>", "" )
+				.replaceAll( "<[^>]*>", "" )
+				.replaceAll( "\\s+", " " )
+				.trim( );
+	}
+
 	public void testCloseOnExitRenderOption( ) throws EngineException
 	{
 		String design = "org/eclipse/birt/report/engine/api/testCloseOnExit.rptdesign";
@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.report.engine.api.impl;
+
+import java.io.File;
+
+import org.eclipse.birt.report.engine.EngineCase;
+import org.eclipse.birt.report.engine.api.EngineConfig;
+import org.eclipse.birt.report.engine.api.IReportRunnable;
+import org.eclipse.birt.report.engine.ir.Report;
+
+public class ReportDesignCacheTest extends EngineCase
+{
+
+	static final String REPORT_DESIGN_RESOURCE = "org/eclipse/birt/report/engine/api/ReportRunnableTest.rptdesign";
+	static final String REPORT_DESIGN_1 = "ReportDesignCacheTest1.rptdesign";
+	static final String REPORT_DESIGN_2 = "ReportDesignCacheTest2.rptdesign";
+
+	public void setUp( ) throws Exception
+	{
+		removeFile( REPORT_DESIGN_1 );
+		removeFile( REPORT_DESIGN_2 );
+		copyResource( REPORT_DESIGN_RESOURCE, REPORT_DESIGN_1 );
+		copyResource( REPORT_DESIGN_RESOURCE, REPORT_DESIGN_2 );
+
+		EngineConfig config = new EngineConfig( );
+		config.setReportDesignCacheSize( 1 );
+		engine = createReportEngine( config );
+	}
+
+	public void tearDown( )
+	{
+		if ( engine != null )
+		{
+			engine.shutdown( );
+		}
+		removeFile( REPORT_DESIGN_1 );
+		removeFile( REPORT_DESIGN_2 );
+	}
+
+	public void testCacheHit( ) throws Exception
+	{
+		ReportDesignCache cache = ( (ReportEngine) engine )
+				.getReportDesignCache( );
+		assertNotNull( cache );
+
+		IReportRunnable runnable = engine.openReportDesign( REPORT_DESIGN_1 );
+		assertSame( runnable, engine.openReportDesign( REPORT_DESIGN_1 ) );
+		assertEquals( 1, cache.getHitCount( ) );
+		assertEquals( 1, cache.getMissCount( ) );
+
+	}
+
+	/**
+	 * the tasks of a cached runnable don't share the report IR
+	 */
+	public void testReportIRNotShared( ) throws Exception
+	{
+		IReportRunnable runnable = engine.openReportDesign( REPORT_DESIGN_1 );
+		EngineTask task1 = (EngineTask) engine.createRunTask( runnable );
+		EngineTask task2 = (EngineTask) engine
+				.createRunTask( engine.openReportDesign( REPORT_DESIGN_1 ) );
+		try
+		{
+			Report report1 = task1.executionContext.getReport( );
+			Report report2 = task2.executionContext.getReport( );
+			assertNotNull( report1 );
+			assertNotSame( report1, report2 );
+			assertNotSame( report1.getQueries( ), report2.getQueries( ) );
+		}
+		finally
+		{
+			task1.close( );
+			task2.close( );
+		}
+	}
+
+	public void testTimestampInvalidation( ) throws Exception
+	{
+		IReportRunnable runnable = engine.openReportDesign( REPORT_DESIGN_1 );
+		File file = new File( REPORT_DESIGN_1 );
+		file.setLastModified( file.lastModified( ) - 10000 );
+		assertNotSame( runnable, engine.openReportDesign( REPORT_DESIGN_1 ) );
+	}
+
+	public void testEviction( ) throws Exception
+	{
+		ReportDesignCache cache = ( (ReportEngine) engine )
+				.getReportDesignCache( );
+
+		IReportRunnable runnable = engine.openReportDesign( REPORT_DESIGN_1 );
+		engine.openReportDesign( REPORT_DESIGN_2 );
+		assertEquals( 1, cache.size( ) );
+		assertEquals( 1, cache.getEvictionCount( ) );
+		assertNotSame( runnable, engine.openReportDesign( REPORT_DESIGN_1 ) );
+
+		runnable = engine.openReportDesign( REPORT_DESIGN_1 );
+		( (ReportEngine) engine ).evictReportDesign( REPORT_DESIGN_1 );
+		assertEquals( 0, cache.size( ) );
+		assertNotSame( runnable, engine.openReportDesign( REPORT_DESIGN_1 ) );
+	}
+
+	public void testCacheDisabled( ) throws Exception
+	{
+		engine.shutdown( );
+		engine = createReportEngine( new EngineConfig( ) );
+		assertNull( ( (ReportEngine) engine ).getReportDesignCache( ) );
+		IReportRunnable runnable = engine.openReportDesign( REPORT_DESIGN_1 );
+		assertNotSame( runnable, engine.openReportDesign( REPORT_DESIGN_1 ) );
+	}
+}
@@ -14,6 +14,7 @@ package org.eclipse.birt.report.engine.data.dte;
 import java.io.File;
 import java.io.InputStream;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
@@ -27,6 +28,7 @@ import org.eclipse.birt.core.archive.IDocArchiveWriter;
 import org.eclipse.birt.data.engine.api.IBaseQueryDefinition;
 import org.eclipse.birt.data.engine.api.IGroupDefinition;
 import org.eclipse.birt.data.engine.api.IQueryDefinition;
+import org.eclipse.birt.report.engine.api.IEngineConfig;
 import org.eclipse.birt.report.engine.data.IDataEngine;
 import org.eclipse.birt.report.engine.executor.ExecutionContext;
 import org.eclipse.birt.report.engine.extension.IQueryResultSet;
@@ -143,6 +145,85 @@ public class DataEngineTest extends TestCase
 		doTestSubqueryPresentation( );
 	}
 
+	/**
+	 * the prefetched results must be the same as the executed ones.
+	 */
+	public void testPrefetch( ) throws Exception
+	{
+		Report report = getReport( SINGLE_DATASET_DESIGN );
+		ExecutionContext context = new ExecutionContext( );
+		Map appContext = new HashMap( );
+		appContext.put( IEngineConfig.DATA_SET_PREFETCH_THREAD_COUNT,
+				Integer.valueOf( 2 ) );
+		context.setAppContext( appContext );
+		DteDataEngine dataEngine = new DteDataEngine( null, context, false );
+		dataEngine.prepare( report, appContext );
+
+		Iterator iter = report.getQueries( ).iterator( );
+		IQueryResultSet resultSet = null;
+
+		String goldenStr = loadResource( "SingleDataSet.txt" );
+		String resultStr = "";
+		while ( iter.hasNext( ) )
+		{
+			IQueryDefinition query = (IQueryDefinition) iter.next( );
+			String[] columns = (String[]) query.getBindings( )
+					.keySet( )
+					.toArray( new String[]{} );
+			Arrays.sort( columns );
+			resultSet = (IQueryResultSet) dataEngine.execute( query );
+			int i = 0;
+			while ( resultSet.next( ) && i < 3 )
+			{
+				for ( int j = 0; j < columns.length; j++ )
+				{
+					resultStr += resultSet.getResultIterator( ).getString(
+							columns[j] );
+				}
+				i++;
+			}
+		}
+		// the query is served from the prefetched results
+		assertEquals( report.getQueries( ).size( ), dataEngine
+				.getPrefetchedCount( ) );
+		resultSet.close( );
+		dataEngine.shutdown( );
+		assertEquals( goldenStr, resultStr );
+	}
+
+	/**
+	 * the queries with nested queries or sub queries are not prefetched.
+	 */
+	public void testPrefetchFlatQueriesOnly( ) throws Exception
+	{
+		assertEquals( 0, getPrefetchedCount( NESTED_DATASET_DESIGN ) );
+		assertEquals( 0, getPrefetchedCount( SUBQUERY_DATASET_DESIGN ) );
+	}
+
+	private int getPrefetchedCount( String design ) throws Exception
+	{
+		Report report = getReport( design );
+		ExecutionContext context = new ExecutionContext( );
+		Map appContext = new HashMap( );
+		appContext.put( IEngineConfig.DATA_SET_PREFETCH_THREAD_COUNT,
+				Integer.valueOf( 2 ) );
+		context.setAppContext( appContext );
+		DteDataEngine dataEngine = new DteDataEngine( null, context, false );
+		dataEngine.prepare( report, appContext );
+		Iterator iter = report.getQueries( ).iterator( );
+		while ( iter.hasNext( ) )
+		{
+			IQueryDefinition query = (IQueryDefinition) iter.next( );
+			if ( query.getParentQuery( ) == null )
+			{
+				dataEngine.execute( query ).close( );
+			}
+		}
+		int count = dataEngine.getPrefetchedCount( );
+		dataEngine.shutdown( );
+		return count;
+	}
+
 	public void doTestSingleQGeneration( ) throws Exception
 	{
 		Report report = getReport( SINGLE_DATASET_DESIGN );
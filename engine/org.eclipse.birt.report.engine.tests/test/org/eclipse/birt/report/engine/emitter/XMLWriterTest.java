@@ -104,4 +104,22 @@ public class XMLWriterTest extends TestCase
 				out.toString( "UTF-8" ).replaceAll( "[\\r|\\n |\\t]", "" ) );
 	}
 
+	public void testFlushOutput( ) throws Exception
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream( );
+		XMLWriter writer = new XMLWriter( );
+		writer.open( out );
+		writer.openTag( "fo:block" );
+		writer.text( "value" );
+		writer.closeTag( "fo:block" );
+		assertEquals( 0, out.size( ) );
+		long size = writer.getWrittenSize( );
+		assertTrue( size > 0 );
+
+		writer.flushOutput( );
+		assertEquals( size, out.size( ) );
+		assertEquals( size, writer.getWrittenSize( ) );
+		writer.close( );
+	}
+
 }
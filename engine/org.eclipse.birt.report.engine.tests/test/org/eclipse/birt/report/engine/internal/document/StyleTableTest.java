@@ -0,0 +1,237 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.report.engine.internal.document;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+import org.eclipse.birt.core.archive.FolderArchiveReader;
+import org.eclipse.birt.core.archive.FolderArchiveWriter;
+import org.eclipse.birt.core.archive.IDocArchiveReader;
+import org.eclipse.birt.report.engine.EngineCase;
+import org.eclipse.birt.report.engine.api.InstanceID;
+import org.eclipse.birt.report.engine.content.ICellContent;
+import org.eclipse.birt.report.engine.content.IContent;
+import org.eclipse.birt.report.engine.content.IStyle;
+import org.eclipse.birt.report.engine.content.impl.ReportContent;
+import org.eclipse.birt.report.engine.internal.document.v3.ReportContentReaderV3;
+import org.eclipse.birt.report.engine.internal.document.v3.ReportContentWriterV3;
+
+public class StyleTableTest extends EngineCase
+{
+
+	final static String REPORT_DOCUMENT = "./utest/styletable/";
+	final static String CONTENT_STREAM = "/content/content.dat";
+	final static String STYLE_STREAM = "/content/styles.dat";
+	final static String[] STYLES = new String[]{"color: red",
+			"color: blue; font-weight: bold", "text-align: right"};
+
+	public void setUp( )
+	{
+		removeFile( REPORT_DOCUMENT );
+	}
+
+	public void tearDown( )
+	{
+		removeFile( REPORT_DOCUMENT );
+	}
+
+	public void testStyleTable( ) throws IOException
+	{
+		ArrayList<Long> offsets = new ArrayList<Long>( );
+		FolderArchiveWriter archive = new FolderArchiveWriter( REPORT_DOCUMENT );
+		archive.initialize( );
+		ReportContent report = new ReportContent( );
+		StyleTableWriter styleWriter = new StyleTableWriter( archive,
+				STYLE_STREAM );
+		report.setStyleTableWriter( styleWriter );
+		ReportContentWriterV3 writer = new ReportContentWriterV3( archive,
+				CONTENT_STREAM );
+		writer.writeReport( report );
+		for ( int i = 0; i < 300; i++ )
+		{
+			ICellContent cell = report.createCellContent( );
+			cell.setInstanceID( new InstanceID( null, i, 0, null ) );
+			if ( i % 4 != 3 )
+			{
+				IStyle style = report.createStyle( );
+				style.setCssText( STYLES[i % 4] );
+				cell.setInlineStyle( style );
+			}
+			offsets.add( Long.valueOf( writer.writeContent( cell ) ) );
+		}
+		writer.close( );
+		styleWriter.close( );
+		archive.finish( );
+
+		IDocArchiveReader reader = new FolderArchiveReader( REPORT_DOCUMENT );
+		reader.open( );
+		ReportContent readReport = new ReportContent( );
+		readReport.setStyleTableReader( StyleTableReader.open( reader,
+				STYLE_STREAM ) );
+		ReportContentReaderV3 contentReader = new ReportContentReaderV3(
+				readReport, reader.getStream( CONTENT_STREAM ), null );
+		try
+		{
+			IStyle[] firstStyles = new IStyle[STYLES.length];
+			for ( int i = 0; i < offsets.size( ); i++ )
+			{
+				IContent content = contentReader.readContent( offsets.get( i )
+						.longValue( ) );
+				assertEquals( i, content.getInstanceID( ).getUniqueID( ) );
+				IStyle style = content.getInlineStyle( );
+				if ( i % 4 == 3 )
+				{
+					assertTrue( style == null );
+					continue;
+				}
+				IStyle expected = report.createStyle( );
+				expected.setCssText( STYLES[i % 4] );
+				assertEquals( expected, style );
+				if ( firstStyles[i % 4] == null )
+				{
+					firstStyles[i % 4] = style;
+				}
+				else
+				{
+					// each content has its own copy of the style
+					assertTrue( firstStyles[i % 4] != style );
+				}
+			}
+			// changing a copy doesn't change the others
+			firstStyles[0].setCssText( "color: green" );
+			IContent content = contentReader.readContent( offsets.get( 4 )
+					.longValue( ) );
+			IStyle expected = report.createStyle( );
+			expected.setCssText( STYLES[0] );
+			assertEquals( expected, content.getInlineStyle( ) );
+		}
+		finally
+		{
+			contentReader.close( );
+			readReport.getStyleTableReader( ).close( );
+			reader.close( );
+		}
+	}
+
+	/**
+	 * the documents of the older versions have no style table, the inline
+	 * styles are saved in the contents.
+	 */
+	public void testReadWithoutStyleTable( ) throws IOException
+	{
+		ArrayList<Long> offsets = new ArrayList<Long>( );
+		FolderArchiveWriter archive = new FolderArchiveWriter( REPORT_DOCUMENT );
+		archive.initialize( );
+		ReportContent report = new ReportContent( );
+		ReportContentWriterV3 writer = new ReportContentWriterV3( archive,
+				CONTENT_STREAM );
+		writer.writeReport( report );
+		for ( int i = 0; i < STYLES.length; i++ )
+		{
+			ICellContent cell = report.createCellContent( );
+			cell.setInstanceID( new InstanceID( null, i, 0, null ) );
+			IStyle style = report.createStyle( );
+			style.setCssText( STYLES[i] );
+			cell.setInlineStyle( style );
+			offsets.add( Long.valueOf( writer.writeContent( cell ) ) );
+		}
+		writer.close( );
+		archive.finish( );
+
+		IDocArchiveReader reader = new FolderArchiveReader( REPORT_DOCUMENT );
+		reader.open( );
+		assertTrue( StyleTableReader.open( reader, STYLE_STREAM ) == null );
+		ReportContent readReport = new ReportContent( );
+		ReportContentReaderV3 contentReader = new ReportContentReaderV3(
+				readReport, reader.getStream( CONTENT_STREAM ), null );
+		try
+		{
+			for ( int i = 0; i < offsets.size( ); i++ )
+			{
+				IContent content = contentReader.readContent( offsets.get( i )
+						.longValue( ) );
+				// the fields after the inline style are read too
+				assertEquals( i, content.getInstanceID( ).getUniqueID( ) );
+				IStyle expected = report.createStyle( );
+				expected.setCssText( STYLES[i] );
+				assertEquals( expected, content.getInlineStyle( ) );
+			}
+		}
+		finally
+		{
+			contentReader.close( );
+			reader.close( );
+		}
+	}
+
+	public void testStyleIds( ) throws IOException
+	{
+		FolderArchiveWriter archive = new FolderArchiveWriter( REPORT_DOCUMENT );
+		archive.initialize( );
+		ReportContent report = new ReportContent( );
+		StyleTableWriter styleWriter = new StyleTableWriter( archive,
+				STYLE_STREAM );
+		for ( int i = 0; i < 10; i++ )
+		{
+			for ( int j = 0; j < STYLES.length; j++ )
+			{
+				IStyle style = report.createStyle( );
+				style.setCssText( STYLES[j] );
+				assertEquals( j, styleWriter.getStyleId( style ) );
+			}
+		}
+		styleWriter.close( );
+		archive.finish( );
+	}
+
+	/**
+	 * the styles are read while the document is still being written.
+	 */
+	public void testReadWhileWriting( ) throws IOException
+	{
+		FolderArchiveWriter archive = new FolderArchiveWriter( REPORT_DOCUMENT );
+		archive.initialize( );
+		ReportContent report = new ReportContent( );
+		StyleTableWriter styleWriter = new StyleTableWriter( archive,
+				STYLE_STREAM );
+		IDocArchiveReader reader = new FolderArchiveReader( REPORT_DOCUMENT );
+		reader.open( );
+		StyleTableReader styleReader = null;
+		try
+		{
+			for ( int i = 0; i < STYLES.length; i++ )
+			{
+				IStyle style = report.createStyle( );
+				style.setCssText( STYLES[i] );
+				assertEquals( i, styleWriter.getStyleId( style ) );
+				if ( styleReader == null )
+				{
+					styleReader = StyleTableReader.open( reader, STYLE_STREAM );
+					assertTrue( styleReader != null );
+				}
+				assertEquals( style, styleReader.getStyle( i, report
+						.getCSSEngine( ) ) );
+			}
+		}
+		finally
+		{
+			if ( styleReader != null )
+			{
+				styleReader.close( );
+			}
+			reader.close( );
+			styleWriter.close( );
+			archive.finish( );
+		}
+	}
+}
@@ -215,6 +215,38 @@ public class ModelDteApiAdapter
 
 	}
 	
+	/**
+	 * Adapts the data source with the model adaptor of the session, the data
+	 * source is not defined in the session.
+	 * 
+	 * @param dataSource
+	 * @param dteSession
+	 * @throws BirtException
+	 */
+	public IBaseDataSourceDesign createDataSourceDesign(
+			DataSourceHandle dataSource, DataRequestSession dteSession )
+			throws BirtException
+	{
+		this.dteSession = dteSession;
+		return createDataSourceDesign( dataSource );
+	}
+
+	/**
+	 * Adapts the data set with the model adaptor of the session, the data set
+	 * is not defined in the session.
+	 * 
+	 * @param dataSet
+	 * @param dteSession
+	 * @throws BirtException
+	 */
+	public IBaseDataSetDesign createDataSetDesign( DataSetHandle dataSet,
+			DataRequestSession dteSession ) throws BirtException
+	{
+		this.dteSession = dteSession;
+		return appendRuntimeInfoToDataSet( dataSet, dteSession.getModelAdaptor( )
+				.adaptDataSet( dataSet ) );
+	}
+
 	/**
 	 * Define data set and data source in DataEngine
 	 * @param dataSet
@@ -490,6 +490,64 @@ public class EngineConfig extends PlatformConfig implements IEngineConfig
 		return 0;
 	}
 
+	/**
+	 * Set the max number of the report designs cached by the engine. The
+	 * design files opened by the engine are cached until they are changed,
+	 * and the cached designs are shared by all the engine tasks.
+	 * 
+	 * @param size
+	 *            the max number of the cached designs, 0 to disable the cache.
+	 */
+	public void setReportDesignCacheSize( int size )
+	{
+		setProperty( REPORT_DESIGN_CACHE_SIZE, Integer.valueOf( size ) );
+	}
+
+	/**
+	 * Get the max number of the report designs cached by the engine.
+	 * 
+	 * @return the max number of the cached designs, 0 if the cache is
+	 *         disabled.
+	 */
+	public int getReportDesignCacheSize( )
+	{
+		Object size = getProperty( REPORT_DESIGN_CACHE_SIZE );
+		if ( size instanceof Integer )
+		{
+			return ( (Integer) size ).intValue( );
+		}
+		return 0;
+	}
+
+	/**
+	 * Set the number of threads used to prefetch the data sets of a report.
+	 * The top level data sets which don't depend on scripts, parameters or
+	 * other data sets are executed concurrently when the report is run and
+	 * rendered in one task.
+	 * 
+	 * @param count
+	 *            the number of threads, 0 to disable the prefetch.
+	 */
+	public void setDataSetPrefetchThreadCount( int count )
+	{
+		setProperty( DATA_SET_PREFETCH_THREAD_COUNT, Integer.valueOf( count ) );
+	}
+
+	/**
+	 * Get the number of threads used to prefetch the data sets of a report.
+	 * 
+	 * @return the number of threads, 0 if the prefetch is disabled.
+	 */
+	public int getDataSetPrefetchThreadCount( )
+	{
+		Object count = getProperty( DATA_SET_PREFETCH_THREAD_COUNT );
+		if ( count instanceof Integer )
+		{
+			return ( (Integer) count ).intValue( );
+		}
+		return 0;
+	}
+
 	/**
 	 * Sets default emitter for an output format.
 	 * 
@@ -62,4 +62,11 @@ public class EngineConstants {
 	 * the default value is false;
 	 */
 	public static final String REFRESH_DATA = "REFRESH_DATA";
+
+	/**
+	 * The name of the key set in appContext to compress the content and page
+	 * hint streams of the report document in blocks. The value is a Boolean or
+	 * "true", the default value is false.
+	 */
+	public static final String APPCONTEXT_BLOCK_COMPRESSED_DOCUMENT = "BLOCK_COMPRESSED_DOCUMENT"; //$NON-NLS-1$
 }
@@ -537,4 +537,63 @@ public class HTMLRenderOption extends RenderOption implements IHTMLRenderOption
 	{
 		setOption( HTML_ENABLE_COMPACT_MODE, enableCompactMode );
 	}
+
+	/**
+	 * @return whether or not the HTML is written in streaming mode.
+	 */
+	public boolean isStreaming( )
+	{
+		return getBooleanOption( HTML_STREAMING, false );
+	}
+
+	/**
+	 * set whether or not the HTML is written in streaming mode.
+	 * 
+	 * @param streaming
+	 */
+	public void setStreaming( boolean streaming )
+	{
+		setOption( HTML_STREAMING, streaming );
+	}
+
+	/**
+	 * @return the number of rows written between two flushes in streaming
+	 *         mode.
+	 */
+	public int getStreamingFlushRows( )
+	{
+		return getIntOption( HTML_STREAMING_FLUSH_ROWS, 100 );
+	}
+
+	/**
+	 * set the number of rows written between two flushes in streaming mode.
+	 * 
+	 * @param rows
+	 *            the row count, 0 to not flush by the rows.
+	 */
+	public void setStreamingFlushRows( int rows )
+	{
+		setOption( HTML_STREAMING_FLUSH_ROWS, Integer.valueOf( rows ) );
+	}
+
+	/**
+	 * @return the number of characters written between two flushes in
+	 *         streaming mode.
+	 */
+	public int getStreamingFlushSize( )
+	{
+		return getIntOption( HTML_STREAMING_FLUSH_SIZE, 32768 );
+	}
+
+	/**
+	 * set the number of characters written between two flushes in streaming
+	 * mode.
+	 * 
+	 * @param size
+	 *            the character count, 0 to not flush by the size.
+	 */
+	public void setStreamingFlushSize( int size )
+	{
+		setOption( HTML_STREAMING_FLUSH_SIZE, Integer.valueOf( size ) );
+	}
 }
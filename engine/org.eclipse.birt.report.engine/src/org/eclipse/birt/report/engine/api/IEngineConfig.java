@@ -64,4 +64,17 @@ public interface IEngineConfig extends IPlatformConfig
 	 * The max rows per query
 	 */
 	static final String MAX_ROWS_PER_QUERY = "maxRowsPerQuery";
+
+	/**
+	 * The max number of the report designs cached by the engine. The cache is
+	 * disabled if the value is not a positive Integer.
+	 */
+	static final String REPORT_DESIGN_CACHE_SIZE = "reportDesignCacheSize";
+
+	/**
+	 * The number of threads used to prefetch the independent data sets of a
+	 * report. The prefetch is disabled if the value is not a positive
+	 * Integer. It can be overridden by the application context of a task.
+	 */
+	static final String DATA_SET_PREFETCH_THREAD_COUNT = "dataSetPrefetchThreadCount";
 }
@@ -39,6 +39,16 @@ public interface IExcelRenderOption extends IRenderOption
 	 * Excel will ignore all image items when this option is on.
 	 */
 	public static final String IGNORE_IMAGE = "excelRenderOption.ignoreImage";
+
+	/**
+	 * The option to output the rows of a sheet as soon as they can no longer
+	 * change, instead of at the end of the sheet, so that only a bounded
+	 * window of rows is kept in memory. Once the first rows of a sheet are
+	 * output, its columns are fixed: the content which needs more columns is
+	 * continued in a new sheet, and the sheet is named by the page label set
+	 * before them only.
+	 */
+	public static final String STREAMING_ROWS = "excelRenderOption.streamingRows";
 	
 	/**
 	 * 
@@ -364,4 +364,26 @@ public interface IHTMLRenderOption extends IRenderOption
 	 * new line separators will be ignored in html output.
 	 */
 	public static final String HTML_ENABLE_COMPACT_MODE = "htmlEnableCompactMode";
+
+	/**
+	 * Using streaming mode or not. In streaming mode the table rows are not
+	 * kept by the layout engine once they are written, and the output is
+	 * flushed each time HTML_STREAMING_FLUSH_ROWS rows or
+	 * HTML_STREAMING_FLUSH_SIZE characters have been written. It works best
+	 * with the fixed layout, where the columns are predeclared. The default
+	 * value is false.
+	 */
+	public static final String HTML_STREAMING = "htmlStreaming";
+
+	/**
+	 * The number of table rows written between two flushes in streaming mode.
+	 * The default value is 100, 0 or negative value means never.
+	 */
+	public static final String HTML_STREAMING_FLUSH_ROWS = "htmlStreamingFlushRows";
+
+	/**
+	 * The number of characters written between two flushes in streaming mode.
+	 * The default value is 32768, 0 or negative value means never.
+	 */
+	public static final String HTML_STREAMING_FLUSH_SIZE = "htmlStreamingFlushSize";
 }
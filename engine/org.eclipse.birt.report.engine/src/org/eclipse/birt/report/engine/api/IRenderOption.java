@@ -73,6 +73,16 @@ public interface IRenderOption extends ITaskOption
 	
 	public static final String REPORTLET_SIZE = "reportletSize";
 
+	/**
+	 * The number of the threads rendering the pages of a report document in
+	 * parallel. The value is an Integer object, default is 1. The pages are
+	 * rendered in parallel only if the outputs of the parts can be stitched:
+	 * the embeddable paginated HTML and the PDF of the fixed layout reports.
+	 * The PDF keeps the bookmarks of all the parts and the metadata of the
+	 * first one, but the links from one part to another are dropped.
+	 */
+	public static final String RENDER_THREAD_COUNT = "renderThreadCount"; //$NON-NLS-1$
+
 	/**
 	 * @return
 	 * @deprecated use getOptions instead
@@ -1770,6 +1770,14 @@ public abstract class EngineTask implements IEngineTask
 						.setOption( IHTMLRenderOption.USER_AGENT, userAgent );
 			}
 
+			Object htmlStreaming = renderOptions
+					.getOption( IHTMLRenderOption.HTML_STREAMING );
+			if ( htmlStreaming != null )
+			{
+				layoutEngine.setOption( IHTMLRenderOption.HTML_STREAMING,
+						htmlStreaming );
+			}
+
 		}
 		layoutEngine.setOption( TASK_TYPE,  Integer.valueOf(taskType));
 		return layoutEngine;
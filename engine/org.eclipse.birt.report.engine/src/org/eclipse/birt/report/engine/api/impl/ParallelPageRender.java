@@ -0,0 +1,712 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.report.engine.api.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.eclipse.birt.core.archive.IDocArchiveReader;
+import org.eclipse.birt.core.exception.BirtException;
+import org.eclipse.birt.report.engine.api.EngineConfig;
+import org.eclipse.birt.report.engine.api.EngineException;
+import org.eclipse.birt.report.engine.api.HTMLRenderOption;
+import org.eclipse.birt.report.engine.api.IHTMLRenderOption;
+import org.eclipse.birt.report.engine.api.IProgressMonitor;
+import org.eclipse.birt.report.engine.api.IRenderOption;
+import org.eclipse.birt.report.engine.api.RenderOption;
+import org.eclipse.birt.report.engine.extension.internal.ExtensionManager;
+import org.eclipse.birt.report.engine.i18n.MessageConstants;
+
+import com.lowagie.text.Document;
+import com.lowagie.text.pdf.PdfCopy;
+import com.lowagie.text.pdf.PdfReader;
+import com.lowagie.text.pdf.SimpleBookmark;
+import com.lowagie.text.pdf.SimpleNamedDestination;
+
+/**
+ * Renders the pages of a report document on a worker pool. The pages are
+ * split into contiguous parts, one per worker. Each worker opens its own
+ * reader over the archive of the document and renders its part with its own
+ * render task and emitter into a temporary file, then the files are stitched
+ * in the order of the pages. The cancel of the task and its progress monitor
+ * are passed on to the render tasks of the parts.
+ *
+ * Only the outputs which can be stitched without re-layout are supported: the
+ * embeddable paginated HTML, whose fragments are concatenated with a distinct
+ * id namespace each, and the PDF of the fixed layout reports, whose pages are
+ * copied into one document with the outlines of the parts and the information
+ * of the first part. The links between the parts are lost in the PDF.
+ */
+class ParallelPageRender
+{
+
+	/**
+	 * the interval to check the cancel of the task while waiting for the
+	 * parts
+	 */
+	private static final long CANCEL_CHECK_INTERVAL = 100;
+
+	/**
+	 * the time in seconds to wait for the cancelled parts to stop before the
+	 * render returns
+	 */
+	private static final long SHUTDOWN_TIMEOUT = 60;
+
+	private RenderTask task;
+	private List<long[]> pageSequences;
+	private int threadCount;
+	private List<PartRender> parts = new ArrayList<PartRender>( );
+
+	/**
+	 * @param task
+	 *            the render task whose render options are set up
+	 * @param pageSequences
+	 *            the visible pages to render
+	 * @param threadCount
+	 */
+	ParallelPageRender( RenderTask task, List<long[]> pageSequences,
+			int threadCount )
+	{
+		this.task = task;
+		this.pageSequences = pageSequences;
+		this.threadCount = threadCount;
+	}
+
+	/**
+	 * @return whether the pages can be rendered in parallel, otherwise they
+	 *         must be rendered by the task
+	 */
+	boolean isSupported( )
+	{
+		if ( !( task.reportDocument instanceof ReportDocumentReader ) )
+		{
+			return false;
+		}
+		IRenderOption options = task.renderOptions;
+		if ( options.getOutputFileName( ) == null
+				&& options.getOutputStream( ) == null )
+		{
+			return false;
+		}
+		if ( getPageCount( ) < 2 )
+		{
+			return false;
+		}
+		String pagination = ExtensionManager.getInstance( ).getPagination(
+				task.emitterID );
+		if ( IRenderOption.OUTPUT_EMITTERID_PDF.equals( task.emitterID ) )
+		{
+			// the pages are the ones of the document only if they are not
+			// re-paginated
+			return ExtensionManager.PAPER_SIZE_PAGINATION.equals( pagination )
+					&& task.PDFRenderPageByPage
+					&& task.executionContext.isFixedLayout( );
+		}
+		if ( IRenderOption.OUTPUT_EMITTERID_HTML.equals( task.emitterID ) )
+		{
+			HTMLRenderOption htmlOptions = new HTMLRenderOption( options );
+			return ExtensionManager.PAGE_BREAK_PAGINATION.equals( pagination )
+					&& htmlOptions.getHtmlPagination( )
+					&& htmlOptions.getEmbeddable( );
+		}
+		return false;
+	}
+
+	private long getPageCount( )
+	{
+		long pageCount = 0;
+		for ( long[] pages : pageSequences )
+		{
+			pageCount += pages[1] - pages[0] + 1;
+		}
+		return pageCount;
+	}
+
+	/**
+	 * Splits the pages into contiguous parts of the same size.
+	 *
+	 * @return the page range of each part
+	 */
+	private List<String> splitPages( )
+	{
+		long pageCount = getPageCount( );
+		long partSize = ( pageCount + threadCount - 1 ) / threadCount;
+		List<String> parts = new ArrayList<String>( );
+		StringBuffer part = new StringBuffer( );
+		long partPageCount = 0;
+		for ( long[] pages : pageSequences )
+		{
+			long start = pages[0];
+			while ( start <= pages[1] )
+			{
+				long end = Math.min( pages[1], start + partSize
+						- partPageCount - 1 );
+				if ( part.length( ) > 0 )
+				{
+					part.append( ',' );
+				}
+				part.append( start ).append( '-' ).append( end );
+				partPageCount += end - start + 1;
+				if ( partPageCount == partSize )
+				{
+					parts.add( part.toString( ) );
+					part.setLength( 0 );
+					partPageCount = 0;
+				}
+				start = end + 1;
+			}
+		}
+		if ( part.length( ) > 0 )
+		{
+			parts.add( part.toString( ) );
+		}
+		return parts;
+	}
+
+	/**
+	 * Renders the pages and writes the stitched output.
+	 *
+	 * @return the number of the output pages
+	 * @throws EngineException
+	 */
+	long render( ) throws EngineException
+	{
+		final ReportDocumentReader document = (ReportDocumentReader) task.reportDocument;
+		List<String> pageRanges = splitPages( );
+		IProgressMonitor monitor = task.progressMonitor == null
+				? null
+				: new PartProgressMonitor( task.progressMonitor );
+		ExecutorService executor = Executors.newFixedThreadPool( pageRanges.size( ),
+				new ThreadFactory( ) {
+
+					public Thread newThread( Runnable r )
+					{
+						Thread thread = new Thread( r, "BIRT render" );
+						thread.setDaemon( true );
+						return thread;
+					}
+				} );
+		try
+		{
+			List<Future<PartRender>> futures = new ArrayList<Future<PartRender>>( );
+			for ( int i = 0; i < pageRanges.size( ); i++ )
+			{
+				final PartRender part = new PartRender( pageRanges.get( i ),
+						createPartOption( i ), createPartFile( ), monitor );
+				parts.add( part );
+				futures.add( executor.submit( new Callable<PartRender>( ) {
+
+					public PartRender call( ) throws Exception
+					{
+						part.render( document );
+						return part;
+					}
+				} ) );
+			}
+
+			List<PartRender> renders = new ArrayList<PartRender>( );
+			for ( int i = 0; i < futures.size( ); i++ )
+			{
+				renders.add( waitForPart( futures.get( i ) ) );
+			}
+
+			long pageCount = 0;
+			for ( PartRender part : renders )
+			{
+				pageCount += part.pageCount;
+				if ( part.errors == null )
+				{
+					continue;
+				}
+				for ( Object error : part.errors )
+				{
+					if ( error instanceof BirtException )
+					{
+						task.executionContext
+								.addException( (BirtException) error );
+					}
+				}
+			}
+			if ( !task.getCancelFlag( ) )
+			{
+				writeOutput( renders );
+			}
+			return pageCount;
+		}
+		finally
+		{
+			// the workers are stopped by their cancel flags, not interrupted,
+			// as an interrupt closes the file channel of the archive shared
+			// with the caller's document
+			cancelParts( );
+			executor.shutdown( );
+			try
+			{
+				executor.awaitTermination( SHUTDOWN_TIMEOUT, TimeUnit.SECONDS );
+			}
+			catch ( InterruptedException e )
+			{
+				Thread.currentThread( ).interrupt( );
+			}
+			for ( PartRender part : parts )
+			{
+				if ( !part.file.delete( ) )
+				{
+					part.file.deleteOnExit( );
+				}
+			}
+		}
+	}
+
+	/**
+	 * Creates the temporary file the output of a part is written into.
+	 */
+	private File createPartFile( ) throws EngineException
+	{
+		File dir = null;
+		EngineConfig config = task.engine.getConfig( );
+		if ( config != null && config.getTempDir( ) != null )
+		{
+			dir = new File( config.getTempDir( ) );
+			if ( !dir.exists( ) )
+			{
+				dir.mkdirs( );
+			}
+		}
+		try
+		{
+			return File.createTempFile( "birt_render", ".part", dir ); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		catch ( IOException e )
+		{
+			throw new EngineException(
+					MessageConstants.FAILED_TO_INITIALIZE_EMITTER, e );
+		}
+	}
+
+	/**
+	 * Copies the render options of the task for a part.
+	 */
+	private IRenderOption createPartOption( int index )
+	{
+		Map values = new HashMap( task.renderOptions.getOptions( ) );
+		values.remove( IRenderOption.OUTPUT_FILE_NAME );
+		values.remove( IRenderOption.RENDER_THREAD_COUNT );
+		IRenderOption options = new RenderOption( values );
+		options.setOption( IRenderOption.CLOSE_OUTPUTSTREAM_ON_EXIT,
+				Boolean.FALSE );
+		if ( index > 0 )
+		{
+			// the fragments are in the same page, their ids must not collide
+			Object namespace = options
+					.getOption( IHTMLRenderOption.HTML_ID_NAMESPACE );
+			options.setOption( IHTMLRenderOption.HTML_ID_NAMESPACE,
+					( namespace == null ? "" : namespace.toString( ) ) + "p"
+							+ index + "_" );
+		}
+		return options;
+	}
+
+	/**
+	 * Waits for the render of a part, cancelling the parts once the task is
+	 * cancelled.
+	 */
+	private PartRender waitForPart( Future<PartRender> future )
+			throws EngineException
+	{
+		try
+		{
+			while ( true )
+			{
+				try
+				{
+					return future.get( CANCEL_CHECK_INTERVAL,
+							TimeUnit.MILLISECONDS );
+				}
+				catch ( TimeoutException e )
+				{
+					if ( task.getCancelFlag( ) )
+					{
+						cancelParts( );
+					}
+				}
+			}
+		}
+		catch ( InterruptedException e )
+		{
+			Thread.currentThread( ).interrupt( );
+			throw new EngineException( MessageConstants.REPORT_RUN_ERROR, e );
+		}
+		catch ( ExecutionException e )
+		{
+			Throwable cause = e.getCause( );
+			if ( cause instanceof EngineException )
+			{
+				throw (EngineException) cause;
+			}
+			throw new EngineException( MessageConstants.REPORT_RUN_ERROR,
+					cause );
+		}
+	}
+
+	private void cancelParts( )
+	{
+		for ( PartRender part : parts )
+		{
+			part.cancel( );
+		}
+	}
+
+	private void writeOutput( List<PartRender> renders )
+			throws EngineException
+	{
+		IRenderOption options = task.renderOptions;
+		String fileName = options.getOutputFileName( );
+		OutputStream out;
+		boolean closeOnExit;
+		try
+		{
+			if ( fileName != null )
+			{
+				File file = new File( fileName );
+				File parent = file.getParentFile( );
+				if ( parent != null && !parent.exists( ) )
+				{
+					parent.mkdirs( );
+				}
+				out = new BufferedOutputStream( new FileOutputStream( file ) );
+				closeOnExit = true;
+			}
+			else
+			{
+				out = options.getOutputStream( );
+				Object closeOnExitValue = options
+						.getOption( IRenderOption.CLOSE_OUTPUTSTREAM_ON_EXIT );
+				closeOnExit = closeOnExitValue instanceof Boolean
+						&& ( (Boolean) closeOnExitValue ).booleanValue( );
+			}
+		}
+		catch ( IOException e )
+		{
+			throw new EngineException(
+					MessageConstants.FAILED_TO_INITIALIZE_EMITTER, e );
+		}
+
+		try
+		{
+			if ( IRenderOption.OUTPUT_EMITTERID_PDF.equals( task.emitterID ) )
+			{
+				mergePDF( renders, out );
+			}
+			else
+			{
+				byte[] buffer = new byte[8192];
+				for ( PartRender part : renders )
+				{
+					InputStream in = new FileInputStream( part.file );
+					try
+					{
+						int size = in.read( buffer );
+						while ( size != -1 )
+						{
+							out.write( buffer, 0, size );
+							size = in.read( buffer );
+						}
+					}
+					finally
+					{
+						in.close( );
+					}
+				}
+			}
+			out.flush( );
+		}
+		catch ( Exception e )
+		{
+			throw new EngineException( MessageConstants.REPORT_RUN_ERROR, e );
+		}
+		finally
+		{
+			if ( closeOnExit )
+			{
+				try
+				{
+					out.close( );
+				}
+				catch ( IOException ignored )
+				{
+				}
+			}
+		}
+	}
+
+	/**
+	 * Copies the pages of the parts into one document. The outlines of the
+	 * parts are moved to the pages in the document, and the information of
+	 * the document is the one of the first part. The named destinations of
+	 * the parts are not copied, so the links between the parts are lost.
+	 */
+	private static void mergePDF( List<PartRender> renders, OutputStream out )
+			throws Exception
+	{
+		Document document = new Document( );
+		PdfCopy copy = new PdfCopy( document, out );
+		// the output stream is closed as the render option requires
+		copy.setCloseStream( false );
+		List outlines = new ArrayList( );
+		int pageOffset = 0;
+		for ( PartRender part : renders )
+		{
+			PdfReader reader = new PdfReader( new BufferedInputStream(
+					new FileInputStream( part.file ) ) );
+			if ( pageOffset == 0 )
+			{
+				copyInfo( reader, document );
+				document.open( );
+			}
+			List bookmarks = SimpleBookmark.getBookmark( reader );
+			if ( bookmarks != null )
+			{
+				resolveNamedPages( bookmarks, getNamedPages( reader ) );
+				SimpleBookmark.shiftPageNumbers( bookmarks, pageOffset, null );
+				outlines.addAll( bookmarks );
+			}
+			for ( int i = 1; i <= reader.getNumberOfPages( ); i++ )
+			{
+				copy.addPage( copy.getImportedPage( reader, i ) );
+			}
+			pageOffset += reader.getNumberOfPages( );
+			copy.freeReader( reader );
+			reader.close( );
+		}
+		if ( !outlines.isEmpty( ) )
+		{
+			copy.setOutlines( outlines );
+		}
+		document.close( );
+	}
+
+	private static void copyInfo( PdfReader reader, Document document )
+	{
+		Map info = reader.getInfo( );
+		String title = (String) info.get( "Title" ); //$NON-NLS-1$
+		if ( title != null )
+		{
+			document.addTitle( title );
+		}
+		String author = (String) info.get( "Author" ); //$NON-NLS-1$
+		if ( author != null )
+		{
+			document.addAuthor( author );
+		}
+		String subject = (String) info.get( "Subject" ); //$NON-NLS-1$
+		if ( subject != null )
+		{
+			document.addSubject( subject );
+		}
+		String keywords = (String) info.get( "Keywords" ); //$NON-NLS-1$
+		if ( keywords != null )
+		{
+			document.addKeywords( keywords );
+		}
+		String creator = (String) info.get( "Creator" ); //$NON-NLS-1$
+		if ( creator != null )
+		{
+			document.addCreator( creator );
+		}
+	}
+
+	/**
+	 * @return the page of each named destination of the document
+	 */
+	private static Map getNamedPages( PdfReader reader )
+	{
+		Map pages = new HashMap( );
+		pages.putAll( SimpleNamedDestination.getNamedDestination( reader,
+				true ) );
+		pages.putAll( SimpleNamedDestination.getNamedDestination( reader,
+				false ) );
+		return pages;
+	}
+
+	/**
+	 * Replaces the named destinations of the outlines by their pages, as the
+	 * named destinations are not copied.
+	 */
+	private static void resolveNamedPages( List bookmarks, Map namedPages )
+	{
+		for ( Object item : bookmarks )
+		{
+			Map bookmark = (Map) item;
+			Object page = namedPages.get( bookmark.get( "Named" ) ); //$NON-NLS-1$
+			if ( page != null )
+			{
+				bookmark.remove( "Named" ); //$NON-NLS-1$
+				bookmark.put( "Page", page ); //$NON-NLS-1$
+			}
+			List kids = (List) bookmark.get( "Kids" ); //$NON-NLS-1$
+			if ( kids != null )
+			{
+				resolveNamedPages( kids, namedPages );
+			}
+		}
+	}
+
+	/**
+	 * The render of a part of the pages.
+	 */
+	private class PartRender
+	{
+
+		String pageRange;
+		IRenderOption options;
+		File file;
+		IProgressMonitor monitor;
+		long pageCount;
+		List errors;
+		private RenderTask partTask;
+		private boolean cancelled;
+
+		PartRender( String pageRange, IRenderOption options, File file,
+				IProgressMonitor monitor )
+		{
+			this.pageRange = pageRange;
+			this.options = options;
+			this.file = file;
+			this.monitor = monitor;
+		}
+
+		/**
+		 * Renders the pages with a render task over its own reader of the
+		 * shared archive.
+		 */
+		void render( ReportDocumentReader document ) throws EngineException
+		{
+			ReportDocumentReader reader;
+			synchronized ( this )
+			{
+				if ( cancelled )
+				{
+					return;
+				}
+				IDocArchiveReader archive = document.getArchive( );
+				reader = new ReportDocumentReader( document.getSystemId( ),
+						task.engine, archive, true, document
+								.getModuleOptions( ) );
+				partTask = new RenderTask( task.engine, reader );
+			}
+			OutputStream output = null;
+			try
+			{
+				output = new BufferedOutputStream( new FileOutputStream( file ) );
+				options.setOutputStream( output );
+				partTask.setLocale( task.getULocale( ) );
+				partTask.setTimeZone( task.getTimeZone( ) );
+				partTask.setAppContext( task.getAppContext( ) );
+				partTask.setRenderOption( options );
+				partTask.setPageRange( pageRange );
+				partTask.setProgressMonitor( monitor );
+				partTask.render( );
+				pageCount = partTask.getPageCount( );
+				errors = partTask.getErrors( );
+			}
+			catch ( IOException e )
+			{
+				throw new EngineException(
+						MessageConstants.FAILED_TO_INITIALIZE_EMITTER, e );
+			}
+			finally
+			{
+				if ( output != null )
+				{
+					try
+					{
+						output.close( );
+					}
+					catch ( IOException ignored )
+					{
+					}
+				}
+				RenderTask closingTask;
+				synchronized ( this )
+				{
+					closingTask = partTask;
+					partTask = null;
+				}
+				closingTask.close( );
+				reader.close( );
+			}
+		}
+
+		/**
+		 * Cancels the render of the part, if it is not rendered yet.
+		 */
+		synchronized void cancel( )
+		{
+			if ( cancelled )
+			{
+				return;
+			}
+			cancelled = true;
+			if ( partTask != null )
+			{
+				partTask.cancel( );
+			}
+		}
+	}
+
+	/**
+	 * Reports the progress of the parts to the monitor of the task, one
+	 * event at a time. The start and the end of the render are reported by
+	 * the task itself.
+	 */
+	private static class PartProgressMonitor implements IProgressMonitor
+	{
+
+		private IProgressMonitor monitor;
+
+		PartProgressMonitor( IProgressMonitor monitor )
+		{
+			this.monitor = monitor;
+		}
+
+		public void onProgress( int type, int value )
+		{
+			if ( type == START_TASK || type == END_TASK )
+			{
+				return;
+			}
+			synchronized ( monitor )
+			{
+				monitor.onProgress( type, value );
+			}
+		}
+	}
+}
@@ -291,7 +291,10 @@ public class RenderTask extends EngineTask implements IRenderTask
 				} );
 			}
 
-			innerRender.render( );
+			if ( !renderInParallel( ) )
+			{
+				innerRender.render( );
+			}
 		}
 		catch ( Throwable t )
 		{
@@ -309,6 +312,34 @@ public class RenderTask extends EngineTask implements IRenderTask
 		}
 	}
 
+	/**
+	 * Renders the page range on several threads if the render option asks
+	 * for it and the output can be stitched.
+	 * 
+	 * @return true if the pages are rendered
+	 */
+	private boolean renderInParallel( ) throws EngineException
+	{
+		Object threadCount = renderOptions
+				.getOption( IRenderOption.RENDER_THREAD_COUNT );
+		if ( !( threadCount instanceof Integer )
+				|| ( (Integer) threadCount ).intValue( ) <= 1
+				|| !( innerRender instanceof PageRangeRender ) )
+		{
+			return false;
+		}
+		setupRenderOption( );
+		ParallelPageRender render = new ParallelPageRender( this,
+				( (PageRangeRender) innerRender ).pageSequences,
+				( (Integer) threadCount ).intValue( ) );
+		if ( !render.isSupported( ) )
+		{
+			return false;
+		}
+		outputPageCount = render.render( );
+		return true;
+	}
+
 	public long getPageCount( ) throws EngineException
 	{
 		if ( runningStatus != STATUS_SUCCEEDED )
@@ -0,0 +1,278 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.report.engine.api.impl;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.birt.report.model.api.IResourceLocator;
+import org.eclipse.birt.report.model.api.LibraryHandle;
+
+/**
+ * A size bounded cache of the report runnables opened from design files.
+ *
+ * The runnables are keyed by the absolute path of the design file. An entry
+ * is invalidated if the design file or any library used by the design has
+ * been modified since the entry is created. The least recently used entry is
+ * evicted once the cache is full.
+ *
+ * The cached runnables are shared by all the tasks created from them. Each
+ * task still builds its own report IR, as the query definitions of the IR
+ * are prepared and changed by the task.
+ */
+public class ReportDesignCache
+{
+
+	/**
+	 * the max number of the cached runnables.
+	 */
+	private int capacity;
+
+	/**
+	 * the cached entries, ordered from the least recently used.
+	 */
+	private LinkedHashMap<String, CacheEntry> entries;
+
+	private long hitCount;
+	private long missCount;
+	private long evictionCount;
+
+	/**
+	 * constructor
+	 *
+	 * @param capacity
+	 *            the max number of the cached runnables.
+	 */
+	public ReportDesignCache( int capacity )
+	{
+		this.capacity = capacity;
+		this.entries = new LinkedHashMap<String, CacheEntry>( 16, 0.75f, true );
+	}
+
+	/**
+	 * get the cached runnable of the design file.
+	 *
+	 * @param file
+	 *            the design file.
+	 * @param locator
+	 *            the resource locator used to open the design.
+	 * @return the cached runnable, null if the design is not cached or the
+	 *         cached one is out of date.
+	 */
+	public synchronized ReportRunnable get( File file, IResourceLocator locator )
+	{
+		String key = file.getAbsolutePath( );
+		CacheEntry entry = entries.get( key );
+		if ( entry != null )
+		{
+			if ( entry.locator == locator && entry.isValid( file ) )
+			{
+				hitCount++;
+				return entry.runnable;
+			}
+			entries.remove( key );
+			evictionCount++;
+		}
+		missCount++;
+		return null;
+	}
+
+	/**
+	 * add the runnable opened from the design file into the cache.
+	 *
+	 * @param file
+	 *            the design file.
+	 * @param locator
+	 *            the resource locator used to open the design.
+	 * @param runnable
+	 *            the runnable opened from the design file.
+	 */
+	public void put( File file, IResourceLocator locator,
+			ReportRunnable runnable )
+	{
+		// collect the time stamps outside of the lock as it touches the disk
+		CacheEntry entry = new CacheEntry( file, locator, runnable );
+		synchronized ( this )
+		{
+			entries.put( file.getAbsolutePath( ), entry );
+			while ( entries.size( ) > capacity )
+			{
+				Iterator<String> iter = entries.keySet( ).iterator( );
+				iter.next( );
+				iter.remove( );
+				evictionCount++;
+			}
+		}
+	}
+
+	/**
+	 * remove the cached runnable of the design file.
+	 *
+	 * @param designName
+	 *            the design file name.
+	 */
+	public synchronized void evict( String designName )
+	{
+		String key = new File( designName ).getAbsolutePath( );
+		if ( entries.remove( key ) != null )
+		{
+			evictionCount++;
+		}
+	}
+
+	/**
+	 * remove all the cached runnables.
+	 */
+	public synchronized void clear( )
+	{
+		evictionCount += entries.size( );
+		entries.clear( );
+	}
+
+	public synchronized int size( )
+	{
+		return entries.size( );
+	}
+
+	public int getCapacity( )
+	{
+		return capacity;
+	}
+
+	public synchronized long getHitCount( )
+	{
+		return hitCount;
+	}
+
+	public synchronized long getMissCount( )
+	{
+		return missCount;
+	}
+
+	public synchronized long getEvictionCount( )
+	{
+		return evictionCount;
+	}
+
+	public String toString( )
+	{
+		StringBuffer buf = new StringBuffer( "ReportDesignCache: " );
+		synchronized ( this )
+		{
+			buf.append( "size=" ).append( entries.size( ) );
+			buf.append( ", capacity=" ).append( capacity );
+			buf.append( ", hits=" ).append( hitCount );
+			buf.append( ", misses=" ).append( missCount );
+			buf.append( ", evictions=" ).append( evictionCount );
+		}
+		return buf.toString( );
+	}
+
+	private static class CacheEntry
+	{
+
+		ReportRunnable runnable;
+		IResourceLocator locator;
+		long lastModified;
+		/**
+		 * the time stamps of the libraries used by the design.
+		 */
+		Map<File, Long> libraries;
+
+		CacheEntry( File file, IResourceLocator locator,
+				ReportRunnable runnable )
+		{
+			this.runnable = runnable;
+			this.locator = locator;
+			this.lastModified = file.lastModified( );
+			this.libraries = new HashMap<File, Long>( );
+			List libs = runnable.getReport( ).getAllLibraries( );
+			if ( libs != null )
+			{
+				for ( Object lib : libs )
+				{
+					File libFile = getLibraryFile( (LibraryHandle) lib );
+					if ( libFile != null )
+					{
+						libraries.put( libFile, Long.valueOf( libFile
+								.lastModified( ) ) );
+					}
+				}
+			}
+		}
+
+		boolean isValid( File file )
+		{
+			if ( file.lastModified( ) != lastModified )
+			{
+				return false;
+			}
+			for ( Map.Entry<File, Long> lib : libraries.entrySet( ) )
+			{
+				if ( lib.getKey( ).lastModified( ) != lib.getValue( )
+						.longValue( ) )
+				{
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * only the libraries saved in the local file system are monitored.
+		 */
+		private static File getLibraryFile( LibraryHandle library )
+		{
+			String fileName = library.getFileName( );
+			if ( fileName == null )
+			{
+				return null;
+			}
+			File file = new File( fileName );
+			if ( file.isAbsolute( ) && file.exists( ) )
+			{
+				return file;
+			}
+			URL url = library.getSystemId( );
+			if ( url == null || !"file".equals( url.getProtocol( ) ) )
+			{
+				return null;
+			}
+			try
+			{
+				URI uri = new URL( url, fileName ).toURI( );
+				if ( "file".equals( uri.getScheme( ) ) )
+				{
+					return new File( uri );
+				}
+			}
+			catch ( URISyntaxException ex )
+			{
+			}
+			catch ( MalformedURLException ex )
+			{
+			}
+			catch ( IllegalArgumentException ex )
+			{
+			}
+			return null;
+		}
+	}
+}
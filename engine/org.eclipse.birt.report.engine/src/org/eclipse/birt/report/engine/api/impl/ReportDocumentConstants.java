@@ -74,6 +74,12 @@ public interface ReportDocumentConstants
 	static final String PAGE_STREAM = "/content/page.dat";
 	
 	static final String PAGE_INDEX_STREAM = "/content/page.idx";
+
+	/**
+	 * the distinct inline styles of the contents, shared by the content and
+	 * page streams.
+	 */
+	static final String STYLE_STREAM = "/content/styles.dat";
 	
 	/**
 	 * the stream saves the information about the reportlet document
@@ -121,10 +127,16 @@ public interface ReportDocumentConstants
 	 */
 	static final String REPORT_DOCUMENT_VERSION_2_1_3 = "2.1.3-2.2RC0";
 
+	/**
+	 * version used start from 4.2.1, the inline styles of the contents are
+	 * saved in the style stream and referred by id.
+	 */
+	static final String REPORT_DOCUMENT_VERSION_4_2_1 = "4.2.1";
+
 	/**
 	 * the current report document version
 	 */
-	static final String REPORT_DOCUMENT_VERSION = REPORT_DOCUMENT_VERSION_2_1_3;
+	static final String REPORT_DOCUMENT_VERSION = REPORT_DOCUMENT_VERSION_4_2_1;
 
 	static final int CHECKPOINT_INIT = 0;
 	static final int CHECKPOINT_END = -1;
@@ -175,8 +187,10 @@ public interface ReportDocumentConstants
 	static final String BIRT_ENGINE_VERSION_2_6_0 = "2.6.0";
 	/** the version value used by 2.6.1 */
 	static final String BIRT_ENGINE_VERSION_2_6_1 = "2.6.1";
+	/** the version value used by 4.2.1 */
+	static final String BIRT_ENGINE_VERSION_4_2_1 = "4.2.1";
 	/** the current version */
-	static final String BIRT_ENGINE_VERSION = BIRT_ENGINE_VERSION_2_6_1;
+	static final String BIRT_ENGINE_VERSION = BIRT_ENGINE_VERSION_4_2_1;
 	/**
 	 * extraction task version
 	 */
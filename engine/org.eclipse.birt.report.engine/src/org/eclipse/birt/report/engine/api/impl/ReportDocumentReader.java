@@ -181,6 +181,11 @@ public class ReportDocumentReader
 		return this.archive;
 	}
 
+	Map getModuleOptions( )
+	{
+		return this.moduleOptions;
+	}
+
 	public String getVersion( )
 	{
 		return (String) properties.get( BIRT_ENGINE_VERSION_KEY );
@@ -617,6 +622,7 @@ public class ReportDocumentReader
 	 * 2.3.1	x		v1		2.1.3	2.2.1	FALSE		2.2.1
 	 * 2.3.2	x		v1		2.1.3	2.3.2	FALSE		2.3.2
 	 * 2.5.0	x		v1		2.1.3	2.5.0	FALSE		2.5.0
+	 * 4.2.1	x		v2		4.2.1	4.2.1	FALSE		4.2.1
 	 * </pre>
 	 */
 	protected void checkVersion( DataInputStream di ) throws IOException
@@ -656,7 +662,7 @@ public class ReportDocumentReader
 
 		String[] supportedVersions = new String[]{
 				REPORT_DOCUMENT_VERSION_1_0_0, REPORT_DOCUMENT_VERSION_2_1_0,
-				REPORT_DOCUMENT_VERSION_2_1_3};
+				REPORT_DOCUMENT_VERSION_2_1_3, REPORT_DOCUMENT_VERSION_4_2_1};
 		boolean supportedVersion = false;
 		for ( int i = 0; i < supportedVersions.length; i++ )
 		{
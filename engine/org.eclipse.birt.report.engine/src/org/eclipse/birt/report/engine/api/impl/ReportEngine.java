@@ -113,6 +113,12 @@ public class ReportEngine implements IReportEngine
 	private String version;
 
 	private Map<String, Object> beans;
+
+	/**
+	 * the cache of the opened report designs, null if it is disabled.
+	 */
+	private ReportDesignCache designCache;
+
 	/**
 	 * Create a Report Engine using a configuration.
 	 * 
@@ -135,6 +141,11 @@ public class ReportEngine implements IReportEngine
 
 		logger.log( Level.FINE, "ReportEngine created. EngineConfig: {0} ",
 				config );
+		int designCacheSize = config.getReportDesignCacheSize( );
+		if ( designCacheSize > 0 )
+		{
+			designCache = new ReportDesignCache( designCacheSize );
+		}
 		this.helper = new ReportEngineHelper( this );
 		openedDocuments = new LinkedObjectManager<ReportDocumentReader>( );
 		IStatusHandler handler = config.getStatusHandler( );
@@ -310,6 +321,32 @@ public class ReportEngine implements IReportEngine
 		return helper.openReportDesign( designName, locator);
 	}
 	
+	/**
+	 * returns the cache of the opened report designs.
+	 * 
+	 * @return the design cache, null if the cache is disabled by the engine
+	 *         config.
+	 */
+	public ReportDesignCache getReportDesignCache( )
+	{
+		return designCache;
+	}
+
+	/**
+	 * removes the cached runnable of the design file, the design is reloaded
+	 * at the next open.
+	 * 
+	 * @param designName
+	 *            the full path of the report design file
+	 */
+	public void evictReportDesign( String designName )
+	{
+		if ( designCache != null )
+		{
+			designCache.evict( designName );
+		}
+	}
+
 	/**
 	 * opens a report designHandle and creates a report design runnable. From the
 	 * ReportRunnable object, embedded images and parameter definitions can be
@@ -458,6 +495,11 @@ public class ReportEngine implements IReportEngine
 		logger.fine( "ReportEngine.destroy" );
 		rootScope = null;
 		helper = null;
+		if ( designCache != null )
+		{
+			logger.log( Level.FINE, "{0}", designCache );
+			designCache.clear( );
+		}
 		synchronized ( openedDocuments )
 		{
 			for ( ReportDocumentReader document : openedDocuments )
@@ -115,6 +115,16 @@ public class ReportEngineHelper
 					designName );
 		}
 
+		ReportDesignCache designCache = engine.getReportDesignCache( );
+		if ( designCache != null )
+		{
+			ReportRunnable runnable = designCache.get( file, locator );
+			if ( runnable != null )
+			{
+				return runnable;
+			}
+		}
+
 		try
 		{
 			InputStream in = new FileInputStream( file );
@@ -127,7 +137,12 @@ public class ReportEngineHelper
 			{
 				systemId = designName;
 			}
-			return openReportDesign( systemId, in, locator);
+			IReportRunnable runnable = openReportDesign( systemId, in, locator );
+			if ( designCache != null )
+			{
+				designCache.put( file, locator, (ReportRunnable) runnable );
+			}
+			return runnable;
 		}
 		catch ( FileNotFoundException ioe)
 		{
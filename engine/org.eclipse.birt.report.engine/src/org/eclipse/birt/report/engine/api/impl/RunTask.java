@@ -16,12 +16,14 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.eclipse.birt.core.archive.BlockCompressedArchiveWriter;
 import org.eclipse.birt.core.archive.FileArchiveWriter;
 import org.eclipse.birt.core.archive.FolderArchive;
 import org.eclipse.birt.core.archive.FolderArchiveWriter;
 import org.eclipse.birt.core.archive.IDocArchiveWriter;
 import org.eclipse.birt.core.archive.compound.ArchiveWriter;
 import org.eclipse.birt.core.archive.compound.IArchiveFile;
+import org.eclipse.birt.report.engine.api.EngineConstants;
 import org.eclipse.birt.report.engine.api.EngineException;
 import org.eclipse.birt.report.engine.api.IEngineTask;
 import org.eclipse.birt.report.engine.api.IProgressMonitor;
@@ -123,8 +125,21 @@ public class RunTask extends AbstractRunTask implements IRunTask
 		if ( archive != null )
 		{
 			archiveWriter = new ArchiveWriter( archive );
-			return;
 		}
+		else
+		{
+			openFileArchive( );
+		}
+		if ( isBlockCompressed( ) )
+		{
+			archiveWriter = new BlockCompressedArchiveWriter( archiveWriter,
+					new String[]{ReportDocumentConstants.CONTENT_FOLDER,
+							ReportDocumentConstants.PAGEHINT_STREAM} );
+		}
+	}
+
+	private void openFileArchive( ) throws IOException
+	{
 		File file = new File( documentName );
 		if ( file.exists( ) )
 		{
@@ -150,6 +165,17 @@ public class RunTask extends AbstractRunTask implements IRunTask
 		}
 	}
 
+	private boolean isBlockCompressed( )
+	{
+		Object value = executionContext.getAppContext( ).get(
+				EngineConstants.APPCONTEXT_BLOCK_COMPRESSED_DOCUMENT );
+		if ( value instanceof Boolean )
+		{
+			return ( (Boolean) value ).booleanValue( );
+		}
+		return value != null && "true".equalsIgnoreCase( value.toString( ) ); //$NON-NLS-1$
+	}
+
 	private void openReportDocument( ) throws EngineException
 	{
 		try
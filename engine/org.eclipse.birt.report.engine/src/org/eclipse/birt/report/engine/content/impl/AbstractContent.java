@@ -35,6 +35,8 @@ import org.eclipse.birt.report.engine.css.engine.CSSEngine;
 import org.eclipse.birt.report.engine.css.engine.value.css.CSSConstants;
 import org.eclipse.birt.report.engine.extension.IBaseResultSet;
 import org.eclipse.birt.report.engine.i18n.MessageConstants;
+import org.eclipse.birt.report.engine.internal.document.StyleTableReader;
+import org.eclipse.birt.report.engine.internal.document.StyleTableWriter;
 import org.eclipse.birt.report.engine.ir.DimensionType;
 import org.eclipse.birt.report.engine.ir.ReportElementDesign;
 import org.eclipse.birt.report.engine.ir.ReportItemDesign;
@@ -599,6 +601,9 @@ abstract public class AbstractContent extends AbstractElement
 	final static short FIELD_CLASS_STYLE = 13;
 	final static short FIELD_USER_PROPERTIES = 14;
 	final static short FIELD_EXTENSIONS = 15;
+	//the inline style is saved in the style table of the document, it is
+	//written only in the documents of version 4.2.1 and later.
+	final static short FIELD_INLINESTYLE_ID = 16;
 
 	protected void writeFields( DataOutputStream out ) throws IOException
 	{
@@ -646,8 +651,18 @@ abstract public class AbstractContent extends AbstractElement
 		{
 			if( !inlineStyle.isEmpty( ) )
 			{
-				IOUtil.writeShort( out, FIELD_INLINESTYLE_VERSION_1 );
-				inlineStyle.write( out );
+				StyleTableWriter styleWriter = getStyleTableWriter( );
+				if ( styleWriter != null )
+				{
+					IOUtil.writeShort( out, FIELD_INLINESTYLE_ID );
+					IOUtil.writeInt( out, styleWriter
+							.getStyleId( inlineStyle ) );
+				}
+				else
+				{
+					IOUtil.writeShort( out, FIELD_INLINESTYLE_VERSION_1 );
+					inlineStyle.write( out );
+				}
 			}
 		}
 		if ( instanceId != null )
@@ -730,6 +745,16 @@ abstract public class AbstractContent extends AbstractElement
 					}
 				}
 				break;
+			case FIELD_INLINESTYLE_ID :
+				int styleId = IOUtil.readInt( in );
+				StyleTableReader styleReader = getStyleTableReader( );
+				// the readers which only look for the instance ids have no
+				// style table
+				if ( styleReader != null )
+				{
+					inlineStyle = styleReader.getStyle( styleId, cssEngine );
+				}
+				break;
 			case FIELD_INSTANCE_ID :
 				String value = IOUtil.readString( in );
 				instanceId = InstanceID.parse( value );
@@ -748,6 +773,24 @@ abstract public class AbstractContent extends AbstractElement
 		}
 	}
 
+	private StyleTableWriter getStyleTableWriter( )
+	{
+		if ( report instanceof ReportContent )
+		{
+			return ( (ReportContent) report ).getStyleTableWriter( );
+		}
+		return null;
+	}
+
+	private StyleTableReader getStyleTableReader( )
+	{
+		if ( report instanceof ReportContent )
+		{
+			return ( (ReportContent) report ).getStyleTableReader( );
+		}
+		return null;
+	}
+
 	private DimensionType readDimension( DataInputStream in )
 			throws IOException
 	{
@@ -49,6 +49,8 @@ import org.eclipse.birt.report.engine.css.engine.CSSEngine;
 import org.eclipse.birt.report.engine.executor.ExecutionContext;
 import org.eclipse.birt.report.engine.executor.ExecutionContext.ElementExceptionInfo;
 import org.eclipse.birt.report.engine.i18n.MessageConstants;
+import org.eclipse.birt.report.engine.internal.document.StyleTableReader;
+import org.eclipse.birt.report.engine.internal.document.StyleTableWriter;
 import org.eclipse.birt.report.engine.ir.Report;
 import org.eclipse.birt.report.engine.toc.ITreeNode;
 import org.eclipse.birt.report.engine.toc.TOCView;
@@ -97,6 +99,16 @@ public class ReportContent implements IReportContent
 
 	private String title;
 
+	/**
+	 * the style table the contents write their inline styles into.
+	 */
+	private StyleTableWriter styleWriter;
+
+	/**
+	 * the style table the contents read their inline styles from.
+	 */
+	private StyleTableReader styleReader;
+
 	/**
 	 * default constructor.
 	 */
@@ -429,6 +441,26 @@ public class ReportContent implements IReportContent
 		}
 	}
 
+	public StyleTableWriter getStyleTableWriter( )
+	{
+		return styleWriter;
+	}
+
+	public void setStyleTableWriter( StyleTableWriter writer )
+	{
+		this.styleWriter = writer;
+	}
+
+	public StyleTableReader getStyleTableReader( )
+	{
+		return styleReader;
+	}
+
+	public void setStyleTableReader( StyleTableReader reader )
+	{
+		this.styleReader = reader;
+	}
+
 	public void setTitle( String title )
 	{
 		this.title = title;
@@ -0,0 +1,579 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.report.engine.data.dte;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.eclipse.birt.core.data.ExpressionUtil;
+import org.eclipse.birt.core.exception.BirtException;
+import org.eclipse.birt.core.script.ScriptContext;
+import org.eclipse.birt.data.engine.api.DataEngineContext;
+import org.eclipse.birt.data.engine.api.IBaseDataSetDesign;
+import org.eclipse.birt.data.engine.api.IBaseDataSourceDesign;
+import org.eclipse.birt.data.engine.api.IBaseExpression;
+import org.eclipse.birt.data.engine.api.IBaseQueryDefinition;
+import org.eclipse.birt.data.engine.api.IBaseTransform;
+import org.eclipse.birt.data.engine.api.IBinding;
+import org.eclipse.birt.data.engine.api.IConditionalExpression;
+import org.eclipse.birt.data.engine.api.IDataQueryDefinition;
+import org.eclipse.birt.data.engine.api.IDataScriptEngine;
+import org.eclipse.birt.data.engine.api.IExpressionCollection;
+import org.eclipse.birt.data.engine.api.IFilterDefinition;
+import org.eclipse.birt.data.engine.api.IGroupDefinition;
+import org.eclipse.birt.data.engine.api.IPreparedQuery;
+import org.eclipse.birt.data.engine.api.IQueryDefinition;
+import org.eclipse.birt.data.engine.api.IQueryResults;
+import org.eclipse.birt.data.engine.api.IScriptExpression;
+import org.eclipse.birt.data.engine.api.ISortDefinition;
+import org.eclipse.birt.report.data.adapter.api.DataRequestSession;
+import org.eclipse.birt.report.data.adapter.api.DataSessionContext;
+import org.eclipse.birt.report.engine.adapter.ModelDteApiAdapter;
+import org.eclipse.birt.report.engine.executor.ExecutionContext;
+import org.eclipse.birt.report.engine.ir.Report;
+import org.eclipse.birt.report.engine.ir.ReportItemDesign;
+import org.eclipse.birt.report.model.api.DataSetHandle;
+import org.eclipse.birt.report.model.api.DataSourceHandle;
+import org.eclipse.birt.report.model.api.OdaDataSetHandle;
+import org.mozilla.javascript.Scriptable;
+
+/**
+ * Executes the independent top level queries of a report concurrently, before
+ * the report executor reaches them.
+ *
+ * A query is prefetched only if it is used by a report item in the report
+ * body, it is flat: it has no sub queries and no other query is nested in it,
+ * its data set is an ODA data set, and neither the query nor the data set
+ * needs a script to be evaluated: no event handlers, no parameters, no
+ * computed columns and only column references in the bindings, filters,
+ * sorts and groups. The scripts are bound to the thread running the report,
+ * so any query which doesn't match these rules is executed as before.
+ *
+ * The data set and data source designs are adapted from the design handles
+ * by the thread running the report, the prefetch threads never read the
+ * report design. Each prefetched query is executed in its own data session,
+ * as the DtE session of the report is not thread safe. The session uses a
+ * script context of its own, which is created, entered and closed by the
+ * prefetch thread; the script context of the report is never touched by the
+ * prefetch threads.
+ * The results are handed to the data engine the first time the query is
+ * executed as a root query, a failed prefetch is ignored and the query is
+ * executed again by the data engine, which reports the error.
+ */
+class DataSetPrefetcher
+{
+
+	protected static Logger logger = Logger.getLogger( DataSetPrefetcher.class
+			.getName( ) );
+
+	private ExecutionContext context;
+	private ExecutorService executor;
+	private String tempDir;
+
+	/**
+	 * the prefetched queries, accessed only by the thread running the report.
+	 */
+	private HashMap<IQueryDefinition, Future<IQueryResults>> results = new HashMap<IQueryDefinition, Future<IQueryResults>>( );
+
+	/**
+	 * the data sessions, they are created by the prefetch threads.
+	 */
+	private List<DataRequestSession> sessions = Collections
+			.synchronizedList( new ArrayList<DataRequestSession>( ) );
+
+	/**
+	 * the number of the queries served from the prefetched results.
+	 */
+	private int prefetchedCount;
+
+	DataSetPrefetcher( ExecutionContext context, int threadCount,
+			String tempDir )
+	{
+		this.context = context;
+		this.tempDir = tempDir;
+		this.executor = Executors.newFixedThreadPool( threadCount,
+				new PrefetchThreadFactory( ) );
+	}
+
+	/**
+	 * start to execute the independent queries of the report.
+	 *
+	 * @param report
+	 * @param appContext
+	 * @param session
+	 *            the data session of the report, used to adapt the data sets
+	 */
+	void prefetch( Report report, Map appContext, DataRequestSession session )
+	{
+		// the queries which have nested queries
+		HashSet<IBaseQueryDefinition> parentQueries = new HashSet<IBaseQueryDefinition>( );
+		for ( Object query : report.getQueries( ) )
+		{
+			if ( query instanceof IBaseQueryDefinition )
+			{
+				IBaseQueryDefinition parent = ( (IBaseQueryDefinition) query )
+						.getParentQuery( );
+				if ( parent != null )
+				{
+					parentQueries.add( parent );
+				}
+			}
+		}
+		for ( ReportItemDesign item : report.getContents( ) )
+		{
+			IDataQueryDefinition[] queries = item.getQueries( );
+			if ( queries == null )
+			{
+				continue;
+			}
+			for ( int i = 0; i < queries.length; i++ )
+			{
+				if ( queries[i] instanceof IQueryDefinition )
+				{
+					IQueryDefinition query = (IQueryDefinition) queries[i];
+					if ( results.containsKey( query )
+							|| parentQueries.contains( query ) )
+					{
+						continue;
+					}
+					DataSetHandle dataSet = getIndependentDataSet( report,
+							query );
+					if ( dataSet != null )
+					{
+						PrefetchTask task = createTask( query,
+								dataSet,
+								appContext,
+								session );
+						if ( task != null )
+						{
+							results.put( query, executor.submit( task ) );
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * get the prefetched results of the query. The results are returned only
+	 * once, null is returned if the query is not prefetched or the prefetch
+	 * failed.
+	 *
+	 * @param query
+	 * @return
+	 */
+	IQueryResults getResults( IQueryDefinition query )
+	{
+		Future<IQueryResults> future = results.remove( query );
+		if ( future == null )
+		{
+			return null;
+		}
+		try
+		{
+			IQueryResults queryResults = future.get( );
+			prefetchedCount++;
+			return queryResults;
+		}
+		catch ( InterruptedException e )
+		{
+			Thread.currentThread( ).interrupt( );
+			future.cancel( true );
+		}
+		catch ( ExecutionException e )
+		{
+			// the data engine will execute the query again and report the
+			// error
+			logger.log( Level.FINE, e.getMessage( ), e.getCause( ) );
+		}
+		return null;
+	}
+
+	/**
+	 * get the number of the queries served from the prefetched results.
+	 *
+	 * @return
+	 */
+	int getPrefetchedCount( )
+	{
+		return prefetchedCount;
+	}
+
+	/**
+	 * stop the pending prefetches and close the data sessions.
+	 */
+	void shutdown( )
+	{
+		executor.shutdownNow( );
+		try
+		{
+			// wait for the running queries before closing their sessions
+			executor.awaitTermination( 60, TimeUnit.SECONDS );
+		}
+		catch ( InterruptedException e )
+		{
+			Thread.currentThread( ).interrupt( );
+		}
+		for ( Future<IQueryResults> future : results.values( ) )
+		{
+			if ( future.isDone( ) && !future.isCancelled( ) )
+			{
+				try
+				{
+					future.get( ).close( );
+				}
+				catch ( Exception e )
+				{
+					logger.log( Level.FINE, e.getMessage( ), e );
+				}
+			}
+		}
+		results.clear( );
+		synchronized ( sessions )
+		{
+			for ( DataRequestSession session : sessions )
+			{
+				session.shutdown( );
+			}
+			sessions.clear( );
+		}
+	}
+
+	/**
+	 * collect everything the prefetch thread needs from the report design and
+	 * the execution context, it is called by the thread running the report.
+	 *
+	 * @return the task, null if the data set can't be adapted.
+	 */
+	private PrefetchTask createTask( IQueryDefinition query,
+			DataSetHandle dataSet, Map appContext, DataRequestSession session )
+	{
+		PrefetchTask task = new PrefetchTask( );
+		task.query = query;
+		try
+		{
+			ModelDteApiAdapter adapter = new ModelDteApiAdapter( context, null );
+			task.dataSource = adapter.createDataSourceDesign( dataSet
+					.getDataSource( ), session );
+			task.dataSet = adapter.createDataSetDesign( dataSet, session );
+		}
+		catch ( BirtException e )
+		{
+			// the data engine will define the data set again and report the
+			// error
+			logger.log( Level.FINE, e.getMessage( ), e );
+			return null;
+		}
+		task.appContext = copy( appContext );
+		task.sessionAppContext = copy( context.getAppContext( ) );
+		task.classLoader = context.getApplicationClassLoader( );
+		task.locale = context.getLocale( );
+		task.timeZone = context.getTimeZone( );
+		return task;
+	}
+
+	private static Map copy( Map map )
+	{
+		return map == null ? null : new HashMap( map );
+	}
+
+	/**
+	 * get the data set of the query if the query can be prefetched.
+	 *
+	 * @return the data set, null if the query can't be prefetched.
+	 */
+	private DataSetHandle getIndependentDataSet( Report report,
+			IQueryDefinition query )
+	{
+		if ( query.getDataSetName( ) == null
+				|| query.getQueryResultsID( ) != null
+				|| query.getSourceQuery( ) != null
+				|| query.getParentQuery( ) != null
+				|| !isEmpty( query.getSubqueries( ) )
+				|| !isEmpty( query.getInputParamBindings( ) ) )
+		{
+			return null;
+		}
+		DataSetHandle dataSet = report.getReportDesign( ).findDataSet(
+				query.getDataSetName( ) );
+		if ( !( dataSet instanceof OdaDataSetHandle )
+				|| hasScript( dataSet )
+				|| dataSet.parametersIterator( ).hasNext( )
+				|| dataSet.computedColumnsIterator( ).hasNext( )
+				|| dataSet.filtersIterator( ).hasNext( ) )
+		{
+			return null;
+		}
+		DataSourceHandle dataSource = dataSet.getDataSource( );
+		if ( dataSource == null || hasScript( dataSource ) )
+		{
+			return null;
+		}
+		try
+		{
+			Iterator iter = query.getBindings( ).values( ).iterator( );
+			while ( iter.hasNext( ) )
+			{
+				IBinding binding = (IBinding) iter.next( );
+				if ( !isColumnReference( binding.getExpression( ) )
+						|| !isColumnReference( binding.getFilter( ) )
+						|| !areColumnReferences( binding.getArguments( ) ) )
+				{
+					return null;
+				}
+			}
+			if ( !isSimpleTransform( query ) )
+			{
+				return null;
+			}
+			iter = query.getGroups( ).iterator( );
+			while ( iter.hasNext( ) )
+			{
+				IGroupDefinition group = (IGroupDefinition) iter.next( );
+				if ( group.getKeyColumn( ) == null
+						&& !isColumnReference( group.getKeyExpression( ) ) )
+				{
+					return null;
+				}
+				if ( !isSimpleTransform( group )
+						|| !isEmpty( group.getSubqueries( ) ) )
+				{
+					return null;
+				}
+			}
+		}
+		catch ( BirtException e )
+		{
+			return null;
+		}
+		return dataSet;
+	}
+
+	private boolean hasScript( DataSetHandle dataSet )
+	{
+		return dataSet.getBeforeOpen( ) != null
+				|| dataSet.getAfterOpen( ) != null
+				|| dataSet.getOnFetch( ) != null
+				|| dataSet.getBeforeClose( ) != null
+				|| dataSet.getAfterClose( ) != null
+				|| dataSet.getEventHandlerClass( ) != null
+				|| !isEmpty( dataSet.getPropertyBindings( ) );
+	}
+
+	private boolean hasScript( DataSourceHandle dataSource )
+	{
+		return dataSource.getBeforeOpen( ) != null
+				|| dataSource.getAfterOpen( ) != null
+				|| dataSource.getBeforeClose( ) != null
+				|| dataSource.getAfterClose( ) != null
+				|| dataSource.getEventHandlerClass( ) != null
+				|| !isEmpty( dataSource.getPropertyBindings( ) );
+	}
+
+	/**
+	 * the filters and sorts must only refer to the columns.
+	 */
+	private boolean isSimpleTransform( IBaseTransform transform )
+			throws BirtException
+	{
+		Iterator iter = transform.getFilters( ).iterator( );
+		while ( iter.hasNext( ) )
+		{
+			IFilterDefinition filter = (IFilterDefinition) iter.next( );
+			if ( !isColumnReference( filter.getExpression( ) ) )
+			{
+				return false;
+			}
+		}
+		iter = transform.getSorts( ).iterator( );
+		while ( iter.hasNext( ) )
+		{
+			ISortDefinition sort = (ISortDefinition) iter.next( );
+			if ( sort.getColumn( ) == null
+					&& !isColumnReference( sort.getExpression( ) ) )
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean areColumnReferences( Collection exprs )
+			throws BirtException
+	{
+		if ( exprs != null )
+		{
+			Iterator iter = exprs.iterator( );
+			while ( iter.hasNext( ) )
+			{
+				if ( !isColumnReference( (IBaseExpression) iter.next( ) ) )
+				{
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * test if the expression can be evaluated without the script engine.
+	 */
+	private boolean isColumnReference( IBaseExpression expr )
+			throws BirtException
+	{
+		if ( expr == null )
+		{
+			return true;
+		}
+		if ( expr instanceof IConditionalExpression )
+		{
+			IConditionalExpression condition = (IConditionalExpression) expr;
+			return isColumnReference( condition.getExpression( ) )
+					&& isColumnReference( condition.getOperand1( ) )
+					&& isColumnReference( condition.getOperand2( ) );
+		}
+		if ( expr instanceof IExpressionCollection )
+		{
+			return areColumnReferences( ( (IExpressionCollection) expr )
+					.getExpressions( ) );
+		}
+		if ( expr instanceof IScriptExpression )
+		{
+			IScriptExpression script = (IScriptExpression) expr;
+			return script.isConstant( )
+					|| isColumnReference( script.getText( ) );
+		}
+		return false;
+	}
+
+	private boolean isColumnReference( String text ) throws BirtException
+	{
+		if ( text == null || text.trim( ).length( ) == 0 )
+		{
+			return true;
+		}
+		return ExpressionUtil.getColumnName( text ) != null
+				|| ExpressionUtil.getColumnBindingName( text ) != null;
+	}
+
+	private boolean isEmpty( Collection collection )
+	{
+		return collection == null || collection.isEmpty( );
+	}
+
+	/**
+	 * Executes a query in a new data session, the designs and the settings
+	 * are collected by the thread running the report.
+	 */
+	private class PrefetchTask implements Callable<IQueryResults>
+	{
+
+		IQueryDefinition query;
+		IBaseDataSourceDesign dataSource;
+		IBaseDataSetDesign dataSet;
+		Map appContext;
+		Map sessionAppContext;
+		ClassLoader classLoader;
+		Locale locale;
+		TimeZone timeZone;
+
+		public IQueryResults call( ) throws Exception
+		{
+			// the script engines enter the javascript context of the current
+			// thread, so the script context is created here and closed before
+			// the thread is returned to the pool.
+			ScriptContext scriptContext = new ScriptContext( );
+			try
+			{
+				return execute( scriptContext );
+			}
+			finally
+			{
+				scriptContext.close( );
+			}
+		}
+
+		private IQueryResults execute( ScriptContext scriptContext )
+				throws BirtException
+		{
+			scriptContext.setApplicationClassLoader( classLoader );
+			if ( locale != null )
+			{
+				scriptContext.setLocale( locale );
+			}
+			// the session doesn't get the module handle, the resource
+			// identifiers are passed in the application context.
+			DataSessionContext sessionContext = new DataSessionContext(
+					DataSessionContext.MODE_DIRECT_PRESENTATION, null,
+					scriptContext, classLoader );
+			sessionContext.setAppContext( sessionAppContext );
+			DataEngineContext engineContext = sessionContext
+					.getDataEngineContext( );
+			engineContext.setLocale( locale );
+			engineContext.setTimeZone( timeZone );
+			if ( tempDir != null )
+			{
+				engineContext.setTmpdir( tempDir );
+			}
+			DataRequestSession session = DataRequestSession
+					.newSession( sessionContext );
+			sessions.add( session );
+
+			Scriptable scope = ( (IDataScriptEngine) scriptContext
+					.getScriptEngine( IDataScriptEngine.ENGINE_NAME ) )
+					.getJSScope( scriptContext );
+			if ( dataSource != null )
+			{
+				session.defineDataSource( dataSource );
+			}
+			session.defineDataSet( dataSet );
+			IPreparedQuery pQuery = (IPreparedQuery) session.prepare( query,
+					appContext );
+			IQueryResults queryResults = pQuery.execute( scope );
+			// fetch and cache the rows
+			queryResults.getResultIterator( );
+			return queryResults;
+		}
+	}
+
+	private static class PrefetchThreadFactory implements ThreadFactory
+	{
+
+		private static AtomicInteger threadNumber = new AtomicInteger( );
+
+		public Thread newThread( Runnable r )
+		{
+			Thread thread = new Thread( r, "BIRT Data Set Prefetch-" //$NON-NLS-1$
+					+ threadNumber.incrementAndGet( ) );
+			thread.setDaemon( true );
+			return thread;
+		}
+	}
+}
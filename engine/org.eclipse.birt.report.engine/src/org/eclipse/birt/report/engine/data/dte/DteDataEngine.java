@@ -30,6 +30,8 @@ import org.eclipse.birt.data.engine.olap.api.query.ICubeQueryDefinition;
 import org.eclipse.birt.report.data.adapter.api.DataRequestSession;
 import org.eclipse.birt.report.data.adapter.api.DataSessionContext;
 import org.eclipse.birt.report.engine.api.EngineException;
+import org.eclipse.birt.report.engine.api.IEngineConfig;
+import org.eclipse.birt.report.engine.api.IReportEngine;
 import org.eclipse.birt.report.engine.data.DataEngineFactory;
 import org.eclipse.birt.report.engine.executor.ExecutionContext;
 import org.eclipse.birt.report.engine.extension.IBaseResultSet;
@@ -46,6 +48,12 @@ public class DteDataEngine extends AbstractDataEngine
 	
 	private boolean needCache;
 
+	/**
+	 * executes the independent queries concurrently, null if the prefetch is
+	 * disabled.
+	 */
+	private DataSetPrefetcher prefetcher;
+
 	/**
 	 * cache the query - result set mapping. 
 	 *
@@ -102,6 +110,16 @@ public class DteDataEngine extends AbstractDataEngine
 			}
 
 			dteSession = DataRequestSession.newSession( dteSessionContext );
+
+			// the prefetched results are not saved, so they are only used
+			// when the results needn't be cached.
+			int prefetchThreadCount = getPrefetchThreadCount( context );
+			if ( !needCache && prefetchThreadCount > 0 )
+			{
+				prefetcher = new DataSetPrefetcher( context,
+						prefetchThreadCount,
+						tempDir );
+			}
 		}
 		catch ( Exception ex )
 		{
@@ -109,6 +127,46 @@ public class DteDataEngine extends AbstractDataEngine
 			logger.log( Level.SEVERE, "can not create the DTE data engine", ex );
 		}
 	}
+
+	/**
+	 * get the number of the root queries served from the prefetched results.
+	 */
+	int getPrefetchedCount( )
+	{
+		return prefetcher == null ? 0 : prefetcher.getPrefetchedCount( );
+	}
+
+	/**
+	 * get the number of threads used to prefetch the data sets, it is defined
+	 * in the application context or the engine config.
+	 */
+	private int getPrefetchThreadCount( ExecutionContext context )
+	{
+		Map appContext = context.getAppContext( );
+		Object count = appContext == null ? null : appContext
+				.get( IEngineConfig.DATA_SET_PREFETCH_THREAD_COUNT );
+		if ( count == null )
+		{
+			IReportEngine engine = context.getEngine( );
+			if ( engine != null && engine.getConfig( ) != null )
+			{
+				return engine.getConfig( ).getDataSetPrefetchThreadCount( );
+			}
+			return 0;
+		}
+		if ( count instanceof Number )
+		{
+			return ( (Number) count ).intValue( );
+		}
+		try
+		{
+			return Integer.parseInt( count.toString( ).trim( ) );
+		}
+		catch ( NumberFormatException e )
+		{
+			return 0;
+		}
+	}
 	
 	/**
 	 * this constructor is used 
@@ -146,19 +204,29 @@ public class DteDataEngine extends AbstractDataEngine
 			{
 				( (BaseQueryDefinition) query ).setCacheQueryResults( true );
 			}
-			if ( parentResultSet == null )
+			if ( parentResultSet == null && prefetcher != null )
 			{
-				// this is the root query
-				dteResults = dteSession.execute( pQuery, null, scriptContext );
+				// the prefetched results are owned by another session, they
+				// can't be reopened by the id so they are not cached.
+				dteResults = prefetcher.getResults( query );
 			}
-			else
+			if ( dteResults == null )
 			{
-				// this is the nest query, execute the query in the
-				// parent results
-				dteResults = dteSession.execute( pQuery, parentResultSet
-						.getQueryResults( ), scriptContext );
+				if ( parentResultSet == null )
+				{
+					// this is the root query
+					dteResults = dteSession.execute( pQuery, null,
+							scriptContext );
+				}
+				else
+				{
+					// this is the nest query, execute the query in the
+					// parent results
+					dteResults = dteSession.execute( pQuery, parentResultSet
+							.getQueryResults( ), scriptContext );
+				}
+				queryCache.putCachedQuery( query, dteResults.getID( ) );
 			}
-			queryCache.putCachedQuery( query, dteResults.getID( ) );
 		}
 
 		IBaseResultSet resultSet;
@@ -270,6 +338,23 @@ public class DteDataEngine extends AbstractDataEngine
 		// prepare report queries
 		queryIDMap.putAll( report.getQueryIDs( ) );
 		super.doPrepareQuery( report, appContext );
+		if ( prefetcher != null )
+		{
+			prefetcher.prefetch( report, appContext, dteSession );
+		}
+	}
+
+	/*
+	 * @see org.eclipse.birt.report.engine.data.dte.AbstractDataEngine#shutdown()
+	 */
+	public void shutdown( )
+	{
+		if ( prefetcher != null )
+		{
+			prefetcher.shutdown( );
+			prefetcher = null;
+		}
+		super.shutdown( );
 	}
 
 	protected void cacheResultID( IBaseResultSet parentResultSet,
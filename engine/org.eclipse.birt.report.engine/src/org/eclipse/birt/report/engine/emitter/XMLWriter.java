@@ -34,6 +34,9 @@ public class XMLWriter
 	protected char[] buffer = new char[MAX_BUFFER_SIZE];
 	protected int bufferSize;
 
+	/** the number of the characters passed to the writer */
+	protected long writtenSize;
+
 	/** the print writer for outputting */
 	protected Writer writer;
 
@@ -487,6 +490,7 @@ public class XMLWriter
 			{
 				writer.write( buffer, 0, bufferSize );
 				writer.write( s );
+				writtenSize += bufferSize + length;
 				bufferSize = 0;
 			}
 			catch ( IOException ex )
@@ -531,6 +535,7 @@ public class XMLWriter
 			try
 			{
 				writer.write( buffer, 0, bufferSize );
+				writtenSize += bufferSize;
 			}
 			catch ( IOException ex )
 			{
@@ -539,4 +544,33 @@ public class XMLWriter
 			bufferSize = 0;
 		}
 	}
+
+	/**
+	 * flush the buffered characters and the underlying writer, so the content
+	 * written so far reaches the output stream.
+	 */
+	public void flushOutput( )
+	{
+		flush( );
+		if ( writer != null )
+		{
+			try
+			{
+				writer.flush( );
+			}
+			catch ( IOException ex )
+			{
+				log.log( Level.SEVERE, ex.getMessage( ) );
+			}
+		}
+	}
+
+	/**
+	 * @return the number of the characters written so far, including the
+	 *         buffered ones.
+	 */
+	public long getWrittenSize( )
+	{
+		return writtenSize + bufferSize;
+	}
 }
\ No newline at end of file
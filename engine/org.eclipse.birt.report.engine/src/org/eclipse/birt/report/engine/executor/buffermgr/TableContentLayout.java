@@ -230,11 +230,35 @@ public class TableContentLayout
 	/**
 	 * reset the table model.
 	 * 
+	 * Only the rows in use are cleared. The last row is kept for page hint
+	 * and the row kept before takes its place in the buffer, so resetting
+	 * the table after each row doesn't allocate.
 	 */
 	public void reset( )
 	{
 		//keepUnresolvedCells( );
-		fillEmptyCells( 0, 0, rowBufferSize, colBufferSize );
+		if ( rowCount > 0 )
+		{
+			Row row = rows[rowCount - 1];
+			rows[rowCount - 1] = lastRow != null
+					&& lastRow.cells.length == colBufferSize
+					? lastRow
+					: new Row( rowCount - 1 );
+			lastRow = row;
+			for ( int i = 0; i < rowCount; i++ )
+			{
+				Cell[] cells = rows[i].cells;
+				if ( cells == null || cells.length != colBufferSize )
+				{
+					cells = new Cell[colBufferSize];
+					rows[i].cells = cells;
+				}
+				for ( int j = 0; j < colBufferSize; j++ )
+				{
+					cells[j] = Cell.EMPTY_CELL;
+				}
+			}
+		}
 		rowCount = 0;
 		isRowHidden = false;
 	}
@@ -501,6 +525,8 @@ public class TableContentLayout
 	{
 		if ( newRowBufferSize > rowBufferSize )
 		{
+			// grow the buffer geometrically, a row is added each time
+			newRowBufferSize = Math.max( newRowBufferSize, rowBufferSize * 2 );
 			Row[] newRows = new Row[newRowBufferSize];
 			if ( rows != null )
 			{
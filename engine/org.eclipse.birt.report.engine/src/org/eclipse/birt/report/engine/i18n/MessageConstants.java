@@ -139,6 +139,7 @@ public class MessageConstants
     public static final String  UNSPPORTED_EXPRESSION_TYPE = "Error.UnsupportedExprssionType";
     public static final String  UNKNOWN_CONTENT_VERSION = "Error.UnknownContentVersion"; 
     public static final String  UNKNOWN_FIELD_ID = "Error.UnknownFieldID";
+    public static final String  UNKNOWN_STYLE_ID = "Error.UnknownStyleID";
     public static final String  RESOURCE_NOT_ACCESSIBLE = "Error.ResourceNotAccessible";
 	public static final String DOCUMENT_ERROR = "Error.ERROR_WITH_STATUS";
     
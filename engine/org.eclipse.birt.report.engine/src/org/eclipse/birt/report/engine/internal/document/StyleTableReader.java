@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.report.engine.internal.document;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.eclipse.birt.core.archive.IDocArchiveReader;
+import org.eclipse.birt.core.archive.RAInputStream;
+import org.eclipse.birt.report.engine.css.dom.StyleDeclaration;
+import org.eclipse.birt.report.engine.css.engine.CSSEngine;
+import org.eclipse.birt.report.engine.i18n.MessageConstants;
+
+/**
+ * Reads the styles written by StyleTableWriter. Each style is read once, the
+ * contents get a copy which shares its values until it is changed.
+ * 
+ * The styles are read as they are referred, so the styles written after the
+ * reader is opened are found in a document which is still being generated.
+ */
+public class StyleTableReader
+{
+
+	protected static Logger logger = Logger.getLogger( StyleTableReader.class
+			.getName( ) );
+
+	protected RAInputStream stream;
+
+	/**
+	 * the styles read, indexed by their ids
+	 */
+	private ArrayList<StyleDeclaration> styles = new ArrayList<StyleDeclaration>( );
+
+	/**
+	 * the offset of the next style to read
+	 */
+	private long offset;
+
+	/**
+	 * opens the style table of the document.
+	 * 
+	 * @return the reader, or null if the document has no style table.
+	 */
+	public static StyleTableReader open( IDocArchiveReader reader, String name )
+			throws IOException
+	{
+		if ( !reader.exists( name ) )
+		{
+			return null;
+		}
+		return new StyleTableReader( reader.getStream( name ) );
+	}
+
+	public StyleTableReader( RAInputStream stream )
+	{
+		this.stream = stream;
+	}
+
+	/**
+	 * returns a copy of the style with the id.
+	 * 
+	 * @param id
+	 *            the id of the style
+	 * @param cssEngine
+	 *            the css engine of the content
+	 * @return the style
+	 * @throws IOException
+	 *             if there is no such a style.
+	 */
+	public synchronized StyleDeclaration getStyle( int id, CSSEngine cssEngine )
+			throws IOException
+	{
+		if ( id >= styles.size( ) )
+		{
+			loadStyles( cssEngine );
+		}
+		if ( id < 0 || id >= styles.size( ) )
+		{
+			throw new IOException( MessageConstants.UNKNOWN_STYLE_ID + id );
+		}
+		return new StyleDeclaration( styles.get( id ) );
+	}
+
+	/**
+	 * reads the styles written since the last load.
+	 */
+	private void loadStyles( CSSEngine cssEngine ) throws IOException
+	{
+		stream.refresh( );
+		long length = stream.length( );
+		stream.seek( offset );
+		while ( offset + 4 <= length )
+		{
+			int size = stream.readInt( );
+			if ( offset + 4 + size > length )
+			{
+				// the style is not flushed yet
+				break;
+			}
+			byte[] buffer = new byte[size];
+			stream.readFully( buffer, 0, size );
+			StyleDeclaration style = new StyleDeclaration( cssEngine );
+			style.read( new DataInputStream( new ByteArrayInputStream( buffer ) ) );
+			styles.add( style );
+			offset += 4 + size;
+		}
+	}
+
+	public void close( )
+	{
+		if ( stream != null )
+		{
+			try
+			{
+				stream.close( );
+			}
+			catch ( IOException ex )
+			{
+				logger.log( Level.SEVERE, "Failed to close the reader", ex );
+			}
+			stream = null;
+		}
+		styles.clear( );
+	}
+}
@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.report.engine.internal.document;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.eclipse.birt.core.archive.IDocArchiveWriter;
+import org.eclipse.birt.core.archive.RAOutputStream;
+import org.eclipse.birt.report.engine.content.IStyle;
+
+/**
+ * Writes the distinct inline styles of the contents into a stream of the
+ * document, so that the contents refer to their inline style by its id
+ * instead of writing it. The stream holds the styles in the order of their
+ * ids, each one as its length and the data written by IStyle.write.
+ * 
+ * A style is flushed as soon as it is appended, so the readers of a document
+ * which is still being generated find the styles of the contents flushed
+ * before.
+ */
+public class StyleTableWriter
+{
+
+	protected static Logger logger = Logger.getLogger( StyleTableWriter.class
+			.getName( ) );
+
+	protected RAOutputStream stream;
+
+	/**
+	 * the ids of the styles written, keyed by their data
+	 */
+	private HashMap<StyleKey, Integer> styleIds = new HashMap<StyleKey, Integer>( );
+
+	private ByteArrayOutputStream buffer = new ByteArrayOutputStream( );
+	private DataOutputStream bufferStream = new DataOutputStream( buffer );
+
+	public StyleTableWriter( IDocArchiveWriter writer, String name )
+			throws IOException
+	{
+		stream = writer.createRandomAccessStream( name );
+	}
+
+	/**
+	 * returns the id of the style, the style is written if it is not in the
+	 * table yet.
+	 * 
+	 * @param style
+	 *            the style, not empty.
+	 * @return the id of the style.
+	 * @throws IOException
+	 */
+	public int getStyleId( IStyle style ) throws IOException
+	{
+		buffer.reset( );
+		style.write( bufferStream );
+		bufferStream.flush( );
+		StyleKey key = new StyleKey( buffer.toByteArray( ) );
+		Integer id = styleIds.get( key );
+		if ( id == null )
+		{
+			id = Integer.valueOf( styleIds.size( ) );
+			stream.writeInt( key.data.length );
+			stream.write( key.data );
+			stream.flush( );
+			styleIds.put( key, id );
+		}
+		return id.intValue( );
+	}
+
+	public void close( )
+	{
+		if ( stream != null )
+		{
+			try
+			{
+				stream.close( );
+			}
+			catch ( Exception ex )
+			{
+				logger.log( Level.SEVERE, "Failed in close the writer", ex );
+			}
+			stream = null;
+		}
+		styleIds.clear( );
+	}
+
+	private static class StyleKey
+	{
+
+		byte[] data;
+		int hashCode;
+
+		StyleKey( byte[] data )
+		{
+			this.data = data;
+			this.hashCode = Arrays.hashCode( data );
+		}
+
+		public int hashCode( )
+		{
+			return hashCode;
+		}
+
+		public boolean equals( Object obj )
+		{
+			if ( obj instanceof StyleKey )
+			{
+				return Arrays.equals( data, ( (StyleKey) obj ).data );
+			}
+			return false;
+		}
+	}
+}
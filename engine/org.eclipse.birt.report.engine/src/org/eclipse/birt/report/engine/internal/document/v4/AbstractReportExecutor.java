@@ -33,6 +33,7 @@ import org.eclipse.birt.report.engine.executor.ExecutionContext;
 import org.eclipse.birt.report.engine.executor.IReportExecutor;
 import org.eclipse.birt.report.engine.extension.IReportItemExecutor;
 import org.eclipse.birt.report.engine.internal.document.PageHintReader;
+import org.eclipse.birt.report.engine.internal.document.StyleTableReader;
 import org.eclipse.birt.report.engine.internal.document.v3.CachedReportContentReaderV3;
 import org.eclipse.birt.report.engine.ir.MasterPageDesign;
 import org.eclipse.birt.report.engine.ir.Report;
@@ -102,6 +103,8 @@ abstract public class AbstractReportExecutor implements IReportExecutor
 		try
 		{
 			IDocArchiveReader archive = reportDoc.getArchive( );
+			reportContent.setStyleTableReader( StyleTableReader.open( archive,
+					ReportDocumentConstants.STYLE_STREAM ) );
 			RAInputStream in = archive
 					.getStream( ReportDocumentConstants.CONTENT_STREAM );
 			reader = new CachedReportContentReaderV3( reportContent, in,
@@ -135,6 +138,16 @@ abstract public class AbstractReportExecutor implements IReportExecutor
 			pageReader.close( );
 			pageReader = null;
 		}
+		if ( reportContent != null )
+		{
+			StyleTableReader styleReader = reportContent
+					.getStyleTableReader( );
+			if ( styleReader != null )
+			{
+				reportContent.setStyleTableReader( null );
+				styleReader.close( );
+			}
+		}
 
 		if ( hintsReader != null )
 		{
@@ -17,6 +17,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.eclipse.birt.core.archive.BlockCompressedArchiveWriter;
 import org.eclipse.birt.core.archive.IDocArchiveReader;
 import org.eclipse.birt.core.archive.IDocArchiveWriter;
 import org.eclipse.birt.core.archive.compound.ArchiveReader;
@@ -88,6 +89,11 @@ public class ReportDocumentInfo implements IReportDocumentInfo
 			}
 		}
 		IDocArchiveWriter arcWriter = writer.getArchive( );
+		if ( arcWriter instanceof BlockCompressedArchiveWriter )
+		{
+			arcWriter = ( (BlockCompressedArchiveWriter) arcWriter )
+					.getWriter( );
+		}
 		if ( arcWriter instanceof ArchiveWriter )
 		{
 			IArchiveFile archive = ( (ArchiveWriter) arcWriter )
@@ -59,6 +59,11 @@ public class HTMLLayoutContext
 	protected boolean isFixedLayout = false;
 	
 	protected boolean isPaged = false;
+
+	/**
+	 * the rows of a table are released as soon as they are written.
+	 */
+	protected boolean isStreaming = false;
 	
 
 	public boolean isSoftRowBreak( )
@@ -248,4 +253,14 @@ public class HTMLLayoutContext
 		this.isPaged = isPaged;
 	}
 
+	public boolean isStreaming( )
+	{
+		return isStreaming;
+	}
+
+	public void setStreaming( boolean isStreaming )
+	{
+		this.isStreaming = isStreaming;
+	}
+
 }
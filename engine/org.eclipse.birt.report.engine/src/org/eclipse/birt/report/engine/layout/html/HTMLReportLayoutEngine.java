@@ -174,6 +174,12 @@ public class HTMLReportLayoutEngine implements IReportLayoutEngine
 			}
 		}
 		
+		Object streaming = options.get( IHTMLRenderOption.HTML_STREAMING );
+		if ( Boolean.TRUE.equals( streaming ) || "true".equals( streaming ) ) //$NON-NLS-1$
+		{
+			context.setStreaming( true );
+		}
+
 		Object taskType = options.get( EngineTask.TASK_TYPE );
 		if ( taskType instanceof Integer )
 		{
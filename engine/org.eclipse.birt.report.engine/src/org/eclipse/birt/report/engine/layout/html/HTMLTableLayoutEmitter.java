@@ -636,6 +636,12 @@ public class HTMLTableLayoutEmitter extends ContentEmitterAdapter
 					flush( );
 					return;
 				}
+				if ( context.isStreaming( ) )
+				{
+					// no cell spans to the next row, so the rows written
+					// are not needed any more.
+					layout.reset( );
+				}
 			}
 			// For fixed layout reports and in run task, we need to emit the
 			// invisible content to PDF layout engine.
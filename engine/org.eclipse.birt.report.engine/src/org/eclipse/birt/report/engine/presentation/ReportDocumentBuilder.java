@@ -42,6 +42,7 @@ import org.eclipse.birt.report.engine.content.IPageContent;
 import org.eclipse.birt.report.engine.content.IReportContent;
 import org.eclipse.birt.report.engine.content.impl.AbstractContent;
 import org.eclipse.birt.report.engine.content.impl.BookmarkContent;
+import org.eclipse.birt.report.engine.content.impl.ReportContent;
 import org.eclipse.birt.report.engine.emitter.CompositeContentEmitter;
 import org.eclipse.birt.report.engine.emitter.ContentEmitterAdapter;
 import org.eclipse.birt.report.engine.emitter.EngineEmitterServices;
@@ -58,6 +59,7 @@ import org.eclipse.birt.report.engine.extension.internal.ExtensionManager;
 import org.eclipse.birt.report.engine.internal.document.DocumentExtension;
 import org.eclipse.birt.report.engine.internal.document.IPageHintWriter;
 import org.eclipse.birt.report.engine.internal.document.IReportContentWriter;
+import org.eclipse.birt.report.engine.internal.document.StyleTableWriter;
 import org.eclipse.birt.report.engine.internal.document.v3.ReportContentWriterV3;
 import org.eclipse.birt.report.engine.internal.document.v4.FixedLayoutPageHintWriter;
 import org.eclipse.birt.report.engine.internal.document.v4.PageHintWriterV4;
@@ -354,6 +356,8 @@ public class ReportDocumentBuilder
 
 		ReportContentWriterV3 writer;
 		ReportContentWriterV3 pageWriter;
+		StyleTableWriter styleWriter;
+		ReportContent reportContent;
 		RAOutputStream indexStream;
 		HashSet<String> savedMasterPages = new HashSet<String>( );
 		private boolean inMasterPage;
@@ -367,6 +371,17 @@ public class ReportDocumentBuilder
 						ReportDocumentConstants.CONTENT_STREAM );
 				writer.writeReport( report );
 
+				if ( report instanceof ReportContent )
+				{
+					// the contents write their inline styles into the table,
+					// the older engines refuse the document by its version
+					// as they can't read the style ids.
+					styleWriter = new StyleTableWriter( document.getArchive( ),
+							ReportDocumentConstants.STYLE_STREAM );
+					reportContent = (ReportContent) report;
+					reportContent.setStyleTableWriter( styleWriter );
+				}
+
 				pageWriter = new ReportContentWriterV3( document.getArchive( ),
 						ReportDocumentConstants.PAGE_STREAM );
 				indexStream = document.getArchive( ).createRandomAccessStream(
@@ -392,6 +407,13 @@ public class ReportDocumentBuilder
 				pageWriter.close( );
 				pageWriter = null;
 			}
+			if ( styleWriter != null )
+			{
+				reportContent.setStyleTableWriter( null );
+				reportContent = null;
+				styleWriter.close( );
+				styleWriter = null;
+			}
 			if ( indexStream != null )
 			{
 